@@ -34,5 +34,16 @@ public interface Metrics {
    * @param value The value to be set.
    */
   void gauge(String metricName, long value);
+
+  /**
+   * Records a value of a distribution metric, such as a latency. Percentiles of the distribution can be queried
+   * by appending {@code :p<percentile>} to the metric name, for example {@code user.latency:p99}.
+   * The default implementation ignores the value.
+   * @param metricName Name of the distribution. Use alphanumeric characters in metric names.
+   * @param value The value to record.
+   */
+  default void distribution(String metricName, long value) {
+    // no-op
+  }
 }
 
@@ -42,4 +42,9 @@ public class ProgramUserMetrics implements Metrics {
   public void gauge(String metricName, long value) {
     metricsContext.gauge(metricName, value);
   }
+
+  @Override
+  public void distribution(String metricName, long value) {
+    metricsContext.distribution(metricName, value);
+  }
 }
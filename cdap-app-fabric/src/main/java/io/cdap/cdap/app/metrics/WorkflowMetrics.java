@@ -46,4 +46,10 @@ public class WorkflowMetrics implements Metrics {
     programMetricsContext.gauge(metricName, value);
     workflowMetricsContext.gauge(metricName, value);
   }
+
+  @Override
+  public void distribution(String metricName, long value) {
+    programMetricsContext.distribution(metricName, value);
+    workflowMetricsContext.distribution(metricName, value);
+  }
 }
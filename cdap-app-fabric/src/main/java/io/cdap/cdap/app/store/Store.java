@@ -236,6 +236,12 @@ public interface Store {
    */
   int countActiveRuns(@Nullable Integer limit);
 
+  /**
+   * Initializes the per program active run counts used by {@link #countActiveRuns(Integer)} from the active run
+   * records, if they were not initialized before. This should be called once on start up.
+   */
+  void initializeActiveRunCounts();
+
   /**
    * Fetches the active (i.e STARTING or RUNNING or SUSPENDED) run records against a given NamespaceId.
    * @param namespaceId the namespace id to match against
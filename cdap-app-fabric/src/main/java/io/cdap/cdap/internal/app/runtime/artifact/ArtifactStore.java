@@ -54,6 +54,7 @@ import io.cdap.cdap.spi.data.StructuredTableContext;
 import io.cdap.cdap.spi.data.TableNotFoundException;
 import io.cdap.cdap.spi.data.table.StructuredTableId;
 import io.cdap.cdap.spi.data.table.field.Field;
+import io.cdap.cdap.spi.data.table.field.FieldFilter;
 import io.cdap.cdap.spi.data.table.field.Fields;
 import io.cdap.cdap.spi.data.table.field.Range;
 import io.cdap.cdap.spi.data.transaction.TransactionException;
@@ -808,15 +809,16 @@ public class ArtifactStore {
       Collection<Field<?>> systemPluginKey =
         Collections.singleton(Fields.stringField(StoreDefinition.ArtifactStore.PARENT_NAMESPACE_FIELD,
                                                  Id.Namespace.SYSTEM.getId()));
+      // only the plugins whose artifact is in the namespace we're deleting are read, without the plugin data
+      Collection<FieldFilter> namespaceFilter = Collections.singleton(
+        FieldFilter.equal(Fields.stringField(StoreDefinition.ArtifactStore.ARTIFACT_NAMESPACE_FIELD,
+                                             namespaceId.getId())));
       try (CloseableIterator<StructuredRow> iterator =
-             pluginDataTable.scan(Range.singleton(systemPluginKey), Integer.MAX_VALUE)) {
+             pluginDataTable.scan(Range.singleton(systemPluginKey), Integer.MAX_VALUE, namespaceFilter,
+                                  Collections.emptyList())) {
         while (iterator.hasNext()) {
           StructuredRow row = iterator.next();
-
-          // if the plugin artifact is in the namespace we're deleting, delete this column.
-          if (namespaceId.getId().equals(row.getString(StoreDefinition.ArtifactStore.ARTIFACT_NAMESPACE_FIELD))) {
-            pluginDataTable.delete(concatFields(PluginKeyPrefix.fromRow(row), ArtifactCell.fromRow(row)));
-          }
+          pluginDataTable.delete(concatFields(PluginKeyPrefix.fromRow(row), ArtifactCell.fromRow(row)));
         }
       }
     }, IOException.class);
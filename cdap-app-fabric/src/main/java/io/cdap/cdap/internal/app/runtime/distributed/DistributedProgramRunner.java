@@ -40,6 +40,7 @@ import io.cdap.cdap.common.conf.CConfigurationUtil;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.lang.ClassLoaders;
 import io.cdap.cdap.common.lang.CombineClassLoader;
+import io.cdap.cdap.common.lang.jar.BundleJarCache;
 import io.cdap.cdap.common.lang.jar.BundleJarUtil;
 import io.cdap.cdap.common.logging.LoggerLogHandler;
 import io.cdap.cdap.common.logging.LoggingContext;
@@ -124,6 +125,7 @@ public abstract class DistributedProgramRunner implements ProgramRunner, Program
   protected final ClusterMode clusterMode;
   private final TwillRunner twillRunner;
   private final Impersonator impersonator;
+  private final BundleJarCache bundleJarCache;
 
   protected DistributedProgramRunner(CConfiguration cConf, Configuration hConf, Impersonator impersonator,
                                      ClusterMode clusterMode, TwillRunner twillRunner) {
@@ -132,6 +134,12 @@ public abstract class DistributedProgramRunner implements ProgramRunner, Program
     this.cConf = cConf;
     this.impersonator = impersonator;
     this.clusterMode = clusterMode;
+    // Extension jars are the same for most of the launches, hence only build them when they change
+    this.bundleJarCache = new BundleJarCache(
+      new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
+               cConf.get(Constants.AppFabric.BUNDLE_JAR_CACHE_DIR)).getAbsoluteFile(),
+      cConf.getInt(Constants.AppFabric.BUNDLE_JAR_CACHE_MAX_ENTRIES),
+      TimeUnit.SECONDS.toMillis(cConf.getLong(Constants.AppFabric.BUNDLE_JAR_CACHE_MAX_AGE_SECONDS)));
   }
 
   /**
@@ -376,7 +384,7 @@ public abstract class DistributedProgramRunner implements ProgramRunner, Program
     }
     String jarDir = cConf.get(Constants.Logging.LOG_APPENDER_EXT_DIR);
     File bundleJarFile = new File(tempDir, "log-appender.jar");
-    BundleJarUtil.createJar(new File(jarDir + "/" + provider), bundleJarFile);
+    bundleJarCache.createJar(new File(jarDir + "/" + provider), bundleJarFile);
     String localizedDir = "log-appender";
     // set extensions dir to point to localized appender directory - appender/<log-appender-provider>
     localizeResources.put(localizedDir + "/" + provider, new LocalizeResource(bundleJarFile, true));
@@ -629,7 +637,7 @@ public abstract class DistributedProgramRunner implements ProgramRunner, Program
     }
 
     final File target = new File(tempDir, "hbaseddlext.jar");
-    BundleJarUtil.createJar(new File(ddlExecutorExtensionDir), target);
+    bundleJarCache.createJar(new File(ddlExecutorExtensionDir), target);
     localizeResources.put(target.getName(), new LocalizeResource(target, true));
     cConf.set(Constants.HBaseDDLExecutor.EXTENSIONS_DIR, target.getName());
   }
@@ -29,7 +29,8 @@ public interface CheckableConstraint extends Constraint {
    *
    * @param schedule the schedule that is being checked against
    * @param context context information for the check
-   * @return the result of the check
+   * @return the result of the check. If the constraint is not satisfied, the result carries the earliest time
+   *         the constraint can become satisfied, so that the job doesn't need to be checked again before then
    */
   ConstraintResult check(ProgramSchedule schedule, ConstraintContext context);
 }
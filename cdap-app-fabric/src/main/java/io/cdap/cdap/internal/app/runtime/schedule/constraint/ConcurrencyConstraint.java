@@ -51,7 +51,8 @@ public class ConcurrencyConstraint extends ProtoConstraint.ConcurrencyConstraint
     if (!waitUntilMet) {
       return ConstraintResult.NEVER_SATISFIED;
     }
+    // The number of active runs only changes with the program status, which wakes up the job
     return new ConstraintResult(ConstraintResult.SatisfiedState.NOT_SATISFIED,
-                                context.getCheckTimeMillis() + TimeUnit.SECONDS.toMillis(10));
+                                context.getCheckTimeMillis() + TimeUnit.SECONDS.toMillis(10), true);
   }
 }
@@ -36,26 +36,44 @@ public class ConstraintResult {
   }
   private final SatisfiedState satisfiedState;
   private final Long nextCheckTime;
+  private final boolean waitForProgramStatus;
 
   ConstraintResult(SatisfiedState satisfiedState) {
     this(satisfiedState, null);
   }
 
   ConstraintResult(SatisfiedState satisfiedState, Long nextCheckTime) {
+    this(satisfiedState, nextCheckTime, false);
+  }
+
+  ConstraintResult(SatisfiedState satisfiedState, Long nextCheckTime, boolean waitForProgramStatus) {
     if (satisfiedState == SatisfiedState.NOT_SATISFIED) {
       // if a constraint is NOT_SATISFIED, there must be a duration specified for the next retry
       Preconditions.checkNotNull(nextCheckTime);
     }
     this.satisfiedState = satisfiedState;
     this.nextCheckTime = nextCheckTime;
+    this.waitForProgramStatus = waitForProgramStatus;
   }
 
   public SatisfiedState getSatisfiedState() {
     return satisfiedState;
   }
 
+  /**
+   * Returns the earliest time in milliseconds at which the constraint can become satisfied, or {@code null} if
+   * the constraint is not {@link SatisfiedState#NOT_SATISFIED}.
+   */
   @Nullable
   public Long getNextCheckTime() {
     return nextCheckTime;
   }
+
+  /**
+   * Returns {@code true} if the constraint can also become satisfied before the next check time, when the
+   * status of a run of the scheduled program changes.
+   */
+  public boolean isWaitForProgramStatus() {
+    return waitForProgramStatus;
+  }
 }
@@ -49,14 +49,26 @@ public class LastRunConstraint extends ProtoConstraint.LastRunConstraint impleme
     // instead of just the first (in order to more accurately compute a next runtime
 
 
-    if (Iterables.isEmpty(filter(runRecords, startTime))) {
+    Iterable<RunRecordMeta> blockingRuns = filter(runRecords, startTime);
+    if (Iterables.isEmpty(blockingRuns)) {
       return ConstraintResult.SATISFIED;
     }
     if (!waitUntilMet) {
       return ConstraintResult.NEVER_SATISFIED;
     }
+
+    // If all the blocking runs are completed, the constraint is satisfied once enough time passed since the latest
+    // of them. Otherwise, it can only be satisfied after the active runs complete.
+    long lastStopTs = -1L;
+    for (RunRecordMeta runRecord : blockingRuns) {
+      if (runRecord.getStopTs() == null || !runRecord.getStatus().isEndState()) {
+        return new ConstraintResult(ConstraintResult.SatisfiedState.NOT_SATISFIED,
+                                    context.getCheckTimeMillis() + TimeUnit.SECONDS.toMillis(10), true);
+      }
+      lastStopTs = Math.max(lastStopTs, runRecord.getStopTs());
+    }
     return new ConstraintResult(ConstraintResult.SatisfiedState.NOT_SATISFIED,
-                                context.getCheckTimeMillis() + TimeUnit.SECONDS.toMillis(10));
+                                TimeUnit.SECONDS.toMillis(lastStopTs + 1) + millisSinceLastRun);
   }
 
   // Filters run records that are: FAILED, KILLED; keeps only: RUNNING, SUSPENDED, COMPLETED.
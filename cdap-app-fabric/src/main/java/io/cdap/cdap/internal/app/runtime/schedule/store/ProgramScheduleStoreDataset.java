@@ -17,6 +17,8 @@
 package io.cdap.cdap.internal.app.runtime.schedule.store;
 
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import io.cdap.cdap.api.ProgramStatus;
@@ -46,6 +48,7 @@ import io.cdap.cdap.spi.data.InvalidFieldException;
 import io.cdap.cdap.spi.data.StructuredRow;
 import io.cdap.cdap.spi.data.StructuredTable;
 import io.cdap.cdap.spi.data.table.field.Field;
+import io.cdap.cdap.spi.data.table.field.FieldFilter;
 import io.cdap.cdap.spi.data.table.field.Fields;
 import io.cdap.cdap.spi.data.table.field.Range;
 import io.cdap.cdap.store.StoreDefinition;
@@ -104,6 +107,20 @@ public class ProgramScheduleStoreDataset {
       .registerTypeAdapter(SatisfiableTrigger.class, new TriggerCodec())
       .create();
 
+  // Deleted schedules are kept with a null schedule column, they are filtered out by the table when scanning
+  private static final Collection<FieldFilter> EXISTING_SCHEDULE =
+    Collections.singleton(FieldFilter.isNotNull(StoreDefinition.ProgramScheduleStore.SCHEDULE));
+  private static final Collection<String> SCHEDULE_COLUMN =
+    Collections.singleton(StoreDefinition.ProgramScheduleStore.SCHEDULE);
+
+  // Deserialized schedules, for looking up schedules by trigger key. Each entry keeps the serialized schedule it was
+  // created from, so that it is only used if the schedule in the store is still the same. It is shared by all
+  // instances because a new instance is created for every transaction. Entries of deleted schedules are dropped.
+  // The cached schedules are shared and must not be modified.
+  private static final Cache<ScheduleId, CachedSchedule> SCHEDULE_CACHE = CacheBuilder.newBuilder()
+    .maximumSize(10000)
+    .build();
+
   private final StructuredTable scheduleStore;
   private final StructuredTable triggerStore;
 
@@ -145,12 +162,14 @@ public class ProgramScheduleStoreDataset {
     scheduleFields.add(Fields.stringField(StoreDefinition.ProgramScheduleStore.STATUS, status.toString()));
     scheduleStore.upsert(scheduleFields);
 
+    List<Collection<Field<?>>> multiTriggerFields = new ArrayList<>();
     int count = 0;
     for (String triggerKey : extractTriggerKeys(schedule)) {
       Collection<Field<?>> triggerFields = getTriggerKeys(scheduleKeys, count++);
       triggerFields.add(Fields.stringField(StoreDefinition.ProgramScheduleStore.TRIGGER_KEY, triggerKey));
-      triggerStore.upsert(triggerFields);
+      multiTriggerFields.add(triggerFields);
     }
+    triggerStore.multiUpsert(multiTriggerFields);
   }
 
   /**
@@ -218,10 +237,12 @@ public class ProgramScheduleStoreDataset {
    * @param deleteTime the timestamp for this deletion
    */
   private void markScheduleAsDeleted(StructuredRow row, long deleteTime) throws IOException {
+    SCHEDULE_CACHE.invalidate(rowToScheduleId(row));
     markScheduleAsDeleted(getScheduleKeys(row), deleteTime);
   }
 
   private void markScheduleAsDeleted(ScheduleId scheduleId, long deleteTime) throws IOException {
+    SCHEDULE_CACHE.invalidate(scheduleId);
     markScheduleAsDeleted(getScheduleKeys(scheduleId), deleteTime);
   }
 
@@ -263,14 +284,13 @@ public class ProgramScheduleStoreDataset {
     List<ScheduleId> deleted = new ArrayList<>();
     Collection<Field<?>> scanKeys = getScheduleKeysForApplicationScan(appId);
     Range range = Range.singleton(scanKeys);
-    // First collect all the schedules that are going to be deleted
-    try (CloseableIterator<StructuredRow> iterator = scheduleStore.scan(range, Integer.MAX_VALUE)) {
+    // First collect all the schedules that are going to be deleted, only their primary keys are needed
+    try (CloseableIterator<StructuredRow> iterator = scheduleStore.scan(range, Integer.MAX_VALUE, EXISTING_SCHEDULE,
+                                                                        Collections.emptyList())) {
       while (iterator.hasNext()) {
         StructuredRow row = iterator.next();
-        if (row.getString(StoreDefinition.ProgramScheduleStore.SCHEDULE) != null) {
-          markScheduleAsDeleted(row, deleteTime);
-          deleted.add(rowToScheduleId(row));
-        }
+        markScheduleAsDeleted(row, deleteTime);
+        deleted.add(rowToScheduleId(row));
       }
     }
     // Then delete all triggers for the app
@@ -290,18 +310,17 @@ public class ProgramScheduleStoreDataset {
     Collection<Field<?>> scanKeys = getScheduleKeysForApplicationScan(programId.getParent());
     Range range = Range.singleton(scanKeys);
     // First collect all the schedules that are going to be deleted
-    try (CloseableIterator<StructuredRow> iterator = scheduleStore.scan(range, Integer.MAX_VALUE)) {
+    try (CloseableIterator<StructuredRow> iterator = scheduleStore.scan(range, Integer.MAX_VALUE, EXISTING_SCHEDULE,
+                                                                        SCHEDULE_COLUMN)) {
       while (iterator.hasNext()) {
         StructuredRow row = iterator.next();
         String serializedSchedule = row.getString(StoreDefinition.ProgramScheduleStore.SCHEDULE);
-        if (serializedSchedule != null) {
-          ProgramSchedule schedule = GSON.fromJson(serializedSchedule, ProgramSchedule.class);
-          if (programId.equals(schedule.getProgramId())) {
-            markScheduleAsDeleted(row, deleteTime);
-            Collection<Field<?>> deleteKeys = getScheduleKeys(row);
-            triggerStore.deleteAll(Range.singleton(deleteKeys));
-            deleted.add(rowToScheduleId(row));
-          }
+        ProgramSchedule schedule = GSON.fromJson(serializedSchedule, ProgramSchedule.class);
+        if (programId.equals(schedule.getProgramId())) {
+          markScheduleAsDeleted(row, deleteTime);
+          Collection<Field<?>> deleteKeys = getScheduleKeys(row);
+          triggerStore.deleteAll(Range.singleton(deleteKeys));
+          deleted.add(rowToScheduleId(row));
         }
       }
     }
@@ -469,7 +488,7 @@ public class ProgramScheduleStoreDataset {
           if (serialized == null) {
             throw new NotFoundException(scheduleId);
           }
-          ProgramSchedule schedule = GSON.fromJson(serialized, ProgramSchedule.class);
+          ProgramSchedule schedule = deserializeSchedule(scheduleId, serialized);
           ProgramScheduleMeta meta = extractMetaFromRow(scheduleId, scheduleRow);
           ProgramScheduleRecord record = new ProgramScheduleRecord(schedule, meta);
           schedulesFound.put(scheduleId, record);
@@ -487,6 +506,19 @@ public class ProgramScheduleStoreDataset {
 
   /*------------------- private helpers ---------------------*/
 
+  /**
+   * Deserializes a schedule read from the store, reusing the cached schedule if it has not changed.
+   */
+  private static ProgramSchedule deserializeSchedule(ScheduleId scheduleId, String serialized) {
+    CachedSchedule cached = SCHEDULE_CACHE.getIfPresent(scheduleId);
+    if (cached != null && cached.serialized.equals(serialized)) {
+      return cached.schedule;
+    }
+    ProgramSchedule schedule = GSON.fromJson(serialized, ProgramSchedule.class);
+    SCHEDULE_CACHE.put(scheduleId, new CachedSchedule(serialized, schedule));
+    return schedule;
+  }
+
   /**
    * List schedules with the given key prefix and only returns the schedules that can pass the filter.
    *
@@ -498,15 +530,13 @@ public class ProgramScheduleStoreDataset {
                                                         Predicate<ProgramSchedule> filter) throws IOException {
     List<ProgramSchedule> result = new ArrayList<>();
     try (CloseableIterator<StructuredRow> iterator =
-           scheduleStore.scan(Range.singleton(prefixKeys), Integer.MAX_VALUE)) {
+           scheduleStore.scan(Range.singleton(prefixKeys), Integer.MAX_VALUE, EXISTING_SCHEDULE, SCHEDULE_COLUMN)) {
       while (iterator.hasNext()) {
         StructuredRow row = iterator.next();
         String serializedSchedule = row.getString(StoreDefinition.ProgramScheduleStore.SCHEDULE);
-        if (serializedSchedule != null) {
-          ProgramSchedule schedule = GSON.fromJson(serializedSchedule, ProgramSchedule.class);
-          if (schedule != null && filter.test(schedule)) {
-            result.add(schedule);
-          }
+        ProgramSchedule schedule = GSON.fromJson(serializedSchedule, ProgramSchedule.class);
+        if (schedule != null && filter.test(schedule)) {
+          result.add(schedule);
         }
       }
     }
@@ -525,15 +555,13 @@ public class ProgramScheduleStoreDataset {
     throws IOException {
     List<ProgramScheduleRecord> result = new ArrayList<>();
     try (CloseableIterator<StructuredRow> iterator =
-           scheduleStore.scan(Range.singleton(prefixKeys), Integer.MAX_VALUE)) {
+           scheduleStore.scan(Range.singleton(prefixKeys), Integer.MAX_VALUE, EXISTING_SCHEDULE, null)) {
       while (iterator.hasNext()) {
         StructuredRow row = iterator.next();
         String serializedSchedule = row.getString(StoreDefinition.ProgramScheduleStore.SCHEDULE);
-        if (serializedSchedule != null) {
-          ProgramSchedule schedule = GSON.fromJson(serializedSchedule, ProgramSchedule.class);
-          if (schedule != null && filter.test(schedule)) {
-            result.add(new ProgramScheduleRecord(schedule, extractMetaFromRow(schedule.getScheduleId(), row)));
-          }
+        ProgramSchedule schedule = GSON.fromJson(serializedSchedule, ProgramSchedule.class);
+        if (schedule != null && filter.test(schedule)) {
+          result.add(new ProgramScheduleRecord(schedule, extractMetaFromRow(schedule.getScheduleId(), row)));
         }
       }
     }
@@ -667,4 +695,17 @@ public class ProgramScheduleStoreDataset {
     DatasetManagementException {
     datasetFramework.addInstance(Schedulers.STORE_TYPE_NAME, Schedulers.STORE_DATASET_ID, DatasetProperties.EMPTY);
   }
+
+  /**
+   * A deserialized schedule together with its serialized form.
+   */
+  private static final class CachedSchedule {
+    private final String serialized;
+    private final ProgramSchedule schedule;
+
+    CachedSchedule(String serialized, ProgramSchedule schedule) {
+      this.serialized = serialized;
+      this.schedule = schedule;
+    }
+  }
 }
@@ -38,7 +38,7 @@ import javax.annotation.Nullable;
 public abstract class AbstractSatisfiableCompositeTrigger
   extends ProtoTrigger.AbstractCompositeTrigger<SatisfiableTrigger> implements SatisfiableTrigger {
   // A map of non-composite trigger type and set of triggers of the same type
-  private Map<Type, Set<SatisfiableTrigger>> unitTriggers;
+  private volatile Map<Type, Set<SatisfiableTrigger>> unitTriggers;
 
   protected AbstractSatisfiableCompositeTrigger(Type type, List<SatisfiableTrigger> triggers) {
     super(type, triggers);
@@ -66,14 +66,17 @@ public abstract class AbstractSatisfiableCompositeTrigger
    * Get all triggers which are not composite trigger in this trigger.
    */
   public Map<Type, Set<SatisfiableTrigger>> getUnitTriggers() {
+    Map<Type, Set<SatisfiableTrigger>> unitTriggers = this.unitTriggers;
     if (unitTriggers == null) {
-      initializeUnitTriggers();
+      // Only publish the map after it is fully populated, since triggers can be shared among threads
+      unitTriggers = createUnitTriggers();
+      this.unitTriggers = unitTriggers;
     }
     return unitTriggers;
   }
 
-  private void initializeUnitTriggers() {
-    unitTriggers = new HashMap<>();
+  private Map<Type, Set<SatisfiableTrigger>> createUnitTriggers() {
+    Map<Type, Set<SatisfiableTrigger>> unitTriggers = new HashMap<>();
     for (Trigger trigger : getTriggers()) {
       // Add current non-composite trigger to the corresponding set in the map
       Type triggerType = trigger.getType();
@@ -98,6 +101,7 @@ public abstract class AbstractSatisfiableCompositeTrigger
         triggerSet.add((SatisfiableTrigger) trigger);
       }
     }
+    return unitTriggers;
   }
 
   /**
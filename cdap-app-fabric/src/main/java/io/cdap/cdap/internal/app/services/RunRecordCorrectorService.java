@@ -155,6 +155,9 @@ public abstract class RunRecordCorrectorService extends AbstractIdleService {
   protected void startUp() throws Exception {
     LOG.info("Starting RunRecordCorrectorService");
 
+    // Build the active run counts for run records written before the counts were maintained
+    store.initializeActiveRunCounts();
+
     localDatasetDeleterService = Executors
       .newSingleThreadScheduledExecutor(r -> new Thread(r, "local dataset deleter"));
     long interval = cConf.getLong(Constants.AppFabric.LOCAL_DATASET_DELETER_INTERVAL_SECONDS);
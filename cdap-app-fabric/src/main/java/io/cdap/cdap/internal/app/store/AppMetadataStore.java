@@ -53,6 +53,7 @@ import io.cdap.cdap.spi.data.StructuredTable;
 import io.cdap.cdap.spi.data.StructuredTableContext;
 import io.cdap.cdap.spi.data.TableNotFoundException;
 import io.cdap.cdap.spi.data.table.field.Field;
+import io.cdap.cdap.spi.data.table.field.FieldFilter;
 import io.cdap.cdap.spi.data.table.field.Fields;
 import io.cdap.cdap.spi.data.table.field.Range;
 import io.cdap.cdap.store.StoreDefinition;
@@ -63,7 +64,9 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -71,7 +74,6 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -111,6 +113,10 @@ public class AppMetadataStore {
 
   private static final String TYPE_COUNT = "runRecordCount";
   private static final String TYPE_RUN_RECORD_UPGRADE_COUNT = "runRecordUpgradeCount";
+  // Number of runs of a program in the active run records. Rows are removed when the count drops to zero.
+  private static final String TYPE_ACTIVE_COUNT = "runRecordActiveCount";
+  // Marker row that is present once the active run counts have been built from the active run records
+  private static final String TYPE_ACTIVE_COUNT_INITIALIZED = "runRecordActiveCountInitialized";
   private static final String SMALLEST_POSSIBLE_STRING = "";
 
   private static final Map<ProgramRunStatus, String> STATUS_TYPE_MAP = ImmutableMap.<ProgramRunStatus, String>builder()
@@ -249,9 +255,11 @@ public class AppMetadataStore {
   public List<ApplicationId> getAllAppVersionsAppIds(String namespaceId, String appId)
     throws IOException {
     List<ApplicationId> appIds = new ArrayList<>();
+    // only the primary keys are needed, hence the application specifications are not read
     try (CloseableIterator<StructuredRow> iterator =
            getApplicationSpecificationTable().scan(getNamespaceAndApplicationRange(namespaceId, appId),
-                                                   Integer.MAX_VALUE)) {
+                                                   Integer.MAX_VALUE, Collections.emptyList(),
+                                                   Collections.emptyList())) {
       while (iterator.hasNext()) {
         StructuredRow row = iterator.next();
         appIds.add(
@@ -265,12 +273,16 @@ public class AppMetadataStore {
 
   public Map<ApplicationId, ApplicationMeta> getApplicationsForAppIds(Collection<ApplicationId> appIds)
     throws IOException {
+    List<List<Field<?>>> multiKeys = appIds.stream()
+      .map(appId -> getApplicationPrimaryKeys(appId.getNamespace(), appId.getApplication(), appId.getVersion()))
+      .collect(Collectors.toList());
     Map<ApplicationId, ApplicationMeta> result = new HashMap<>();
-    for (ApplicationId appId: appIds) {
-      ApplicationMeta applicationMeta = getApplication(appId);
-      if (applicationMeta != null) {
-        result.put(appId, getApplication(appId));
-      }
+    for (StructuredRow row : getApplicationSpecificationTable().multiRead(multiKeys)) {
+      ApplicationId appId = new ApplicationId(row.getString(StoreDefinition.AppMetadataStore.NAMESPACE_FIELD),
+                                              row.getString(StoreDefinition.AppMetadataStore.APPLICATION_FIELD),
+                                              row.getString(StoreDefinition.AppMetadataStore.VERSION_FIELD));
+      result.put(appId, GSON.fromJson(row.getString(StoreDefinition.AppMetadataStore.APPLICATION_DATA_FIELD),
+                                      ApplicationMeta.class));
     }
     return result;
   }
@@ -429,6 +441,8 @@ public class AppMetadataStore {
       fields, meta, getRunRecordsTable(), StoreDefinition.AppMetadataStore.RUN_RECORD_DATA);
     List<Field<?>> countKey = getProgramCountPrimaryKeys(TYPE_COUNT, programRunId.getParent());
     getProgramCountsTable().increment(countKey, StoreDefinition.AppMetadataStore.COUNTS, 1L);
+    List<Field<?>> activeCountKey = getProgramCountPrimaryKeys(TYPE_ACTIVE_COUNT, programRunId.getParent());
+    getProgramCountsTable().increment(activeCountKey, StoreDefinition.AppMetadataStore.COUNTS, 1L);
     LOG.trace("Recorded {} for program {}", ProgramRunClusterStatus.PROVISIONING, programRunId);
     return meta;
   }
@@ -511,6 +525,7 @@ public class AppMetadataStore {
     }
 
     delete(existing);
+    decrementActiveRunCount(existing);
 
     List<Field<?>> key = getProgramRunInvertedTimeKey(TYPE_RUN_RECORD_COMPLETED, programRunId, existing.getStartTs());
 
@@ -553,6 +568,7 @@ public class AppMetadataStore {
     }
 
     delete(existing);
+    decrementActiveRunCount(existing);
     List<Field<?>> key = getProgramRunInvertedTimeKey(TYPE_RUN_RECORD_COMPLETED, programRunId, existing.getStartTs());
 
     ProgramRunCluster cluster = new ProgramRunCluster(ProgramRunClusterStatus.DEPROVISIONED, endTs,
@@ -593,6 +609,7 @@ public class AppMetadataStore {
     }
 
     delete(existing);
+    decrementActiveRunCount(existing);
     List<Field<?>> key = getProgramRunInvertedTimeKey(TYPE_RUN_RECORD_COMPLETED, programRunId, existing.getStartTs());
 
     ProgramRunCluster cluster = new ProgramRunCluster(ProgramRunClusterStatus.ORPHANED, endTs,
@@ -847,6 +864,7 @@ public class AppMetadataStore {
     }
     // Delete the old run record
     delete(existing);
+    decrementActiveRunCount(existing);
 
     // Record in the workflow
     Map<String, String> systemArgs = existing.getSystemArgs();
@@ -913,9 +931,25 @@ public class AppMetadataStore {
 
   public Map<ProgramRunId, RunRecordMeta> getRuns(Set<ProgramRunId> programRunIds)
     throws IOException {
-    Map<ProgramRunId, RunRecordMeta> result = new HashMap();
+    Map<ProgramRunId, RunRecordMeta> result = new HashMap<>();
+    // Query active run records first, then the completed run records of the runs that are not active
+    for (String recordType : Arrays.asList(TYPE_RUN_RECORD_ACTIVE, TYPE_RUN_RECORD_COMPLETED)) {
+      List<List<Field<?>>> multiKeys = programRunIds.stream()
+        .filter(runId -> !result.containsKey(runId))
+        .map(runId -> getProgramRunInvertedTimeKey(recordType, runId,
+                                                   RunIds.getTime(runId.getRun(), TimeUnit.SECONDS)))
+        .collect(Collectors.toList());
+      if (multiKeys.isEmpty()) {
+        break;
+      }
+      for (StructuredRow row : getRunRecordsTable().multiRead(multiKeys)) {
+        RunRecordMeta meta = deserializeRunRecordMeta(row);
+        result.put(meta.getProgramRunId(), meta);
+      }
+    }
+    // Runs that do not exist are mapped to null
     for (ProgramRunId runId : programRunIds) {
-      result.put(runId, getRun(runId));
+      result.putIfAbsent(runId, null);
     }
     return result;
   }
@@ -939,18 +973,99 @@ public class AppMetadataStore {
   }
 
   /**
-   * Count all active runs.
+   * Count all active runs, excluding the runs in the system namespace. Once the per program active run counts are
+   * initialized by {@link #initializeActiveRunCounts()}, the count only reads one row for each program that has
+   * active runs. Before that, the active run records are scanned. This method never writes.
    *
    * @param limit count at most that many runs, stop if there are more.
    */
   public int countActiveRuns(@Nullable Integer limit) throws IOException {
-    AtomicInteger count = new AtomicInteger(0);
-    enumerateProgramRuns(Range.singleton(getRunRecordNamespacePrefix(TYPE_RUN_RECORD_ACTIVE, null)),
-                         null, key -> !NamespaceId.SYSTEM.getNamespace().equals(
-                           key.getString(StoreDefinition.AppMetadataStore.NAMESPACE_FIELD)),
-                         limit != null ? limit : Integer.MAX_VALUE,
-                         run -> count.incrementAndGet());
-    return count.get();
+    int maxCount = limit != null ? limit : Integer.MAX_VALUE;
+    if (!getProgramCountsTable().read(getActiveCountInitializedKey()).isPresent()) {
+      return scanActiveRuns(maxCount);
+    }
+    long count = 0;
+    Collection<FieldFilter> nonSystemFilter = Collections.singleton(
+      FieldFilter.notEqual(Fields.stringField(StoreDefinition.AppMetadataStore.NAMESPACE_FIELD,
+                                              NamespaceId.SYSTEM.getNamespace())));
+    try (CloseableIterator<StructuredRow> iterator =
+           getProgramCountsTable().scan(Range.singleton(getCountTypePrefix(TYPE_ACTIVE_COUNT)), Integer.MAX_VALUE,
+                                        nonSystemFilter,
+                                        Collections.singleton(StoreDefinition.AppMetadataStore.COUNTS))) {
+      while (iterator.hasNext() && count < maxCount) {
+        StructuredRow row = iterator.next();
+        Long programCount = row.getLong(StoreDefinition.AppMetadataStore.COUNTS);
+        count += programCount == null ? 0L : Math.max(0L, programCount);
+      }
+    }
+    return (int) Math.min(count, maxCount);
+  }
+
+  /**
+   * Counts the active runs outside of the system namespace from the active run record keys. This is used until the
+   * per program active run counts are initialized.
+   */
+  private int scanActiveRuns(int maxCount) throws IOException {
+    int count = 0;
+    try (CloseableIterator<StructuredRow> iterator =
+           getRunRecordsTable().scan(Range.singleton(getRunRecordStatusPrefix(TYPE_RUN_RECORD_ACTIVE)),
+                                     Integer.MAX_VALUE)) {
+      while (iterator.hasNext() && count < maxCount) {
+        String namespace = iterator.next().getString(StoreDefinition.AppMetadataStore.NAMESPACE_FIELD);
+        if (!NamespaceId.SYSTEM.getNamespace().equals(namespace)) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Builds the per program active run counts from the active run records, unless it was done before. The counts are
+   * maintained on every transition in and out of the active run records, however run records written before the
+   * counts were introduced are not reflected in them. This is called once on start up, before which
+   * {@link #countActiveRuns(Integer)} falls back to scanning the active run records.
+   */
+  public void initializeActiveRunCounts() throws IOException {
+    List<Field<?>> markerKey = getActiveCountInitializedKey();
+    if (getProgramCountsTable().read(markerKey).isPresent()) {
+      return;
+    }
+    Map<ProgramId, Long> counts = new HashMap<>();
+    try (CloseableIterator<StructuredRow> iterator =
+           getRunRecordsTable().scan(Range.singleton(getRunRecordStatusPrefix(TYPE_RUN_RECORD_ACTIVE)),
+                                     Integer.MAX_VALUE)) {
+      while (iterator.hasNext()) {
+        ProgramId programId = getProgramIdFromRunRecordsPrimaryKeys(new ArrayList<>(iterator.next().getPrimaryKeys()));
+        counts.merge(programId, 1L, Long::sum);
+      }
+    }
+    getProgramCountsTable().deleteAll(Range.singleton(getCountTypePrefix(TYPE_ACTIVE_COUNT)));
+    for (Map.Entry<ProgramId, Long> entry : counts.entrySet()) {
+      List<Field<?>> key = getProgramCountPrimaryKeys(TYPE_ACTIVE_COUNT, entry.getKey());
+      key.add(Fields.longField(StoreDefinition.AppMetadataStore.COUNTS, entry.getValue()));
+      getProgramCountsTable().upsert(key);
+    }
+    markerKey.add(Fields.longField(StoreDefinition.AppMetadataStore.COUNTS, 1L));
+    getProgramCountsTable().upsert(markerKey);
+  }
+
+  /**
+   * Decrements the active run count of the program of the given run record if the record is an active one. The count
+   * row is removed once it drops to zero, so that counting active runs only reads programs that have active runs.
+   */
+  private void decrementActiveRunCount(RunRecordMeta record) throws IOException {
+    if (!TYPE_RUN_RECORD_ACTIVE.equals(STATUS_TYPE_MAP.get(record.getStatus()))) {
+      return;
+    }
+    List<Field<?>> countKey = getProgramCountPrimaryKeys(TYPE_ACTIVE_COUNT, record.getProgramRunId().getParent());
+    Optional<StructuredRow> row = getProgramCountsTable().read(countKey);
+    Long count = row.isPresent() ? row.get().getLong(StoreDefinition.AppMetadataStore.COUNTS) : null;
+    if (count == null || count <= 1L) {
+      getProgramCountsTable().delete(countKey);
+    } else {
+      getProgramCountsTable().increment(countKey, StoreDefinition.AppMetadataStore.COUNTS, -1L);
+    }
   }
 
   /**
@@ -1168,10 +1283,12 @@ public class AppMetadataStore {
       // which excludes program run records that stopped before earliestStopTime and
       // program run records that started after latestStartTime, all remaining records are active
       // at some point within the time window and will be returned
+      // the start time is part of the row key, which allows skipping runs that started too late without
+      // deserializing the run record
       result.putAll(getProgramRunIdMap(Range.singleton(
         getRunRecordNamespacePrefix(TYPE_RUN_RECORD_COMPLETED, namespaceId)),
-                                       meta -> meta.getStopTs() != null && meta.getStopTs() >= earliestStopTime
-                                         && meta.getStartTs() < latestStartTime, null, limit));
+                                       meta -> meta.getStopTs() != null && meta.getStopTs() >= earliestStopTime,
+                                       getStartedBeforePredicate(latestStartTime), limit));
     }
     return result;
   }
@@ -1215,6 +1332,14 @@ public class AppMetadataStore {
     return (record) -> record.getStartTs() >= startTime && record.getStartTs() < endTime;
   }
 
+  /**
+   * Returns a predicate on run record rows that accepts runs that started before the given time in seconds.
+   */
+  private Predicate<StructuredRow> getStartedBeforePredicate(long time) {
+    long invertedTime = getInvertedTsKeyPart(time);
+    return row -> row.getLong(StoreDefinition.AppMetadataStore.RUN_START_TIME) > invertedTime;
+  }
+
   private Predicate<RunRecordMeta> andPredicate(Predicate<RunRecordMeta> first,
                                                 @Nullable Predicate<RunRecordMeta> second) {
     if (second != null) {
@@ -1247,6 +1372,7 @@ public class AppMetadataStore {
     getProgramCountsTable().deleteAll(Range.singleton(getCountApplicationPrefix(TYPE_COUNT, applicationId)));
     getProgramCountsTable().deleteAll(
       Range.singleton(getCountApplicationPrefix(TYPE_RUN_RECORD_UPGRADE_COUNT, applicationId)));
+    getProgramCountsTable().deleteAll(Range.singleton(getCountApplicationPrefix(TYPE_ACTIVE_COUNT, applicationId)));
   }
 
   public void deleteProgramHistory(String namespaceId) throws IOException {
@@ -1257,6 +1383,7 @@ public class AppMetadataStore {
     getProgramCountsTable().deleteAll(Range.singleton(getCountNamespacePrefix(TYPE_COUNT, namespaceId)));
     getProgramCountsTable().deleteAll(Range.singleton(
       getCountNamespacePrefix(TYPE_RUN_RECORD_UPGRADE_COUNT, namespaceId)));
+    getProgramCountsTable().deleteAll(Range.singleton(getCountNamespacePrefix(TYPE_ACTIVE_COUNT, namespaceId)));
   }
 
   /**
@@ -1340,10 +1467,20 @@ public class AppMetadataStore {
       throw new BadRequestException(String.format("%d programs found, the maximum number supported is 100",
                                                   programIds.size()));
     }
+    List<List<Field<?>>> multiKeys = new ArrayList<>();
     for (ProgramId programId : programIds) {
-      List<Field<?>> countKey = getProgramCountPrimaryKeys(TYPE_COUNT, programId);
-      Optional<StructuredRow> row = getProgramCountsTable().read(countKey);
-      result.put(programId, row.isPresent() ? row.get().getLong(StoreDefinition.AppMetadataStore.COUNTS) : 0);
+      multiKeys.add(getProgramCountPrimaryKeys(TYPE_COUNT, programId));
+      result.put(programId, 0L);
+    }
+    for (StructuredRow row : getProgramCountsTable().multiRead(multiKeys)) {
+      ProgramId programId =
+        new ApplicationId(row.getString(StoreDefinition.AppMetadataStore.NAMESPACE_FIELD),
+                          row.getString(StoreDefinition.AppMetadataStore.APPLICATION_FIELD),
+                          row.getString(StoreDefinition.AppMetadataStore.VERSION_FIELD))
+          .program(ProgramType.valueOf(row.getString(StoreDefinition.AppMetadataStore.PROGRAM_TYPE_FIELD)),
+                   row.getString(StoreDefinition.AppMetadataStore.PROGRAM_FIELD));
+      Long count = row.getLong(StoreDefinition.AppMetadataStore.COUNTS);
+      result.put(programId, count == null ? 0L : count);
     }
     return result;
   }
@@ -1393,14 +1530,15 @@ public class AppMetadataStore {
   @VisibleForTesting
   Set<RunId> getRunningInRangeForStatus(String statusKey, final long startTimeInSecs,
                                         final long endTimeInSecs) throws IOException {
-    // Create time filter to get running programs between start and end time
+    // Create time filter to get running programs between start and end time. The start time is filtered on the
+    // row key, so that only the run records that started before the end time are deserialized.
     Predicate<RunRecordMeta> timeFilter = (runRecordMeta) ->
-      runRecordMeta.getStartTs() < endTimeInSecs &&
-        (runRecordMeta.getStopTs() == null || runRecordMeta.getStopTs() >= startTimeInSecs);
+      runRecordMeta.getStopTs() == null || runRecordMeta.getStopTs() >= startTimeInSecs;
 
     List<Field<?>> prefix = getRunRecordStatusPrefix(statusKey);
     return
-      getProgramRunIdMap(Range.singleton(prefix), timeFilter, null, Integer.MAX_VALUE).entrySet()
+      getProgramRunIdMap(Range.singleton(prefix), timeFilter, getStartedBeforePredicate(endTimeInSecs),
+                         Integer.MAX_VALUE).entrySet()
         .stream()
         .map(entry -> RunIds.fromString(entry.getValue().getPid()))
         .collect(Collectors.toSet());
@@ -1493,6 +1631,16 @@ public class AppMetadataStore {
     return fields;
   }
 
+  private List<Field<?>> getActiveCountInitializedKey() {
+    List<Field<?>> fields = getCountTypePrefix(TYPE_ACTIVE_COUNT_INITIALIZED);
+    fields.add(Fields.stringField(StoreDefinition.AppMetadataStore.NAMESPACE_FIELD, SMALLEST_POSSIBLE_STRING));
+    fields.add(Fields.stringField(StoreDefinition.AppMetadataStore.APPLICATION_FIELD, SMALLEST_POSSIBLE_STRING));
+    fields.add(Fields.stringField(StoreDefinition.AppMetadataStore.VERSION_FIELD, SMALLEST_POSSIBLE_STRING));
+    fields.add(Fields.stringField(StoreDefinition.AppMetadataStore.PROGRAM_TYPE_FIELD, SMALLEST_POSSIBLE_STRING));
+    fields.add(Fields.stringField(StoreDefinition.AppMetadataStore.PROGRAM_FIELD, SMALLEST_POSSIBLE_STRING));
+    return fields;
+  }
+
   private List<Field<?>> getCountNamespacePrefix(String countType, String namespace) {
     List<Field<?>> fields = getCountTypePrefix(countType);
     fields.add(Fields.stringField(StoreDefinition.AppMetadataStore.NAMESPACE_FIELD, namespace));
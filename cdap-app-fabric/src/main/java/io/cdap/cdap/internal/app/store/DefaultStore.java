@@ -340,6 +340,13 @@ public class DefaultStore implements Store {
                                   context -> (int) getAppMetadataStore(context).countActiveRuns(limit));
   }
 
+  @Override
+  public void initializeActiveRunCounts() {
+    TransactionRunners.run(transactionRunner, context -> {
+      getAppMetadataStore(context).initializeActiveRunCounts();
+    });
+  }
+
   @Override
   public Map<ProgramRunId, RunRecordMeta> getActiveRuns(NamespaceId namespaceId) {
     return TransactionRunners.run(transactionRunner, context -> {
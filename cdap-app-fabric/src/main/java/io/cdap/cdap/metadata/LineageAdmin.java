@@ -58,10 +58,6 @@ public class LineageAdmin {
 
   private static final Logger LOG = LoggerFactory.getLogger(LineageAdmin.class);
 
-  private static final Function<Relation, ProgramId> RELATION_TO_PROGRAM_FUNCTION = Relation::getProgram;
-
-  private static final Function<Relation, NamespacedEntityId> RELATION_TO_DATA_FUNCTION = Relation::getData;
-
   private static final Function<Collection<Relation>, Collection<Relation>> COLLAPSE_UNKNOWN_TYPE_FUNCTION =
     relations -> {
       if (relations.size() <= 1) {
@@ -223,44 +219,44 @@ public class LineageAdmin {
     LOG.trace("Using scan start = {}, scan end = {}", scanRange.getStart(), scanRange.getEnd());
 
     Multimap<RelationKey, Relation> relations = HashMultimap.create();
-    Set<NamespacedEntityId> visitedDatasets = new HashSet<>();
-    Set<NamespacedEntityId> toVisitDatasets = new HashSet<>();
+    Set<DatasetId> visitedDatasets = new HashSet<>();
+    Set<DatasetId> toVisitDatasets = new HashSet<>();
     Set<ProgramId> visitedPrograms = new HashSet<>();
     Set<ProgramId> toVisitPrograms = new HashSet<>();
 
-    toVisitDatasets.add(sourceData);
-    for (int i = 0; i < levels; ++i) {
+    toVisitDatasets.add(toDatasetId(sourceData));
+    // No relations can pass the filter if no program was running in the range
+    for (int i = 0; i < levels && !runningInRange.isEmpty(); ++i) {
       LOG.trace("Level {}", i);
+      // Fetch related programs of all datasets of this level at once
+      toVisitDatasets.removeAll(visitedDatasets);
+      visitedDatasets.addAll(toVisitDatasets);
+      LOG.trace("Visiting datasets {}", toVisitDatasets);
+      Set<Relation> programRelations = lineageStoreReader.getDatasetRelations(toVisitDatasets, scanRange.getStart(),
+                                                                             scanRange.getEnd(),
+                                                                             scanRange.getFilter());
+      LOG.trace("Got program relations {}", programRelations);
       toVisitPrograms.clear();
-      for (NamespacedEntityId d : toVisitDatasets) {
-        if (visitedDatasets.add(d)) {
-          LOG.trace("Visiting dataset {}", d);
-          // Fetch related programs
-          Iterable<Relation> programRelations = getProgramRelations(d, scanRange.getStart(), scanRange.getEnd(),
-                                                                    scanRange.getFilter());
-          LOG.trace("Got program relations {}", programRelations);
-          for (Relation relation : programRelations) {
-            relations.put(new RelationKey(relation), relation);
-          }
-          Iterables.addAll(toVisitPrograms, Iterables.transform(programRelations, RELATION_TO_PROGRAM_FUNCTION));
-        }
+      for (Relation relation : programRelations) {
+        relations.put(new RelationKey(relation), relation);
+        toVisitPrograms.add(relation.getProgram());
       }
 
+      // Fetch related datasets of all programs of this level at once
+      toVisitPrograms.removeAll(visitedPrograms);
+      visitedPrograms.addAll(toVisitPrograms);
+      LOG.trace("Visiting programs {}", toVisitPrograms);
+      Set<Relation> datasetRelations = lineageStoreReader.getProgramRelations(toVisitPrograms, scanRange.getStart(),
+                                                                             scanRange.getEnd(),
+                                                                             scanRange.getFilter());
+      LOG.trace("Got data relations {}", datasetRelations);
       toVisitDatasets.clear();
-      for (ProgramId p : toVisitPrograms) {
-        if (visitedPrograms.add(p)) {
-          LOG.trace("Visiting program {}", p);
-          // Fetch related datasets
-          Iterable<Relation> datasetRelations = lineageStoreReader.getRelations(p, scanRange.getStart(),
-                                                                                scanRange.getEnd(),
-                                                                                scanRange.getFilter());
-          LOG.trace("Got data relations {}", datasetRelations);
-          for (Relation relation : datasetRelations) {
-            relations.put(new RelationKey(relation), relation);
-          }
-          Iterables.addAll(toVisitDatasets,
-                           Iterables.transform(datasetRelations, RELATION_TO_DATA_FUNCTION));
-        }
+      for (Relation relation : datasetRelations) {
+        relations.put(new RelationKey(relation), relation);
+        toVisitDatasets.add(toDatasetId(relation.getData()));
+      }
+      if (toVisitDatasets.isEmpty()) {
+        break;
       }
     }
 
@@ -274,12 +270,11 @@ public class LineageAdmin {
     return lineage;
   }
 
-  private Iterable<Relation> getProgramRelations(NamespacedEntityId data, long start, long end,
-                                                 Predicate<Relation> filter) {
+  private DatasetId toDatasetId(NamespacedEntityId data) {
     if (!(data instanceof DatasetId)) {
       throw new IllegalStateException("Unknown data type " + data);
     }
-    return lineageStoreReader.getRelations((DatasetId) data, start, end, filter);
+    return (DatasetId) data;
   }
 
   /**
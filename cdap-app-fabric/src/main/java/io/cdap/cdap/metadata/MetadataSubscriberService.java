@@ -70,10 +70,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import javax.annotation.Nullable;
@@ -182,6 +184,7 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
                                  Iterator<ImmutablePair<String, MetadataMessage>> messages)
     throws IOException, ConflictException {
     Map<MetadataMessage.Type, MetadataMessageProcessor> processors = new HashMap<>();
+    MetadataOperationProcessor operationProcessor = new MetadataOperationProcessor(cConf);
 
     // Loop over all fetched messages and process them with corresponding MetadataMessageProcessor
     while (messages.hasNext()) {
@@ -201,7 +204,7 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
           case WORKFLOW_STATE:
             return new WorkflowProcessor();
           case METADATA_OPERATION:
-            return new MetadataOperationProcessor(cConf);
+            return operationProcessor;
           case PROFILE_ASSIGNMENT:
           case PROFILE_UNASSIGNMENT:
           case ENTITY_CREATION:
@@ -219,6 +222,10 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
         LOG.warn("Unsupported metadata message type {}. Message ignored.", message.getType());
         continue;
       }
+      // Other processors may read or write the same metadata, hence apply the pending metadata mutations first
+      if (processor != operationProcessor) {
+        operationProcessor.applyPendingMutations();
+      }
       try {
         processor.processMessage(message, structuredTableContext);
         conflictCount = 0;
@@ -237,6 +244,7 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
         throw e;
       }
     }
+    operationProcessor.applyPendingMutations();
   }
 
   /**
@@ -343,14 +351,31 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
 
   /**
    * The {@link MetadataMessageProcessor} for metadata operations.
-   * It receives operations and applies them to the metadata store.
+   * It receives operations and applies them to the metadata store. The mutations for consecutive operations
+   * are collected and applied as a single batch by {@link #applyPendingMutations()}.
    */
   private class MetadataOperationProcessor extends MetadataValidator implements MetadataMessageProcessor {
 
+    private final List<MetadataMutation> pendingMutations = new ArrayList<>();
+
     MetadataOperationProcessor(CConfiguration cConf) {
       super(cConf);
     }
 
+    /**
+     * Applies the mutations of all operations received since the last call, as one batch.
+     */
+    void applyPendingMutations() throws IOException {
+      if (pendingMutations.isEmpty()) {
+        return;
+      }
+      try {
+        metadataStorage.batch(pendingMutations);
+      } finally {
+        pendingMutations.clear();
+      }
+    }
+
     @Override
     public void processMessage(MetadataMessage message, StructuredTableContext context) throws IOException {
       MetadataOperation operation = message.getPayload(GSON, MetadataOperation.class);
@@ -363,11 +388,11 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
           MetadataOperation.Create create = (MetadataOperation.Create) operation;
           MetadataMutation mutation = new MetadataMutation.Create(
             entity, new Metadata(MetadataScope.SYSTEM, create.getTags(), create.getProperties()), CREATE_DIRECTIVES);
-          metadataStorage.apply(mutation);
+          pendingMutations.add(mutation);
           break;
         }
         case DROP: {
-          metadataStorage.apply(new MetadataMutation.Drop(operation.getEntity()));
+          pendingMutations.add(new MetadataMutation.Drop(operation.getEntity()));
           break;
         }
         case PUT: {
@@ -379,7 +404,7 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
               validateProperties(entity, props);
               validateTags(entity, tags);
             }
-            metadataStorage.apply(new MetadataMutation.Update(entity, new Metadata(put.getScope(), tags, props)));
+            pendingMutations.add(new MetadataMutation.Update(entity, new Metadata(put.getScope(), tags, props)));
           } catch (InvalidMetadataException e) {
             LOG.warn("Ignoring invalid metadata operation {} from TMS: {}", operation,
                      GSON.toJson(message.getRawPayload()), e);
@@ -397,22 +422,22 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
             delete.getTags().forEach(
               name -> toDelete.add(new ScopedNameOfKind(MetadataKind.TAG, delete.getScope(), name)));
           }
-          metadataStorage.apply(new MetadataMutation.Remove(entity, toDelete));
+          pendingMutations.add(new MetadataMutation.Remove(entity, toDelete));
           break;
         }
         case DELETE_ALL: {
           MetadataScope scope = ((MetadataOperation.DeleteAll) operation).getScope();
-          metadataStorage.apply(new MetadataMutation.Remove(entity, scope));
+          pendingMutations.add(new MetadataMutation.Remove(entity, scope));
           break;
         }
         case DELETE_ALL_PROPERTIES: {
           MetadataScope scope = ((MetadataOperation.DeleteAllProperties) operation).getScope();
-          metadataStorage.apply(new MetadataMutation.Remove(entity, scope, MetadataKind.PROPERTY));
+          pendingMutations.add(new MetadataMutation.Remove(entity, scope, MetadataKind.PROPERTY));
           break;
         }
         case DELETE_ALL_TAGS: {
           MetadataScope scope = ((MetadataOperation.DeleteAllTags) operation).getScope();
-          metadataStorage.apply(new MetadataMutation.Remove(entity, scope, MetadataKind.TAG));
+          pendingMutations.add(new MetadataMutation.Remove(entity, scope, MetadataKind.TAG));
           break;
         }
         default:
@@ -22,6 +22,7 @@ import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
 import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 import io.cdap.cdap.app.store.Store;
 import io.cdap.cdap.common.ConflictException;
@@ -34,12 +35,14 @@ import io.cdap.cdap.internal.app.runtime.schedule.constraint.CheckableConstraint
 import io.cdap.cdap.internal.app.runtime.schedule.constraint.ConstraintContext;
 import io.cdap.cdap.internal.app.runtime.schedule.constraint.ConstraintResult;
 import io.cdap.cdap.internal.app.runtime.schedule.queue.Job;
+import io.cdap.cdap.internal.app.runtime.schedule.queue.JobKey;
 import io.cdap.cdap.internal.app.runtime.schedule.queue.JobQueue;
 import io.cdap.cdap.internal.app.runtime.schedule.queue.JobQueueTable;
 import io.cdap.cdap.internal.app.runtime.schedule.store.Schedulers;
 import io.cdap.cdap.internal.app.services.ProgramLifecycleService;
 import io.cdap.cdap.internal.app.services.PropertiesResolver;
 import io.cdap.cdap.internal.schedule.constraint.Constraint;
+import io.cdap.cdap.proto.id.ProgramId;
 import io.cdap.cdap.spi.data.transaction.TransactionException;
 import io.cdap.cdap.spi.data.transaction.TransactionRunner;
 import io.cdap.cdap.spi.data.transaction.TransactionRunners;
@@ -48,16 +51,33 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Polls the JobQueue, checks the jobs for constraint satisfaction, and launches them.
+ * <p>
+ * Jobs with constraints that are not satisfied are parked in memory until the earliest time the constraints can
+ * become satisfied, or until the status of the scheduled program changes, so that they are not re-evaluated on
+ * every scan of the job queue. Once a full pass over a partition is done, the next pass only starts after
+ * the scan interval or when a parked job is due, whichever comes first.
+ * </p>
  */
+@Singleton
 class ConstraintCheckerService extends AbstractIdleService {
   private static final Logger LOG = LoggerFactory.getLogger(ConstraintCheckerService.class);
+  private static final long SCAN_INTERVAL_MILLIS = 2000L;
 
   private final Store store;
   private final ProgramLifecycleService lifecycleService;
@@ -67,6 +87,7 @@ class ConstraintCheckerService extends AbstractIdleService {
   private final TransactionRunner transactionRunner;
   private ScheduleTaskRunner taskRunner;
   private ListeningExecutorService taskExecutorService;
+  private volatile List<ConstraintCheckerThread> checkerThreads = Collections.emptyList();
   private volatile boolean stopping = false;
 
   @Inject
@@ -91,9 +112,12 @@ class ConstraintCheckerService extends AbstractIdleService {
     taskRunner = new ScheduleTaskRunner(store, lifecycleService, propertiesResolver, namespaceQueryAdmin, cConf);
 
     int numPartitions = cConf.getInt(Constants.Scheduler.JOB_QUEUE_NUM_PARTITIONS);
+    List<ConstraintCheckerThread> threads = new ArrayList<>(numPartitions);
     for (int partition = 0; partition < numPartitions; partition++) {
-      taskExecutorService.submit(new ConstraintCheckerThread(partition));
+      threads.add(new ConstraintCheckerThread(partition));
     }
+    checkerThreads = threads;
+    threads.forEach(taskExecutorService::submit);
     LOG.info("Started ConstraintCheckerService. state: " + state());
   }
 
@@ -115,11 +139,24 @@ class ConstraintCheckerService extends AbstractIdleService {
     LOG.info("Stopped ConstraintCheckerService.");
   }
 
+  /**
+   * Wakes up the parked jobs of the given program that are waiting for a program status change.
+   */
+  void programStatusChanged(ProgramId programId) {
+    for (ConstraintCheckerThread thread : checkerThreads) {
+      thread.wakeUp(programId);
+    }
+  }
+
   private class ConstraintCheckerThread implements Runnable {
     private final RetryStrategy scheduleStrategy;
     private final int partition;
     private final Deque<Job> readyJobs = new ArrayDeque<>();
+    private final Map<JobKey, ParkedJob> parkedJobs = new HashMap<>();
+    private final Set<ProgramId> wokenPrograms = ConcurrentHashMap.newKeySet();
+    private final Semaphore wakeUpSignal = new Semaphore(0);
     private Job lastConsumed;
+    private long passStartTime;
     private int failureCount;
 
     ConstraintCheckerThread(int partition) {
@@ -137,8 +174,11 @@ class ConstraintCheckerService extends AbstractIdleService {
         try {
           long sleepTime = checkJobQueue();
           // Don't sleep if sleepTime returned is 0
-          if (sleepTime > 0) {
+          if (sleepTime > 0 && failureCount > 0) {
             TimeUnit.MILLISECONDS.sleep(sleepTime);
+          } else if (sleepTime > 0 && wakeUpSignal.tryAcquire(sleepTime, TimeUnit.MILLISECONDS)) {
+            // Woken up by program status changes, which are all handled in the next pass
+            wakeUpSignal.drainPermits();
           }
         } catch (InterruptedException e) {
           // sleep is interrupted, just exit without doing anything
@@ -152,9 +192,9 @@ class ConstraintCheckerService extends AbstractIdleService {
      * @return sleep time in milliseconds before next fetch
      */
     private long checkJobQueue() {
-      boolean emptyFetch = false;
+      boolean passCompleted = false;
       try {
-        emptyFetch = TransactionRunners.run(transactionRunner, context -> {
+        passCompleted = TransactionRunners.run(transactionRunner, context -> {
           return checkJobConstraints(JobQueueTable.getJobQueue(context, cConf));
         });
 
@@ -172,12 +212,25 @@ class ConstraintCheckerService extends AbstractIdleService {
         return scheduleStrategy.nextRetry(failureCount, 0);
       }
 
-      // Sleep for 2 seconds if there's no jobs in the queue
-      return emptyFetch && readyJobs.isEmpty() ? 2000L : 0L;
+      // Wait for the next pass if the whole partition has been checked
+      return passCompleted && readyJobs.isEmpty() ? getNextPassDelay() : 0L;
+    }
+
+    void wakeUp(ProgramId programId) {
+      wokenPrograms.add(programId);
+      wakeUpSignal.release();
     }
 
+    /**
+     * Checks a batch of jobs in the partition.
+     *
+     * @return {@code true} if the end of the partition is reached
+     */
     private boolean checkJobConstraints(JobQueue jobQueue) throws IOException {
-      boolean emptyScan = true;
+      if (lastConsumed == null) {
+        passStartTime = System.currentTimeMillis();
+      }
+      unparkWokenJobs();
 
       try (CloseableIterator<Job> jobQueueIter = jobQueue.getJobs(partition, lastConsumed)) {
         Stopwatch stopWatch = new Stopwatch().start();
@@ -185,15 +238,51 @@ class ConstraintCheckerService extends AbstractIdleService {
         while (!stopping && stopWatch.elapsedMillis() < 1000) {
           if (!jobQueueIter.hasNext()) {
             lastConsumed = null;
-            return emptyScan;
+            return true;
           }
           Job job = jobQueueIter.next();
           lastConsumed = job;
-          emptyScan = false;
           checkAndUpdateJob(jobQueue, job);
         }
       }
-      return emptyScan;
+      return false;
+    }
+
+    /**
+     * Removes the parked jobs that are waiting for a status change of the programs that had one.
+     */
+    private void unparkWokenJobs() {
+      if (wokenPrograms.isEmpty()) {
+        return;
+      }
+      Iterator<ProgramId> programIter = wokenPrograms.iterator();
+      Set<ProgramId> programs = new HashSet<>();
+      while (programIter.hasNext()) {
+        programs.add(programIter.next());
+        programIter.remove();
+      }
+      parkedJobs.values().removeIf(parked -> parked.waitForProgramStatus && programs.contains(parked.programId));
+    }
+
+    /**
+     * Returns the delay in milliseconds before the next pass over the partition. It also drops the parked jobs that
+     * were not seen in the last pass, since they are no longer in the job queue.
+     */
+    private long getNextPassDelay() {
+      long now = System.currentTimeMillis();
+      long nextPassTime = now + SCAN_INTERVAL_MILLIS;
+      Iterator<ParkedJob> iterator = parkedJobs.values().iterator();
+      while (iterator.hasNext()) {
+        ParkedJob parked = iterator.next();
+        // A parked job that was due before the pass started must have been re-checked during the pass, unless
+        // it was removed from the job queue.
+        if (parked.wakeUpTime < passStartTime) {
+          iterator.remove();
+        } else {
+          nextPassTime = Math.min(nextPassTime, parked.wakeUpTime);
+        }
+      }
+      return Math.max(nextPassTime - now, 0L);
     }
 
     private void checkAndUpdateJob(JobQueue jobQueue, Job job) throws IOException {
@@ -209,6 +298,7 @@ class ConstraintCheckerService extends AbstractIdleService {
           (job.getState() == Job.State.PENDING_TRIGGER &&
             now - job.getDeleteTimeMillis() > 2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS))) {
           jobQueue.deleteJob(job);
+          parkedJobs.remove(job.getJobKey());
         }
         return;
       }
@@ -216,15 +306,22 @@ class ConstraintCheckerService extends AbstractIdleService {
         2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS) {
         LOG.info("Deleted job {}, due to timeout value of {}.", job.getJobKey(), job.getSchedule().getTimeoutMillis());
         jobQueue.deleteJob(job);
+        parkedJobs.remove(job.getJobKey());
         return;
       }
       if (job.getState() != Job.State.PENDING_CONSTRAINT) {
         return;
       }
+      // Don't re-evaluate the constraints of a parked job before it is due
+      ParkedJob parked = parkedJobs.get(job.getJobKey());
+      if (parked != null && parked.wakeUpTime > now) {
+        return;
+      }
       ConstraintResult.SatisfiedState satisfiedState = constraintsSatisfied(job, now);
       if (satisfiedState == ConstraintResult.SatisfiedState.NOT_SATISFIED) {
         return;
       }
+      parkedJobs.remove(job.getJobKey());
       if (satisfiedState == ConstraintResult.SatisfiedState.NEVER_SATISFIED) {
         jobQueue.deleteJob(job);
         return;
@@ -283,8 +380,18 @@ class ConstraintCheckerService extends AbstractIdleService {
       return true;
     }
 
+    /**
+     * Checks all the constraints of the given job. If they are not satisfied, the job is parked until it can next
+     * become satisfied. The next check times of constraints that wait for a program status are only retry hints,
+     * so the earliest of them is used. The other next check times are times before which the constraint can't be
+     * satisfied, so the job is not woken up before the latest of them. The job is also woken up by a program status
+     * change if any of the unsatisfied constraints waits for one.
+     */
     private ConstraintResult.SatisfiedState constraintsSatisfied(Job job, long now) {
       ConstraintResult.SatisfiedState satisfiedState = ConstraintResult.SatisfiedState.SATISFIED;
+      long notBeforeTime = now + 1;
+      long retryTime = Long.MAX_VALUE;
+      boolean waitForProgramStatus = false;
 
       ConstraintContext constraintContext = new ConstraintContext(job, now, store);
       for (Constraint constraint : job.getSchedule().getConstraints()) {
@@ -303,10 +410,38 @@ class ConstraintCheckerService extends AbstractIdleService {
         }
         if (result.getSatisfiedState() == ConstraintResult.SatisfiedState.NOT_SATISFIED) {
           satisfiedState = ConstraintResult.SatisfiedState.NOT_SATISFIED;
+          //noinspection ConstantConditions
+          long nextCheckTime = result.getNextCheckTime();
+          if (result.isWaitForProgramStatus()) {
+            retryTime = Math.min(retryTime, nextCheckTime);
+            waitForProgramStatus = true;
+          } else {
+            notBeforeTime = Math.max(notBeforeTime, nextCheckTime);
+          }
         }
       }
+      if (satisfiedState == ConstraintResult.SatisfiedState.NOT_SATISFIED) {
+        long wakeUpTime = retryTime == Long.MAX_VALUE ? notBeforeTime : Math.max(notBeforeTime, retryTime);
+        parkedJobs.put(job.getJobKey(),
+                       new ParkedJob(wakeUpTime, job.getSchedule().getProgramId(), waitForProgramStatus));
+      }
       return satisfiedState;
     }
+  }
 
+  /**
+   * A job that doesn't need to be checked again until its wake up time, or until a program status change if it
+   * is waiting for one.
+   */
+  private static final class ParkedJob {
+    private final long wakeUpTime;
+    private final ProgramId programId;
+    private final boolean waitForProgramStatus;
+
+    ParkedJob(long wakeUpTime, ProgramId programId, boolean waitForProgramStatus) {
+      this.wakeUpTime = wakeUpTime;
+      this.programId = programId;
+      this.waitForProgramStatus = waitForProgramStatus;
+    }
   }
 }
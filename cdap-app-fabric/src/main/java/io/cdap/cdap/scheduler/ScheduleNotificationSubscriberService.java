@@ -68,16 +68,19 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
   private final CConfiguration cConf;
   private final MessagingService messagingService;
   private final MetricsCollectionService metricsCollectionService;
+  private final ConstraintCheckerService constraintCheckerService;
   private final List<Service> subscriberServices;
   private ScheduledExecutorService subscriberExecutor;
 
   @Inject
   ScheduleNotificationSubscriberService(CConfiguration cConf, MessagingService messagingService,
                                         MetricsCollectionService metricsCollectionService,
+                                        ConstraintCheckerService constraintCheckerService,
                                         TransactionRunner transactionRunner) {
     this.cConf = cConf;
     this.messagingService = messagingService;
     this.metricsCollectionService = metricsCollectionService;
+    this.constraintCheckerService = constraintCheckerService;
     this.subscriberServices = Arrays.asList(new SchedulerEventSubscriberService(transactionRunner),
                                             new DataEventSubscriberService(transactionRunner),
                                             new ProgramStatusEventSubscriberService(transactionRunner));
@@ -253,6 +256,17 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
       String programRunIdString = notification.getProperties().get(ProgramOptionConstants.PROGRAM_RUN_ID);
       String programRunStatusString = notification.getProperties().get(ProgramOptionConstants.PROGRAM_STATUS);
 
+      // Ignore notifications which specify an invalid programRunId or programStatus
+      if (programRunIdString == null || programRunStatusString == null) {
+        return;
+      }
+
+      ProgramRunId programRunId = GSON.fromJson(programRunIdString, ProgramRunId.class);
+      ProgramId programId = programRunId.getParent();
+      // Jobs waiting for the program runs to change may have their constraints satisfied now. This applies to every
+      // status change, including the ones that don't trigger schedules, such as a rejected run ending.
+      constraintCheckerService.programStatusChanged(programId);
+
       ProgramStatus programStatus;
       try {
         programStatus = ProgramRunStatus.toProgramStatus(ProgramRunStatus.valueOf(programRunStatusString));
@@ -261,13 +275,6 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
         return;
       }
 
-      // Ignore notifications which specify an invalid programRunId or programStatus
-      if (programRunIdString == null || programStatus == null) {
-        return;
-      }
-
-      ProgramRunId programRunId = GSON.fromJson(programRunIdString, ProgramRunId.class);
-      ProgramId programId = programRunId.getParent();
       String triggerKeyForProgramStatus = Schedulers.triggerKeyForProgramStatus(programId, programStatus);
 
       for (ProgramScheduleRecord schedule : scheduleStore.findSchedules(triggerKeyForProgramStatus)) {
@@ -131,12 +131,24 @@ public class LastRunConstraintTest {
       // a RUNNING workflow, started 2 hours ago will fail the constraint check
       ProgramRunId pid4 = WORKFLOW_ID.run(RunIds.generate(nowSec - TimeUnit.HOURS.toSeconds(2)).getId());
       setStartAndRunning(store, pid4);
-      assertSatisfied(false, lastRunConstraint.check(schedule, constraintContext));
+      ConstraintResult result = lastRunConstraint.check(schedule, constraintContext);
+      assertSatisfied(false, result);
+      // an active run can only complete with a program status change
+      Assert.assertTrue(result.isWaitForProgramStatus());
 
       // if that same workflow runs completes 1 minute ago, the constraint check will not be satisfied
       store.setStop(pid4, nowSec - TimeUnit.MINUTES.toSeconds(1), ProgramRunStatus.COMPLETED,
                     AppFabricTestHelper.createSourceId(++sourceId));
-      assertSatisfied(false, lastRunConstraint.check(schedule, constraintContext));
+      result = lastRunConstraint.check(schedule, constraintContext);
+      assertSatisfied(false, result);
+      // it will be satisfied one hour after the run completed
+      Assert.assertFalse(result.isWaitForProgramStatus());
+      long nextCheckTime = result.getNextCheckTime();
+      Assert.assertEquals(TimeUnit.SECONDS.toMillis(nowSec - TimeUnit.MINUTES.toSeconds(1) + 1)
+                            + TimeUnit.HOURS.toMillis(1), nextCheckTime);
+      assertSatisfied(false, lastRunConstraint.check(schedule, new ConstraintContext(job, nextCheckTime - 1000,
+                                                                                     store)));
+      assertSatisfied(true, lastRunConstraint.check(schedule, new ConstraintContext(job, nextCheckTime, store)));
     } finally {
       AppFabricTestHelper.shutdown();
     }
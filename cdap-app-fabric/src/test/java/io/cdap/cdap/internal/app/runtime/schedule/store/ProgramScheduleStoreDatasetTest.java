@@ -42,6 +42,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -292,6 +293,69 @@ public abstract class ProgramScheduleStoreDatasetTest extends AppFabricTestBase
     );
   }
 
+  @Test
+  public void testFindSchedulesCache() {
+    TransactionRunner transactionRunner = getTransactionRunner();
+
+    final ProgramSchedule sched = new ProgramSchedule("cachedSched", "one partition schedule", PROG1_ID,
+                                                      ImmutableMap.of("prop", "a"),
+                                                      new PartitionTrigger(DS1_ID, 1),
+                                                      ImmutableList.<Constraint>of());
+    // same trigger as the original schedule, so that it is found with the same trigger key
+    final ProgramSchedule schedNew = new ProgramSchedule(sched.getName(), "updated partition schedule", PROG1_ID,
+                                                         ImmutableMap.of("prop", "b"),
+                                                         new PartitionTrigger(DS1_ID, 1),
+                                                         ImmutableList.<Constraint>of());
+    String triggerKey = Schedulers.triggerKeyForPartition(DS1_ID);
+
+    TransactionRunners.run(transactionRunner, context -> {
+      Schedulers.getScheduleStore(context).addSchedule(sched);
+    });
+
+    // looking up the unchanged schedule in different transactions returns the same deserialized schedule
+    ProgramSchedule found = TransactionRunners.run(transactionRunner, context -> {
+      return findSchedule(Schedulers.getScheduleStore(context), triggerKey);
+    });
+    Assert.assertEquals(sched, found);
+    ProgramSchedule foundAgain = TransactionRunners.run(transactionRunner, context -> {
+      return findSchedule(Schedulers.getScheduleStore(context), triggerKey);
+    });
+    Assert.assertSame(found, foundAgain);
+
+    // after an update, the cached schedule must not be returned
+    TransactionRunners.run(transactionRunner, context -> {
+      Schedulers.getScheduleStore(context).updateSchedule(schedNew);
+    });
+    ProgramSchedule foundUpdated = TransactionRunners.run(transactionRunner, context -> {
+      return findSchedule(Schedulers.getScheduleStore(context), triggerKey);
+    });
+    Assert.assertEquals(schedNew, foundUpdated);
+    Assert.assertNotEquals(sched, foundUpdated);
+
+    // after a delete, the schedule must not be found
+    TransactionRunners.run(transactionRunner, context -> {
+      Schedulers.getScheduleStore(context).deleteSchedule(schedNew.getScheduleId());
+    });
+    TransactionRunners.run(transactionRunner, context -> {
+      Assert.assertTrue(Schedulers.getScheduleStore(context).findSchedules(triggerKey).isEmpty());
+    });
+
+    // adding the original schedule back finds it again, not the last cached version
+    TransactionRunners.run(transactionRunner, context -> {
+      Schedulers.getScheduleStore(context).addSchedule(sched);
+    });
+    ProgramSchedule foundReAdded = TransactionRunners.run(transactionRunner, context -> {
+      return findSchedule(Schedulers.getScheduleStore(context), triggerKey);
+    });
+    Assert.assertEquals(sched, foundReAdded);
+  }
+
+  private ProgramSchedule findSchedule(ProgramScheduleStoreDataset store, String triggerKey) throws IOException {
+    Collection<ProgramScheduleRecord> records = store.findSchedules(triggerKey);
+    Assert.assertEquals(1, records.size());
+    return records.iterator().next().getSchedule();
+  }
+
   private Set<ProgramSchedule> toScheduleSet(Collection<ProgramScheduleRecord> records) {
     return records.stream().map(ProgramScheduleRecord::getSchedule).collect(Collectors.toSet());
   }
@@ -690,6 +690,61 @@ public abstract class AppMetadataStoreTest {
     });
   }
 
+  @Test
+  public void testCountActiveRuns() throws Exception {
+    ProgramId programId1 = NamespaceId.DEFAULT.app("test").workflow("test1");
+    ProgramId programId2 = new NamespaceId("ns1").app("test").workflow("test2");
+    ProgramId systemProgramId = NamespaceId.SYSTEM.app("test").workflow("test3");
+
+    List<ProgramRunId> runIds1 = addProgramCount(programId1, 3);
+    addProgramCount(programId2, 2);
+    addProgramCount(systemProgramId, 4);
+
+    // runs in the system namespace are not counted, both before and after the active run counts are initialized
+    for (int i = 0; i < 2; i++) {
+      TransactionRunners.run(transactionRunner, context -> {
+        AppMetadataStore store = AppMetadataStore.create(context);
+        Assert.assertEquals(5, store.countActiveRuns(null));
+        Assert.assertEquals(4, store.countActiveRuns(4));
+      });
+      TransactionRunners.run(transactionRunner, context -> {
+        AppMetadataStore.create(context).initializeActiveRunCounts();
+      });
+    }
+
+    // stopping a run moves it out of the active runs. Stopping it again should not change the count.
+    for (int i = 0; i < 2; i++) {
+      TransactionRunners.run(transactionRunner, context -> {
+        AppMetadataStore store = AppMetadataStore.create(context);
+        ProgramRunId runId = runIds1.get(0);
+        store.recordProgramStop(runId, RunIds.getTime(runId.getRun(), TimeUnit.SECONDS) + 20,
+                                ProgramRunStatus.KILLED, null,
+                                AppFabricTestHelper.createSourceId(sourceId.incrementAndGet()));
+        Assert.assertEquals(4, store.countActiveRuns(null));
+      });
+    }
+
+    // the count goes down to zero once all runs of a program are stopped
+    TransactionRunners.run(transactionRunner, context -> {
+      AppMetadataStore store = AppMetadataStore.create(context);
+      for (ProgramRunId runId : runIds1.subList(1, runIds1.size())) {
+        store.recordProgramStop(runId, RunIds.getTime(runId.getRun(), TimeUnit.SECONDS) + 20,
+                                ProgramRunStatus.FAILED, null,
+                                AppFabricTestHelper.createSourceId(sourceId.incrementAndGet()));
+      }
+      Assert.assertEquals(2, store.countActiveRuns(null));
+      Assert.assertEquals(store.getActiveRuns(x -> !NamespaceId.SYSTEM.equals(x.getProgramRunId().getNamespaceId()))
+                            .size(), store.countActiveRuns(null));
+    });
+
+    // deleting the run history also removes the active run count
+    TransactionRunners.run(transactionRunner, context -> {
+      AppMetadataStore store = AppMetadataStore.create(context);
+      store.deleteProgramHistory(programId2.getNamespace());
+      Assert.assertEquals(0, store.countActiveRuns(null));
+    });
+  }
+
   @Test
   public void testBatchProgramRunCount() throws Exception {
     ProgramId programId1 = NamespaceId.DEFAULT.app("test").workflow("test1");
@@ -19,11 +19,15 @@ package io.cdap.cdap.internal.app.store.remote;
 import com.google.common.collect.ImmutableSet;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.proto.security.Action;
+import io.cdap.cdap.proto.security.Authorizable;
 import io.cdap.cdap.security.authorization.RemoteAuthorizationEnforcer;
+import io.cdap.cdap.security.spi.authorization.UnauthorizedException;
 import org.junit.Assert;
 import org.junit.BeforeClass;
+import org.junit.Test;
 
 import java.io.IOException;
+import java.util.Collections;
 
 /**
  * Test {@link RemoteAuthorizationEnforcer} with cache enabled.
@@ -53,4 +57,23 @@ public class RemotePrivilegesCacheTest extends RemotePrivilegesTestBase {
     Assert.assertEquals(ImmutableSet.of(NS, APP, PROGRAM),
                         authorizationEnforcer.isVisible(ImmutableSet.of(NS, APP, PROGRAM), ALICE));
   }
+
+  @Test
+  public void testPrefetchedPrivileges() throws Exception {
+    privilegesManager.grant(Authorizable.fromEntityId(PROGRAM), ALICE, Collections.singleton(Action.EXECUTE));
+    // The first check fetches all privileges of alice
+    authorizationEnforcer.enforce(PROGRAM, ALICE, Action.EXECUTE);
+    privilegesManager.revoke(Authorizable.fromEntityId(PROGRAM));
+
+    // Ancestors of the program are visible from the prefetched privileges, even though they were never checked
+    Assert.assertEquals(ImmutableSet.of(NS, APP),
+                        authorizationEnforcer.isVisible(ImmutableSet.of(NS, APP, NS.app("other")), ALICE));
+    // Privileges that are not granted are still checked remotely
+    try {
+      authorizationEnforcer.enforce(APP, ALICE, Action.ADMIN);
+      Assert.fail();
+    } catch (UnauthorizedException e) {
+      // expected
+    }
+  }
 }
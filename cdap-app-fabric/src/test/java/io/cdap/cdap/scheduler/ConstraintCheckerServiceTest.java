@@ -0,0 +1,267 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.scheduler;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Scopes;
+import io.cdap.cdap.api.dataset.lib.PartitionKey;
+import io.cdap.cdap.api.metrics.MetricsCollectionService;
+import io.cdap.cdap.app.store.Store;
+import io.cdap.cdap.common.app.RunIds;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.guice.ConfigModule;
+import io.cdap.cdap.common.guice.LocalLocationModule;
+import io.cdap.cdap.common.metrics.NoOpMetricsCollectionService;
+import io.cdap.cdap.common.namespace.InMemoryNamespaceAdmin;
+import io.cdap.cdap.common.namespace.NamespaceQueryAdmin;
+import io.cdap.cdap.common.utils.Tasks;
+import io.cdap.cdap.data.runtime.StorageModule;
+import io.cdap.cdap.data.runtime.SystemDatasetRuntimeModule;
+import io.cdap.cdap.data2.dataset2.DatasetDefinitionRegistryFactory;
+import io.cdap.cdap.data2.dataset2.DatasetFramework;
+import io.cdap.cdap.data2.dataset2.DefaultDatasetDefinitionRegistryFactory;
+import io.cdap.cdap.data2.dataset2.InMemoryDatasetFramework;
+import io.cdap.cdap.internal.app.runtime.schedule.ProgramSchedule;
+import io.cdap.cdap.internal.app.runtime.schedule.ProgramScheduleMeta;
+import io.cdap.cdap.internal.app.runtime.schedule.ProgramScheduleRecord;
+import io.cdap.cdap.internal.app.runtime.schedule.ProgramScheduleStatus;
+import io.cdap.cdap.internal.app.runtime.schedule.constraint.ConcurrencyConstraint;
+import io.cdap.cdap.internal.app.runtime.schedule.constraint.DelayConstraint;
+import io.cdap.cdap.internal.app.runtime.schedule.queue.Job;
+import io.cdap.cdap.internal.app.runtime.schedule.queue.JobKey;
+import io.cdap.cdap.internal.app.runtime.schedule.queue.JobQueueTable;
+import io.cdap.cdap.internal.app.runtime.schedule.trigger.PartitionTrigger;
+import io.cdap.cdap.internal.app.store.RunRecordMeta;
+import io.cdap.cdap.internal.schedule.constraint.Constraint;
+import io.cdap.cdap.proto.Notification;
+import io.cdap.cdap.proto.id.ApplicationId;
+import io.cdap.cdap.proto.id.DatasetId;
+import io.cdap.cdap.proto.id.NamespaceId;
+import io.cdap.cdap.proto.id.ProgramId;
+import io.cdap.cdap.proto.id.ProgramRunId;
+import io.cdap.cdap.proto.id.WorkflowId;
+import io.cdap.cdap.spi.data.StructuredTableAdmin;
+import io.cdap.cdap.spi.data.table.StructuredTableRegistry;
+import io.cdap.cdap.spi.data.transaction.TransactionRunner;
+import io.cdap.cdap.spi.data.transaction.TransactionRunners;
+import io.cdap.cdap.store.StoreDefinition;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.tephra.TransactionManager;
+import org.apache.tephra.TransactionSystemClient;
+import org.apache.tephra.inmemory.InMemoryTxSystemClient;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for parking and waking up jobs in {@link ConstraintCheckerService}.
+ */
+public class ConstraintCheckerServiceTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  private static final NamespaceId TEST_NS = new NamespaceId("constraintTest");
+  private static final ApplicationId APP_ID = TEST_NS.app("app1");
+  private static final WorkflowId WORKFLOW_ID = APP_ID.workflow("wf1");
+  private static final DatasetId DATASET_ID = TEST_NS.dataset("pfs1");
+
+  private static TransactionManager txManager;
+  private static CConfiguration cConf;
+  private static TransactionRunner transactionRunner;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    cConf = CConfiguration.create();
+    cConf.set(Constants.CFG_LOCAL_DATA_DIR, TEMP_FOLDER.newFolder().getAbsolutePath());
+    cConf.set(Constants.Dataset.DATA_STORAGE_IMPLEMENTATION, Constants.Dataset.DATA_STORAGE_NOSQL);
+
+    txManager = new TransactionManager(new Configuration());
+    txManager.startAndWait();
+
+    Injector injector = Guice.createInjector(
+      new ConfigModule(cConf),
+      new LocalLocationModule(),
+      new SystemDatasetRuntimeModule().getInMemoryModules(),
+      new StorageModule(),
+      new AbstractModule() {
+        @Override
+        protected void configure() {
+          bind(DatasetDefinitionRegistryFactory.class)
+            .to(DefaultDatasetDefinitionRegistryFactory.class).in(Scopes.SINGLETON);
+          bind(DatasetFramework.class).to(InMemoryDatasetFramework.class);
+          bind(NamespaceQueryAdmin.class).to(InMemoryNamespaceAdmin.class).in(Scopes.SINGLETON);
+          bind(TransactionSystemClient.class).toInstance(new InMemoryTxSystemClient(txManager));
+          bind(MetricsCollectionService.class).to(NoOpMetricsCollectionService.class).in(Scopes.SINGLETON);
+        }
+      }
+    );
+
+    injector.getInstance(StructuredTableRegistry.class).initialize();
+    StructuredTableAdmin tableAdmin = injector.getInstance(StructuredTableAdmin.class);
+    transactionRunner = injector.getInstance(TransactionRunner.class);
+    StoreDefinition.JobQueueStore.createTables(tableAdmin, false);
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    txManager.stopAndWait();
+  }
+
+  @Test
+  public void testWakeUpOnProgramStatus() throws Exception {
+    ConcurrencyConstraint concurrencyConstraint = new ConcurrencyConstraint(1);
+    concurrencyConstraint.setWaitUntilMet(true);
+    ProgramSchedule schedule = createSchedule("concurrency", concurrencyConstraint);
+
+    TestStore testStore = new TestStore();
+    testStore.activeRuns = Collections.singletonMap(WORKFLOW_ID.run(RunIds.generate()), null);
+    ConstraintCheckerService checker = createChecker(testStore.store);
+    checker.startAndWait();
+    try {
+      addJob(schedule);
+      Tasks.waitFor(1, testStore.checks::get, 5, TimeUnit.SECONDS);
+
+      // The job is parked for 10 seconds, hence it is not checked again by the passes over the partition
+      TimeUnit.SECONDS.sleep(5);
+      Assert.assertEquals(1, testStore.checks.get());
+      Assert.assertNotNull(getJob(schedule));
+
+      // Once the active run completes, the job is woken up by the program status change before its wake up time
+      testStore.activeRuns = Collections.emptyMap();
+      checker.programStatusChanged(WORKFLOW_ID);
+      Tasks.waitFor(true, () -> getJob(schedule) == null, 3, TimeUnit.SECONDS, 50, TimeUnit.MILLISECONDS);
+      Assert.assertEquals(2, testStore.checks.get());
+    } finally {
+      checker.stopAndWait();
+    }
+  }
+
+  @Test
+  public void testWakeUpOnTime() throws Exception {
+    // Each check of the constraints queries the active runs for the satisfied concurrency constraint
+    ProgramSchedule schedule = createSchedule("delay", new DelayConstraint(3, TimeUnit.SECONDS),
+                                              new ConcurrencyConstraint(1));
+
+    TestStore testStore = new TestStore();
+    ConstraintCheckerService checker = createChecker(testStore.store);
+    checker.startAndWait();
+    try {
+      addJob(schedule);
+      Tasks.waitFor(true, () -> getJob(schedule) == null, 10, TimeUnit.SECONDS, 50, TimeUnit.MILLISECONDS);
+
+      // The job is only checked when it is added and when the delay has passed, but not by the passes in between
+      Assert.assertEquals(2, testStore.checks.get());
+    } finally {
+      checker.stopAndWait();
+    }
+  }
+
+  @Test
+  public void testWakeUpOnProgramStatusWithDelay() throws Exception {
+    ConcurrencyConstraint concurrencyConstraint = new ConcurrencyConstraint(1);
+    concurrencyConstraint.setWaitUntilMet(true);
+    ProgramSchedule schedule = createSchedule("delay-concurrency", new DelayConstraint(1, TimeUnit.SECONDS),
+                                              concurrencyConstraint);
+
+    TestStore testStore = new TestStore();
+    testStore.activeRuns = Collections.singletonMap(WORKFLOW_ID.run(RunIds.generate()), null);
+    ConstraintCheckerService checker = createChecker(testStore.store);
+    checker.startAndWait();
+    try {
+      addJob(schedule);
+      Tasks.waitFor(1, testStore.checks::get, 5, TimeUnit.SECONDS);
+
+      // Once the delay has passed, the job is still woken up by the program status change of the concurrency
+      // constraint, before the retry time of that constraint
+      TimeUnit.SECONDS.sleep(2);
+      Assert.assertNotNull(getJob(schedule));
+      testStore.activeRuns = Collections.emptyMap();
+      checker.programStatusChanged(WORKFLOW_ID);
+      Tasks.waitFor(true, () -> getJob(schedule) == null, 3, TimeUnit.SECONDS, 50, TimeUnit.MILLISECONDS);
+      Assert.assertEquals(2, testStore.checks.get());
+    } finally {
+      checker.stopAndWait();
+    }
+  }
+
+  private ProgramSchedule createSchedule(String name, Constraint... constraints) {
+    return new ProgramSchedule(name, "test schedule", WORKFLOW_ID, ImmutableMap.of(),
+                               new PartitionTrigger(DATASET_ID, 1), ImmutableList.copyOf(constraints));
+  }
+
+  /**
+   * Adds a job for the given schedule in the pending constraint state.
+   */
+  private void addJob(ProgramSchedule schedule) {
+    PartitionKey partitionKey = PartitionKey.builder().addStringField("key", "value").build();
+    TransactionRunners.run(transactionRunner, context -> {
+      JobQueueTable.getJobQueue(context, cConf).addNotification(
+        new ProgramScheduleRecord(schedule, new ProgramScheduleMeta(ProgramScheduleStatus.SCHEDULED, 0L)),
+        Notification.forPartitions(DATASET_ID, ImmutableList.of(partitionKey)));
+    });
+    Job job = getJob(schedule);
+    Assert.assertNotNull(job);
+    Assert.assertEquals(Job.State.PENDING_CONSTRAINT, job.getState());
+  }
+
+  private Job getJob(ProgramSchedule schedule) {
+    return TransactionRunners.run(transactionRunner, context -> {
+      return JobQueueTable.getJobQueue(context, cConf).getJob(new JobKey(schedule.getScheduleId(), 0));
+    });
+  }
+
+  /**
+   * Creates a {@link ConstraintCheckerService}. Launching the program of a satisfied job fails since the services
+   * for launching are not provided, after which the job is removed from the job queue.
+   */
+  private ConstraintCheckerService createChecker(Store store) {
+    return new ConstraintCheckerService(store, null, null, null, cConf, transactionRunner);
+  }
+
+  /**
+   * Provides a {@link Store} that only serves the active runs of a program, and counts the calls.
+   */
+  private static final class TestStore {
+
+    private final AtomicInteger checks = new AtomicInteger();
+    private volatile Map<ProgramRunId, RunRecordMeta> activeRuns = Collections.emptyMap();
+    private final Store store = (Store) Proxy.newProxyInstance(
+      Store.class.getClassLoader(), new Class<?>[] { Store.class }, (proxy, method, args) -> {
+        if (method.getName().equals("getActiveRuns")
+          && args != null && args.length == 1 && args[0] instanceof ProgramId) {
+          checks.incrementAndGet();
+          return activeRuns;
+        }
+        throw new UnsupportedOperationException("Method " + method + " is not supported");
+      });
+  }
+}
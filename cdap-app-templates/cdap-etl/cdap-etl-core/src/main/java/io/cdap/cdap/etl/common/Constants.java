@@ -53,6 +53,7 @@ public final class Constants {
    */
   public static final class Metrics {
     public static final String TOTAL_TIME = "process.time.total";
+    public static final String TIME_DISTRIBUTION = "process.time";
     public static final String MIN_TIME = "process.time.min";
     public static final String MAX_TIME = "process.time.max";
     public static final String STD_DEV_TIME = "process.time.stddev";
@@ -70,6 +70,17 @@ public class DefaultStageMetrics implements StageMetrics, Externalizable {
     });
   }
 
+  @Override
+  public void distribution(final String metricName, final long value) {
+    caller.callUnchecked(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        metrics.distribution(prefix + metricName, value);
+        return null;
+      }
+    });
+  }
+
   @Override
   public void pipelineCount(final String metricName, final int delta) {
     caller.callUnchecked(new Callable<Void>() {
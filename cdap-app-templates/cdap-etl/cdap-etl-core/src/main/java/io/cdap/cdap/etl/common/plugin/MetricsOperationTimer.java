@@ -70,6 +70,7 @@ public class MetricsOperationTimer implements OperationTimer {
   }
 
   private void emitTimeMetrics(long micros) {
+    stageMetrics.distribution(Constants.Metrics.TIME_DISTRIBUTION, micros);
     maxTime = maxTime < micros ? micros : maxTime;
     minTime = minTime > micros ? micros : minTime;
     // this shouldn't normally happen, it means ~35 minutes were spent in a method call
@@ -54,6 +54,9 @@ public final class Constants {
   public static final String COLLECT_CONTAINER_LOGS = "master.collect.containers.log";
   public static final String COLLECT_APP_CONTAINER_LOG_LEVEL = "master.collect.app.containers.log.level";
   public static final String HTTP_CLIENT_CONNECTION_TIMEOUT_MS = "http.client.connection.timeout.ms";
+  public static final String HTTP_CLIENT_IDLE_TIMEOUT_MS = "http.client.idle.timeout.ms";
+  public static final String HTTP_CLIENT_MAX_IDLE_CONNECTIONS = "http.client.max.idle.connections";
+  public static final String HTTP_CLIENT_MAX_RESPONSE_BYTES = "http.client.max.response.bytes";
   public static final String HTTP_CLIENT_READ_TIMEOUT_MS = "http.client.read.timeout.ms";
   /** Uniquely identifies a CDAP instance */
   public static final String INSTANCE_NAME = "instance.name";
@@ -177,6 +180,9 @@ public final class Constants {
     public static final String SERVER_SSL_PORT = "app.ssl.bind.port";
     public static final String OUTPUT_DIR = "app.output.dir";
     public static final String TEMP_DIR = "app.temp.dir";
+    public static final String BUNDLE_JAR_CACHE_DIR = "app.bundle.jar.cache.dir";
+    public static final String BUNDLE_JAR_CACHE_MAX_ENTRIES = "app.bundle.jar.cache.max.entries";
+    public static final String BUNDLE_JAR_CACHE_MAX_AGE_SECONDS = "app.bundle.jar.cache.max.age.seconds";
     public static final String REST_PORT = "app.rest.port";
     public static final String PROGRAM_JVM_OPTS = "app.program.jvm.opts";
     public static final String BACKLOG_CONNECTIONS = "app.connection.backlog";
@@ -441,6 +447,10 @@ public final class Constants {
 
     public static final String DATASET_UNCHECKED_UPGRADE = "dataset.unchecked.upgrade";
 
+    // Client side cache of dataset instance and type metadata in RemoteDatasetFramework
+    public static final String CLIENT_CACHE_MAX_ENTRIES = "dataset.client.cache.max.entries";
+    public static final String CLIENT_CACHE_TTL_SECONDS = "dataset.client.cache.ttl.seconds";
+
     public static final String DATA_EVENT_TOPIC = "data.event.topic";
 
     public static final String DATA_STORAGE_IMPLEMENTATION = "data.storage.implementation";
@@ -456,6 +466,7 @@ public final class Constants {
     public static final String DATA_STORAGE_SQL_PASSWORD = "data.storage.sql.jdbc.password";
     public static final String DATA_STORAGE_SQL_PROPERTY_PREFIX = "data.storage.sql.jdbc.property.";
     public static final String DATA_STORAGE_SQL_CONNECTION_SIZE = "data.storage.sql.jdbc.connection.pool.size";
+    public static final String DATA_STORAGE_SQL_STATEMENT_CACHE_SIZE = "data.storage.sql.jdbc.statement.cache.size";
 
     // used for Guice named bindings
     public static final String TABLE_TYPE = "table.type";
@@ -552,6 +563,7 @@ public final class Constants {
     public static final String SERVER_BOSS_THREADS = "router.server.boss.threads";
     public static final String SERVER_WORKER_THREADS = "router.server.worker.threads";
     public static final String CONNECTION_TIMEOUT_SECS = "router.connection.idle.timeout.secs";
+    public static final String UPSTREAM_MAX_IDLE_CONNECTIONS = "router.upstream.max.idle.connections";
     public static final String ROUTER_AUDIT_PATH_CHECK_ENABLED = "router.audit.path.check.enabled";
     public static final String ROUTER_AUDIT_LOG_ENABLED = "router.audit.log.enabled";
 
@@ -728,6 +740,17 @@ public final class Constants {
         public static final String PROCESS_MIN_DELAY = "log.process.min.delay";
         public static final String PROCESS_MAX_DELAY = "log.process.max.delay";
         public static final String PROCESS_MESSAGES_COUNT = "log.process.message.count";
+        // Prefix of the per level count of log messages dropped by the log appender, e.g. log.appender.dropped.info
+        public static final String APPENDER_DROPPED = "log.appender.dropped";
+      }
+
+      /**
+       * Router metrics
+       */
+      public static final class Router {
+        public static final String UPSTREAM_POOL_HITS = "router.upstream.pool.hits";
+        public static final String UPSTREAM_POOL_MISSES = "router.upstream.pool.misses";
+        public static final String UPSTREAM_RESENDS = "router.upstream.resends";
       }
     }
 
@@ -739,6 +762,10 @@ public final class Constants {
       public static final long MAX_MINUTE_RESOLUTION_QUERY_INTERVAL = 600;
       // Number of seconds to subtract from current timestamp when query without "end" time.
       public static final long QUERY_SECOND_DELAY = 2;
+
+      public static final String CACHE_MAX_ENTRIES = "metrics.query.cache.max.entries";
+      public static final String CACHE_TTL_SECONDS = "metrics.query.cache.ttl.seconds";
+      public static final String CACHE_REFRESH_WINDOW_SECONDS = "metrics.query.cache.refresh.window.seconds";
     }
 
     /**
@@ -763,6 +790,7 @@ public final class Constants {
       public static final String ACTIVE_CONNECTIONS = "structured.table.connection.active";
       public static final String IDLE_CONNECTIONS = "structured.table.connection.idle";
       public static final String ERROR_CONNECTIONS = "structured.table.connection.error";
+      public static final String CONNECTION_WAIT_TIME_MS = "structured.table.connection.wait.time.ms";
     }
 
     /**
@@ -884,6 +912,10 @@ public final class Constants {
     public static final String KAFKA_TOPIC = "log.kafka.topic";
     public static final String TMS_TOPIC_PREFIX = "log.tms.topic.prefix";
     public static final String APPENDER_QUEUE_SIZE = "log.queue.size";
+    public static final String APPENDER_PRESSURE_RATIO = "log.queue.pressure.ratio";
+    public static final String APPENDER_PRESSURE_LEVEL = "log.queue.pressure.level";
+    public static final String APPENDER_PRESSURE_SAMPLE_RATE = "log.queue.pressure.sample.rate";
+    public static final String APPENDER_FULL_WAIT_MS = "log.queue.full.wait.ms";
     public static final String NUM_PARTITIONS = "log.publish.num.partitions";
     public static final String LOG_PUBLISH_PARTITION_KEY = "log.publish.partition.key";
 
@@ -1018,6 +1050,10 @@ public final class Constants {
       public static final String CACHE_TTL_SECS = "security.authorization.cache.ttl.secs";
       /** Maximum number of entries the authorization cache will hold */
       public static final String CACHE_MAX_ENTRIES = "security.authorization.cache.max.entries";
+      /** Time after which an entry in container's privilege cache is refreshed in the background */
+      public static final String CACHE_REFRESH_SECS = "security.authorization.cache.refresh.secs";
+      /** Whether to prefetch all privileges of a principal into container's privilege cache on first use */
+      public static final String CACHE_PREFETCH_ENABLED = "security.authorization.cache.prefetch.enabled";
       /** Batch size for query for the visibility of entities */
       public static final int VISIBLE_BATCH_SIZE = 500;
       /** Upper limit on extension operation time after which the time is logged as WARN rather than TRACE */
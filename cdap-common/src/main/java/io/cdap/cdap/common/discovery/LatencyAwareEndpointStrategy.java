@@ -0,0 +1,224 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.common.discovery;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.twill.discovery.Discoverable;
+import org.apache.twill.discovery.ServiceDiscovered;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+/**
+ * An {@link EndpointStrategy} that prefers endpoints that respond fast and have few outstanding requests.
+ * <p>
+ * Callers report the start and the end of each request made to the picked endpoint through
+ * {@link #startRequest(String, int)}. For each endpoint, the number of in-flight requests and an exponentially
+ * weighted moving average (EWMA) of the response latency are tracked. A latency above the average replaces it
+ * right away, while the average decays over time, such that an endpoint that was slow in the past gets probed again
+ * after a while. An endpoint is picked using the
+ * power-of-two-choices algorithm: two random candidates are compared and the one with the lower
+ * {@code latency * (in-flight + 1)} cost is picked. Endpoints that fail several requests in a row are ejected for a
+ * period of time, unless all endpoints are ejected.
+ * </p>
+ * Endpoints are identified by the {@link InetSocketAddress#getHostString() host string} and port of the
+ * {@link Discoverable} socket address, which is what callers see in the request URL.
+ */
+public final class LatencyAwareEndpointStrategy extends AbstractEndpointStrategy {
+
+  private static final long DEFAULT_DECAY_NANOS = TimeUnit.SECONDS.toNanos(2);
+  private static final long MIN_LATENCY_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+  private static final int DEFAULT_MAX_CONSECUTIVE_FAILURES = 3;
+  private static final long DEFAULT_EJECT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  private final long decayNanos;
+  private final int maxConsecutiveFailures;
+  private final long ejectNanos;
+  private final Cache<String, EndpointStats> endpointStats;
+
+  /**
+   * Constructs a latency aware endpoint strategy with the given {@link ServiceDiscovered}.
+   */
+  public LatencyAwareEndpointStrategy(Supplier<ServiceDiscovered> serviceDiscoveredSupplier) {
+    this(serviceDiscoveredSupplier, DEFAULT_DECAY_NANOS, DEFAULT_MAX_CONSECUTIVE_FAILURES, DEFAULT_EJECT_NANOS);
+  }
+
+  @VisibleForTesting
+  LatencyAwareEndpointStrategy(Supplier<ServiceDiscovered> serviceDiscoveredSupplier,
+                               long decayNanos, int maxConsecutiveFailures, long ejectNanos) {
+    super(serviceDiscoveredSupplier);
+    this.decayNanos = decayNanos;
+    this.maxConsecutiveFailures = maxConsecutiveFailures;
+    this.ejectNanos = ejectNanos;
+    // Stats of endpoints that are gone are dropped eventually
+    this.endpointStats = CacheBuilder.newBuilder().expireAfterAccess(1, TimeUnit.HOURS).build();
+  }
+
+  /**
+   * Records the start of a request to the endpoint with the given host and port. The host must be the
+   * {@link InetSocketAddress#getHostString() host string} of the discovered address.
+   *
+   * @return a {@link Request} that must be completed when the request finishes
+   */
+  public Request startRequest(String host, int port) {
+    EndpointStats stats = getStats(host + ":" + port);
+    stats.inflight.incrementAndGet();
+    return new Request(stats, System.nanoTime());
+  }
+
+  @Nullable
+  @Override
+  protected Discoverable pick(ServiceDiscovered serviceDiscovered) {
+    long now = System.nanoTime();
+    List<Discoverable> candidates = new ArrayList<>();
+    int total = 0;
+    for (Discoverable discoverable : serviceDiscovered) {
+      total++;
+      EndpointStats stats = endpointStats.getIfPresent(getKey(discoverable));
+      if (stats == null || !stats.isEjected(now)) {
+        candidates.add(discoverable);
+      }
+    }
+    if (candidates.isEmpty()) {
+      // All endpoints are ejected. Better to try one than to fail.
+      return total == 0 ? null : RandomEndpointStrategy.pickRandom(serviceDiscovered);
+    }
+    if (candidates.size() == 1) {
+      return candidates.get(0);
+    }
+
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int first = random.nextInt(candidates.size());
+    int second = random.nextInt(candidates.size() - 1);
+    if (second >= first) {
+      second++;
+    }
+    Discoverable firstCandidate = candidates.get(first);
+    Discoverable secondCandidate = candidates.get(second);
+    return getCost(firstCandidate, now) <= getCost(secondCandidate, now) ? firstCandidate : secondCandidate;
+  }
+
+  private double getCost(Discoverable discoverable, long now) {
+    EndpointStats stats = endpointStats.getIfPresent(getKey(discoverable));
+    if (stats == null) {
+      return MIN_LATENCY_NANOS;
+    }
+    return Math.max(MIN_LATENCY_NANOS, stats.getLatency(now)) * (stats.inflight.get() + 1);
+  }
+
+  private String getKey(Discoverable discoverable) {
+    InetSocketAddress address = discoverable.getSocketAddress();
+    return address.getHostString() + ":" + address.getPort();
+  }
+
+  private EndpointStats getStats(String key) {
+    try {
+      return endpointStats.get(key, EndpointStats::new);
+    } catch (ExecutionException e) {
+      // Cannot happen, as creating EndpointStats doesn't throw
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * A request in flight to an endpoint.
+   */
+  public final class Request {
+
+    private final EndpointStats stats;
+    private final long startNanos;
+    private boolean completed;
+
+    private Request(EndpointStats stats, long startNanos) {
+      this.stats = stats;
+      this.startNanos = startNanos;
+    }
+
+    /**
+     * Marks the request as completed. Calling this method more than once has no effect.
+     *
+     * @param success {@code false} if the request failed because of the endpoint, e.g. it could not be reached
+     *                or it responded with service unavailable.
+     */
+    public void complete(boolean success) {
+      if (completed) {
+        return;
+      }
+      completed = true;
+      long now = System.nanoTime();
+      stats.inflight.decrementAndGet();
+      stats.update(now - startNanos, success, now);
+    }
+  }
+
+  /**
+   * Statistics of requests to one endpoint.
+   */
+  private final class EndpointStats {
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private double latency;
+    private long lastUpdateNanos;
+    private int consecutiveFailures;
+    private long ejectedUntilNanos;
+    private boolean ejected;
+
+    synchronized void update(long latencyNanos, boolean success, long now) {
+      // Time based peak EWMA: the longer since the last sample, the less weight the old average has.
+      // A sample above the average replaces it, such that a degraded endpoint is avoided right away.
+      if (latencyNanos > getLatency(now)) {
+        latency = latencyNanos;
+      } else {
+        double weight = Math.exp(-(double) Math.max(0L, now - lastUpdateNanos) / decayNanos);
+        latency = latency * weight + latencyNanos * (1 - weight);
+      }
+      lastUpdateNanos = now;
+
+      if (success) {
+        consecutiveFailures = 0;
+        ejected = false;
+      } else if (++consecutiveFailures >= maxConsecutiveFailures) {
+        ejected = true;
+        ejectedUntilNanos = now + ejectNanos;
+      }
+    }
+
+    /**
+     * Returns the average latency, decayed toward zero based on the time since the last sample, so that slow
+     * endpoints are tried again eventually.
+     */
+    synchronized double getLatency(long now) {
+      if (lastUpdateNanos == 0) {
+        return 0d;
+      }
+      return latency * Math.exp(-(double) Math.max(0L, now - lastUpdateNanos) / decayNanos);
+    }
+
+    synchronized boolean isEjected(long now) {
+      return ejected && now - ejectedUntilNanos < 0;
+    }
+  }
+}
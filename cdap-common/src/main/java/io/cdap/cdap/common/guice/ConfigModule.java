@@ -21,6 +21,7 @@ import io.cdap.cdap.common.conf.CConfigurationUtil;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.conf.SConfiguration;
 import io.cdap.cdap.common.http.DefaultHttpRequestConfig;
+import io.cdap.cdap.common.internal.remote.NettyHttpClient;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
 import org.slf4j.Logger;
@@ -80,6 +81,20 @@ public final class ConfigModule extends AbstractModule {
       LOG.warn("Configuration for {} not found. Falling back to default value of {}",
                Constants.HTTP_CLIENT_READ_TIMEOUT_MS, DefaultHttpRequestConfig.DEFAULT_TIMEOUT);
     }
+
+    // Connection pool settings of the internal HTTP client
+    String maxIdleConnections = cConf.get(Constants.HTTP_CLIENT_MAX_IDLE_CONNECTIONS);
+    if (maxIdleConnections != null) {
+      System.setProperty(NettyHttpClient.MAX_IDLE_CONNECTIONS_PROPERTY_NAME, maxIdleConnections);
+    }
+    String idleTimeout = cConf.get(Constants.HTTP_CLIENT_IDLE_TIMEOUT_MS);
+    if (idleTimeout != null) {
+      System.setProperty(NettyHttpClient.IDLE_TIMEOUT_PROPERTY_NAME, idleTimeout);
+    }
+    String maxResponseBytes = cConf.get(Constants.HTTP_CLIENT_MAX_RESPONSE_BYTES);
+    if (maxResponseBytes != null) {
+      System.setProperty(NettyHttpClient.MAX_RESPONSE_BYTES_PROPERTY_NAME, maxResponseBytes);
+    }
   }
 
   @Override
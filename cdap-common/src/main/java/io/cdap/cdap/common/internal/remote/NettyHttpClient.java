@@ -0,0 +1,679 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.common.internal.remote;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.common.ContentProvider;
+import io.cdap.common.http.HttpRequest;
+import io.cdap.common.http.HttpRequestConfig;
+import io.cdap.common.http.HttpResponse;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpChunkedInput;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.stream.ChunkedStream;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+
+/**
+ * An asynchronous HTTP/1.1 client for internal service calls, built on Netty.
+ * <p>
+ * Requests are sent over keep-alive connections that are pooled per endpoint, so that concurrent callers to the same
+ * service each get their own connection without paying for a new TCP (and TLS) handshake on every call. A connection
+ * is returned to the pool once its response is fully read and the server agreed to keep it open. At most
+ * {@code maxIdleConnections} idle connections are kept per endpoint, and idle connections are closed after
+ * {@code idleTimeoutMillis}.
+ * </p>
+ * <p>
+ * Request bodies up to {@link #MAX_BUFFERED_BODY_BYTES} are sent with a content length. Larger bodies are streamed
+ * with chunked transfer encoding, reading the body on the I/O thread of the connection, so that they are never held
+ * in memory. Response bodies are read into memory, the same as {@link io.cdap.common.http.HttpRequests}, up to
+ * {@code maxResponseBytes}. A larger response fails with a {@link ResponseTooLargeException}. Redirects to the same
+ * protocol are followed for requests without a body, the same as {@link java.net.HttpURLConnection}.
+ * </p>
+ * <p>
+ * The returned futures are completed on the I/O threads of this client, hence dependent actions that block must use
+ * one of the async methods of {@link CompletableFuture} with a separate executor.
+ * </p>
+ */
+public final class NettyHttpClient implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(NettyHttpClient.class);
+
+  private static final String SYSTEM_PROPERTY_PREFIX = "cdap.";
+
+  public static final String MAX_IDLE_CONNECTIONS_PROPERTY_NAME =
+    SYSTEM_PROPERTY_PREFIX + Constants.HTTP_CLIENT_MAX_IDLE_CONNECTIONS;
+  public static final String IDLE_TIMEOUT_PROPERTY_NAME =
+    SYSTEM_PROPERTY_PREFIX + Constants.HTTP_CLIENT_IDLE_TIMEOUT_MS;
+  public static final String MAX_RESPONSE_BYTES_PROPERTY_NAME =
+    SYSTEM_PROPERTY_PREFIX + Constants.HTTP_CLIENT_MAX_RESPONSE_BYTES;
+
+  public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 16;
+  public static final int DEFAULT_IDLE_TIMEOUT_MS = 60000;
+  public static final int DEFAULT_MAX_RESPONSE_BYTES = 64 * 1024 * 1024;
+
+  // Request bodies up to this size are buffered and sent with a content length, larger ones are streamed
+  static final int MAX_BUFFERED_BODY_BYTES = 64 * 1024;
+  // The same default limit as HttpURLConnection
+  private static final int MAX_REDIRECTS = 20;
+
+  // Methods that are safe to resend if a pooled connection turns out to be closed by the server
+  static final Set<io.cdap.common.http.HttpMethod> IDEMPOTENT_METHODS =
+    EnumSet.of(io.cdap.common.http.HttpMethod.GET, io.cdap.common.http.HttpMethod.HEAD,
+               io.cdap.common.http.HttpMethod.PUT, io.cdap.common.http.HttpMethod.DELETE,
+               io.cdap.common.http.HttpMethod.OPTIONS);
+
+  // Redirect statuses that are followed, the same as HttpURLConnection
+  private static final Set<HttpResponseStatus> REDIRECT_CODES = ImmutableSet.of(
+    HttpResponseStatus.MOVED_PERMANENTLY, HttpResponseStatus.FOUND, HttpResponseStatus.SEE_OTHER,
+    HttpResponseStatus.TEMPORARY_REDIRECT);
+
+  private final EventLoopGroup eventLoopGroup;
+  private final int maxIdleConnections;
+  private final long idleTimeoutMillis;
+  private final int maxResponseBytes;
+  private final ConcurrentMap<String, Deque<Channel>> idleChannels;
+  private final Supplier<SslContext> sslContext;
+  private final Supplier<SslContext> insecureSslContext;
+  private final AtomicInteger connectionsCreated;
+  private volatile boolean closed;
+
+  /**
+   * Returns the client that is shared by all {@link RemoteClient} instances in the process. Its settings are read
+   * from system properties, which are set from the {@link io.cdap.cdap.common.conf.CConfiguration} by
+   * {@link io.cdap.cdap.common.guice.ConfigModule}.
+   */
+  public static NettyHttpClient getShared() {
+    return SharedClientHolder.INSTANCE;
+  }
+
+  /**
+   * Creates a new client.
+   *
+   * @param ioThreads number of I/O threads
+   * @param maxIdleConnections maximum number of idle connections kept per endpoint
+   * @param idleTimeoutMillis time in milliseconds after which an idle connection is closed
+   */
+  public NettyHttpClient(int ioThreads, int maxIdleConnections, long idleTimeoutMillis) {
+    this(ioThreads, maxIdleConnections, idleTimeoutMillis, DEFAULT_MAX_RESPONSE_BYTES);
+  }
+
+  /**
+   * Creates a new client.
+   *
+   * @param ioThreads number of I/O threads
+   * @param maxIdleConnections maximum number of idle connections kept per endpoint
+   * @param idleTimeoutMillis time in milliseconds after which an idle connection is closed
+   * @param maxResponseBytes maximum size of a response body
+   */
+  public NettyHttpClient(int ioThreads, int maxIdleConnections, long idleTimeoutMillis, int maxResponseBytes) {
+    this.eventLoopGroup = new NioEventLoopGroup(ioThreads, new DefaultThreadFactory("internal-http-client", true));
+    this.maxIdleConnections = maxIdleConnections;
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.maxResponseBytes = maxResponseBytes;
+    this.idleChannels = new ConcurrentHashMap<>();
+    this.sslContext = Suppliers.memoize(() -> createSslContext(true));
+    this.insecureSslContext = Suppliers.memoize(() -> createSslContext(false));
+    this.connectionsCreated = new AtomicInteger();
+  }
+
+  /**
+   * Executes the given request asynchronously.
+   *
+   * @param request the request to execute
+   * @param requestConfig the connect timeout, read timeout and SSL settings of the request
+   * @return a {@link CompletableFuture} that is completed with the response, or with the failure of the request
+   */
+  public CompletableFuture<HttpResponse> execute(HttpRequest request, HttpRequestConfig requestConfig) {
+    CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+    if (closed) {
+      result.completeExceptionally(new IllegalStateException("HTTP client is already closed"));
+      return result;
+    }
+    try {
+      send(new PendingRequest(request, requestConfig, result, MAX_REDIRECTS), true);
+    } catch (Exception e) {
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the number of connections opened by this client.
+   */
+  @VisibleForTesting
+  int getConnectionsCreated() {
+    return connectionsCreated.get();
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    for (Deque<Channel> channels : idleChannels.values()) {
+      Channel channel = channels.pollFirst();
+      while (channel != null) {
+        channel.close();
+        channel = channels.pollFirst();
+      }
+    }
+    eventLoopGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Sends the request over an idle pooled connection to the endpoint, or over a new connection if there is none.
+   */
+  private void send(PendingRequest request, boolean allowRetry) {
+    Channel channel = pollIdleChannel(request.endpointKey);
+    if (channel != null) {
+      // A streamed body cannot be sent again
+      request.retryable = allowRetry && request.idempotent && request.bodyStream == null;
+      channel.eventLoop().execute(() -> write(channel, request));
+      return;
+    }
+
+    request.retryable = false;
+    connect(request).addListener((ChannelFutureListener) future -> {
+      if (future.isSuccess()) {
+        write(future.channel(), request);
+      } else {
+        request.closeBody();
+        request.result.completeExceptionally(future.cause());
+      }
+    });
+  }
+
+  /**
+   * Writes the request to the given channel. This method must be called from the event loop of the channel.
+   */
+  private void write(Channel channel, PendingRequest request) {
+    ResponseHandler handler = channel.pipeline().get(ResponseHandler.class);
+    if (handler == null || !channel.isActive()) {
+      // The pooled connection got closed in the meantime
+      if (request.retryable) {
+        send(request, false);
+      } else {
+        request.closeBody();
+        request.result.completeExceptionally(new IOException("Connection to " + request.endpointKey + " is closed"));
+      }
+      return;
+    }
+
+    handler.start(channel, request);
+    ChannelFutureListener failureListener = future -> {
+      if (!future.isSuccess()) {
+        handler.fail(future.channel(), future.cause());
+      }
+    };
+    if (request.bodyStream == null) {
+      channel.writeAndFlush(request.createNettyRequest()).addListener(failureListener);
+    } else {
+      // The chunked writer reads the body as the connection becomes writable and closes it once it is written
+      channel.write(request.createNettyRequest()).addListener(failureListener);
+      channel.writeAndFlush(new HttpChunkedInput(new ChunkedStream(request.bodyStream)))
+        .addListener(failureListener)
+        .addListener(future -> request.bodyWritten = future.isSuccess());
+    }
+  }
+
+  private ChannelFuture connect(PendingRequest request) {
+    URL url = request.url;
+    boolean verifyHost = request.requestConfig.isVerifySSLCert();
+    SslContext sslCtx = "https".equalsIgnoreCase(url.getProtocol())
+      ? (verifyHost ? sslContext.get() : insecureSslContext.get())
+      : null;
+    String host = url.getHost();
+    int port = url.getPort() < 0 ? url.getDefaultPort() : url.getPort();
+    String endpointKey = request.endpointKey;
+
+    Bootstrap bootstrap = new Bootstrap()
+      .group(eventLoopGroup)
+      .channel(NioSocketChannel.class)
+      .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, request.requestConfig.getConnectTimeout())
+      .option(ChannelOption.TCP_NODELAY, true)
+      .handler(new ChannelInitializer<SocketChannel>() {
+        @Override
+        protected void initChannel(SocketChannel ch) {
+          ChannelPipeline pipeline = ch.pipeline();
+          if (sslCtx != null) {
+            SslHandler sslHandler = sslCtx.newHandler(ch.alloc(), host, port);
+            if (verifyHost) {
+              SSLEngine engine = sslHandler.engine();
+              SSLParameters sslParameters = engine.getSSLParameters();
+              sslParameters.setEndpointIdentificationAlgorithm("HTTPS");
+              engine.setSSLParameters(sslParameters);
+            }
+            pipeline.addLast("ssl", sslHandler);
+          }
+          ResponseHandler responseHandler = new ResponseHandler(endpointKey);
+          pipeline.addLast("idle-state-handler",
+                           new IdleStateHandler(0, 0, idleTimeoutMillis, TimeUnit.MILLISECONDS));
+          pipeline.addLast("read-tracker", new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+              responseHandler.touch();
+              ctx.fireChannelRead(msg);
+            }
+          });
+          pipeline.addLast("codec", new HttpClientCodec());
+          pipeline.addLast("chunked-writer", new ChunkedWriteHandler());
+          pipeline.addLast("aggregator", new HttpObjectAggregator(maxResponseBytes));
+          pipeline.addLast("handler", responseHandler);
+          ch.closeFuture().addListener((ChannelFutureListener) future -> {
+            Deque<Channel> channels = idleChannels.get(endpointKey);
+            if (channels != null) {
+              channels.remove(ch);
+            }
+          });
+        }
+      });
+
+    connectionsCreated.incrementAndGet();
+    return bootstrap.connect(host, port);
+  }
+
+  @Nullable
+  private Channel pollIdleChannel(String endpointKey) {
+    Deque<Channel> channels = idleChannels.get(endpointKey);
+    if (channels == null) {
+      return null;
+    }
+    // Use the most recently released connection first, so that surplus connections can time out
+    Channel channel = channels.pollFirst();
+    while (channel != null && !channel.isActive()) {
+      channel = channels.pollFirst();
+    }
+    return channel;
+  }
+
+  private void releaseChannel(String endpointKey, Channel channel) {
+    Deque<Channel> channels = idleChannels.computeIfAbsent(endpointKey, k -> new ConcurrentLinkedDeque<>());
+    if (closed || channels.size() >= maxIdleConnections) {
+      channel.close();
+      return;
+    }
+    channels.offerFirst(channel);
+  }
+
+  private SslContext createSslContext(boolean verifySSLCert) {
+    try {
+      SslContextBuilder builder = SslContextBuilder.forClient();
+      if (!verifySSLCert) {
+        builder.trustManager(InsecureTrustManagerFactory.INSTANCE);
+      }
+      return builder.build();
+    } catch (SSLException e) {
+      throw new IllegalStateException("Failed to create SSL context for the internal HTTP client", e);
+    }
+  }
+
+  /**
+   * A request that is in flight, together with the future to complete with its response.
+   */
+  private static final class PendingRequest {
+    private final URL url;
+    private final String endpointKey;
+    private final HttpMethod method;
+    private final HttpHeaders headers;
+    // The whole body if it is small, otherwise null
+    private final byte[] body;
+    // The body to stream if it is large, otherwise null
+    private final InputStream bodyStream;
+    private final boolean idempotent;
+    private final HttpRequestConfig requestConfig;
+    private final CompletableFuture<HttpResponse> result;
+    private final int redirectsLeft;
+    private boolean retryable;
+    private boolean bodyWritten;
+
+    PendingRequest(HttpRequest request, HttpRequestConfig requestConfig,
+                   CompletableFuture<HttpResponse> result, int redirectsLeft) throws IOException {
+      this.url = request.getURL();
+      this.endpointKey = getEndpointKey(url);
+      this.method = HttpMethod.valueOf(request.getMethod().name());
+      this.idempotent = IDEMPOTENT_METHODS.contains(request.getMethod());
+      this.requestConfig = requestConfig;
+      this.result = result;
+      this.redirectsLeft = redirectsLeft;
+
+      this.headers = new DefaultHttpHeaders();
+      if (request.getHeaders() != null) {
+        for (Map.Entry<String, String> header : request.getHeaders().entries()) {
+          headers.add(header.getKey(), header.getValue());
+        }
+      }
+      headers.set(HttpHeaderNames.HOST, getHostHeader(url));
+
+      ContentProvider<? extends InputStream> bodyProvider = request.getBody();
+      if (bodyProvider == null) {
+        this.body = null;
+        this.bodyStream = null;
+        return;
+      }
+
+      // Buffer small bodies. Larger ones are streamed from what was read so far followed by the rest of the input.
+      InputStream is = bodyProvider.getInput();
+      boolean streamed = false;
+      try {
+        byte[] buffer = new byte[MAX_BUFFERED_BODY_BYTES];
+        int length = ByteStreams.read(is, buffer, 0, buffer.length);
+        if (length < buffer.length) {
+          this.body = Arrays.copyOf(buffer, length);
+          this.bodyStream = null;
+          headers.set(HttpHeaderNames.CONTENT_LENGTH, length);
+        } else {
+          this.body = null;
+          this.bodyStream = new SequenceInputStream(new ByteArrayInputStream(buffer), is);
+          headers.remove(HttpHeaderNames.CONTENT_LENGTH);
+          headers.set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+          streamed = true;
+        }
+      } finally {
+        if (!streamed) {
+          is.close();
+        }
+      }
+    }
+
+    /**
+     * Creates a request for following a redirect to the given URL. The request has no body.
+     */
+    private PendingRequest(PendingRequest request, URL url) {
+      this.url = url;
+      this.endpointKey = getEndpointKey(url);
+      this.method = request.method;
+      this.headers = request.headers.copy().set(HttpHeaderNames.HOST, getHostHeader(url));
+      this.body = null;
+      this.bodyStream = null;
+      this.idempotent = request.idempotent;
+      this.requestConfig = request.requestConfig;
+      this.result = request.result;
+      this.redirectsLeft = request.redirectsLeft - 1;
+    }
+
+    /**
+     * Returns the request for following the redirect of the given response, or {@code null} if the redirect should
+     * not be followed. Like {@link java.net.HttpURLConnection}, redirects are only followed to the same protocol, and
+     * not for requests with a body.
+     */
+    @Nullable
+    PendingRequest redirect(FullHttpResponse response) {
+      if (redirectsLeft <= 0 || body != null || bodyStream != null || !REDIRECT_CODES.contains(response.status())) {
+        return null;
+      }
+      String location = response.headers().get(HttpHeaderNames.LOCATION);
+      if (location == null) {
+        return null;
+      }
+      try {
+        URL target = new URL(url, location);
+        return target.getProtocol().equalsIgnoreCase(url.getProtocol()) ? new PendingRequest(this, target) : null;
+      } catch (MalformedURLException e) {
+        LOG.debug("Not following redirect of {} to malformed location {}", url, location);
+        return null;
+      }
+    }
+
+    io.netty.handler.codec.http.HttpRequest createNettyRequest() {
+      String uri = url.getFile().isEmpty() ? "/" : url.getFile();
+      if (bodyStream != null) {
+        return new DefaultHttpRequest(HttpVersion.HTTP_1_1, method, uri, headers.copy());
+      }
+      return new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, method, uri,
+                                        body == null ? Unpooled.EMPTY_BUFFER : Unpooled.wrappedBuffer(body),
+                                        headers.copy(), EmptyHttpHeaders.INSTANCE);
+    }
+
+    /**
+     * Closes the body stream if it is never going to be written.
+     */
+    void closeBody() {
+      if (bodyStream != null) {
+        Closeables.closeQuietly(bodyStream);
+      }
+    }
+
+    private static String getEndpointKey(URL url) {
+      int port = url.getPort() < 0 ? url.getDefaultPort() : url.getPort();
+      return url.getProtocol().toLowerCase() + "://" + url.getHost() + ":" + port;
+    }
+
+    private static String getHostHeader(URL url) {
+      return url.getPort() < 0 ? url.getHost() : url.getHost() + ":" + url.getPort();
+    }
+  }
+
+  /**
+   * Thrown when the body of a response is larger than the maximum response size of the client.
+   */
+  public static final class ResponseTooLargeException extends IOException {
+    ResponseTooLargeException(String message, Throwable cause) {
+      super(message, cause);
+    }
+  }
+
+  /**
+   * Handles the response of the current request on a connection. All methods are called from the event loop of the
+   * connection.
+   */
+  private final class ResponseHandler extends SimpleChannelInboundHandler<FullHttpResponse> {
+
+    private final String endpointKey;
+    private PendingRequest pendingRequest;
+    private boolean responseStarted;
+    private long lastReadNanos;
+
+    ResponseHandler(String endpointKey) {
+      this.endpointKey = endpointKey;
+    }
+
+    void start(Channel channel, PendingRequest request) {
+      pendingRequest = request;
+      responseStarted = false;
+      lastReadNanos = System.nanoTime();
+      scheduleReadTimeout(channel, request, request.requestConfig.getReadTimeout());
+    }
+
+    void touch() {
+      responseStarted = true;
+      lastReadNanos = System.nanoTime();
+    }
+
+    void fail(Channel channel, Throwable cause) {
+      PendingRequest request = pendingRequest;
+      pendingRequest = null;
+      channel.close();
+      if (request == null) {
+        return;
+      }
+      if (request.retryable && !responseStarted) {
+        // The server closed the pooled connection before it saw the request. Resend it over a new connection.
+        LOG.trace("Resending request to {} over a new connection", endpointKey, cause);
+        send(request, false);
+        return;
+      }
+      request.result.completeExceptionally(cause);
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse response) {
+      PendingRequest request = pendingRequest;
+      pendingRequest = null;
+      if (request == null) {
+        // Unsolicited response
+        ctx.close();
+        return;
+      }
+      if (!response.decoderResult().isSuccess()) {
+        ctx.close();
+        request.result.completeExceptionally(new IOException("Failed to decode response from " + endpointKey,
+                                                             response.decoderResult().cause()));
+        return;
+      }
+
+      Multimap<String, String> headers = LinkedListMultimap.create();
+      for (Map.Entry<String, String> header : response.headers()) {
+        headers.put(header.getKey(), header.getValue());
+      }
+      HttpResponse result = new HttpResponse(response.status().code(), response.status().reasonPhrase(),
+                                             ByteBufUtil.getBytes(response.content()), headers);
+      // Don't reuse the connection if the server responded before the streamed body was written
+      if (HttpUtil.isKeepAlive(response) && (request.bodyStream == null || request.bodyWritten)) {
+        releaseChannel(endpointKey, ctx.channel());
+      } else {
+        ctx.close();
+      }
+      PendingRequest redirect = request.redirect(response);
+      if (redirect != null) {
+        send(redirect, true);
+        return;
+      }
+      request.result.complete(result);
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+      if (evt instanceof IdleStateEvent) {
+        if (pendingRequest == null) {
+          ctx.close();
+        }
+        return;
+      }
+      super.userEventTriggered(ctx, evt);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+      fail(ctx.channel(), new IOException("Connection to " + endpointKey + " closed before the response was read"));
+      super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+      if (cause instanceof TooLongFrameException && pendingRequest != null) {
+        // The response is larger than the aggregator allows. The server has processed the request already.
+        pendingRequest.retryable = false;
+        cause = new ResponseTooLargeException("Response from " + endpointKey + " is larger than "
+                                                + maxResponseBytes + " bytes", cause);
+      }
+      fail(ctx.channel(), cause);
+    }
+
+    /**
+     * Fails the request if no data was read for the given timeout, the same as the read timeout of a
+     * {@link java.net.HttpURLConnection}.
+     */
+    private void scheduleReadTimeout(Channel channel, PendingRequest request, long timeoutMillis) {
+      if (timeoutMillis <= 0) {
+        return;
+      }
+      channel.eventLoop().schedule(() -> {
+        if (pendingRequest != request) {
+          return;
+        }
+        long remainingMillis = request.requestConfig.getReadTimeout()
+          - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastReadNanos);
+        if (remainingMillis > 0) {
+          scheduleReadTimeout(channel, request, remainingMillis);
+          return;
+        }
+        // Don't resend a request that timed out
+        request.retryable = false;
+        fail(channel, new SocketTimeoutException("Read timed out from " + endpointKey));
+      }, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Holder of the client returned by {@link #getShared()}, so that it is only created on first use.
+   */
+  private static final class SharedClientHolder {
+    private static final NettyHttpClient INSTANCE = new NettyHttpClient(
+      Math.max(2, Runtime.getRuntime().availableProcessors()),
+      Integer.getInteger(MAX_IDLE_CONNECTIONS_PROPERTY_NAME, DEFAULT_MAX_IDLE_CONNECTIONS),
+      Integer.getInteger(IDLE_TIMEOUT_PROPERTY_NAME, DEFAULT_IDLE_TIMEOUT_MS),
+      Integer.getInteger(MAX_RESPONSE_BYTES_PROPERTY_NAME, DEFAULT_MAX_RESPONSE_BYTES));
+  }
+}
@@ -19,10 +19,11 @@ package io.cdap.cdap.common.internal.remote;
 import com.google.common.base.Joiner;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Uninterruptibles;
 import io.cdap.cdap.common.ServiceUnavailableException;
 import io.cdap.cdap.common.conf.Constants;
-import io.cdap.cdap.common.discovery.EndpointStrategy;
-import io.cdap.cdap.common.discovery.RandomEndpointStrategy;
+import io.cdap.cdap.common.discovery.LatencyAwareEndpointStrategy;
 import io.cdap.cdap.security.spi.authorization.UnauthorizedException;
 import io.cdap.common.http.HttpMethod;
 import io.cdap.common.http.HttpRequest;
@@ -39,15 +40,19 @@ import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 /**
- * Discovers a remote service and resolves URLs to that service.
+ * Discovers a remote service, resolves URLs to that service and executes requests against it over pooled
+ * keep-alive connections.
  */
 public class RemoteClient {
-  private final Supplier<EndpointStrategy> endpointStrategySupplier;
+  private final Supplier<LatencyAwareEndpointStrategy> endpointStrategySupplier;
   private final HttpRequestConfig httpRequestConfig;
+  private final NettyHttpClient httpClient;
   private final String discoverableServiceName;
   private final String basePath;
 
@@ -55,9 +60,10 @@ public class RemoteClient {
                       HttpRequestConfig httpRequestConfig, String basePath) {
     this.discoverableServiceName = discoverableServiceName;
     this.httpRequestConfig = httpRequestConfig;
+    this.httpClient = NettyHttpClient.getShared();
     // Use a supplier to delay the discovery until the first time it is being used.
     this.endpointStrategySupplier = Suppliers.memoize(
-      () -> new RandomEndpointStrategy(() -> discoveryClient.discover(discoverableServiceName)));
+      () -> new LatencyAwareEndpointStrategy(() -> discoveryClient.discover(discoverableServiceName)));
     String cleanBasePath = basePath.startsWith("/") ? basePath : "/" + basePath;
     this.basePath = cleanBasePath.endsWith("/") ? cleanBasePath : cleanBasePath + "/";
   }
@@ -86,17 +92,69 @@ public class RemoteClient {
    */
   public HttpResponse execute(HttpRequest request) throws IOException {
     try {
-      HttpResponse response = HttpRequests.execute(request, httpRequestConfig);
-      switch (response.getResponseCode()) {
-        case HttpURLConnection.HTTP_UNAVAILABLE:
-          throw new ServiceUnavailableException(discoverableServiceName, response.getResponseBodyAsString());
-        case HttpURLConnection.HTTP_FORBIDDEN:
-          throw new UnauthorizedException(response.getResponseBodyAsString());
-        default:
-          return response;
+      return Uninterruptibles.getUninterruptibly(executeAsync(request));
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof NettyHttpClient.ResponseTooLargeException
+        && NettyHttpClient.IDEMPOTENT_METHODS.contains(request.getMethod())) {
+        // The response is too large for the pooled client, which buffers it in a single aggregated message.
+        // Execute the request again without the limit.
+        return checkResponse(HttpRequests.execute(request, httpRequestConfig));
       }
-    } catch (ConnectException e) {
-      throw new ServiceUnavailableException(discoverableServiceName, e);
+      Throwables.propagateIfPossible(cause, IOException.class);
+      throw new IOException(cause);
+    }
+  }
+
+  /**
+   * Perform the request asynchronously over a pooled keep-alive connection, without blocking the calling thread.
+   * The returned future fails with the same exceptions as {@link #execute(HttpRequest)}, and with a
+   * {@link NettyHttpClient.ResponseTooLargeException} if the response is larger than the client buffers. It is
+   * completed on an I/O thread of the HTTP client, hence dependent actions that block must not run on the completing
+   * thread.
+   *
+   * @param request the request to perform
+   * @return a future of the response
+   */
+  public CompletableFuture<HttpResponse> executeAsync(HttpRequest request) {
+    // Report the outcome of the request to the endpoint strategy, so that it can prefer healthy endpoints
+    URL url = request.getURL();
+    LatencyAwareEndpointStrategy.Request endpointRequest = endpointStrategySupplier.get()
+      .startRequest(url.getHost(), url.getPort());
+    CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+    httpClient.execute(request, httpRequestConfig).whenComplete((response, failure) -> {
+      if (failure != null) {
+        // A response too large to buffer still came from a healthy endpoint
+        endpointRequest.complete(failure instanceof NettyHttpClient.ResponseTooLargeException);
+        result.completeExceptionally(failure instanceof ConnectException
+                                       ? new ServiceUnavailableException(discoverableServiceName, failure)
+                                       : failure);
+        return;
+      }
+      endpointRequest.complete(response.getResponseCode() != HttpURLConnection.HTTP_UNAVAILABLE);
+      try {
+        result.complete(checkResponse(response));
+      } catch (RuntimeException e) {
+        result.completeExceptionally(e);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Returns the given response, or throws the exception matching its status code.
+   *
+   * @throws ServiceUnavailableException if the response was a 503
+   * @throws UnauthorizedException if the response was a 403
+   */
+  private HttpResponse checkResponse(HttpResponse response) {
+    switch (response.getResponseCode()) {
+      case HttpURLConnection.HTTP_UNAVAILABLE:
+        throw new ServiceUnavailableException(discoverableServiceName, response.getResponseBodyAsString());
+      case HttpURLConnection.HTTP_FORBIDDEN:
+        throw new UnauthorizedException(response.getResponseBodyAsString());
+      default:
+        return response;
     }
   }
 
@@ -115,7 +173,9 @@ public class RemoteClient {
     InetSocketAddress address = discoverable.getSocketAddress();
     String scheme = Arrays.equals(Constants.Security.SSL_URI_SCHEME.getBytes(), discoverable.getPayload()) ?
       Constants.Security.SSL_URI_SCHEME : Constants.Security.URI_SCHEME;
-    String urlStr = String.format("%s%s:%d%s%s", scheme, address.getHostName(), address.getPort(), basePath, resource);
+    // Use the host string, which doesn't do a reverse lookup, and matches the endpoint key of the strategy
+    String urlStr = String.format("%s%s:%d%s%s", scheme, address.getHostString(), address.getPort(),
+                                  basePath, resource);
     try {
       return new URL(urlStr);
     } catch (MalformedURLException e) {
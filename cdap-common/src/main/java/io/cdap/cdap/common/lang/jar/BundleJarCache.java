@@ -0,0 +1,222 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.common.lang.jar;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import io.cdap.cdap.common.utils.DirUtils;
+import io.cdap.cdap.common.utils.ProjectInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A local cache of jars created by {@link BundleJarUtil#createJar(File, File)}. A jar is built once for each
+ * distinct content of its input, identified by a SHA-256 digest of the relative path and the content of every file
+ * in the input, as well as the CDAP version. Afterwards the cached jar is hard linked, or copied if linking is not
+ * possible, to the requested target file.
+ * <p>
+ * The modification time of a cached jar is updated every time it is used. After each use, the cached jars that have
+ * not been used for longer than the maximum age are deleted, as well as the least recently used ones beyond the
+ * maximum number of entries. Deleting a cached jar doesn't affect the target files linked to it.
+ * </p>
+ */
+public final class BundleJarCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BundleJarCache.class);
+  private static final int DEFAULT_MAX_ENTRIES = 20;
+  private static final long DEFAULT_MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+  private static final String JAR_SUFFIX = ".jar";
+
+  private final File cacheDir;
+  private final int maxEntries;
+  private final long maxAgeMillis;
+
+  public BundleJarCache(File cacheDir) {
+    this(cacheDir, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_AGE_MILLIS);
+  }
+
+  /**
+   * Creates a cache.
+   *
+   * @param cacheDir the directory of the cached jars
+   * @param maxEntries the maximum number of cached jars
+   * @param maxAgeMillis the time in milliseconds after which a cached jar that is not used is deleted
+   */
+  public BundleJarCache(File cacheDir, int maxEntries, long maxAgeMillis) {
+    this.cacheDir = cacheDir;
+    this.maxEntries = maxEntries;
+    this.maxAgeMillis = maxAgeMillis;
+  }
+
+  /**
+   * Creates a jar including all the files present in the given input, same as
+   * {@link BundleJarUtil#createJar(File, File)}, reusing a previously built jar if the input hasn't changed.
+   *
+   * @param input input directory (or file) whose contents needs to be archived
+   * @param output the jar file to create
+   * @return the output file
+   * @throws IOException if failed to create the jar
+   */
+  public File createJar(File input, File output) throws IOException {
+    File cachedJar = new File(cacheDir, computeKey(input) + JAR_SUFFIX);
+    try {
+      linkOrCopy(input, cachedJar, output);
+    } catch (NoSuchFileException e) {
+      // The cached jar got evicted concurrently
+      linkOrCopy(input, cachedJar, output);
+    }
+    evict(cachedJar);
+    return output;
+  }
+
+  private void linkOrCopy(File input, File cachedJar, File output) throws IOException {
+    if (cachedJar.isFile()) {
+      // Mark the cached jar as recently used
+      Files.setLastModifiedTime(cachedJar.toPath(), FileTime.fromMillis(System.currentTimeMillis()));
+    } else {
+      buildJar(input, cachedJar);
+    }
+
+    try {
+      Files.createLink(output.toPath(), cachedJar.toPath());
+    } catch (NoSuchFileException e) {
+      // The cached jar got evicted concurrently, which the caller handles by building it again
+      throw e;
+    } catch (IOException | UnsupportedOperationException e) {
+      // Fallback to copy
+      Files.copy(cachedJar.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Builds the jar into a temporary file and then moves it to the cache, so that concurrent callers never
+   * see a partially written jar.
+   */
+  private void buildJar(File input, File cachedJar) throws IOException {
+    DirUtils.mkdirs(cacheDir);
+    File tmpFile = File.createTempFile(cachedJar.getName(), ".tmp", cacheDir);
+    try {
+      BundleJarUtil.createJar(input, tmpFile);
+      Files.move(tmpFile.toPath(), cachedJar.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      LOG.debug("Cached jar {} created for {}", cachedJar, input);
+    } catch (FileAlreadyExistsException e) {
+      // Created by another caller concurrently, which has the same content
+      LOG.trace("Cached jar {} for {} already exists", cachedJar, input);
+    } finally {
+      Files.deleteIfExists(tmpFile.toPath());
+    }
+  }
+
+  /**
+   * Deletes the cached jars that are too old, and the least recently used ones beyond the maximum number of entries.
+   * The given jar that was just used is always kept.
+   */
+  private void evict(File usedJar) {
+    File[] jars = cacheDir.listFiles(file -> file.isFile() && file.getName().endsWith(JAR_SUFFIX));
+    if (jars == null) {
+      return;
+    }
+    // Most recently used first
+    Map<File, Long> lastUsed = new HashMap<>();
+    for (File jar : jars) {
+      lastUsed.put(jar, jar.lastModified());
+    }
+    Arrays.sort(jars, (jar1, jar2) -> Long.compare(lastUsed.get(jar2), lastUsed.get(jar1)));
+
+    long minLastUsed = System.currentTimeMillis() - maxAgeMillis;
+    int entries = 0;
+    for (File jar : jars) {
+      entries++;
+      if (jar.equals(usedJar) || (entries <= maxEntries && lastUsed.get(jar) >= minLastUsed)) {
+        continue;
+      }
+      try {
+        Files.deleteIfExists(jar.toPath());
+        LOG.debug("Evicted cached jar {}", jar);
+      } catch (IOException e) {
+        LOG.warn("Failed to delete cached jar {}", jar, e);
+      }
+    }
+  }
+
+  /**
+   * Computes the cache key of the given input from the digest of its content.
+   */
+  private String computeKey(File input) throws IOException {
+    List<Path> files = new ArrayList<>();
+    Path basePath = input.toPath();
+    Files.walkFileTree(basePath, EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+                       Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        files.add(dir);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        files.add(file);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    files.sort(Comparator.comparing(path -> basePath.relativize(path).toString()));
+
+    Hasher hasher = Hashing.sha256().newHasher()
+      .putString(ProjectInfo.getVersion().toString(), Charsets.UTF_8).putChar('\0')
+      .putString(input.getName(), Charsets.UTF_8).putChar('\0');
+    byte[] buffer = new byte[64 * 1024];
+    for (Path file : files) {
+      if (Files.isDirectory(file)) {
+        hasher.putString(basePath.relativize(file).toString() + "/", Charsets.UTF_8).putChar('\0');
+        continue;
+      }
+      hasher.putString(basePath.relativize(file).toString(), Charsets.UTF_8).putChar('\0');
+      hasher.putLong(Files.size(file));
+      try (InputStream is = Files.newInputStream(file)) {
+        int len = is.read(buffer);
+        while (len >= 0) {
+          hasher.putBytes(buffer, 0, len);
+          len = is.read(buffer);
+        }
+      }
+    }
+    return input.getName() + "-" + hasher.hash().toString();
+  }
+}
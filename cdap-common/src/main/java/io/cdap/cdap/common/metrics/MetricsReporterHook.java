@@ -16,6 +16,7 @@
 
 package io.cdap.cdap.common.metrics;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -46,6 +47,8 @@ public class MetricsReporterHook extends AbstractHandlerHook {
   private final String serviceName;
 
   private final LoadingCache<Map<String, String>, MetricsContext> collectorCache;
+  // start time of the requests being handled, weak keys to compare the requests by identity
+  private final Cache<HttpRequest, Long> requestStartTimes;
 
   public MetricsReporterHook(final MetricsCollectionService metricsCollectionService, String serviceName) {
     this.metricsCollectionService = metricsCollectionService;
@@ -63,6 +66,7 @@ public class MetricsReporterHook extends AbstractHandlerHook {
     } else {
       collectorCache = null;
     }
+    this.requestStartTimes = CacheBuilder.newBuilder().weakKeys().build();
   }
 
   @Override
@@ -71,6 +75,7 @@ public class MetricsReporterHook extends AbstractHandlerHook {
       try {
         MetricsContext collector = collectorCache.get(createContext(handlerInfo));
         collector.increment("request.received", 1);
+        requestStartTimes.put(request, System.nanoTime());
       } catch (Throwable e) {
         LOG.error("Got exception while getting collector", e);
       }
@@ -103,6 +108,13 @@ public class MetricsReporterHook extends AbstractHandlerHook {
 
         // todo: report metrics broken down by status
         collector.increment("response." + name, 1/*, "status:" + code*/);
+
+        Long startTime = requestStartTimes.getIfPresent(request);
+        if (startTime != null) {
+          requestStartTimes.invalidate(request);
+          collector.distribution("response.latency.ms",
+                                 TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        }
       } catch (Throwable e) {
         LOG.error("Got exception while getting collector", e);
       }
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.common.discovery;
+
+import org.apache.twill.discovery.Discoverable;
+import org.apache.twill.discovery.InMemoryDiscoveryService;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link LatencyAwareEndpointStrategy}.
+ */
+public class LatencyAwareEndpointStrategyTest {
+
+  private static final String SERVICE = "test.service";
+
+  @Test
+  public void testInflightRequests() {
+    InMemoryDiscoveryService discoveryService = new InMemoryDiscoveryService();
+    Discoverable first = register(discoveryService, 10001);
+    Discoverable second = register(discoveryService, 10002);
+
+    LatencyAwareEndpointStrategy strategy =
+      new LatencyAwareEndpointStrategy(() -> discoveryService.discover(SERVICE));
+
+    // Keep requests outstanding on the first endpoint. With two endpoints, both are always compared.
+    List<LatencyAwareEndpointStrategy.Request> requests = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      requests.add(strategy.startRequest("localhost", 10001));
+    }
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals(second, strategy.pick());
+    }
+
+    // Once the requests are completed, the first endpoint is picked again
+    requests.forEach(request -> request.complete(true));
+    for (int i = 0; i < 5; i++) {
+      requests.add(strategy.startRequest("localhost", 10002));
+    }
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals(first, strategy.pick());
+    }
+  }
+
+  @Test
+  public void testEjection() {
+    InMemoryDiscoveryService discoveryService = new InMemoryDiscoveryService();
+    Discoverable first = register(discoveryService, 10001);
+    register(discoveryService, 10002);
+
+    LatencyAwareEndpointStrategy strategy =
+      new LatencyAwareEndpointStrategy(() -> discoveryService.discover(SERVICE), TimeUnit.SECONDS.toNanos(1),
+                                       2, TimeUnit.HOURS.toNanos(1));
+
+    // A single failure doesn't eject the endpoint
+    strategy.startRequest("localhost", 10002).complete(false);
+    strategy.startRequest("localhost", 10002).complete(true);
+    strategy.startRequest("localhost", 10002).complete(false);
+
+    // Eject the second endpoint with consecutive failures
+    strategy.startRequest("localhost", 10002).complete(false);
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals(first, strategy.pick());
+    }
+
+    // If all endpoints are ejected, still pick one of them
+    strategy.startRequest("localhost", 10001).complete(false);
+    strategy.startRequest("localhost", 10001).complete(false);
+    Assert.assertNotNull(strategy.pick());
+  }
+
+  private Discoverable register(InMemoryDiscoveryService discoveryService, int port) {
+    Discoverable discoverable = new Discoverable(SERVICE, new InetSocketAddress("localhost", port));
+    discoveryService.register(discoverable);
+    return discoverable;
+  }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.common.internal.remote;
+
+import io.cdap.cdap.common.http.DefaultHttpRequestConfig;
+import io.cdap.common.ContentProvider;
+import io.cdap.common.http.HttpMethod;
+import io.cdap.common.http.HttpRequest;
+import io.cdap.common.http.HttpRequestConfig;
+import io.cdap.common.http.HttpResponse;
+import io.cdap.http.AbstractHttpHandler;
+import io.cdap.http.ChannelPipelineModifier;
+import io.cdap.http.HttpResponder;
+import io.cdap.http.NettyHttpService;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+
+/**
+ * Unit tests for {@link NettyHttpClient}.
+ */
+public class NettyHttpClientTest {
+
+  private static final HttpRequestConfig REQUEST_CONFIG = new DefaultHttpRequestConfig(false);
+  private static final AtomicInteger NUM_CONNECTIONS = new AtomicInteger();
+
+  private static NettyHttpService httpService;
+  private static String baseURL;
+
+  @BeforeClass
+  public static void init() throws Exception {
+    httpService = NettyHttpService.builder(NettyHttpClientTest.class.getName())
+      .setHttpHandlers(new TestHandler())
+      .setExecThreadPoolSize(20)
+      .setChannelPipelineModifier(new ChannelPipelineModifier() {
+        @Override
+        public void modify(ChannelPipeline pipeline) {
+          pipeline.addLast("connection-counter", new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelActive(ChannelHandlerContext ctx) throws Exception {
+              NUM_CONNECTIONS.incrementAndGet();
+              super.channelActive(ctx);
+            }
+          });
+        }
+      })
+      .build();
+    httpService.start();
+    InetSocketAddress address = httpService.getBindAddress();
+    baseURL = "http://" + address.getHostName() + ":" + address.getPort();
+  }
+
+  @AfterClass
+  public static void finish() throws Exception {
+    httpService.stop();
+  }
+
+  @Test
+  public void testConnectionReuse() throws Exception {
+    try (NettyHttpClient client = new NettyHttpClient(2, 4, 60000)) {
+      int connections = NUM_CONNECTIONS.get();
+      for (int i = 0; i < 10; i++) {
+        HttpResponse response = client.execute(HttpRequest.get(new URL(baseURL + "/ping")).build(),
+                                               REQUEST_CONFIG).get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(200, response.getResponseCode());
+        Assert.assertEquals("pong", response.getResponseBodyAsString());
+      }
+      // All requests should be sent over the same connection
+      Assert.assertEquals(1, client.getConnectionsCreated());
+      Assert.assertEquals(connections + 1, NUM_CONNECTIONS.get());
+    }
+  }
+
+  @Test
+  public void testConcurrentRequests() throws Exception {
+    try (NettyHttpClient client = new NettyHttpClient(2, 4, 60000)) {
+      List<CompletableFuture<HttpResponse>> futures = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        futures.add(client.execute(HttpRequest.get(new URL(baseURL + "/sleep/200")).build(), REQUEST_CONFIG));
+      }
+      for (CompletableFuture<HttpResponse> future : futures) {
+        Assert.assertEquals(200, future.get(10, TimeUnit.SECONDS).getResponseCode());
+      }
+      Assert.assertEquals(10, client.getConnectionsCreated());
+
+      // Only the maximum number of idle connections are kept, which are reused by the next requests
+      futures.clear();
+      for (int i = 0; i < 4; i++) {
+        futures.add(client.execute(HttpRequest.get(new URL(baseURL + "/sleep/200")).build(), REQUEST_CONFIG));
+      }
+      for (CompletableFuture<HttpResponse> future : futures) {
+        Assert.assertEquals(200, future.get(10, TimeUnit.SECONDS).getResponseCode());
+      }
+      Assert.assertEquals(10, client.getConnectionsCreated());
+    }
+  }
+
+  @Test
+  public void testRequestBody() throws Exception {
+    try (NettyHttpClient client = new NettyHttpClient(2, 4, 60000)) {
+      HttpRequest request = HttpRequest.builder(HttpMethod.POST, new URL(baseURL + "/echo"))
+        .addHeader("X-Test", "test")
+        .withBody("Hello World")
+        .build();
+      HttpResponse response = client.execute(request, REQUEST_CONFIG).get(10, TimeUnit.SECONDS);
+      Assert.assertEquals(200, response.getResponseCode());
+      Assert.assertEquals("test:Hello World", response.getResponseBodyAsString());
+    }
+  }
+
+  @Test
+  public void testStreamedRequestBody() throws Exception {
+    // A body larger than the buffered size is sent with chunked transfer encoding
+    byte[] body = new byte[NettyHttpClient.MAX_BUFFERED_BODY_BYTES * 16 + 1];
+    Arrays.fill(body, (byte) 'a');
+    AtomicBoolean closed = new AtomicBoolean();
+    try (NettyHttpClient client = new NettyHttpClient(2, 4, 60000)) {
+      HttpRequest request = HttpRequest.builder(HttpMethod.POST, new URL(baseURL + "/echo"))
+        .addHeader("X-Test", "test")
+        .withBody((ContentProvider<? extends InputStream>) () -> new ByteArrayInputStream(body) {
+          @Override
+          public void close() throws IOException {
+            closed.set(true);
+            super.close();
+          }
+        })
+        .build();
+      HttpResponse response = client.execute(request, REQUEST_CONFIG).get(10, TimeUnit.SECONDS);
+      Assert.assertEquals(200, response.getResponseCode());
+      Assert.assertEquals("test:" + new String(body, StandardCharsets.UTF_8), response.getResponseBodyAsString());
+      Assert.assertTrue(closed.get());
+
+      // The connection is reused after a streamed request
+      response = client.execute(HttpRequest.get(new URL(baseURL + "/ping")).build(),
+                                REQUEST_CONFIG).get(10, TimeUnit.SECONDS);
+      Assert.assertEquals("pong", response.getResponseBodyAsString());
+      Assert.assertEquals(1, client.getConnectionsCreated());
+    }
+  }
+
+  @Test
+  public void testRedirect() throws Exception {
+    try (NettyHttpClient client = new NettyHttpClient(2, 4, 60000)) {
+      HttpResponse response = client.execute(HttpRequest.get(new URL(baseURL + "/redirect/3")).build(),
+                                             REQUEST_CONFIG).get(10, TimeUnit.SECONDS);
+      Assert.assertEquals(200, response.getResponseCode());
+      Assert.assertEquals("redirected", response.getResponseBodyAsString());
+    }
+  }
+
+  @Test
+  public void testResponseTooLarge() throws Exception {
+    try (NettyHttpClient client = new NettyHttpClient(2, 4, 60000, 1024)) {
+      try {
+        client.execute(HttpRequest.get(new URL(baseURL + "/bytes/4096")).build(), REQUEST_CONFIG)
+          .get(10, TimeUnit.SECONDS);
+        Assert.fail("Expected response too large");
+      } catch (ExecutionException e) {
+        Assert.assertTrue(e.getCause() instanceof NettyHttpClient.ResponseTooLargeException);
+      }
+      HttpResponse response = client.execute(HttpRequest.get(new URL(baseURL + "/bytes/1024")).build(),
+                                             REQUEST_CONFIG).get(10, TimeUnit.SECONDS);
+      Assert.assertEquals(200, response.getResponseCode());
+      Assert.assertEquals(1024, response.getResponseBody().length);
+    }
+  }
+
+  @Test
+  public void testReadTimeout() throws Exception {
+    try (NettyHttpClient client = new NettyHttpClient(2, 4, 60000)) {
+      HttpRequestConfig config = new HttpRequestConfig(1000, 200);
+      try {
+        client.execute(HttpRequest.get(new URL(baseURL + "/sleep/2000")).build(), config).get(10, TimeUnit.SECONDS);
+        Assert.fail("Expected read timeout");
+      } catch (ExecutionException e) {
+        Assert.assertTrue(e.getCause() instanceof SocketTimeoutException);
+      }
+    }
+  }
+
+  @Test
+  public void testConnectFailure() throws Exception {
+    int port;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+    try (NettyHttpClient client = new NettyHttpClient(2, 4, 60000)) {
+      client.execute(HttpRequest.get(new URL("http://localhost:" + port + "/ping")).build(),
+                     REQUEST_CONFIG).get(10, TimeUnit.SECONDS);
+      Assert.fail("Expected connection failure");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof ConnectException);
+    }
+  }
+
+  /**
+   * Handler for testing.
+   */
+  public static final class TestHandler extends AbstractHttpHandler {
+
+    @GET
+    @Path("/ping")
+    public void ping(io.netty.handler.codec.http.HttpRequest request, HttpResponder responder) {
+      responder.sendString(HttpResponseStatus.OK, "pong");
+    }
+
+    @GET
+    @Path("/sleep/{millis}")
+    public void sleep(io.netty.handler.codec.http.HttpRequest request, HttpResponder responder,
+                      @PathParam("millis") long millis) throws InterruptedException {
+      TimeUnit.MILLISECONDS.sleep(millis);
+      responder.sendString(HttpResponseStatus.OK, "slept");
+    }
+
+    @GET
+    @Path("/redirect/{count}")
+    public void redirect(io.netty.handler.codec.http.HttpRequest request, HttpResponder responder,
+                         @PathParam("count") int count) {
+      if (count <= 0) {
+        responder.sendString(HttpResponseStatus.OK, "redirected");
+        return;
+      }
+      responder.sendStatus(HttpResponseStatus.FOUND,
+                           new DefaultHttpHeaders().set(HttpHeaderNames.LOCATION, "/redirect/" + (count - 1)));
+    }
+
+    @GET
+    @Path("/bytes/{size}")
+    public void bytes(io.netty.handler.codec.http.HttpRequest request, HttpResponder responder,
+                      @PathParam("size") int size) {
+      responder.sendByteArray(HttpResponseStatus.OK, new byte[size], EmptyHttpHeaders.INSTANCE);
+    }
+
+    @POST
+    @Path("/echo")
+    public void echo(FullHttpRequest request, HttpResponder responder) {
+      responder.sendString(HttpResponseStatus.OK, request.headers().get("X-Test") + ":"
+        + request.content().toString(StandardCharsets.UTF_8));
+    }
+  }
+}
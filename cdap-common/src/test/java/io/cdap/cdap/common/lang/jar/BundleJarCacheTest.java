@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.common.lang.jar;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+
+/**
+ * Unit tests for {@link BundleJarCache}.
+ */
+public class BundleJarCacheTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testCache() throws IOException {
+    File cacheDir = TEMP_FOLDER.newFolder();
+    BundleJarCache cache = new BundleJarCache(cacheDir);
+
+    File dir = TEMP_FOLDER.newFolder();
+    File file = new File(dir, "file1");
+    Files.write("content", file, Charsets.UTF_8);
+
+    File target1 = cache.createJar(dir, new File(TEMP_FOLDER.newFolder(), "target.jar"));
+    File target2 = cache.createJar(dir, new File(TEMP_FOLDER.newFolder(), "target.jar"));
+    Assert.assertArrayEquals(Files.toByteArray(target1), Files.toByteArray(target2));
+    Assert.assertEquals(1, cacheDir.list().length);
+    try (JarFile jarFile = new JarFile(target2)) {
+      Assert.assertNotNull(jarFile.getJarEntry("file1"));
+    }
+
+    // Deleting the target shouldn't affect the cache
+    Assert.assertTrue(target1.delete());
+    Assert.assertTrue(cache.createJar(dir, target1).isFile());
+    Assert.assertEquals(1, cacheDir.list().length);
+
+    // Changing the input should create a new jar
+    Files.write("new content", new File(dir, "file2"), Charsets.UTF_8);
+    File target3 = cache.createJar(dir, new File(TEMP_FOLDER.newFolder(), "target.jar"));
+    Assert.assertEquals(2, cacheDir.list().length);
+    try (JarFile jarFile = new JarFile(target3)) {
+      Assert.assertNotNull(jarFile.getJarEntry("file2"));
+    }
+  }
+
+  @Test
+  public void testContentKey() throws IOException {
+    File cacheDir = TEMP_FOLDER.newFolder();
+    BundleJarCache cache = new BundleJarCache(cacheDir);
+
+    File dir = TEMP_FOLDER.newFolder();
+    File file = new File(dir, "file1");
+    Files.write("content1", file, Charsets.UTF_8);
+    Assert.assertTrue(file.setLastModified(10000L));
+    cache.createJar(dir, new File(TEMP_FOLDER.newFolder(), "target.jar"));
+
+    // Touching the file without changing the content should reuse the cached jar
+    Assert.assertTrue(file.setLastModified(20000L));
+    cache.createJar(dir, new File(TEMP_FOLDER.newFolder(), "target.jar"));
+    Assert.assertEquals(1, cacheDir.list().length);
+
+    // Changing the content with the same size and modification time should create a new jar
+    Files.write("content2", file, Charsets.UTF_8);
+    Assert.assertTrue(file.setLastModified(20000L));
+    File target = cache.createJar(dir, new File(TEMP_FOLDER.newFolder(), "target.jar"));
+    Assert.assertEquals(2, cacheDir.list().length);
+    try (JarFile jarFile = new JarFile(target)) {
+      Assert.assertEquals("content2", new String(ByteStreams.toByteArray(
+        jarFile.getInputStream(jarFile.getJarEntry("file1"))), Charsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    File cacheDir = TEMP_FOLDER.newFolder();
+    BundleJarCache cache = new BundleJarCache(cacheDir, 2, TimeUnit.DAYS.toMillis(1));
+
+    File dir1 = createInput("content1");
+    File dir2 = createInput("content2");
+    File dir3 = createInput("content3");
+
+    cache.createJar(dir1, new File(TEMP_FOLDER.newFolder(), "target.jar"));
+    cache.createJar(dir2, new File(TEMP_FOLDER.newFolder(), "target.jar"));
+    Assert.assertEquals(2, cacheDir.list().length);
+
+    // Make the first jar the least recently used, then a third jar evicts it
+    for (File jar : cacheDir.listFiles()) {
+      Assert.assertTrue(jar.setLastModified(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(
+        jar.getName().startsWith(dir1.getName() + "-") ? 2 : 1)));
+    }
+    File target = cache.createJar(dir3, new File(TEMP_FOLDER.newFolder(), "target.jar"));
+    Assert.assertEquals(2, cacheDir.list().length);
+    for (File jar : cacheDir.listFiles()) {
+      Assert.assertFalse(jar.getName().startsWith(dir1.getName() + "-"));
+    }
+    // Linked targets are not affected by eviction
+    Assert.assertTrue(target.isFile());
+
+    // Jars that are not used for longer than the maximum age are evicted
+    for (File jar : cacheDir.listFiles()) {
+      Assert.assertTrue(jar.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2)));
+    }
+    cache.createJar(dir1, new File(TEMP_FOLDER.newFolder(), "target.jar"));
+    Assert.assertEquals(1, cacheDir.list().length);
+    Assert.assertTrue(cacheDir.list()[0].startsWith(dir1.getName() + "-"));
+  }
+
+  /**
+   * Creates a directory with a single file of the given content. Each directory has a distinct name, which is the
+   * prefix of its cached jar.
+   */
+  private File createInput(String content) throws IOException {
+    File dir = TEMP_FOLDER.newFolder();
+    Files.write(content, new File(dir, "file"), Charsets.UTF_8);
+    return dir;
+  }
+}
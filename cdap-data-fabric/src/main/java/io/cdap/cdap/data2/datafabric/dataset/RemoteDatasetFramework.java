@@ -18,6 +18,7 @@ package io.cdap.cdap.data2.datafabric.dataset;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -68,13 +69,24 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 import java.util.jar.JarOutputStream;
 import javax.annotation.Nullable;
 
 /**
- * {@link io.cdap.cdap.data2.dataset2.DatasetFramework} implementation that talks to DatasetFramework Service
+ * {@link io.cdap.cdap.data2.dataset2.DatasetFramework} implementation that talks to DatasetFramework Service.
+ *
+ * Dataset instance and type metadata fetched from the service is cached for a short, configurable time, since
+ * the same datasets are looked up repeatedly whenever programs instantiate them. Changes made through this
+ * framework invalidate the affected entries immediately. Changes made by other processes are not seen until the
+ * cached entries expire, hence for up to {@link Constants.Dataset#CLIENT_CACHE_TTL_SECONDS} an updated instance can
+ * be returned with its old specification and a deleted instance or type can still be returned. Missing instances
+ * and types are never cached.
+ *
+ * The dataset service checks the privileges of the calling principal on every lookup, while the cache is shared by
+ * all principals of the process. Therefore nothing is cached if authorization is enabled.
  */
 @SuppressWarnings("unchecked")
 public class RemoteDatasetFramework implements DatasetFramework {
@@ -83,6 +95,9 @@ public class RemoteDatasetFramework implements DatasetFramework {
   private final CConfiguration cConf;
   private final LoadingCache<NamespaceId, DatasetServiceClient> clientCache;
   private final DatasetDefinitionRegistryFactory registryFactory;
+  // Caches of instance and type metadata, or null if caching is disabled
+  private final Cache<DatasetId, DatasetMeta> instanceCache;
+  private final Cache<DatasetTypeId, DatasetTypeMeta> typeCache;
 
   @Inject
   public RemoteDatasetFramework(final CConfiguration cConf, final DiscoveryServiceClient discoveryClient,
@@ -96,6 +111,24 @@ public class RemoteDatasetFramework implements DatasetFramework {
       }
     });
     this.registryFactory = registryFactory;
+
+    int maxEntries = cConf.getInt(Constants.Dataset.CLIENT_CACHE_MAX_ENTRIES);
+    long ttlSeconds = cConf.getLong(Constants.Dataset.CLIENT_CACHE_TTL_SECONDS);
+    boolean authorizationEnabled = cConf.getBoolean(Constants.Security.ENABLED) &&
+      cConf.getBoolean(Constants.Security.Authorization.ENABLED);
+    if (maxEntries > 0 && ttlSeconds > 0 && !authorizationEnabled) {
+      this.instanceCache = CacheBuilder.newBuilder()
+        .maximumSize(maxEntries)
+        .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+        .build();
+      this.typeCache = CacheBuilder.newBuilder()
+        .maximumSize(maxEntries)
+        .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+        .build();
+    } else {
+      this.instanceCache = null;
+      this.typeCache = null;
+    }
   }
 
   @Override
@@ -107,6 +140,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
         clientCache.getUnchecked(moduleId.getParent())
           .addModule(moduleId.getEntityName(), moduleClass.getName(), deploymentJar);
       } finally {
+        invalidateAll();
         try {
           deploymentJar.delete();
         } catch (IOException e) {
@@ -125,33 +159,53 @@ public class RemoteDatasetFramework implements DatasetFramework {
   @Override
   public void addModule(DatasetModuleId moduleId, DatasetModule module,
                         Location jarLocation) throws DatasetManagementException {
-    clientCache.getUnchecked(moduleId.getParent())
-      .addModule(moduleId.getEntityName(), DatasetModules.getDatasetModuleClass(module).getName(), jarLocation);
+    try {
+      clientCache.getUnchecked(moduleId.getParent())
+        .addModule(moduleId.getEntityName(), DatasetModules.getDatasetModuleClass(module).getName(), jarLocation);
+    } finally {
+      invalidateAll();
+    }
   }
 
   @Override
   public void deleteModule(DatasetModuleId moduleId) throws DatasetManagementException {
-    clientCache.getUnchecked(moduleId.getParent()).deleteModule(moduleId.getEntityName());
+    try {
+      clientCache.getUnchecked(moduleId.getParent()).deleteModule(moduleId.getEntityName());
+    } finally {
+      invalidateAll();
+    }
   }
 
   @Override
   public void deleteAllModules(NamespaceId namespaceId) throws DatasetManagementException {
-    clientCache.getUnchecked(namespaceId).deleteModules();
+    try {
+      clientCache.getUnchecked(namespaceId).deleteModules();
+    } finally {
+      invalidateAll();
+    }
   }
 
   @Override
   public void addInstance(String datasetType, DatasetId datasetInstanceId, DatasetProperties props,
                           @Nullable KerberosPrincipalId ownerPrincipal)
     throws DatasetManagementException {
-    clientCache.getUnchecked(datasetInstanceId.getParent())
-      .addInstance(datasetInstanceId.getEntityName(), datasetType, props, ownerPrincipal);
+    try {
+      clientCache.getUnchecked(datasetInstanceId.getParent())
+        .addInstance(datasetInstanceId.getEntityName(), datasetType, props, ownerPrincipal);
+    } finally {
+      invalidateInstance(datasetInstanceId);
+    }
   }
 
   @Override
   public void updateInstance(DatasetId datasetInstanceId, DatasetProperties props)
     throws DatasetManagementException {
-    clientCache.getUnchecked(datasetInstanceId.getParent())
-      .updateInstance(datasetInstanceId.getEntityName(), props);
+    try {
+      clientCache.getUnchecked(datasetInstanceId.getParent())
+        .updateInstance(datasetInstanceId.getEntityName(), props);
+    } finally {
+      invalidateInstance(datasetInstanceId);
+    }
   }
 
   @Override
@@ -169,25 +223,33 @@ public class RemoteDatasetFramework implements DatasetFramework {
   @Nullable
   @Override
   public DatasetSpecification getDatasetSpec(DatasetId datasetInstanceId) throws DatasetManagementException {
-    DatasetMeta meta = clientCache.getUnchecked(datasetInstanceId.getParent())
-      .getInstance(datasetInstanceId.getEntityName());
+    DatasetMeta meta = getInstanceMeta(datasetInstanceId);
     return meta == null ? null : meta.getSpec();
   }
 
   @Override
   public boolean hasInstance(DatasetId datasetInstanceId) throws DatasetManagementException {
-    return clientCache.getUnchecked(datasetInstanceId.getParent())
-      .getInstance(datasetInstanceId.getEntityName()) != null;
+    return getInstanceMeta(datasetInstanceId) != null;
   }
 
   @Override
   public boolean hasType(DatasetTypeId datasetTypeId) throws DatasetManagementException {
-    return clientCache.getUnchecked(datasetTypeId.getParent()).getType(datasetTypeId.getEntityName()) != null;
+    return getTypeInfo(datasetTypeId) != null;
   }
 
   @Override
   public DatasetTypeMeta getTypeInfo(DatasetTypeId datasetTypeId) throws DatasetManagementException {
-    return clientCache.getUnchecked(datasetTypeId.getParent()).getType(datasetTypeId.getEntityName());
+    if (typeCache == null) {
+      return clientCache.getUnchecked(datasetTypeId.getParent()).getType(datasetTypeId.getEntityName());
+    }
+    DatasetTypeMeta typeMeta = typeCache.getIfPresent(datasetTypeId);
+    if (typeMeta == null) {
+      typeMeta = clientCache.getUnchecked(datasetTypeId.getParent()).getType(datasetTypeId.getEntityName());
+      if (typeMeta != null) {
+        typeCache.put(datasetTypeId, typeMeta);
+      }
+    }
+    return typeMeta;
   }
 
   @Override
@@ -197,12 +259,22 @@ public class RemoteDatasetFramework implements DatasetFramework {
 
   @Override
   public void deleteInstance(DatasetId datasetInstanceId) throws DatasetManagementException {
-    clientCache.getUnchecked(datasetInstanceId.getParent()).deleteInstance(datasetInstanceId.getEntityName());
+    try {
+      clientCache.getUnchecked(datasetInstanceId.getParent()).deleteInstance(datasetInstanceId.getEntityName());
+    } finally {
+      invalidateInstance(datasetInstanceId);
+    }
   }
 
   @Override
   public void deleteAllInstances(NamespaceId namespaceId) throws DatasetManagementException {
-    clientCache.getUnchecked(namespaceId).deleteInstances();
+    try {
+      clientCache.getUnchecked(namespaceId).deleteInstances();
+    } finally {
+      if (instanceCache != null) {
+        instanceCache.asMap().keySet().removeIf(datasetId -> datasetId.getParent().equals(namespaceId));
+      }
+    }
   }
 
   @Override
@@ -217,8 +289,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
                                              @Nullable ClassLoader parentClassLoader,
                                              DatasetClassLoaderProvider classLoaderProvider)
     throws DatasetManagementException, IOException {
-    DatasetMeta instanceInfo = clientCache.getUnchecked(datasetInstanceId.getParent())
-      .getInstance(datasetInstanceId.getEntityName());
+    DatasetMeta instanceInfo = getInstanceMeta(datasetInstanceId);
     if (instanceInfo == null) {
       return null;
     }
@@ -235,7 +306,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
                                           @Nullable Iterable<? extends EntityId> owners, AccessType accessType)
     throws DatasetManagementException, IOException {
 
-    DatasetMeta datasetMeta = clientCache.getUnchecked(id.getParent()).getInstance(id.getEntityName());
+    DatasetMeta datasetMeta = getInstanceMeta(id);
     if (datasetMeta == null) {
       return null;
     }
@@ -249,6 +320,43 @@ public class RemoteDatasetFramework implements DatasetFramework {
     // no-op. The RemoteDatasetFramework doesn't need to do anything. The lineage should be recorded before this point.
   }
 
+  /**
+   * Returns the metadata of the given dataset instance, either from the cache or from the dataset service.
+   *
+   * @return the {@link DatasetMeta} of the instance or {@code null} if the instance does not exist
+   */
+  @Nullable
+  private DatasetMeta getInstanceMeta(DatasetId datasetInstanceId) throws DatasetManagementException {
+    if (instanceCache == null) {
+      return clientCache.getUnchecked(datasetInstanceId.getParent()).getInstance(datasetInstanceId.getEntityName());
+    }
+    DatasetMeta meta = instanceCache.getIfPresent(datasetInstanceId);
+    if (meta == null) {
+      meta = clientCache.getUnchecked(datasetInstanceId.getParent()).getInstance(datasetInstanceId.getEntityName());
+      if (meta != null) {
+        instanceCache.put(datasetInstanceId, meta);
+      }
+    }
+    return meta;
+  }
+
+  private void invalidateInstance(DatasetId datasetInstanceId) {
+    if (instanceCache != null) {
+      instanceCache.invalidate(datasetInstanceId);
+    }
+  }
+
+  /**
+   * Invalidates all cached metadata. Called when dataset modules change, since a module change can affect
+   * the types of all namespaces, as well as the type information embedded in the instance metadata.
+   */
+  private void invalidateAll() {
+    if (instanceCache != null) {
+      instanceCache.invalidateAll();
+      typeCache.invalidateAll();
+    }
+  }
+
   private Location createDeploymentJar(Class<?> clz) throws IOException {
     File tempDir = new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
                             cConf.get(Constants.AppFabric.TEMP_DIR)).getAbsoluteFile();
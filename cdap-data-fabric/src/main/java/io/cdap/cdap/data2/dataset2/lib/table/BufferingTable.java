@@ -731,13 +731,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
 
     // todo: currently we support only FuzzyRowFilter as an experimental feature
     if (filter instanceof FuzzyRowFilter) {
-      NavigableMap<byte[], NavigableMap<byte[], Update>> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-      for (Map.Entry<byte[], NavigableMap<byte[], Update>> entry : bufferMap.entrySet()) {
-        if (FuzzyRowFilter.ReturnCode.INCLUDE == ((FuzzyRowFilter) filter).filterRow(entry.getKey())) {
-          result.put(entry.getKey(), entry.getValue());
-        }
-      }
-      return result;
+      return ((FuzzyRowFilter) filter).filterRows(bufferMap);
     } else {
       throw new DataSetException("Unknown filter type: " + filter);
     }
@@ -21,7 +21,12 @@ import io.cdap.cdap.api.dataset.table.Filter;
 import io.cdap.cdap.common.utils.ImmutablePair;
 
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
 
 /**
  * This is inspired by HBase's FuzzyRowFilter.
@@ -107,6 +112,25 @@ public final class FuzzyRowFilter implements Filter {
   }
 
   public byte[] getNextRowHint(byte[] rowKey) {
+    byte[] nextRowKey = findNextRowHint(rowKey);
+    if (nextRowKey == null) {
+      // SHOULD NEVER happen
+      // TODO: is there a better way than throw exception? (stop the scanner?)
+      throw new IllegalStateException("No next row key that satisfies fuzzy exists when" +
+                                        " getNextKeyHint() is invoked." +
+                                        " Filter: " + this.toString() +
+                                        " RowKey: " + Bytes.toStringBinary(rowKey));
+    }
+    return nextRowKey;
+  }
+
+  /**
+   * Returns the smallest row key greater than the given one that satisfies at least one fuzzy row key, or
+   * {@code null} if there is none. Unlike {@link #getNextRowHint(byte[])}, this does not fail if no hint exists,
+   * so that callers can simply move on to the next row.
+   */
+  @Nullable
+  public byte[] findNextRowHint(byte[] rowKey) {
     byte[] nextRowKey = null;
     // Searching for the "smallest" row key that satisfies at least one fuzzy row key
     for (ImmutablePair<byte[], byte[]> fuzzyData : fuzzyKeysData) {
@@ -119,16 +143,36 @@ public final class FuzzyRowFilter implements Filter {
         nextRowKey = nextRowKeyCandidate;
       }
     }
+    return nextRowKey;
+  }
 
-    if (nextRowKey == null) {
-      // SHOULD NEVER happen
-      // TODO: is there a better way than throw exception? (stop the scanner?)
-      throw new IllegalStateException("No next row key that satisfies fuzzy exists when" +
-                                        " getNextKeyHint() is invoked." +
-                                        " Filter: " + this.toString() +
-                                        " RowKey: " + Bytes.toStringBinary(rowKey));
+  /**
+   * Returns the entries of the given rows that are accepted by this filter. Rather than evaluating every row, rows
+   * that cannot match are skipped by continuing from the row given by {@link #findNextRowHint(byte[])}.
+   *
+   * @param rows rows sorted by row key
+   * @param <V> type of the row values
+   * @return a new map that contains the matching rows
+   */
+  public <V> NavigableMap<byte[], V> filterRows(NavigableMap<byte[], V> rows) {
+    NavigableMap<byte[], V> result = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    Iterator<Map.Entry<byte[], V>> iterator = rows.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<byte[], V> entry = iterator.next();
+      ReturnCode code = filterRow(entry.getKey());
+      if (code == ReturnCode.DONE) {
+        break;
+      }
+      if (code == ReturnCode.INCLUDE) {
+        result.put(entry.getKey(), entry.getValue());
+      } else {
+        byte[] nextRow = findNextRowHint(entry.getKey());
+        if (nextRow != null) {
+          iterator = rows.tailMap(nextRow, true).entrySet().iterator();
+        }
+      }
     }
-    return nextRowKey;
+    return result;
   }
 
   @Override
@@ -192,7 +236,7 @@ public final class FuzzyRowFilter implements Filter {
       // (see the code of getNextForFuzzyRule below) by one.
       // Note: if non-fixed byte is already at biggest value, this doesn't allow us to say there's
       //       bigger one that satisfies the rule as it can't be increased.
-      if (fuzzyKeyMeta[i] == 1 && !isMax(fuzzyKeyBytes[i])) {
+      if (fuzzyKeyMeta[i] == 1 && !isMax(row[i + offset])) {
         nextRowKeyCandidateExists = true;
       }
     }
@@ -230,15 +274,21 @@ public final class FuzzyRowFilter implements Filter {
     for (int i = 0; i < result.length; i++) {
       if (i >= fuzzyKeyMeta.length || fuzzyKeyMeta[i] == 1) {
         result[i] = row[offset + i];
-        if (!isMax(row[i])) {
+        if (!isMax(row[offset + i])) {
           // this is "non-fixed" position and is not at max value, hence we can increase it
           toInc = i;
         }
       } else if (i < fuzzyKeyMeta.length && fuzzyKeyMeta[i] == 0) {
         if ((row[i + offset] & 0xFF) < (fuzzyKeyBytes[i] & 0xFF)) {
           // if setting value for any fixed position increased the original array,
-          // we are OK
+          // we are OK. The "non-fixed" positions to the right of it are set to zeroes, so that
+          // the found "next" row key is the smallest possible
           increased = true;
+          for (int j = i + 1; j < result.length; j++) {
+            if (j >= fuzzyKeyMeta.length || fuzzyKeyMeta[j] == 1) {
+              result[j] = 0;
+            }
+          }
           break;
         }
         if ((row[i + offset] & 0xFF) > (fuzzyKeyBytes[i] & 0xFF)) {
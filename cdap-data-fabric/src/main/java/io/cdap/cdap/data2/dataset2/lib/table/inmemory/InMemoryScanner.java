@@ -35,9 +35,11 @@ import java.util.TreeMap;
  */
 public class InMemoryScanner implements Scanner {
 
-  private final Iterator<Map.Entry<byte[], NavigableMap<byte[], byte[]>>> rows;
+  // if present, the scanner can skip the rows that do not match the filter by seeking in the sorted rows
+  private final NavigableMap<byte[], NavigableMap<byte[], byte[]>> sortedRows;
   private final Set<byte[]> columnsToInclude;
   private final FuzzyRowFilter filter;
+  private Iterator<Map.Entry<byte[], NavigableMap<byte[], byte[]>>> rows;
 
   public InMemoryScanner(Iterator<Map.Entry<byte[], NavigableMap<byte[], byte[]>>> rows) {
     this(rows, null, null);
@@ -45,6 +47,18 @@ public class InMemoryScanner implements Scanner {
 
   public InMemoryScanner(Iterator<Map.Entry<byte[], NavigableMap<byte[], byte[]>>> rows, FuzzyRowFilter filter,
                          byte[][] columnsToInclude) {
+    this(null, rows, filter, columnsToInclude);
+  }
+
+  public InMemoryScanner(NavigableMap<byte[], NavigableMap<byte[], byte[]>> rows, FuzzyRowFilter filter,
+                         byte[][] columnsToInclude) {
+    this(rows, rows.entrySet().iterator(), filter, columnsToInclude);
+  }
+
+  private InMemoryScanner(NavigableMap<byte[], NavigableMap<byte[], byte[]>> sortedRows,
+                          Iterator<Map.Entry<byte[], NavigableMap<byte[], byte[]>>> rows, FuzzyRowFilter filter,
+                          byte[][] columnsToInclude) {
+    this.sortedRows = sortedRows;
     this.rows = rows;
     this.filter = filter;
     if (columnsToInclude != null) {
@@ -67,7 +81,12 @@ public class InMemoryScanner implements Scanner {
         if (FuzzyRowFilter.ReturnCode.DONE.equals(code)) {
           break; // no more rows can match
         } else if (!FuzzyRowFilter.ReturnCode.INCLUDE.equals(code)) {
-          continue; // this row does not match filter, move to next row
+          // this row does not match filter, move to the next row that could match
+          byte[] nextRow = sortedRows == null ? null : filter.findNextRowHint(rowEntry.getKey());
+          if (nextRow != null) {
+            this.rows = sortedRows.tailMap(nextRow, true).entrySet().iterator();
+          }
+          continue;
         }
       }
       //Try to read all columns for this row
@@ -23,6 +23,7 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Ordering;
 import com.google.common.primitives.Longs;
 import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
 import io.cdap.cdap.data2.dataset2.lib.table.IncrementValue;
 import io.cdap.cdap.data2.dataset2.lib.table.PutValue;
 import io.cdap.cdap.data2.dataset2.lib.table.Update;
@@ -35,69 +36,76 @@ import java.util.Comparator;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
 import javax.annotation.Nullable;
 
 /**
  * Holds all in-memory tables for {@link InMemoryTable}.
+ *
+ * Tables are independent of each other. Rows, columns and cell versions are kept in concurrent skip list maps, so
+ * that reads and scans do not lock. Updates lock the rows that they modify, which makes merges, increments and
+ * compare-and-swap atomic per row. A row is only removed from its table while holding the row lock, also when the
+ * table is truncated, hence an update never writes to a row that has been removed concurrently.
+ *
+ * Atomicity is weaker than with a table level lock: a merge of multiple rows applies and becomes visible one row at
+ * a time, and reads do not take the row lock, so readers that do not use a transaction to filter the versions can
+ * see a multi-row merge or a multi-column increment half applied.
  */
-// todo: use locks instead of synchronize
 // todo: consider using SortedMap instead of NavigableMap in APIs
 public class InMemoryTableService {
-  private static Map<String, ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>>> tables =
-    Maps.newHashMap();
+  private static final ConcurrentMap<String,
+    ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>>> tables =
+    new ConcurrentHashMap<>();
 
-  public static synchronized boolean exists(String tableName) {
+  public static boolean exists(String tableName) {
     return tables.containsKey(tableName);
   }
 
-  public static synchronized void create(String tableName) {
-    if (!tables.containsKey(tableName)) {
-      tables.put(tableName, new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR));
-    }
+  public static void create(String tableName) {
+    tables.putIfAbsent(tableName, new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR));
   }
 
-  public static synchronized void truncate(String tableName) {
-    tables.get(tableName).clear();
+  public static void truncate(String tableName) {
+    ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
+    // remove the rows one by one while holding their locks, so that concurrent updates are not lost
+    for (byte[] row : table.keySet()) {
+      removeRow(table, row);
+    }
   }
 
-  public static synchronized void drop(String tableName) {
+  public static void drop(String tableName) {
     tables.remove(tableName);
   }
 
-  public static synchronized void reset() {
+  public static void reset() {
     tables.clear();
   }
 
   // no nulls
-  public static synchronized void merge(String tableName,
-                                        SortedMap<byte[], ? extends SortedMap<byte[], ? extends Update>> changes,
-                                        long version) {
+  public static void merge(String tableName,
+                           SortedMap<byte[], ? extends SortedMap<byte[], ? extends Update>> changes,
+                           long version) {
     // todo: handle nulls
     ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
     SortedMap<byte[], ? extends SortedMap<byte[], Update>> changesCopy = deepCopyUpdates(changes);
     for (Map.Entry<byte[], ? extends SortedMap<byte[], Update>> change : changesCopy.entrySet()) {
-      merge(table, change.getKey(), change.getValue(), version);
+      updateRow(table, change.getKey(), true, rowMap -> {
+        merge(rowMap, change.getValue(), version);
+        return null;
+      });
     }
   }
 
-  private static void merge(ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table,
-                            byte[] row, Map<byte[], Update> changes, long version) {
-    // get the correct row from the table, create it if it doesn't exist
-    NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.get(row);
-    if (rowMap == null) {
-      rowMap = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-      table.put(row, rowMap);
-    }
-    // now merge the changes into the row, one by one
+  private static void merge(NavigableMap<byte[], NavigableMap<Long, Update>> rowMap,
+                            Map<byte[], Update> changes, long version) {
+    // merge the changes into the row, one by one
     for (Map.Entry<byte[], Update> keyVal : changes.entrySet()) {
       // create the column in the row if it does not exist
-      NavigableMap<Long, Update> colMap = rowMap.get(keyVal.getKey());
-      if (colMap == null) {
-        colMap = Maps.newTreeMap();
-        rowMap.put(keyVal.getKey(), colMap);
-      }
+      NavigableMap<Long, Update> colMap = getOrCreateColumn(rowMap, keyVal.getKey());
       // put into the column with given version
       Update merged = Updates.mergeUpdates(colMap.get(version), keyVal.getValue());
       colMap.put(version, merged);
@@ -106,121 +114,164 @@ public class InMemoryTableService {
 
   // todo: remove it from here: only used by "system" metrics table, which should be revised
   @Deprecated
-  public static synchronized Map<byte[], Long> increment(String tableName, byte[] row, Map<byte[], Long> increments) {
-    Map<byte[], Long> resultMap = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+  public static Map<byte[], Long> increment(String tableName, byte[] row, Map<byte[], Long> increments) {
     ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
-    // get the correct row from the table, create it if it doesn't exist
-    NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.get(row);
-    if (rowMap == null) {
-      rowMap = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-      table.put(row, rowMap);
-    }
-    // now increment each column, one by one
-    long versionForWrite = System.currentTimeMillis();
-    for (Map.Entry<byte[], Long> inc : increments.entrySet()) {
-      IncrementValue increment = new IncrementValue(inc.getValue());
-      // create the column in the row if it does not exist
-      NavigableMap<Long, Update> colMap = rowMap.get(inc.getKey());
-      Update last = null;
-      if (colMap == null) {
-        colMap = Maps.newTreeMap();
-        rowMap.put(inc.getKey(), colMap);
-      } else {
-        last = colMap.lastEntry().getValue();
+    return updateRow(table, row, true, rowMap -> {
+      Map<byte[], Long> resultMap = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      // increment each column, one by one
+      long versionForWrite = System.currentTimeMillis();
+      for (Map.Entry<byte[], Long> inc : increments.entrySet()) {
+        IncrementValue increment = new IncrementValue(inc.getValue());
+        // create the column in the row if it does not exist
+        NavigableMap<Long, Update> colMap = getOrCreateColumn(rowMap, inc.getKey());
+        Update last = colMap.isEmpty() ? null : colMap.lastEntry().getValue();
+        Update merged = Updates.mergeUpdates(last, increment);
+        // put into the column with given version
+        long newValue = Bytes.toLong(merged.getBytes());
+        resultMap.put(inc.getKey(), newValue);
+        colMap.put(versionForWrite, merged);
       }
-      Update merged = Updates.mergeUpdates(last, increment);
-      // put into the column with given version
-      long newValue = Bytes.toLong(merged.getBytes());
-      resultMap.put(inc.getKey(), newValue);
-      colMap.put(versionForWrite, merged);
-    }
-    return resultMap;
+      return resultMap;
+    });
   }
 
-  public static synchronized boolean swap(String tableName, byte[] row, byte[] column,
-                                          byte[] oldValue, byte[] newValue) {
+  public static boolean swap(String tableName, byte[] row, byte[] column, byte[] oldValue, byte[] newValue) {
     ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
-    // get the correct row from the table, create it if it doesn't exist
-    NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.get(row);
-    Update existingValue = null;
-    if (rowMap != null) {
-      NavigableMap<Long, Update> columnMap = rowMap.get(column);
-      if (columnMap != null) {
-        existingValue = columnMap.lastEntry().getValue();
-      }
-    }
-    // verify existing value matches
-    if (oldValue == null && existingValue != null) {
-      return false;
-    }
-    if (oldValue != null && (existingValue == null || !Bytes.equals(oldValue, existingValue.getBytes()))) {
-      return false;
-    }
-    // write new value
-    if (newValue == null) {
+    // only create the row if a value is going to be written
+    return updateRow(table, row, newValue != null, rowMap -> {
+      Update existingValue = null;
       if (rowMap != null) {
-        rowMap.remove(column);
+        NavigableMap<Long, Update> columnMap = rowMap.get(column);
+        if (columnMap != null && !columnMap.isEmpty()) {
+          existingValue = columnMap.lastEntry().getValue();
+        }
       }
-    } else {
-      if (rowMap == null) {
-        rowMap = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-        table.put(row, rowMap);
+      // verify existing value matches
+      if (oldValue == null && existingValue != null) {
+        return false;
       }
-      NavigableMap<Long, Update> columnMap = rowMap.get(column);
-      if (columnMap == null) {
-        columnMap = Maps.newTreeMap();
-        rowMap.put(column, columnMap);
+      if (oldValue != null && (existingValue == null || !Bytes.equals(oldValue, existingValue.getBytes()))) {
+        return false;
       }
-      PutValue newPut = new PutValue(newValue);
-      columnMap.put(System.currentTimeMillis(), newPut);
-    }
-    return true;
+      // write new value
+      if (newValue == null) {
+        if (rowMap != null) {
+          rowMap.remove(column);
+        }
+      } else {
+        getOrCreateColumn(rowMap, column).put(System.currentTimeMillis(), new PutValue(newValue));
+      }
+      return true;
+    });
   }
 
-  public static synchronized void undo(String tableName,
-                                       NavigableMap<byte[], NavigableMap<byte[], Update>> changes,
-                                       long version) {
+  public static void undo(String tableName,
+                          NavigableMap<byte[], NavigableMap<byte[], Update>> changes,
+                          long version) {
     // todo: handle nulls
     ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
     for (Map.Entry<byte[], NavigableMap<byte[], Update>> change : changes.entrySet()) {
-      byte[] row = change.getKey();
-      NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.get(row);
-      if (rowMap != null) {
-        for (byte[] column : change.getValue().keySet()) {
-          NavigableMap<Long, Update> values = rowMap.get(column);
-          values.remove(version);
+      updateRow(table, change.getKey(), false, rowMap -> {
+        if (rowMap != null) {
+          for (byte[] column : change.getValue().keySet()) {
+            NavigableMap<Long, Update> values = rowMap.get(column);
+            if (values != null) {
+              values.remove(version);
+            }
+          }
         }
-      }
+        return null;
+      });
     }
   }
 
-  public static synchronized void delete(String tableName, Iterable<byte[]> rows) {
+  public static void delete(String tableName, Iterable<byte[]> rows) {
     ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
     for (byte[] row : rows) {
-      table.remove(row);
+      removeRow(table, row);
     }
   }
 
-  public static synchronized void deleteColumns(String tableName, byte[] row, byte[] column) {
+  public static void deleteColumns(String tableName, byte[] row, byte[] column) {
     ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
-    NavigableMap<byte[], NavigableMap<Long, Update>> columnValues = table.get(row);
-    columnValues.remove(column);
+    updateRow(table, row, false, rowMap -> rowMap == null ? null : rowMap.remove(column));
   }
 
-  public static synchronized void delete(String tableName, byte[] rowPrefix) {
+  public static void delete(String tableName, byte[] rowPrefix) {
     ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
+    NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> rows;
     if (rowPrefix.length == 0) {
-      table.clear();
+      rows = table;
     } else {
       byte[] rowAfter = rowAfterPrefix(rowPrefix);
       if (rowAfter == null) {
-        table.tailMap(rowPrefix).clear();
+        rows = table.tailMap(rowPrefix, true);
       } else {
-        table.subMap(rowPrefix, rowAfter).clear();
+        rows = table.subMap(rowPrefix, true, rowAfter, false);
+      }
+    }
+    for (byte[] row : rows.keySet()) {
+      removeRow(table, row);
+    }
+  }
+
+  /**
+   * Applies an update to a row while holding the lock of the row.
+   *
+   * @param table the table of the row
+   * @param row the row key
+   * @param create whether to create the row if it does not exist. If {@code false}, the update is called with
+   *               {@code null} for a row that does not exist
+   * @param update the update to apply
+   * @return the result of the update
+   */
+  private static <T> T updateRow(ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table,
+                                 byte[] row, boolean create,
+                                 Function<NavigableMap<byte[], NavigableMap<Long, Update>>, T> update) {
+    while (true) {
+      NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.get(row);
+      if (rowMap == null) {
+        if (!create) {
+          return update.apply(null);
+        }
+        NavigableMap<byte[], NavigableMap<Long, Update>> newRow = new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
+        rowMap = table.putIfAbsent(copy(row), newRow);
+        if (rowMap == null) {
+          rowMap = newRow;
+        }
+      }
+      synchronized (rowMap) {
+        // the row may have been removed before the lock was acquired, in which case the update is retried
+        if (table.get(row) == rowMap) {
+          return update.apply(rowMap);
+        }
       }
     }
   }
 
+  private static void removeRow(ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table,
+                                byte[] row) {
+    NavigableMap<byte[], NavigableMap<Long, Update>> rowMap = table.get(row);
+    if (rowMap == null) {
+      return;
+    }
+    synchronized (rowMap) {
+      if (table.get(row) == rowMap) {
+        table.remove(row);
+      }
+    }
+  }
+
+  private static NavigableMap<Long, Update> getOrCreateColumn(NavigableMap<byte[], NavigableMap<Long, Update>> rowMap,
+                                                              byte[] column) {
+    NavigableMap<Long, Update> colMap = rowMap.get(column);
+    if (colMap == null) {
+      colMap = new ConcurrentSkipListMap<>();
+      rowMap.put(column, colMap);
+    }
+    return colMap;
+  }
+
   /**
    * Given a key prefix, return the smallest key that is greater than all keys starting with that prefix.
    */
@@ -238,9 +289,9 @@ public class InMemoryTableService {
     return null;
   }
 
-  public static synchronized NavigableMap<byte[], NavigableMap<Long, byte[]>> get(String tableName,
-                                                                                  byte[] row,
-                                                                                  @Nullable Transaction tx) {
+  public static NavigableMap<byte[], NavigableMap<Long, byte[]>> get(String tableName,
+                                                                    byte[] row,
+                                                                    @Nullable Transaction tx) {
     // todo: handle nulls
     ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> table = tables.get(tableName);
     Preconditions.checkArgument(table != null, "table not found: " + tableName);
@@ -248,11 +299,24 @@ public class InMemoryTableService {
     return deepCopy(Updates.rowToBytes(getVisible(rowMap, tx)));
   }
 
-  public static synchronized NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>>
-                             getRowRange(String tableName,
-                                         byte[] startRow,
-                                         byte[] stopRow,
-                                         @Nullable Transaction tx) {
+  public static NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>>
+                getRowRange(String tableName,
+                            byte[] startRow,
+                            byte[] stopRow,
+                            @Nullable Transaction tx) {
+    return getRowRange(tableName, startRow, stopRow, tx, null);
+  }
+
+  /**
+   * Returns a copy of the rows in the given range that match the given filter. Only the matching rows are copied,
+   * the rows that cannot match are skipped using the row hints of the filter.
+   */
+  public static NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>>
+                getRowRange(String tableName,
+                            byte[] startRow,
+                            byte[] stopRow,
+                            @Nullable Transaction tx,
+                            @Nullable FuzzyRowFilter filter) {
     // todo: handle nulls
     ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> tableData = tables.get(tableName);
     NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> rows;
@@ -265,6 +329,9 @@ public class InMemoryTableService {
     } else {
       rows = tableData.subMap(startRow, true, stopRow, false);
     }
+    if (filter != null) {
+      rows = filter.filterRows(rows);
+    }
 
     NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> result =
       Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
@@ -277,7 +344,7 @@ public class InMemoryTableService {
     return result;
   }
 
-  public static synchronized Collection<String> list() {
+  public static Collection<String> list() {
     return ImmutableList.copyOf(tables.keySet());
   }
 
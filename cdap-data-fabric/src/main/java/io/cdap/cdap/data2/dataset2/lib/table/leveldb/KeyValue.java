@@ -19,6 +19,7 @@ import io.cdap.cdap.api.common.Bytes;
 
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.Arrays;
 import javax.annotation.Nullable;
 
 /**
@@ -1005,6 +1006,60 @@ public class KeyValue {
     out.write(this.bytes, this.offset, this.length);
   }
 
+  //---------------------------------------------------------------------------
+  //
+  //  Methods that access the fields of a key, as created by getKey(), in place
+  //
+  //---------------------------------------------------------------------------
+
+  /**
+   * Offset of the row in a key.
+   */
+  public static final int KEY_ROW_OFFSET = ROW_LENGTH_SIZE;
+
+  /**
+   * @param key a key created by {@link #getKey(byte[], byte[], byte[], long, Type)}
+   * @return Row length of the key
+   */
+  public static short getKeyRowLength(byte[] key) {
+    return Bytes.toShort(key, 0);
+  }
+
+  /**
+   * @param key a key created by {@link #getKey(byte[], byte[], byte[], long, Type)}
+   * @param rlength row length of the key
+   * @return Qualifier offset of the key
+   */
+  public static int getKeyQualifierOffset(byte[] key, int rlength) {
+    int familyLengthOffset = KEY_ROW_OFFSET + rlength;
+    return familyLengthOffset + FAMILY_LENGTH_SIZE + key[familyLengthOffset];
+  }
+
+  /**
+   * @param key a key created by {@link #getKey(byte[], byte[], byte[], long, Type)}
+   * @param qoffset qualifier offset of the key
+   * @return Qualifier length of the key
+   */
+  public static int getKeyQualifierLength(byte[] key, int qoffset) {
+    return key.length - TIMESTAMP_TYPE_SIZE - qoffset;
+  }
+
+  /**
+   * @param key a key created by {@link #getKey(byte[], byte[], byte[], long, Type)}
+   * @return Timestamp of the key
+   */
+  public static long getKeyTimestamp(byte[] key) {
+    return Bytes.toLong(key, key.length - TIMESTAMP_TYPE_SIZE);
+  }
+
+  /**
+   * @param key a key created by {@link #getKey(byte[], byte[], byte[], long, Type)}
+   * @return Row of the key in a new byte array
+   */
+  public static byte[] getKeyRow(byte[] key) {
+    return Arrays.copyOfRange(key, KEY_ROW_OFFSET, KEY_ROW_OFFSET + getKeyRowLength(key));
+  }
+
   public static KeyValue fromKey(byte[] key) {
     int len = key.length + (2 * Bytes.SIZEOF_INT);
     byte[] kvBytes = new byte[len];
@@ -267,26 +267,28 @@ public class LevelDBTableCore {
                                                                             boolean multiRow,
                                                                             @Nullable byte[][] columns, int limit) {
     byte[] rowBeingRead = null;
-    byte[] previousRow = null;
-    byte[] previousCol = null;
+    // the key of the last column seen. The fields of the keys are accessed in place, so that only the rows and
+    // columns that are returned are copied
+    byte[] previousKey = null;
+    int previousRowLength = 0;
+    int previousColOffset = 0;
+    int previousColLength = 0;
     NavigableMap<byte[], byte[]> map = new TreeMap<>(Bytes.BYTES_COMPARATOR);
 
     while (iterator.hasNext()) {
       Map.Entry<byte[], byte[]> entry = iterator.peekNext();
+      byte[] key = entry.getKey();
 
       // if we have reached past the endKey, nothing was found, return null
-      if (endKey != null && KeyValue.KEY_COMPARATOR.compare(entry.getKey(), endKey) >= 0) {
+      if (endKey != null && KeyValue.KEY_COMPARATOR.compare(key, endKey) >= 0) {
         break;
       }
 
       // if this is part of a multi-row scan and we reach the next row, stop without advancing iterator
-      KeyValue kv = KeyValue.fromKey(entry.getKey());
-      if (multiRow) {
-        byte[] rowKey = kv.getRow();
-        if (rowBeingRead != null) {
-          if (Bytes.compareTo(rowKey, rowBeingRead) > 0) {
-            break;
-          }
+      int rowLength = KeyValue.getKeyRowLength(key);
+      if (multiRow && rowBeingRead != null) {
+        if (Bytes.compareTo(key, KeyValue.KEY_ROW_OFFSET, rowLength, rowBeingRead, 0, rowBeingRead.length) > 0) {
+          break;
         }
       }
 
@@ -294,31 +296,35 @@ public class LevelDBTableCore {
       iterator.next();
 
       // Determine if this KV is visible
-      if (tx != null && !tx.isVisible(kv.getTimestamp())) {
+      if (tx != null && !tx.isVisible(KeyValue.getKeyTimestamp(key))) {
         continue;
       }
 
       // have we seen this row & column before?
-      byte[] row = kv.getRow();
-      byte[] column = kv.getQualifier();
-      boolean seenThisColumn = previousRow != null && Bytes.equals(previousRow, row) &&
-                               previousCol != null && Bytes.equals(previousCol, column);
+      int colOffset = KeyValue.getKeyQualifierOffset(key, rowLength);
+      int colLength = KeyValue.getKeyQualifierLength(key, colOffset);
+      boolean seenThisColumn = previousKey != null
+        && Bytes.equals(previousKey, KeyValue.KEY_ROW_OFFSET, previousRowLength,
+                        key, KeyValue.KEY_ROW_OFFSET, rowLength)
+        && Bytes.equals(previousKey, previousColOffset, previousColLength, key, colOffset, colLength);
       if (seenThisColumn) {
         continue;
       }
       // remember that this is the last column we have seen
-      previousRow = row;
-      previousCol = column;
+      previousKey = key;
+      previousRowLength = rowLength;
+      previousColOffset = colOffset;
+      previousColLength = colLength;
 
       // is it a column we want?
-      if (columns == null || Arrays.binarySearch(columns, column, Bytes.BYTES_COMPARATOR) >= 0) {
+      if (columns == null || containsColumn(columns, key, colOffset, colLength)) {
         byte[] value = entry.getValue();
         // only add to map if it is not a delete
         if (tx == null || !Bytes.equals(value, DELETE_MARKER)) {
-          map.put(column, value);
+          map.put(Arrays.copyOfRange(key, colOffset, colOffset + colLength), value);
           // first time we add a column. must remember the row key to know when to stop
           if (multiRow && rowBeingRead == null) {
-            rowBeingRead = kv.getRow();
+            rowBeingRead = Arrays.copyOfRange(key, KeyValue.KEY_ROW_OFFSET, KeyValue.KEY_ROW_OFFSET + rowLength);
           }
           if (limit > 0 && map.size() >= limit) {
             break;
@@ -330,6 +336,26 @@ public class LevelDBTableCore {
     return new ImmutablePair<>(rowBeingRead, map);
   }
 
+  /**
+   * Binary searches the given sorted columns for the column at the given position of a key.
+   */
+  private static boolean containsColumn(byte[][] columns, byte[] key, int colOffset, int colLength) {
+    int low = 0;
+    int high = columns.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = Bytes.compareTo(columns[mid], 0, columns[mid].length, key, colOffset, colLength);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * Delete a list of rows from the table entirely, disregarding transactions.
    * @param toDelete the row keys to delete
@@ -353,8 +379,9 @@ public class LevelDBTableCore {
 
       // iterate over the database and the rows to delete, collecting (raw) keys to delete
       while (entry != null && currentRow != null) {
-        KeyValue kv = KeyValue.fromKey(entry.getKey());
-        int comp = Bytes.compareTo(kv.getRow(), currentRow);
+        byte[] key = entry.getKey();
+        int comp = Bytes.compareTo(key, KeyValue.KEY_ROW_OFFSET, KeyValue.getKeyRowLength(key),
+                                   currentRow, 0, currentRow.length);
         if (comp == 0) {
           // same row -> delete
           batch.delete(entry.getKey());
@@ -490,6 +517,9 @@ public class LevelDBTableCore {
     public Row next() {
       try {
         while (true) {
+          if (filter != null && !seekToNextMatchingRow()) {
+            return null;
+          }
           ImmutablePair<byte[], NavigableMap<byte[], byte[]>> result = getRow(iterator, endKey, tx, true, columns, -1);
           if (result.getFirst() == null) {
             return null;
@@ -519,6 +549,33 @@ public class LevelDBTableCore {
       }
     }
 
+    /**
+     * Applies the filter to the row of the next entry without reading the row. Rows that cannot match are skipped
+     * by seeking the iterator to the row hint of the filter.
+     *
+     * @return {@code false} if no more rows within the scan range can match the filter, {@code true} otherwise
+     */
+    private boolean seekToNextMatchingRow() {
+      while (iterator.hasNext()) {
+        byte[] key = iterator.peekNext().getKey();
+        if (endKey != null && KeyValue.KEY_COMPARATOR.compare(key, endKey) >= 0) {
+          return false;
+        }
+        byte[] row = KeyValue.getKeyRow(key);
+        FuzzyRowFilter.ReturnCode code = filter.filterRow(row);
+        if (code == FuzzyRowFilter.ReturnCode.DONE) {
+          return false;
+        }
+        if (code == FuzzyRowFilter.ReturnCode.INCLUDE) {
+          return true;
+        }
+        // without a hint, skip just this row by seeking to the smallest greater row
+        byte[] nextRow = filter.findNextRowHint(row);
+        iterator.seek(createStartKey(nextRow == null ? Bytes.concat(row, new byte[1]) : nextRow));
+      }
+      return false;
+    }
+
     @Override
     public void close() {
       try {
@@ -695,26 +695,13 @@ public class MetadataDataset extends AbstractDataset {
       DEFAULT_INDEX_COLUMN.getColumn() : DEFAULT_INDEX_COLUMN.getCrossNamespaceColumn();
 
     for (SearchTerm searchTerm : getSearchTerms(request)) {
-      Scanner scanner;
-      if (searchTerm.isPrefix()) {
-        // if prefixed search get start and stop key
-        byte[] startKey = Bytes.toBytes(searchTerm.getTerm());
-        @SuppressWarnings("ConstantConditions")
-        byte[] stopKey = Bytes.stopKeyForPrefix(startKey);
-        scanner = indexedTable.scanByIndex(Bytes.toBytes(column), startKey, stopKey);
-      } else {
-        byte[] value = Bytes.toBytes(searchTerm.getTerm());
-        scanner = indexedTable.readByIndex(Bytes.toBytes(column), value);
-      }
-      try {
+      try (Scanner scanner = scanDefaultIndex(column, searchTerm)) {
         Row next;
         while ((next = scanner.next()) != null) {
           Optional<MetadataEntry> metadataEntry = parseRow(next, column, request.getTypes(),
                                                            request.shouldShowHidden());
           metadataEntry.ifPresent(results::add);
         }
-      } finally {
-        scanner.close();
       }
     }
 
@@ -722,6 +709,49 @@ public class MetadataDataset extends AbstractDataset {
     return new SearchResults(results, Collections.emptyList());
   }
 
+  /**
+   * Scores the entities that match the specified search query in the default index, which is what ranking by
+   * {@link SortInfo#DEFAULT} is based on. The score of an entity is the number of its index entries that match any
+   * of the search terms. Unlike {@link #search(SearchRequest)}, this streams over the matching index rows without
+   * materializing a {@link MetadataEntry} for each of them, and reads every matched metadata value at most once.
+   *
+   * @param request the search request. Its sort info, offset, limit and cursor are ignored.
+   * @return a map from each matching {@link MetadataEntity} to its score
+   */
+  public Map<MetadataEntity, Integer> scoreByDefaultIndex(SearchRequest request) {
+    Map<MetadataEntity, Integer> scores = new HashMap<>();
+    // whether the metadata value that a matched index entry points to still exists, by entity and key
+    Map<ImmutablePair<MetadataEntity, String>, Boolean> exists = new HashMap<>();
+    String column = request.isNamespaced() ?
+      DEFAULT_INDEX_COLUMN.getColumn() : DEFAULT_INDEX_COLUMN.getCrossNamespaceColumn();
+
+    for (SearchTerm searchTerm : getSearchTerms(request)) {
+      try (Scanner scanner = scanDefaultIndex(column, searchTerm)) {
+        Row next;
+        while ((next = scanner.next()) != null) {
+          Optional<ImmutablePair<MetadataEntity, String>> match =
+            parseIndexRow(next, column, request.getTypes(), request.shouldShowHidden());
+          if (match.isPresent()
+            && exists.computeIfAbsent(match.get(), m -> getMetadata(m.getFirst(), m.getSecond()) != null)) {
+            scores.merge(match.get().getFirst(), 1, Integer::sum);
+          }
+        }
+      }
+    }
+    return scores;
+  }
+
+  private Scanner scanDefaultIndex(String column, SearchTerm searchTerm) {
+    if (searchTerm.isPrefix()) {
+      // if prefixed search get start and stop key
+      byte[] startKey = Bytes.toBytes(searchTerm.getTerm());
+      @SuppressWarnings("ConstantConditions")
+      byte[] stopKey = Bytes.stopKeyForPrefix(startKey);
+      return indexedTable.scanByIndex(Bytes.toBytes(column), startKey, stopKey);
+    }
+    return indexedTable.readByIndex(Bytes.toBytes(column), Bytes.toBytes(searchTerm.getTerm()));
+  }
+
   private SearchResults searchByCustomIndex(SearchRequest request) throws BadRequestException {
     SortInfo sortInfo = request.getSortInfo();
     int offset = request.getOffset();
@@ -789,6 +819,14 @@ public class MetadataDataset extends AbstractDataset {
   // so return an Optional
   private Optional<MetadataEntry> parseRow(Row rowToProcess, String indexColumn,
                                            Set<String> entityFilter, boolean showHidden) {
+    return parseIndexRow(rowToProcess, indexColumn, entityFilter, showHidden)
+      .map(match -> getMetadata(match.getFirst(), match.getSecond()));
+  }
+
+  // returns the metadata entity and key that an index row points to, if it matches the filters
+  private Optional<ImmutablePair<MetadataEntity, String>> parseIndexRow(Row rowToProcess, String indexColumn,
+                                                                        Set<String> entityFilter,
+                                                                        boolean showHidden) {
     String rowValue = rowToProcess.getString(indexColumn);
     if (rowValue == null) {
       return Optional.empty();
@@ -815,8 +853,7 @@ public class MetadataDataset extends AbstractDataset {
     }
 
     String key = MetadataKey.extractMetadataKey(rowKey);
-    MetadataEntry entry = getMetadata(metadataEntity, key);
-    return Optional.ofNullable(entry);
+    return Optional.of(new ImmutablePair<>(metadataEntity, key));
   }
 
   /**
@@ -56,4 +56,27 @@ public interface LineageStoreReader {
    * @return program-dataset access information
    */
   Set<Relation> getRelations(ProgramId program, long start, long end, Predicate<Relation> filter);
+
+  /**
+   * Fetch program-dataset access information for a set of datasets for a given period.
+   *
+   * @param datasetInstances datasets for which to fetch access information
+   * @param start start time period
+   * @param end end time period
+   * @param filter filter to be applied on result set
+   * @return program-dataset access information of all the given datasets
+   */
+  Set<Relation> getDatasetRelations(Set<DatasetId> datasetInstances, long start, long end,
+                                    Predicate<Relation> filter);
+
+  /**
+   * Fetch program-dataset access information for a set of programs for a given period.
+   *
+   * @param programs programs for which to fetch access information
+   * @param start start time period
+   * @param end end time period
+   * @param filter filter to be applied on result set
+   * @return program-dataset access information of all the given programs
+   */
+  Set<Relation> getProgramRelations(Set<ProgramId> programs, long start, long end, Predicate<Relation> filter);
 }
@@ -173,6 +173,42 @@ public class LineageTable {
                          filter);
   }
 
+  /**
+   * Fetch program-dataset access information for a set of datasets for a given period.
+   *
+   * @param datasetInstances datasets for which to fetch access information
+   * @param start start time period
+   * @param end end time period
+   * @param filter filter to be applied on result set
+   * @return program-dataset access information of all the given datasets
+   */
+  public Set<Relation> getDatasetRelations(Set<DatasetId> datasetInstances, long start, long end,
+                                           Predicate<Relation> filter) throws IOException {
+    ImmutableSet.Builder<Relation> builder = ImmutableSet.builder();
+    for (DatasetId datasetInstance : datasetInstances) {
+      builder.addAll(getRelations(datasetInstance, start, end, filter));
+    }
+    return builder.build();
+  }
+
+  /**
+   * Fetch program-dataset access information for a set of programs for a given period.
+   *
+   * @param programs programs for which to fetch access information
+   * @param start start time period
+   * @param end end time period
+   * @param filter filter to be applied on result set
+   * @return program-dataset access information of all the given programs
+   */
+  public Set<Relation> getProgramRelations(Set<ProgramId> programs, long start, long end,
+                                           Predicate<Relation> filter) throws IOException {
+    ImmutableSet.Builder<Relation> builder = ImmutableSet.builder();
+    for (ProgramId program : programs) {
+      builder.addAll(getRelations(program, start, end, filter));
+    }
+    return builder.build();
+  }
+
   /**
    * @return a set of access times (for program and data it accesses) associated with a program run.
    */
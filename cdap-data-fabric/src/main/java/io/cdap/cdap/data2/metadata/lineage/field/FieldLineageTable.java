@@ -65,6 +65,9 @@ public class FieldLineageTable {
 
   private static final String INCOMING_DIRECTION_MARKER = "i";
   private static final String OUTGOING_DIRECTION_MARKER = "o";
+  // direction of the row in the daily checksum table that records since when the table is complete
+  private static final String DAILY_CHECKSUM_START_MARKER = "";
+  private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
 
   private static final Type SET_FIELD_TYPE = new TypeToken<HashSet<String>>() { }.getType();
   private static final Type SET_ENDPOINT_FIELD_TYPE = new TypeToken<HashSet<EndPointField>>() { }.getType();
@@ -75,6 +78,8 @@ public class FieldLineageTable {
   private StructuredTable operationsTable;
   private StructuredTable destinationFieldsTable;
   private StructuredTable summaryFieldsTable;
+  private StructuredTable dailyChecksumTable;
+  private Long dailyChecksumStartTime;
 
   private FieldLineageTable(StructuredTableContext structuredTableContext) {
     this.structuredTableContext = structuredTableContext;
@@ -123,6 +128,14 @@ public class FieldLineageTable {
     return summaryFieldsTable;
   }
 
+  private StructuredTable getDailyChecksumTable() {
+    if (dailyChecksumTable == null) {
+      dailyChecksumTable =
+        structuredTableContext.getTable(StoreDefinition.FieldLineageStore.DAILY_CHECKSUM_TABLE);
+    }
+    return dailyChecksumTable;
+  }
+
   /**
    * Store the field lineage information.
    *
@@ -142,6 +155,15 @@ public class FieldLineageTable {
       addSummary(checksum, OUTGOING_DIRECTION_MARKER, info.getOutgoingSummary());
     }
 
+    if (getDailyChecksumStartTime() == Long.MAX_VALUE) {
+      // Program runs recorded before the daily checksum table was introduced are not in it, hence it can only be
+      // used for the days that start after it is first written to.
+      dailyChecksumStartTime = getDayStart(System.currentTimeMillis()) + DAY_MILLIS;
+      List<Field<?>> fields = getDailyChecksumStartMarkerKey();
+      fields.add(Fields.longField(StoreDefinition.FieldLineageStore.START_DAY_FIELD, dailyChecksumStartTime));
+      fields.add(Fields.longField(StoreDefinition.FieldLineageStore.CHECKSUM_FIELD, 0L));
+      getDailyChecksumTable().upsert(fields);
+    }
     addFieldLineageInfoReferenceRecords(programRunId, info);
   }
 
@@ -151,6 +173,8 @@ public class FieldLineageTable {
     getDestinationFieldsTable().deleteAll(Range.all());
     getOperationsTable().deleteAll(Range.all());
     getSummaryFieldsTable().deleteAll(Range.all());
+    getDailyChecksumTable().deleteAll(Range.all());
+    dailyChecksumStartTime = null;
   }
 
   @Nullable
@@ -205,6 +229,12 @@ public class FieldLineageTable {
     fields.add(Fields.longField(StoreDefinition.FieldLineageStore.CHECKSUM_FIELD, checksum));
     fields.add(Fields.stringField(StoreDefinition.FieldLineageStore.PROGRAM_RUN_FIELD, GSON.toJson(programRunId)));
     getEndpointChecksumTable().upsert(fields);
+
+    // Also record the checksum for the day of the program run, which is the same for all runs of a day
+    fields = getDailyChecksumKey(direction, endPoint,
+                                 getDayStart(RunIds.getTime(programRunId.getRun(), TimeUnit.MILLISECONDS)));
+    fields.add(Fields.longField(StoreDefinition.FieldLineageStore.CHECKSUM_FIELD, checksum));
+    getDailyChecksumTable().upsert(fields);
   }
 
   private void addSummaryEntry(long checksum, String direction, EndPointField endPointField, String data)
@@ -240,7 +270,7 @@ public class FieldLineageTable {
   }
 
   private Set<String> getDestinationFields(EndPoint endPoint, long start, long end) throws IOException {
-    Set<Long> checksums = getChecksumsWithProgramRunsInRange(INCOMING_DIRECTION_MARKER, endPoint, start, end).keySet();
+    Set<Long> checksums = getChecksumsInRange(INCOMING_DIRECTION_MARKER, endPoint, start, end);
     Set<String> result = new HashSet<>();
     for (long checksum : checksums) {
       List<Field<?>> keys = getDestinationKeys(checksum, endPoint);
@@ -263,7 +293,7 @@ public class FieldLineageTable {
   }
 
   private Set<String> getSourceFields(EndPoint endPoint, long start, long end) throws IOException {
-    Set<Long> checksums = getChecksumsWithProgramRunsInRange(OUTGOING_DIRECTION_MARKER, endPoint, start, end).keySet();
+    Set<Long> checksums = getChecksumsInRange(OUTGOING_DIRECTION_MARKER, endPoint, start, end);
     Set<String> fields = new HashSet<>();
     for (long checksum : checksums) {
       List<Field<?>> prefix = getSummaryPrefix(checksum, OUTGOING_DIRECTION_MARKER, endPoint);
@@ -308,8 +338,7 @@ public class FieldLineageTable {
 
   private Set<EndPointField> getSummary(String direction, EndPointField endPointField, long start, long end)
     throws IOException {
-    Set<Long> checksums = getChecksumsWithProgramRunsInRange(direction, endPointField.getEndPoint(),
-                                                             start, end).keySet();
+    Set<Long> checksums = getChecksumsInRange(direction, endPointField.getEndPoint(), start, end);
     Set<EndPointField> result = new HashSet<>();
 
     for (long checksum : checksums) {
@@ -393,16 +422,64 @@ public class FieldLineageTable {
     return result;
   }
 
+  /**
+   * Returns the checksums of the field lineage infos recorded for the given EndPoint by program runs in the given
+   * time range. Full days within the range are read from the daily checksum table, which has a single row per
+   * checksum and day, while only the remaining time at both ends of the range is read from the per run records.
+   */
+  private Set<Long> getChecksumsInRange(String direction, EndPoint endPoint, long start, long end) throws IOException {
+    long dailyStart = start > Long.MAX_VALUE - DAY_MILLIS
+      ? Long.MAX_VALUE : Math.max(getDayStart(start + DAY_MILLIS - 1), getDailyChecksumStartTime());
+    long dailyEnd = getDayStart(end);
+    if (dailyStart >= dailyEnd) {
+      return scanChecksums(direction, endPoint, start, end);
+    }
+
+    Set<Long> result = scanChecksums(direction, endPoint, start, dailyStart);
+    try (CloseableIterator<StructuredRow> iterator =
+      getDailyChecksumTable().scan(Range.create(getDailyChecksumKey(direction, endPoint, dailyStart),
+                                                Range.Bound.INCLUSIVE,
+                                                getDailyChecksumKey(direction, endPoint, dailyEnd),
+                                                Range.Bound.EXCLUSIVE), Integer.MAX_VALUE)) {
+      while (iterator.hasNext()) {
+        result.add(iterator.next().getLong(StoreDefinition.FieldLineageStore.CHECKSUM_FIELD));
+      }
+    }
+    result.addAll(scanChecksums(direction, endPoint, dailyEnd, end));
+    return result;
+  }
+
+  private Set<Long> scanChecksums(String direction, EndPoint endPoint, long start, long end) throws IOException {
+    Set<Long> result = new HashSet<>();
+    try (CloseableIterator<StructuredRow> iterator =
+      getEndpointChecksumTable().scan(getEndpointChecksumRange(direction, endPoint, start, end), Integer.MAX_VALUE)) {
+      while (iterator.hasNext()) {
+        result.add(iterator.next().getLong(StoreDefinition.FieldLineageStore.CHECKSUM_FIELD));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the start of the first day since which the daily checksum table contains the checksums of all
+   * program runs, or {@link Long#MAX_VALUE} if it has not been written to yet.
+   */
+  private long getDailyChecksumStartTime() throws IOException {
+    if (dailyChecksumStartTime == null) {
+      try (CloseableIterator<StructuredRow> iterator =
+        getDailyChecksumTable().scan(Range.singleton(getDailyChecksumStartMarkerKey()), 1)) {
+        dailyChecksumStartTime = iterator.hasNext()
+          ? iterator.next().getLong(StoreDefinition.FieldLineageStore.START_DAY_FIELD) : Long.MAX_VALUE;
+      }
+    }
+    return dailyChecksumStartTime;
+  }
+
   private Map<Long, Set<ProgramRunId>> getChecksumsWithProgramRunsInRange(String direction, EndPoint endPoint,
                                                                           long start, long end) throws IOException {
-    // time is inverted, hence we need to pass end-time for getting start key
-    List<Field<?>> scanStartKey = getScanKey(direction, endPoint, end);
-    // time is inverted, hence we need to pass start-time for getting end key
-    List<Field<?>> scanEndKey = getScanKey(direction, endPoint, start);
     Map<Long, Set<ProgramRunId>> result = new LinkedHashMap<>();
     try (CloseableIterator<StructuredRow> iterator =
-      getEndpointChecksumTable().scan(
-        Range.create(scanStartKey, Range.Bound.INCLUSIVE, scanEndKey, Range.Bound.INCLUSIVE), Integer.MAX_VALUE)) {
+      getEndpointChecksumTable().scan(getEndpointChecksumRange(direction, endPoint, start, end), Integer.MAX_VALUE)) {
       while (iterator.hasNext()) {
         StructuredRow row = iterator.next();
         long checksum = row.getLong(StoreDefinition.FieldLineageStore.CHECKSUM_FIELD);
@@ -415,6 +492,14 @@ public class FieldLineageTable {
     return result;
   }
 
+  private Range getEndpointChecksumRange(String direction, EndPoint endPoint, long start, long end) {
+    // time is inverted, hence we need to pass end-time for getting start key
+    List<Field<?>> scanStartKey = getScanKey(direction, endPoint, end);
+    // time is inverted, hence we need to pass start-time for getting end key
+    List<Field<?>> scanEndKey = getScanKey(direction, endPoint, start);
+    return Range.create(scanStartKey, Range.Bound.INCLUSIVE, scanEndKey, Range.Bound.INCLUSIVE);
+  }
+
   private List<Field<?>> getScanKey(String direction, EndPoint endPoint, long time) {
     List<Field<?>> fields = new ArrayList<>();
     fields.add(Fields.stringField(StoreDefinition.FieldLineageStore.DIRECTION_FIELD, direction));
@@ -454,6 +539,26 @@ public class FieldLineageTable {
     return fields;
   }
 
+  private List<Field<?>> getDailyChecksumKey(String direction, EndPoint endPoint, long dayStart) {
+    List<Field<?>> fields = new ArrayList<>();
+    fields.add(Fields.stringField(StoreDefinition.FieldLineageStore.DIRECTION_FIELD, direction));
+    addEndPoint(fields, endPoint);
+    fields.add(Fields.longField(StoreDefinition.FieldLineageStore.START_DAY_FIELD, dayStart));
+    return fields;
+  }
+
+  private List<Field<?>> getDailyChecksumStartMarkerKey() {
+    List<Field<?>> fields = new ArrayList<>();
+    fields.add(Fields.stringField(StoreDefinition.FieldLineageStore.DIRECTION_FIELD, DAILY_CHECKSUM_START_MARKER));
+    fields.add(Fields.stringField(StoreDefinition.FieldLineageStore.ENDPOINT_NAMESPACE_FIELD, ""));
+    fields.add(Fields.stringField(StoreDefinition.FieldLineageStore.ENDPOINT_NAME_FIELD, ""));
+    return fields;
+  }
+
+  private long getDayStart(long time) {
+    return Math.floorDiv(time, DAY_MILLIS) * DAY_MILLIS;
+  }
+
   private long invertTime(long time) {
     return Long.MAX_VALUE - time;
   }
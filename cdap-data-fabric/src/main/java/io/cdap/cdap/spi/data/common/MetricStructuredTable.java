@@ -24,11 +24,13 @@ import io.cdap.cdap.spi.data.StructuredRow;
 import io.cdap.cdap.spi.data.StructuredTable;
 import io.cdap.cdap.spi.data.table.StructuredTableId;
 import io.cdap.cdap.spi.data.table.field.Field;
+import io.cdap.cdap.spi.data.table.field.FieldFilter;
 import io.cdap.cdap.spi.data.table.field.Range;
 
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Optional;
+import javax.annotation.Nullable;
 
 /**
  * Structured table that takes a delegation and emit metrics on each operation.
@@ -66,6 +68,25 @@ public class MetricStructuredTable implements StructuredTable {
     }
   }
 
+  @Override
+  public void multiUpsert(Collection<? extends Collection<Field<?>>> multiFields)
+    throws InvalidFieldException, IOException {
+    try {
+      if (!emitTimeMetrics) {
+        structuredTable.multiUpsert(multiFields);
+      } else {
+        long curTime = System.nanoTime();
+        structuredTable.multiUpsert(multiFields);
+        long duration = System.nanoTime() - curTime;
+        metricsCollector.increment(metricPrefix + "multiUpsert.time", duration);
+      }
+      metricsCollector.increment(metricPrefix + "multiUpsert.count", 1L);
+    } catch (Exception e) {
+      metricsCollector.increment(metricPrefix + "multiUpsert.error", 1L);
+      throw e;
+    }
+  }
+
   @Override
   public Optional<StructuredRow> read(Collection<Field<?>> keys) throws InvalidFieldException, IOException {
     try {
@@ -107,6 +128,27 @@ public class MetricStructuredTable implements StructuredTable {
     }
   }
 
+  @Override
+  public Collection<StructuredRow> multiRead(Collection<? extends Collection<Field<?>>> multiKeys)
+    throws InvalidFieldException, IOException {
+    try {
+      Collection<StructuredRow> result;
+      if (!emitTimeMetrics) {
+        result = structuredTable.multiRead(multiKeys);
+      } else {
+        long curTime = System.nanoTime();
+        result = structuredTable.multiRead(multiKeys);
+        long duration = System.nanoTime() - curTime;
+        metricsCollector.increment(metricPrefix + "multiRead.time", duration);
+      }
+      metricsCollector.increment(metricPrefix + "multiRead.count", 1L);
+      return result;
+    } catch (Exception e) {
+      metricsCollector.increment(metricPrefix + "multiRead.error", 1L);
+      throw e;
+    }
+  }
+
   @Override
   public CloseableIterator<StructuredRow> scan(Range keyRange, int limit) throws InvalidFieldException, IOException {
     try {
@@ -127,6 +169,49 @@ public class MetricStructuredTable implements StructuredTable {
     }
   }
 
+  @Override
+  public CloseableIterator<StructuredRow> scan(Range keyRange, int limit, Collection<FieldFilter> filters,
+                                               @Nullable Collection<String> columns)
+    throws InvalidFieldException, IOException {
+    try {
+      CloseableIterator<StructuredRow> result;
+      if (!emitTimeMetrics) {
+        result = structuredTable.scan(keyRange, limit, filters, columns);
+      } else {
+        long curTime = System.nanoTime();
+        result = structuredTable.scan(keyRange, limit, filters, columns);
+        long duration = System.nanoTime() - curTime;
+        metricsCollector.increment(metricPrefix + "filter.scan.time", duration);
+      }
+      metricsCollector.increment(metricPrefix + "filter.scan.count", 1L);
+      return result;
+    } catch (Exception e) {
+      metricsCollector.increment(metricPrefix + "filter.scan.error", 1L);
+      throw e;
+    }
+  }
+
+  @Override
+  public CloseableIterator<StructuredRow> scan(Collection<Range> keyRanges,
+                                               int limit) throws InvalidFieldException, IOException {
+    try {
+      CloseableIterator<StructuredRow> result;
+      if (!emitTimeMetrics) {
+        result = structuredTable.scan(keyRanges, limit);
+      } else {
+        long curTime = System.nanoTime();
+        result = structuredTable.scan(keyRanges, limit);
+        long duration = System.nanoTime() - curTime;
+        metricsCollector.increment(metricPrefix + "multi.scan.time", duration);
+      }
+      metricsCollector.increment(metricPrefix + "multi.scan.count", 1L);
+      return result;
+    } catch (Exception e) {
+      metricsCollector.increment(metricPrefix + "multi.scan.error", 1L);
+      throw e;
+    }
+  }
+
   @Override
   public CloseableIterator<StructuredRow> scan(Field<?> index) throws InvalidFieldException, IOException {
     try {
@@ -205,6 +290,25 @@ public class MetricStructuredTable implements StructuredTable {
     }
   }
 
+  @Override
+  public void multiDelete(Collection<? extends Collection<Field<?>>> multiKeys)
+    throws InvalidFieldException, IOException {
+    try {
+      if (!emitTimeMetrics) {
+        structuredTable.multiDelete(multiKeys);
+      } else {
+        long curTime = System.nanoTime();
+        structuredTable.multiDelete(multiKeys);
+        long duration = System.nanoTime() - curTime;
+        metricsCollector.increment(metricPrefix + "multiDelete.time", duration);
+      }
+      metricsCollector.increment(metricPrefix + "multiDelete.count", 1L);
+    } catch (Exception e) {
+      metricsCollector.increment(metricPrefix + "multiDelete.error", 1L);
+      throw e;
+    }
+  }
+
   @Override
   public void deleteAll(Range keyRange) throws InvalidFieldException, IOException {
     try {
@@ -21,7 +21,9 @@ import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.dataset.lib.AbstractCloseableIterator;
 import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 import io.cdap.cdap.api.dataset.lib.IndexedTable;
+import io.cdap.cdap.api.dataset.table.Get;
 import io.cdap.cdap.api.dataset.table.Put;
+import io.cdap.cdap.api.dataset.table.Result;
 import io.cdap.cdap.api.dataset.table.Row;
 import io.cdap.cdap.api.dataset.table.Scanner;
 import io.cdap.cdap.data2.dataset2.lib.table.MDSKey;
@@ -30,6 +32,7 @@ import io.cdap.cdap.spi.data.StructuredRow;
 import io.cdap.cdap.spi.data.StructuredTable;
 import io.cdap.cdap.spi.data.table.StructuredTableSchema;
 import io.cdap.cdap.spi.data.table.field.Field;
+import io.cdap.cdap.spi.data.table.field.FieldFilter;
 import io.cdap.cdap.spi.data.table.field.FieldType;
 import io.cdap.cdap.spi.data.table.field.FieldValidator;
 import io.cdap.cdap.spi.data.table.field.Range;
@@ -39,9 +42,14 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 
 /**
  * Nosql structured table implementation. This table will prepend the table name as the prefix for each row key.
@@ -67,6 +75,16 @@ public final class NoSqlStructuredTable implements StructuredTable {
     table.put(convertFieldsToBytes(fields));
   }
 
+  @Override
+  public void multiUpsert(Collection<? extends Collection<Field<?>>> multiFields) throws InvalidFieldException {
+    LOG.trace("Table {}: Write multiple fields {}", schema.getTableId(), multiFields);
+    // convert all the rows first so that nothing is written if any of them is invalid
+    List<Put> puts = multiFields.stream().map(this::convertFieldsToBytes).collect(Collectors.toList());
+    for (Put put : puts) {
+      table.put(put);
+    }
+  }
+
   @Override
   public Optional<StructuredRow> read(Collection<Field<?>> keys) throws InvalidFieldException {
     LOG.trace("Table {}: Read with keys {}", schema.getTableId(), keys);
@@ -86,12 +104,50 @@ public final class NoSqlStructuredTable implements StructuredTable {
     return row.isEmpty() ? Optional.empty() : Optional.of(new NoSqlStructuredRow(row, schema));
   }
 
+  @Override
+  public Collection<StructuredRow> multiRead(Collection<? extends Collection<Field<?>>> multiKeys)
+    throws InvalidFieldException {
+    LOG.trace("Table {}: Read with multiple keys {}", schema.getTableId(), multiKeys);
+    List<Get> gets = multiKeys.stream()
+      .map(keys -> new Get(convertKeyToBytes(keys, false)))
+      .collect(Collectors.toList());
+    return table.get(gets).stream()
+      .filter(row -> !row.isEmpty())
+      .map(row -> new NoSqlStructuredRow(row, schema))
+      .collect(Collectors.toList());
+  }
+
   @Override
   public CloseableIterator<StructuredRow> scan(Range keyRange, int limit) throws InvalidFieldException {
     LOG.trace("Table {}: Scan range {} with limit {}", schema.getTableId(), keyRange, limit);
     return new LimitIterator(new ScannerIterator(getScanner(keyRange), schema), limit);
   }
 
+  @Override
+  public CloseableIterator<StructuredRow> scan(Range keyRange, int limit, Collection<FieldFilter> filters,
+                                               @Nullable Collection<String> columns) throws InvalidFieldException {
+    LOG.trace("Table {}: Scan range {} with limit {}, filters {} and columns {}", schema.getTableId(), keyRange, limit,
+              filters, columns);
+    for (FieldFilter filter : filters) {
+      fieldValidator.validateFilter(filter);
+    }
+    // the table has no server side filtering, hence the filters and the projection are applied on the rows scanned
+    byte[][] columnBytes = columns == null ? null : convertColumnsToBytes(columns);
+    return new LimitIterator(new FilterIterator(getScanner(keyRange), filters, columnBytes), limit);
+  }
+
+  @Override
+  public CloseableIterator<StructuredRow> scan(Collection<Range> keyRanges,
+                                               int limit) throws InvalidFieldException {
+    LOG.trace("Table {}: Scan ranges {} with limit {}", schema.getTableId(), keyRanges, limit);
+    // validate all the ranges upfront since the scanners are only opened when the previous range is exhausted
+    for (Range keyRange : keyRanges) {
+      fieldValidator.validatePrimaryKeys(keyRange.getBegin(), true);
+      fieldValidator.validatePrimaryKeys(keyRange.getEnd(), true);
+    }
+    return new LimitIterator(new MultiRangeIterator(keyRanges.iterator()), limit);
+  }
+
   @Override
   public CloseableIterator<StructuredRow> scan(Field<?> index) throws InvalidFieldException {
     LOG.trace("Table {}: Scan index {}", schema.getTableId(), index);
@@ -152,6 +208,15 @@ public final class NoSqlStructuredTable implements StructuredTable {
     table.delete(convertKeyToBytes(keys, false));
   }
 
+  @Override
+  public void multiDelete(Collection<? extends Collection<Field<?>>> multiKeys) throws InvalidFieldException {
+    LOG.trace("Table {}: Delete with multiple keys {}", schema.getTableId(), multiKeys);
+    List<byte[]> rowKeys = multiKeys.stream().map(keys -> convertKeyToBytes(keys, false)).collect(Collectors.toList());
+    for (byte[] rowKey : rowKeys) {
+      table.delete(rowKey);
+    }
+  }
+
   @Override
   public void deleteAll(Range keyRange) throws InvalidFieldException, IOException {
     LOG.trace("Table {}: DeleteAll with range {}", schema.getTableId(), keyRange);
@@ -317,35 +382,143 @@ public final class NoSqlStructuredTable implements StructuredTable {
   }
 
   /**
-   * Limit the number of elements returned by a {@link ScannerIterator}.
+   * Limit the number of elements returned by a {@link ScannerIterator}, a {@link FilterIterator} or a
+   * {@link MultiRangeIterator}.
    */
   @VisibleForTesting
   static final class LimitIterator extends AbstractCloseableIterator<StructuredRow> {
-    private final ScannerIterator scannerIterator;
+    private final CloseableIterator<StructuredRow> iterator;
     private final int limit;
     private int count;
 
-    LimitIterator(ScannerIterator scannerIterator, int limit) {
-      this.scannerIterator = scannerIterator;
+    LimitIterator(CloseableIterator<StructuredRow> iterator, int limit) {
+      this.iterator = iterator;
       this.limit = limit;
     }
 
     @Override
     protected StructuredRow computeNext() {
-      if (count >= limit) {
-        return endOfData();
-      }
-      StructuredRow row = scannerIterator.computeNext();
-      if (row == null) {
+      if (count >= limit || !iterator.hasNext()) {
         return endOfData();
       }
       ++count;
-      return row;
+      return iterator.next();
     }
 
     @Override
     public void close() {
-      scannerIterator.close();
+      iterator.close();
+    }
+  }
+
+  /**
+   * Only return the rows from a {@link Scanner} that match all the filters, with only the given columns.
+   */
+  private final class FilterIterator extends AbstractCloseableIterator<StructuredRow> {
+    private final Scanner scanner;
+    private final Collection<FieldFilter> filters;
+    private final byte[][] columns;
+
+    FilterIterator(Scanner scanner, Collection<FieldFilter> filters, @Nullable byte[][] columns) {
+      this.scanner = scanner;
+      this.filters = filters;
+      this.columns = columns;
+    }
+
+    @Override
+    protected StructuredRow computeNext() {
+      Row row;
+      while ((row = scanner.next()) != null) {
+        if (matches(row)) {
+          return new NoSqlStructuredRow(columns == null ? row : project(row), schema);
+        }
+      }
+      return endOfData();
+    }
+
+    @Override
+    public void close() {
+      scanner.close();
+    }
+
+    private boolean matches(Row row) {
+      if (filters.isEmpty()) {
+        return true;
+      }
+      NoSqlStructuredRow structuredRow = new NoSqlStructuredRow(row, schema);
+      for (FieldFilter filter : filters) {
+        if (!filter.matches(getValue(structuredRow, filter.getName()))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private Row project(Row row) {
+      Map<byte[], byte[]> projected = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+      for (byte[] column : columns) {
+        byte[] value = row.get(column);
+        if (value != null) {
+          projected.put(column, value);
+        }
+      }
+      return new Result(row.getRow(), projected);
+    }
+
+    @Nullable
+    private Object getValue(StructuredRow row, String name) {
+      // the type is never null since the filters are validated against the schema
+      switch (schema.getType(name)) {
+        case INTEGER:
+          return row.getInteger(name);
+        case LONG:
+          return row.getLong(name);
+        case FLOAT:
+          return row.getFloat(name);
+        case DOUBLE:
+          return row.getDouble(name);
+        case STRING:
+          return row.getString(name);
+        case BYTES:
+          return row.getBytes(name);
+        default:
+          throw new InvalidFieldException(schema.getTableId(), name);
+      }
+    }
+  }
+
+  /**
+   * Scan multiple key ranges one after the other. The scanner of a range is only opened after the previous range
+   * has been exhausted.
+   */
+  private final class MultiRangeIterator extends AbstractCloseableIterator<StructuredRow> {
+    private final Iterator<Range> keyRanges;
+    private ScannerIterator scannerIterator;
+
+    MultiRangeIterator(Iterator<Range> keyRanges) {
+      this.keyRanges = keyRanges;
+    }
+
+    @Override
+    protected StructuredRow computeNext() {
+      while (scannerIterator == null || !scannerIterator.hasNext()) {
+        if (scannerIterator != null) {
+          scannerIterator.close();
+          scannerIterator = null;
+        }
+        if (!keyRanges.hasNext()) {
+          return endOfData();
+        }
+        scannerIterator = new ScannerIterator(getScanner(keyRanges.next()), schema);
+      }
+      return scannerIterator.next();
+    }
+
+    @Override
+    public void close() {
+      if (scannerIterator != null) {
+        scannerIterator.close();
+      }
     }
   }
 
@@ -17,6 +17,9 @@
 package io.cdap.cdap.spi.data.sql;
 
 import com.google.common.base.Joiner;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Iterables;
 import io.cdap.cdap.api.dataset.lib.AbstractCloseableIterator;
 import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 import io.cdap.cdap.spi.data.InvalidFieldException;
@@ -24,6 +27,7 @@ import io.cdap.cdap.spi.data.StructuredRow;
 import io.cdap.cdap.spi.data.StructuredTable;
 import io.cdap.cdap.spi.data.table.StructuredTableSchema;
 import io.cdap.cdap.spi.data.table.field.Field;
+import io.cdap.cdap.spi.data.table.field.FieldFilter;
 import io.cdap.cdap.spi.data.table.field.FieldType;
 import io.cdap.cdap.spi.data.table.field.FieldValidator;
 import io.cdap.cdap.spi.data.table.field.Fields;
@@ -44,11 +48,14 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
@@ -57,6 +64,15 @@ import javax.annotation.Nullable;
  */
 public class PostgresSqlStructuredTable implements StructuredTable {
   private static final Logger LOG = LoggerFactory.getLogger(PostgresSqlStructuredTable.class);
+  // maximum number of parameters that can be bound to a single statement
+  private static final int MAX_PARAMETERS = Short.MAX_VALUE;
+  // Cache of the queries that only depend on the table and the number of rows. It is shared by all the instances
+  // since a new instance is created for each transaction. The weight is the query length, as a query over many rows
+  // can be large.
+  private static final Cache<QueryKey, String> QUERY_CACHE = CacheBuilder.newBuilder()
+    .maximumWeight(1 << 20)
+    .<QueryKey, String>weigher((key, query) -> query.length())
+    .build();
 
   private final Connection connection;
   private final StructuredTableSchema tableSchema;
@@ -80,6 +96,52 @@ public class PostgresSqlStructuredTable implements StructuredTable {
     upsertInternal(fields);
   }
 
+  @Override
+  public void multiUpsert(Collection<? extends Collection<Field<?>>> multiFields)
+    throws InvalidFieldException, IOException {
+    LOG.trace("Table {}: Write multiple fields {}", tableSchema.getTableId(), multiFields);
+    for (Collection<Field<?>> fields : multiFields) {
+      Set<String> fieldNames = fields.stream().map(Field::getName).collect(Collectors.toSet());
+      if (!fieldNames.containsAll(tableSchema.getPrimaryKeys())) {
+        throw new InvalidFieldException(tableSchema.getTableId(), fields,
+                                        String.format("Given fields %s do not contain all the " +
+                                                        "primary keys %s", fieldNames, tableSchema.getPrimaryKeys()));
+      }
+    }
+
+    // Consecutive rows with the same columns are written with a single batched statement
+    PreparedStatement statement = null;
+    String sqlQuery = null;
+    try {
+      for (Collection<Field<?>> fields : multiFields) {
+        String query = getWriteSqlQuery(fields, null);
+        if (!query.equals(sqlQuery)) {
+          if (statement != null) {
+            statement.executeBatch();
+            statement.close();
+          }
+          sqlQuery = query;
+          statement = connection.prepareStatement(sqlQuery);
+        }
+        int index = 1;
+        for (Field<?> field : fields) {
+          setField(statement, field, index);
+          index++;
+        }
+        LOG.trace("SQL statement: {}", statement);
+        statement.addBatch();
+      }
+      if (statement != null) {
+        statement.executeBatch();
+      }
+    } catch (SQLException e) {
+      throw new IOException(String.format("Failed to write to table %s with multiple fields %s",
+                                          tableSchema.getTableId().getName(), multiFields), e);
+    } finally {
+      closeStatement(statement);
+    }
+  }
+
   @Override
   public Optional<StructuredRow> read(Collection<Field<?>> keys) throws InvalidFieldException, IOException {
     return readRow(keys, null);
@@ -98,12 +160,67 @@ public class PostgresSqlStructuredTable implements StructuredTable {
     return readRow(keys, columnFields);
   }
 
+  @Override
+  public Collection<StructuredRow> multiRead(Collection<? extends Collection<Field<?>>> multiKeys)
+    throws InvalidFieldException, IOException {
+    LOG.trace("Table {}: Read with multiple keys {}", tableSchema.getTableId(), multiKeys);
+    for (Collection<Field<?>> keys : multiKeys) {
+      fieldValidator.validatePrimaryKeys(keys, false);
+    }
+
+    List<StructuredRow> result = new ArrayList<>();
+    for (List<? extends Collection<Field<?>>> batch : Iterables.partition(multiKeys, getMaxKeysPerStatement())) {
+      String readQuery = getCachedQuery(QueryType.MULTI_READ, batch.size(), () -> getMultiReadQuery(batch.size()));
+      try (PreparedStatement statement = connection.prepareStatement(readQuery)) {
+        setKeys(statement, batch);
+        LOG.trace("SQL statement: {}", statement);
+        try (ResultSet resultSet = statement.executeQuery()) {
+          ResultSetMetaData metaData = resultSet.getMetaData();
+          int numCols = metaData.getColumnCount();
+          while (resultSet.next()) {
+            Map<String, Object> row = new HashMap<>();
+            for (int i = 1; i <= numCols; i++) {
+              row.put(metaData.getColumnName(i), resultSet.getObject(i));
+            }
+            result.add(new SqlStructuredRow(tableSchema, row));
+          }
+        }
+      } catch (SQLException e) {
+        throw new IOException(String.format("Failed to read from table %s with multiple keys %s",
+                                            tableSchema.getTableId().getName(), batch), e);
+      }
+    }
+    return result;
+  }
+
   @Override
   public CloseableIterator<StructuredRow> scan(Range keyRange, int limit) throws InvalidFieldException, IOException {
-    LOG.trace("Table {}: Scan range {} with limit {}", tableSchema.getTableId(), keyRange, limit);
+    return scan(keyRange, limit, Collections.emptyList(), null);
+  }
+
+  @Override
+  public CloseableIterator<StructuredRow> scan(Range keyRange, int limit, Collection<FieldFilter> filters,
+                                               @Nullable Collection<String> columns)
+    throws InvalidFieldException, IOException {
+    LOG.trace("Table {}: Scan range {} with limit {}, filters {} and columns {}", tableSchema.getTableId(), keyRange,
+              limit, filters, columns);
     fieldValidator.validatePrimaryKeys(keyRange.getBegin(), true);
     fieldValidator.validatePrimaryKeys(keyRange.getEnd(), true);
-    String scanQuery = getScanQuery(keyRange, limit);
+    for (FieldFilter filter : filters) {
+      fieldValidator.validateFilter(filter);
+    }
+    Set<String> columnFields = null;
+    if (columns != null) {
+      for (String column : columns) {
+        if (tableSchema.getType(column) == null) {
+          throw new InvalidFieldException(tableSchema.getTableId(), column);
+        }
+      }
+      // always have the primary key fields included in the columns
+      columnFields = new LinkedHashSet<>(tableSchema.getPrimaryKeys());
+      columnFields.addAll(columns);
+    }
+    String scanQuery = getScanQuery(keyRange, filters, columnFields);
 
     // We don't close the statement here because once it is closed, the result set is also closed.
     try {
@@ -121,12 +238,53 @@ public class PostgresSqlStructuredTable implements StructuredTable {
           index++;
         }
       }
+      for (FieldFilter filter : filters) {
+        for (Field<?> value : filter.getValues()) {
+          setFilterValue(statement, filter, value, index);
+          index++;
+        }
+      }
+      statement.setInt(index, limit);
       LOG.trace("SQL statement: {}", statement);
       ResultSet resultSet = statement.executeQuery();
       return new ResultSetIterator(statement, resultSet, tableSchema);
     } catch (SQLException e) {
-      throw new IOException(String.format("Failed to scan from table %s with range %s",
-                                          tableSchema.getTableId().getName(), keyRange), e);
+      throw new IOException(String.format("Failed to scan from table %s with range %s and filters %s",
+                                          tableSchema.getTableId().getName(), keyRange, filters), e);
+    }
+  }
+
+  @Override
+  public CloseableIterator<StructuredRow> scan(Collection<Range> keyRanges,
+                                               int limit) throws InvalidFieldException, IOException {
+    LOG.trace("Table {}: Scan ranges {} with limit {}", tableSchema.getTableId(), keyRanges, limit);
+    for (Range keyRange : keyRanges) {
+      fieldValidator.validatePrimaryKeys(keyRange.getBegin(), true);
+      fieldValidator.validatePrimaryKeys(keyRange.getEnd(), true);
+    }
+    String scanQuery = getMultiScanQuery(keyRanges);
+
+    // We don't close the statement here because once it is closed, the result set is also closed.
+    try {
+      PreparedStatement statement = connection.prepareStatement(scanQuery);
+      int index = 1;
+      for (Range keyRange : keyRanges) {
+        for (Field<?> key : keyRange.getBegin()) {
+          setField(statement, key, index);
+          index++;
+        }
+        for (Field<?> key : keyRange.getEnd()) {
+          setField(statement, key, index);
+          index++;
+        }
+      }
+      statement.setInt(index, limit);
+      LOG.trace("SQL statement: {}", statement);
+      ResultSet resultSet = statement.executeQuery();
+      return new ResultSetIterator(statement, resultSet, tableSchema);
+    } catch (SQLException e) {
+      throw new IOException(String.format("Failed to scan from table %s with ranges %s",
+                                          tableSchema.getTableId().getName(), keyRanges), e);
     }
   }
 
@@ -251,7 +409,7 @@ public class PostgresSqlStructuredTable implements StructuredTable {
   public void delete(Collection<Field<?>> keys) throws InvalidFieldException, IOException {
     LOG.trace("Table {}: Delete with keys {}", tableSchema.getTableId(), keys);
     fieldValidator.validatePrimaryKeys(keys, false);
-    String sqlQuery = getDeleteQuery(keys);
+    String sqlQuery = getCachedQuery(QueryType.DELETE, 1, () -> getDeleteQuery(keys));
     try (PreparedStatement statement = connection.prepareStatement(sqlQuery)) {
       int index = 1;
       for (Field<?> key : keys) {
@@ -266,6 +424,28 @@ public class PostgresSqlStructuredTable implements StructuredTable {
     }
   }
 
+  @Override
+  public void multiDelete(Collection<? extends Collection<Field<?>>> multiKeys)
+    throws InvalidFieldException, IOException {
+    LOG.trace("Table {}: Delete with multiple keys {}", tableSchema.getTableId(), multiKeys);
+    for (Collection<Field<?>> keys : multiKeys) {
+      fieldValidator.validatePrimaryKeys(keys, false);
+    }
+
+    for (List<? extends Collection<Field<?>>> batch : Iterables.partition(multiKeys, getMaxKeysPerStatement())) {
+      String sqlQuery = getCachedQuery(QueryType.MULTI_DELETE, batch.size(),
+                                       () -> getMultiDeleteQuery(batch.size()));
+      try (PreparedStatement statement = connection.prepareStatement(sqlQuery)) {
+        setKeys(statement, batch);
+        LOG.trace("SQL statement: {}", statement);
+        statement.executeUpdate();
+      } catch (SQLException e) {
+        throw new IOException(String.format("Failed to delete the rows from table %s with multiple keys %s",
+                                            tableSchema.getTableId().getName(), batch), e);
+      }
+    }
+  }
+
   @Override
   public void deleteAll(Range keyRange) throws InvalidFieldException, IOException {
     LOG.trace("Table {}: DeleteAll with range {}", tableSchema.getTableId(), keyRange);
@@ -330,7 +510,8 @@ public class PostgresSqlStructuredTable implements StructuredTable {
     Collection<Field<?>> keys, @Nullable Collection<String> columns) throws InvalidFieldException, IOException {
     LOG.trace("Table {}: Read with keys {} and columns {}", tableSchema.getTableId(), keys, columns);
     fieldValidator.validatePrimaryKeys(keys, false);
-    String readQuery = getReadQuery(keys, columns, false);
+    String readQuery = columns == null ? getCachedQuery(QueryType.READ, 1, () -> getReadQuery(keys, null, false))
+      : getReadQuery(keys, columns, false);
     try (PreparedStatement statement = connection.prepareStatement(readQuery);) {
       int index = 1;
       for (Field<?> key : keys) {
@@ -357,6 +538,65 @@ public class PostgresSqlStructuredTable implements StructuredTable {
     }
   }
 
+  /**
+   * Sets the primary keys of multiple rows as the parameters of the given statement, in the order they are
+   * given. The keys must have been validated to be complete primary keys.
+   */
+  private void setKeys(PreparedStatement statement, Collection<? extends Collection<Field<?>>> multiKeys)
+    throws SQLException, InvalidFieldException {
+    int index = 1;
+    for (Collection<Field<?>> keys : multiKeys) {
+      for (Field<?> key : keys) {
+        setField(statement, key, index);
+        index++;
+      }
+    }
+  }
+
+  /**
+   * Get the query of the given type from the cache, generating it if it is not cached.
+   *
+   * @param type the type of the query
+   * @param numRows the number of rows that the query is for
+   * @param generator the generator of the query
+   * @return the query
+   */
+  private String getCachedQuery(QueryType type, int numRows, Supplier<String> generator) {
+    QueryKey key = new QueryKey(tableSchema.getTableId().getName(), tableSchema.getPrimaryKeys(), type, numRows);
+    String query = QUERY_CACHE.getIfPresent(key);
+    if (query == null) {
+      query = generator.get();
+      QUERY_CACHE.put(key, query);
+    }
+    return query;
+  }
+
+  private int getMaxKeysPerStatement() {
+    return Math.max(1, MAX_PARAMETERS / tableSchema.getPrimaryKeys().size());
+  }
+
+  private void closeStatement(@Nullable Statement statement) {
+    if (statement == null) {
+      return;
+    }
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      LOG.warn("Failed to close the SQL statement", e);
+    }
+  }
+
+  private void setFilterValue(PreparedStatement statement, FieldFilter filter, Field<?> value,
+                              int parameterIndex) throws SQLException, InvalidFieldException {
+    if (filter.getOperator() == FieldFilter.Operator.PREFIX) {
+      // escape the LIKE wildcards, using the default escape character of backslash
+      String prefix = ((String) value.getValue()).replaceAll("([\\\\%_])", "\\\\$1");
+      statement.setString(parameterIndex, prefix + "%");
+    } else {
+      setField(statement, value, parameterIndex);
+    }
+  }
+
   private void setField(PreparedStatement statement, Field field,
                         int parameterIndex) throws SQLException, InvalidFieldException {
     fieldValidator.validateField(field);
@@ -463,24 +703,124 @@ public class PostgresSqlStructuredTable implements StructuredTable {
   /**
    * Get the scan query for the range given. For example, if the range provides key1, key2 as the begin and end to
    * scan, both rows are inclusive, it will generate the following query:
-   * SELECT * FROM simpletable WHERE (key1,key2)>=(?,?) AND (key1,key2)<=(?,?) LIMIT 10;
+   * SELECT * FROM simpletable WHERE (key1,key2)>=(?,?) AND (key1,key2)<=(?,?) LIMIT ?;
+   * The filters are appended to the WHERE clause, for example, with a filter col1 IN (a, b):
+   * SELECT * FROM simpletable WHERE (key1,key2)>=(?,?) AND (key1,key2)<=(?,?) AND col1 IN (?,?) LIMIT ?;
+   * The limit is a parameter of the statement, so that the same statement is reused for scans with different limits.
    *
    * @param range the range to scan.
-   * @param limit limit number of row
+   * @param filters the filters that the rows must match
+   * @param columns the columns to select, null to select all
    * @return the scan query
    */
-  private String getScanQuery(Range range, int limit) {
-    StringBuilder queryString = new StringBuilder("SELECT * FROM ").append(tableSchema.getTableId().getName());
+  private String getScanQuery(Range range, Collection<FieldFilter> filters, @Nullable Collection<String> columns) {
+    StringBuilder queryString =
+      new StringBuilder("SELECT ")
+        .append(columns == null ? "*" : Joiner.on(",").join(columns))
+        .append(" FROM ")
+        .append(tableSchema.getTableId().getName());
+    StringJoiner whereJoiner = new StringJoiner(" AND ", " WHERE ", "").setEmptyValue("");
     if (!range.getBegin().isEmpty() || !range.getEnd().isEmpty()) {
+      StringBuilder rangeString = new StringBuilder();
+      appendRange(rangeString, range);
+      whereJoiner.add(rangeString);
+    }
+    for (FieldFilter filter : filters) {
+      whereJoiner.add(getFilterClause(filter));
+    }
+    queryString.append(whereJoiner.toString());
+
+    queryString.append(getOrderByClause(tableSchema.getPrimaryKeys()));
+    queryString.append(" LIMIT ?;");
+    return queryString.toString();
+  }
+
+  /**
+   * Get the scan query for multiple ranges. The conditions of the ranges are combined with OR, for example:
+   * SELECT * FROM simpletable WHERE ((key1,key2)>=(?,?) AND (key1,key2)<=(?,?)) OR ((key1)>(?)) LIMIT ?;
+   *
+   * @param ranges the ranges to scan
+   * @return the scan query
+   */
+  private String getMultiScanQuery(Collection<Range> ranges) {
+    StringBuilder queryString = new StringBuilder("SELECT * FROM ").append(tableSchema.getTableId().getName());
+    if (ranges.isEmpty()) {
+      queryString.append(" WHERE FALSE");
+    } else if (ranges.stream().noneMatch(range -> range.getBegin().isEmpty() && range.getEnd().isEmpty())) {
+      // A range without begin and end matches all the rows, in which case no WHERE clause is needed
       queryString.append(" WHERE ");
-      appendRange(queryString, range);
+      String separator = "";
+      for (Range range : ranges) {
+        queryString.append(separator).append("(");
+        appendRange(queryString, range);
+        queryString.append(")");
+        separator = " OR ";
+      }
     }
 
     queryString.append(getOrderByClause(tableSchema.getPrimaryKeys()));
-    queryString.append(" LIMIT ").append(limit).append(";");
+    queryString.append(" LIMIT ?;");
     return queryString.toString();
   }
 
+  /**
+   * Get the read query for the given number of rows, each addressed by the complete primary key. For example:
+   * SELECT * FROM simpletable WHERE (key1,key2) IN ((?,?),(?,?));
+   */
+  private String getMultiReadQuery(int numRows) {
+    return String.format("SELECT * FROM %s WHERE %s;", tableSchema.getTableId().getName(), getInClause(numRows));
+  }
+
+  private String getMultiDeleteQuery(int numRows) {
+    return String.format("DELETE FROM %s WHERE %s;", tableSchema.getTableId().getName(), getInClause(numRows));
+  }
+
+  private String getInClause(int numRows) {
+    StringJoiner keyJoiner = new StringJoiner(",", "(", ")");
+    StringJoiner valueJoiner = new StringJoiner(",", "(", ")");
+    for (String key : tableSchema.getPrimaryKeys()) {
+      keyJoiner.add(key);
+      valueJoiner.add("?");
+    }
+    StringJoiner rowsJoiner = new StringJoiner(",", "(", ")");
+    for (int i = 0; i < numRows; i++) {
+      rowsJoiner.add(valueJoiner.toString());
+    }
+    return keyJoiner.toString() + " IN " + rowsJoiner.toString();
+  }
+
+  private String getFilterClause(FieldFilter filter) {
+    String name = filter.getName();
+    switch (filter.getOperator()) {
+      case EQUAL:
+        return name + "=?";
+      case NOT_EQUAL:
+        return name + "<>?";
+      case LESS_THAN:
+        return name + "<?";
+      case LESS_THAN_OR_EQUAL:
+        return name + "<=?";
+      case GREATER_THAN:
+        return name + ">?";
+      case GREATER_THAN_OR_EQUAL:
+        return name + ">=?";
+      case IN:
+        StringJoiner valueJoiner = new StringJoiner(",", name + " IN (", ")");
+        for (int i = 0; i < filter.getValues().size(); i++) {
+          valueJoiner.add("?");
+        }
+        return valueJoiner.toString();
+      case PREFIX:
+        return name + " LIKE ?";
+      case IS_NULL:
+        return name + " IS NULL";
+      case IS_NOT_NULL:
+        return name + " IS NOT NULL";
+      default:
+        throw new IllegalArgumentException("Unknown filter operator " + filter.getOperator());
+    }
+  }
+
   private void appendRange(StringBuilder statement, Range range) {
     appendScanBound(statement, range.getBegin(), range.getBeginBound().equals(Range.Bound.INCLUSIVE) ? ">=" : ">");
     if (!range.getBegin().isEmpty() && !range.getEnd().isEmpty()) {
@@ -556,6 +896,51 @@ public class PostgresSqlStructuredTable implements StructuredTable {
     }
   }
 
+  /**
+   * Types of the queries that are cached.
+   */
+  private enum QueryType {
+    READ,
+    DELETE,
+    MULTI_READ,
+    MULTI_DELETE
+  }
+
+  /**
+   * Key of a cached query. The primary keys are part of the key since the queries are generated from them.
+   */
+  private static final class QueryKey {
+    private final String tableName;
+    private final List<String> primaryKeys;
+    private final QueryType type;
+    private final int numRows;
+
+    QueryKey(String tableName, List<String> primaryKeys, QueryType type, int numRows) {
+      this.tableName = tableName;
+      this.primaryKeys = primaryKeys;
+      this.type = type;
+      this.numRows = numRows;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      QueryKey that = (QueryKey) o;
+      return numRows == that.numRows && tableName.equals(that.tableName) && primaryKeys.equals(that.primaryKeys)
+        && type == that.type;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(tableName, primaryKeys, type, numRows);
+    }
+  }
+
   private static final class ResultSetIterator extends AbstractCloseableIterator<StructuredRow> {
     private final Statement statement;
     private final ResultSet resultSet;
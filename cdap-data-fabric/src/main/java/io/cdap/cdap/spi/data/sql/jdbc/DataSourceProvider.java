@@ -94,6 +94,13 @@ public class DataSourceProvider implements Provider<DataSource> {
 
     ConnectionFactory connectionFactory = new DriverManagerConnectionFactory(jdbcUrl, properties);
     PoolableConnectionFactory poolableConnectionFactory = new PoolableConnectionFactory(connectionFactory, null);
+    int statementCacheSize = cConf.getInt(Constants.Dataset.DATA_STORAGE_SQL_STATEMENT_CACHE_SIZE);
+    if (statementCacheSize != 0) {
+      // keep the prepared statements open on the pooled connection, so that they get reused by later transactions.
+      // A negative size doesn't limit the number of statements a transaction can have open at the same time.
+      poolableConnectionFactory.setPoolStatements(true);
+      poolableConnectionFactory.setMaxOpenPreparedStatements(statementCacheSize);
+    }
     // The GenericObjectPool is thread safe according to the javadoc,
     // the PoolingDataSource will be thread safe as long as the connectin pool is thread-safe
     GenericObjectPool<PoolableConnection> connectionPool = new GenericObjectPool<>(poolableConnectionFactory);
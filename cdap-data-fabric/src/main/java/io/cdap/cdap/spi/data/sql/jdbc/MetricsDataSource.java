@@ -25,11 +25,13 @@ import java.io.PrintWriter;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 import javax.sql.DataSource;
 
 /**
- * A metrics data source that will emit metrics about the number of connections.
+ * A metrics data source that will emit metrics about the number of connections and the time in milliseconds spent
+ * on waiting for a connection from the pool.
  */
 public class MetricsDataSource implements DataSource {
   private final DataSource dataSource;
@@ -47,7 +49,10 @@ public class MetricsDataSource implements DataSource {
   public Connection getConnection() throws SQLException {
     MetricsContext metricsCollector = metricsCollectionService.getContext(Constants.Metrics.STORAGE_METRICS_TAGS);
     try {
+      long startTime = System.nanoTime();
       Connection connection = dataSource.getConnection();
+      metricsCollector.increment(Constants.Metrics.StructuredTable.CONNECTION_WAIT_TIME_MS,
+                                 TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
       metricsCollector.gauge(Constants.Metrics.StructuredTable.ACTIVE_CONNECTIONS, objectPool.getNumActive());
       metricsCollector.gauge(Constants.Metrics.StructuredTable.IDLE_CONNECTIONS, objectPool.getNumIdle());
       return connection;
@@ -61,7 +66,10 @@ public class MetricsDataSource implements DataSource {
   public Connection getConnection(String username, String password) throws SQLException {
     MetricsContext metricsCollector = metricsCollectionService.getContext(Constants.Metrics.STORAGE_METRICS_TAGS);
     try {
+      long startTime = System.nanoTime();
       Connection connection = dataSource.getConnection(username, password);
+      metricsCollector.increment(Constants.Metrics.StructuredTable.CONNECTION_WAIT_TIME_MS,
+                                 TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
       metricsCollector.gauge(Constants.Metrics.StructuredTable.ACTIVE_CONNECTIONS, objectPool.getNumActive());
       metricsCollector.gauge(Constants.Metrics.StructuredTable.IDLE_CONNECTIONS, objectPool.getNumIdle());
       return connection;
@@ -16,6 +16,7 @@
 
 package io.cdap.cdap.spi.metadata.dataset;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -65,6 +66,7 @@ import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import javax.annotation.Nullable;
 
@@ -84,8 +86,9 @@ public class SearchHelper {
   private static final DatasetContext SYSTEM_CONTEXT = DatasetContext.from(NamespaceId.SYSTEM.getNamespace());
 
   private static final Comparator<Map.Entry<MetadataEntity, Integer>> SEARCH_RESULT_DESC_SCORE_COMPARATOR =
-    // sort in descending order
-    (o1, o2) -> o2.getValue() - o1.getValue();
+    // sort in descending order, and break ties by entity so that pages of the same search are consistent
+    Comparator.<Map.Entry<MetadataEntity, Integer>>comparingInt(Map.Entry::getValue).reversed()
+      .thenComparing(entry -> entry.getKey().toString());
 
   private final DatasetDefinition<MetadataDataset, DatasetAdmin> metaDatasetDefinition;
   private final Map<String, DatasetSpecification> datasetSpecs;
@@ -261,6 +264,9 @@ public class SearchHelper {
   }
 
   private MetadataSearchResponse search(Set<MetadataScope> scopes, SearchRequest request) {
+    if (SortInfo.DEFAULT.equals(request.getSortInfo())) {
+      return searchByScore(scopes, request);
+    }
     List<MetadataEntry> results = new LinkedList<>();
     List<String> cursors = new LinkedList<>();
     for (MetadataScope scope : scopes) {
@@ -304,6 +310,69 @@ public class SearchHelper {
       finalResults, cursors, request.shouldShowHidden(), request.getEntityScopes());
   }
 
+  /**
+   * Performs a search with {@link SortInfo#DEFAULT} sorting. The entities are scored in the metadata datasets, and
+   * only the top offset + limit of them are kept while ranking, instead of sorting all matching entities.
+   */
+  private MetadataSearchResponse searchByScore(Set<MetadataScope> scopes, SearchRequest request) {
+    Map<MetadataEntity, Integer> scores = new HashMap<>();
+    for (MetadataScope scope : scopes) {
+      Map<MetadataEntity, Integer> scopeScores = execute(context -> context.getDataset(scope)
+        .scoreByDefaultIndex(request));
+      scopeScores.forEach((entity, score) -> scores.merge(entity, score, Integer::sum));
+    }
+
+    int offset = request.getOffset();
+    int limit = request.getLimit();
+    Set<MetadataEntity> topEntities = getTopEntities(scores, offset, limit);
+
+    // Fetch metadata for entities in the result list
+    // Note: since the fetch is happening in a different transaction, the metadata for entities may have been
+    // removed. It is okay not to have metadata for some results in case this happens.
+    Set<MetadataSearchResultRecord> finalResults = execute(
+      context -> addMetadataToEntities(topEntities,
+                                       fetchMetadata(context.getDataset(SYSTEM), topEntities),
+                                       fetchMetadata(context.getDataset(USER), topEntities)));
+
+    SortInfo sortInfo = request.getSortInfo();
+    return new MetadataSearchResponse(
+      sortInfo.getSortBy() + " " + sortInfo.getSortOrder(), offset, limit, request.getNumCursors(), scores.size(),
+      finalResults, Collections.emptyList(), request.shouldShowHidden(), request.getEntityScopes());
+  }
+
+  /**
+   * Returns the entities ranked from offset (inclusive) to offset + limit (exclusive) in descending order of score,
+   * using a bounded heap of size offset + limit.
+   */
+  @VisibleForTesting
+  static Set<MetadataEntity> getTopEntities(Map<MetadataEntity, Integer> scores, int offset, int limit) {
+    if (offset >= scores.size() || limit <= 0) {
+      return Collections.emptySet();
+    }
+    // Account for overflow
+    int size = (int) Math.min(scores.size(), (long) offset + limit);
+
+    // the head of the heap is the lowest ranked entity among the top ones
+    PriorityQueue<Map.Entry<MetadataEntity, Integer>> heap =
+      new PriorityQueue<>(size, SEARCH_RESULT_DESC_SCORE_COMPARATOR.reversed());
+    for (Map.Entry<MetadataEntity, Integer> entry : scores.entrySet()) {
+      if (heap.size() < size) {
+        heap.add(entry);
+      } else if (SEARCH_RESULT_DESC_SCORE_COMPARATOR.compare(entry, heap.peek()) < 0) {
+        heap.poll();
+        heap.add(entry);
+      }
+    }
+
+    List<Map.Entry<MetadataEntity, Integer>> ranked = new ArrayList<>(heap);
+    ranked.sort(SEARCH_RESULT_DESC_SCORE_COMPARATOR);
+    Set<MetadataEntity> result = new LinkedHashSet<>(ranked.size() - offset);
+    for (Map.Entry<MetadataEntity, Integer> entry : ranked.subList(offset, ranked.size())) {
+      result.add(entry.getKey());
+    }
+    return result;
+  }
+
   private Set<MetadataEntity> getSortedEntities(List<MetadataEntry> results, SortInfo sortInfo) {
     // if sort order is not weighted, return entities in the order received.
     // in this case, the backing storage is expected to return results in the expected order.
@@ -960,6 +960,7 @@ public final class StoreDefinition {
     public static final StructuredTableId OPERATIONS_TABLE = new StructuredTableId("operations_table");
     public static final StructuredTableId DESTINATION_FIELDS_TABLE = new StructuredTableId("destination_fields_table");
     public static final StructuredTableId SUMMARY_FIELDS_TABLE = new StructuredTableId("summary_fields_table");
+    public static final StructuredTableId DAILY_CHECKSUM_TABLE = new StructuredTableId("daily_checksum_table");
 
     public static final String DIRECTION_FIELD = "direction";
     public static final String ENDPOINT_NAMESPACE_FIELD = "endpoint_namespace";
@@ -970,6 +971,7 @@ public final class StoreDefinition {
     public static final String OPERATIONS_FIELD = "operations";
     public static final String DESTINATION_DATA_FIELD = "destination_data";
     public static final String ENDPOINT_FIELD = "endpoint_field";
+    public static final String START_DAY_FIELD = "start_day";
 
     public static final StructuredTableSpecification ENDPOINT_CHECKSUM_SPEC =
       new StructuredTableSpecification.Builder()
@@ -1010,6 +1012,17 @@ public final class StoreDefinition {
         .withPrimaryKeys(CHECKSUM_FIELD, DIRECTION_FIELD, ENDPOINT_NAMESPACE_FIELD, ENDPOINT_NAME_FIELD,
                          ENDPOINT_FIELD)
         .build();
+    public static final StructuredTableSpecification DAILY_CHECKSUM_SPEC =
+      new StructuredTableSpecification.Builder()
+        .withId(DAILY_CHECKSUM_TABLE)
+        .withFields(Fields.stringType(DIRECTION_FIELD),
+                    Fields.stringType(ENDPOINT_NAMESPACE_FIELD),
+                    Fields.stringType(ENDPOINT_NAME_FIELD),
+                    Fields.longType(START_DAY_FIELD),
+                    Fields.longType(CHECKSUM_FIELD))
+        .withPrimaryKeys(DIRECTION_FIELD, ENDPOINT_NAMESPACE_FIELD, ENDPOINT_NAME_FIELD, START_DAY_FIELD,
+                         CHECKSUM_FIELD)
+        .build();
 
     public static void createTables(StructuredTableAdmin tableAdmin,
                                     boolean overWrite) throws IOException, TableAlreadyExistsException {
@@ -1025,6 +1038,9 @@ public final class StoreDefinition {
       if (overWrite || tableAdmin.getSpecification(SUMMARY_FIELDS_TABLE) == null) {
         tableAdmin.create(SUMMARY_FIELDS_SPEC);
       }
+      if (overWrite || tableAdmin.getSpecification(DAILY_CHECKSUM_TABLE) == null) {
+        tableAdmin.create(DAILY_CHECKSUM_SPEC);
+      }
     }
   }
 
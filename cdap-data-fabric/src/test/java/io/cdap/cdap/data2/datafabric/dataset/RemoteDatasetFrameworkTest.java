@@ -25,7 +25,10 @@ import com.google.inject.Injector;
 import com.google.inject.Scopes;
 import com.google.inject.Singleton;
 import io.cdap.cdap.api.dataset.DatasetManagementException;
+import io.cdap.cdap.api.dataset.DatasetProperties;
+import io.cdap.cdap.api.dataset.DatasetSpecification;
 import io.cdap.cdap.api.metrics.MetricsCollectionService;
+import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.CConfigurationUtil;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.discovery.EndpointStrategy;
@@ -52,11 +55,17 @@ import io.cdap.cdap.data2.dataset2.AbstractDatasetFrameworkTest;
 import io.cdap.cdap.data2.dataset2.DatasetDefinitionRegistryFactory;
 import io.cdap.cdap.data2.dataset2.DatasetFramework;
 import io.cdap.cdap.data2.dataset2.DefaultDatasetDefinitionRegistryFactory;
+import io.cdap.cdap.data2.dataset2.SimpleKVTable;
+import io.cdap.cdap.data2.dataset2.SingleTypeModule;
+import io.cdap.cdap.data2.dataset2.module.lib.inmemory.InMemoryTableModule;
 import io.cdap.cdap.data2.metadata.writer.NoOpMetadataPublisher;
 import io.cdap.cdap.data2.transaction.DelegatingTransactionSystemClientService;
 import io.cdap.cdap.data2.transaction.TransactionSystemClientService;
 import io.cdap.cdap.explore.client.DiscoveryExploreClient;
 import io.cdap.cdap.explore.client.ExploreFacade;
+import io.cdap.cdap.proto.id.DatasetId;
+import io.cdap.cdap.proto.id.DatasetModuleId;
+import io.cdap.cdap.proto.id.DatasetTypeId;
 import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.security.auth.context.AuthenticationContextModules;
 import io.cdap.cdap.security.authorization.AuthorizationEnforcementModule;
@@ -94,6 +103,8 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
   private DatasetOpExecutorService opExecutorService;
   private DatasetService service;
   private RemoteDatasetFramework framework;
+  private DiscoveryServiceClient discoveryServiceClient;
+  private AuthenticationContext authenticationContext;
 
   @Before
   public void before() throws Exception {
@@ -139,9 +150,9 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
     TransactionSystemClientService txSystemClientService = new DelegatingTransactionSystemClientService(txSystemClient);
 
     DiscoveryService discoveryService = injector.getInstance(DiscoveryService.class);
-    DiscoveryServiceClient discoveryServiceClient = injector.getInstance(DiscoveryServiceClient.class);
+    discoveryServiceClient = injector.getInstance(DiscoveryServiceClient.class);
     MetricsCollectionService metricsCollectionService = injector.getInstance(MetricsCollectionService.class);
-    AuthenticationContext authenticationContext = injector.getInstance(AuthenticationContext.class);
+    authenticationContext = injector.getInstance(AuthenticationContext.class);
 
     framework = new RemoteDatasetFramework(cConf, discoveryServiceClient, registryFactory, authenticationContext);
     SystemDatasetInstantiatorFactory datasetInstantiatorFactory =
@@ -207,6 +218,89 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
     }
   }
 
+  @Test
+  public void testMetadataCache() throws Exception {
+    // A framework without caching acts as another process that changes datasets without the framework knowing
+    CConfiguration otherConf = CConfiguration.copy(cConf);
+    otherConf.setLong(Constants.Dataset.CLIENT_CACHE_TTL_SECONDS, 0L);
+    DatasetFramework other = new RemoteDatasetFramework(otherConf, discoveryServiceClient,
+                                                        registryFactory, authenticationContext);
+
+    DatasetModuleId module = NAMESPACE_ID.datasetModule("cachedKeyValue");
+    DatasetTypeId type = NAMESPACE_ID.datasetType(SimpleKVTable.class.getName());
+    DatasetId instance = NAMESPACE_ID.dataset("cached");
+
+    // Missing types are not cached, while existing ones are until the modules are changed through the framework
+    Assert.assertFalse(framework.hasType(type));
+    other.addModule(module, new SingleTypeModule(SimpleKVTable.class));
+    Assert.assertTrue(framework.hasType(type));
+    other.deleteModule(module);
+    Assert.assertTrue(framework.hasType(type));
+    framework.addModule(NAMESPACE_ID.datasetModule("inMemory"), new InMemoryTableModule());
+    Assert.assertFalse(framework.hasType(type));
+    other.addModule(module, new SingleTypeModule(SimpleKVTable.class));
+    Assert.assertTrue(framework.hasType(type));
+
+    // Missing instances are not cached
+    Assert.assertNull(framework.getDatasetSpec(instance));
+    other.addInstance(type.getEntityName(), instance, createProperties("1"));
+    assertVersion("1", framework.getDatasetSpec(instance));
+
+    // A repeated lookup is served from the cache, hence it doesn't see the change made by the other framework
+    other.updateInstance(instance, createProperties("2"));
+    assertVersion("1", framework.getDatasetSpec(instance));
+
+    // Updating and deleting through the framework invalidates the cached entry
+    framework.updateInstance(instance, createProperties("3"));
+    assertVersion("3", framework.getDatasetSpec(instance));
+    framework.deleteInstance(instance);
+    Assert.assertNull(framework.getDatasetSpec(instance));
+
+    // Adding through the framework invalidates the cached entry
+    other.addInstance(type.getEntityName(), instance, createProperties("4"));
+    assertVersion("4", framework.getDatasetSpec(instance));
+    other.deleteInstance(instance);
+    assertVersion("4", framework.getDatasetSpec(instance));
+    framework.addInstance(type.getEntityName(), instance, createProperties("5"));
+    assertVersion("5", framework.getDatasetSpec(instance));
+
+    // Cached lookups make no call to the dataset service, hence they succeed even if the service is stopped
+    service.stopAndWait();
+    assertVersion("5", framework.getDatasetSpec(instance));
+    Assert.assertTrue(framework.hasInstance(instance));
+    Assert.assertTrue(framework.hasType(type));
+  }
+
+  @Test
+  public void testNoMetadataCacheWithAuthorization() throws Exception {
+    // Lookups are authorized per principal by the dataset service, hence they must not be served from a shared cache
+    CConfiguration authConf = CConfiguration.copy(cConf);
+    authConf.setBoolean(Constants.Security.ENABLED, true);
+    authConf.setBoolean(Constants.Security.Authorization.ENABLED, true);
+    DatasetFramework authFramework = new RemoteDatasetFramework(authConf, discoveryServiceClient,
+                                                                registryFactory, authenticationContext);
+
+    DatasetTypeId type = NAMESPACE_ID.datasetType(SimpleKVTable.class.getName());
+    DatasetId instance = NAMESPACE_ID.dataset("uncached");
+    framework.addModule(NAMESPACE_ID.datasetModule("uncachedKeyValue"), new SingleTypeModule(SimpleKVTable.class));
+    framework.addInstance(type.getEntityName(), instance, createProperties("1"));
+    assertVersion("1", authFramework.getDatasetSpec(instance));
+
+    framework.updateInstance(instance, createProperties("2"));
+    assertVersion("2", authFramework.getDatasetSpec(instance));
+    framework.deleteInstance(instance);
+    Assert.assertNull(authFramework.getDatasetSpec(instance));
+  }
+
+  private DatasetProperties createProperties(String version) {
+    return DatasetProperties.builder().add("version", version).build();
+  }
+
+  private void assertVersion(String expected, DatasetSpecification spec) {
+    Assert.assertNotNull(spec);
+    Assert.assertEquals(expected, spec.getProperty("version"));
+  }
+
   @After
   public void after() {
     Futures.getUnchecked(Services.chainStop(service, opExecutorService, txManager));
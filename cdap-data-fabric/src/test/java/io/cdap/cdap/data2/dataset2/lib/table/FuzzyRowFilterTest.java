@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.data2.dataset2.lib.table;
+
+import com.google.common.collect.ImmutableList;
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.dataset.table.Row;
+import io.cdap.cdap.api.dataset.table.Scanner;
+import io.cdap.cdap.common.utils.ImmutablePair;
+import io.cdap.cdap.data2.dataset2.lib.table.inmemory.InMemoryScanner;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Unit tests for {@link FuzzyRowFilter}.
+ */
+public class FuzzyRowFilterTest {
+
+  @Test
+  public void testFilterRows() {
+    NavigableMap<byte[], Integer> rows = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    byte[] abc = { 'a', 'b', 'c' };
+    int i = 0;
+    for (byte b1 : abc) {
+      for (byte b2 : abc) {
+        for (byte b3 : abc) {
+          for (byte b4 : abc) {
+            rows.put(new byte[] { b1, b2, b3, b4 }, i++);
+          }
+        }
+      }
+    }
+
+    List<FuzzyRowFilter> filters = ImmutableList.of(
+      new FuzzyRowFilter(ImmutableList.of(
+        ImmutablePair.of(new byte[] { 'z', 'b', 'z', 'b' }, new byte[] { 0x01, 0x00, 0x01, 0x00 }))),
+      new FuzzyRowFilter(ImmutableList.of(
+        ImmutablePair.of(new byte[] { 'c', 'z', 'z', 'a' }, new byte[] { 0x00, 0x01, 0x01, 0x00 }),
+        ImmutablePair.of(new byte[] { 'a', 'a', 'z', 'z' }, new byte[] { 0x00, 0x00, 0x01, 0x01 }))),
+      new FuzzyRowFilter(ImmutableList.of(
+        ImmutablePair.of(new byte[] { 'd', 'z', 'z', 'z' }, new byte[] { 0x00, 0x01, 0x01, 0x01 }))));
+
+    // the bytes at the non-fixed positions of the fuzzy keys are larger than the row bytes, which must not
+    // cause the row hints to skip any matching row
+    for (FuzzyRowFilter filter : filters) {
+      // the rows skipped using the row hints should be the same as the ones excluded by evaluating every row
+      List<byte[]> expected = new ArrayList<>();
+      for (Map.Entry<byte[], Integer> entry : rows.entrySet()) {
+        if (filter.filterRow(entry.getKey()) == FuzzyRowFilter.ReturnCode.INCLUDE) {
+          expected.add(entry.getKey());
+        }
+      }
+      NavigableMap<byte[], Integer> filtered = filter.filterRows(rows);
+      Assert.assertEquals(expected.size(), filtered.size());
+      int idx = 0;
+      for (Map.Entry<byte[], Integer> entry : filtered.entrySet()) {
+        Assert.assertArrayEquals(expected.get(idx++), entry.getKey());
+        Assert.assertEquals(rows.get(entry.getKey()), entry.getValue());
+      }
+    }
+  }
+
+  @Test
+  public void testMaxByteAtNonFixedPosition() {
+    FuzzyRowFilter filter = new FuzzyRowFilter(ImmutableList.of(
+      ImmutablePair.of(new byte[] { 'z', 'b' }, new byte[] { 0x01, 0x00 })));
+    byte[] maxA = { (byte) 0xFF, 'a' };
+    byte[] maxB = { (byte) 0xFF, 'b' };
+    byte[] maxC = { (byte) 0xFF, 'c' };
+
+    // the non-fixed byte of the row cannot be increased, hence no greater row can match
+    Assert.assertEquals(FuzzyRowFilter.ReturnCode.DONE, filter.filterRow(maxC));
+    Assert.assertNull(filter.findNextRowHint(maxC));
+    Assert.assertEquals(FuzzyRowFilter.ReturnCode.SEEK_NEXT_USING_HINT, filter.filterRow(maxA));
+    Assert.assertArrayEquals(maxB, filter.getNextRowHint(maxA));
+
+    NavigableMap<byte[], Integer> rows = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    rows.put(new byte[] { 'a', 'c' }, 0);
+    rows.put(maxA, 1);
+    rows.put(maxB, 2);
+    rows.put(maxC, 3);
+    NavigableMap<byte[], Integer> filtered = filter.filterRows(rows);
+    Assert.assertEquals(1, filtered.size());
+    Assert.assertEquals(Integer.valueOf(2), filtered.get(maxB));
+
+    // the in-memory scanner skips the rows using the same hints
+    NavigableMap<byte[], NavigableMap<byte[], byte[]>> tableRows = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    for (byte[] row : rows.keySet()) {
+      NavigableMap<byte[], byte[]> columns = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+      columns.put(Bytes.toBytes("c"), row);
+      tableRows.put(row, columns);
+    }
+    Scanner scanner = new InMemoryScanner(tableRows, filter, null);
+    Row row = scanner.next();
+    Assert.assertNotNull(row);
+    Assert.assertArrayEquals(maxB, row.getRow());
+    Assert.assertNull(scanner.next());
+  }
+}
@@ -16,6 +16,7 @@
 
 package io.cdap.cdap.data2.dataset2.lib.table.inmemory;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.data2.dataset2.lib.table.PutValue;
@@ -24,7 +25,12 @@ import org.apache.tephra.Transaction;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.NavigableMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  *
@@ -97,6 +103,72 @@ public class InMemoryTableServiceTest {
     verify123();
   }
 
+  @Test
+  public void testConcurrentUpdates() throws Exception {
+    String tableName = "concurrentTable";
+    InMemoryTableService.create(tableName);
+    byte[] counterRow = new byte[] {0};
+    byte[] column = new byte[] {1};
+    int threads = 8;
+    int updatesPerThread = 500;
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        byte threadId = (byte) (t + 1);
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < updatesPerThread; i++) {
+            // increments of the same row are atomic
+            InMemoryTableService.increment(tableName, counterRow, ImmutableMap.of(column, 1L));
+
+            // each thread merges into its own row, while other threads read
+            NavigableMap<byte[], NavigableMap<byte[], Update>> updates = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+            NavigableMap<byte[], Update> rowUpdate = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+            rowUpdate.put(Bytes.toBytes(i), new PutValue(Bytes.toBytes(i)));
+            updates.put(new byte[] {threadId}, rowUpdate);
+            InMemoryTableService.merge(tableName, updates, 1L);
+            InMemoryTableService.getRowRange(tableName, null, null, null);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    NavigableMap<byte[], NavigableMap<Long, byte[]>> counter = InMemoryTableService.get(tableName, counterRow, null);
+    Assert.assertEquals((long) threads * updatesPerThread,
+                        Bytes.toLong(counter.get(column).firstEntry().getValue()));
+    for (int t = 0; t < threads; t++) {
+      byte[] row = new byte[] {(byte) (t + 1)};
+      Assert.assertEquals(updatesPerThread, InMemoryTableService.get(tableName, row, null).size());
+    }
+    InMemoryTableService.drop(tableName);
+  }
+
+  @Test
+  public void testTruncate() {
+    String tableName = "truncateTable";
+    InMemoryTableService.create(tableName);
+    byte[] column = new byte[] {1};
+    for (byte row = 0; row < 10; row++) {
+      InMemoryTableService.increment(tableName, new byte[] {row}, ImmutableMap.of(column, 1L));
+    }
+    Assert.assertEquals(10, InMemoryTableService.getRowRange(tableName, null, null, null).size());
+
+    InMemoryTableService.truncate(tableName);
+    Assert.assertTrue(InMemoryTableService.getRowRange(tableName, null, null, null).isEmpty());
+
+    // updates after the truncate start from an empty row
+    Assert.assertEquals(1L, (long) InMemoryTableService.increment(tableName, new byte[] {0},
+                                                                  ImmutableMap.of(column, 1L)).get(column));
+    Assert.assertEquals(1, InMemoryTableService.getRowRange(tableName, null, null, null).size());
+    InMemoryTableService.drop(tableName);
+  }
+
   private void verify123() {
     NavigableMap<byte[], NavigableMap<Long, byte[]>> rowFromGet =
       InMemoryTableService.get("table", new byte[]{1}, new Transaction(1L, 2L, new long[0], new long[0], 1L));
@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.data2.dataset2.lib.table.leveldb;
+
+import io.cdap.cdap.api.common.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Unit tests for {@link KeyValue}.
+ */
+public class KeyValueTest {
+
+  @Test
+  public void testKeyAccessors() {
+    byte[][] rows = { Bytes.EMPTY_BYTE_ARRAY, Bytes.toBytes("r"), Bytes.toBytes("row1") };
+    byte[][] families = { Bytes.EMPTY_BYTE_ARRAY, Bytes.toBytes("f") };
+    byte[][] qualifiers = { Bytes.EMPTY_BYTE_ARRAY, Bytes.toBytes("c"), Bytes.toBytes("column") };
+    long[] timestamps = { 0L, 1234L, KeyValue.LATEST_TIMESTAMP };
+
+    for (byte[] row : rows) {
+      for (byte[] family : families) {
+        for (byte[] qualifier : qualifiers) {
+          for (long timestamp : timestamps) {
+            byte[] key = KeyValue.getKey(row, family, qualifier, timestamp, KeyValue.Type.Put);
+            KeyValue kv = KeyValue.fromKey(key);
+
+            int rowLength = KeyValue.getKeyRowLength(key);
+            Assert.assertEquals(kv.getRowLength(), rowLength);
+            Assert.assertArrayEquals(row, KeyValue.getKeyRow(key));
+
+            int qualifierOffset = KeyValue.getKeyQualifierOffset(key, rowLength);
+            int qualifierLength = KeyValue.getKeyQualifierLength(key, qualifierOffset);
+            Assert.assertArrayEquals(kv.getQualifier(),
+                                     Arrays.copyOfRange(key, qualifierOffset, qualifierOffset + qualifierLength));
+            Assert.assertArrayEquals(qualifier,
+                                     Arrays.copyOfRange(key, qualifierOffset, qualifierOffset + qualifierLength));
+            Assert.assertEquals(timestamp, KeyValue.getKeyTimestamp(key));
+          }
+        }
+      }
+    }
+  }
+}
@@ -452,6 +452,37 @@ public class MetadataDatasetTest {
     });
   }
 
+  @Test
+  public void testScoreByDefaultIndex() throws Exception {
+    txnl.execute(() -> {
+      dataset.addTags(app1, "tag1", "tag2", "tag3");
+      dataset.addTags(program1, "tag1");
+      dataset.addTags(dataset1, "tag3", "tag2");
+      dataset.addTags(dataset2, "tag2");
+    });
+
+    txnl.execute(() -> {
+      SearchRequest request = new SearchRequest(new NamespaceId("ns1"), "tags:tag1 tags:tag2 tags:tag3", ALL_TYPES,
+                                                SortInfo.DEFAULT, 0, 1, 1, null, false,
+                                                EnumSet.allOf(EntityScope.class));
+      // scores are not limited by the limit of the request
+      Assert.assertEquals(ImmutableMap.of(app1, 3, program1, 1, dataset1, 2, dataset2, 1),
+                          dataset.scoreByDefaultIndex(request));
+
+      request = new SearchRequest(new NamespaceId("ns1"), "tags:tag1", ImmutableSet.of(MetadataEntity.APPLICATION),
+                                  SortInfo.DEFAULT, 0, 10, 1, null, false, EnumSet.allOf(EntityScope.class));
+      Assert.assertEquals(ImmutableMap.of(app1, 1), dataset.scoreByDefaultIndex(request));
+    });
+
+    // removed metadata is not scored
+    txnl.execute(() -> {
+      dataset.removeTags(app1);
+      SearchRequest request = new SearchRequest(new NamespaceId("ns1"), "tags:tag1", ALL_TYPES, SortInfo.DEFAULT,
+                                                0, 10, 1, null, false, EnumSet.allOf(EntityScope.class));
+      Assert.assertEquals(ImmutableMap.of(program1, 1), dataset.scoreByDefaultIndex(request));
+    });
+  }
+
   @Test
   public void testSearchOnTypes() throws Exception {
     MetadataEntity myField1 =
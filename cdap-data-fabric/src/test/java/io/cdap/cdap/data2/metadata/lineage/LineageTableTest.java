@@ -131,6 +131,22 @@ public abstract class LineageTableTest {
         lineageTable.getRelations(datasetInstance2, 0, 35000, x -> true)
       );
 
+      // Batched lookups return the union of the relations of all the given entities
+      Assert.assertEquals(
+        ImmutableSet.of(new Relation(datasetInstance1, program1, AccessType.READ, runId1),
+                        new Relation(datasetInstance2, program2, AccessType.WRITE, runId2),
+                        new Relation(datasetInstance2, program2, AccessType.WRITE, runId3)
+        ),
+        lineageTable.getDatasetRelations(toSet(datasetInstance1, datasetInstance2), 0, 35000, x -> true)
+      );
+
+      Assert.assertEquals(
+        ImmutableSet.of(new Relation(datasetInstance1, program1, AccessType.READ, runId1),
+                        new Relation(datasetInstance2, program3, AccessType.READ_WRITE, runId4)
+        ),
+        lineageTable.getProgramRelations(toSet(program1, program3), 0, 100000, x -> true)
+      );
+
       Assert.assertEquals(toSet(program1, datasetInstance1), lineageTable.getEntitiesForRun(run11));
       Assert.assertEquals(ImmutableList.of(run11Data1AccessTime), lineageTable.getAccessTimesForRun(run11));
     });
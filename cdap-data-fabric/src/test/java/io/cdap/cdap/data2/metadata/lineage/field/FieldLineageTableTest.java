@@ -40,6 +40,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Test for storage and retrieval of the field lineage operations.
@@ -225,6 +226,65 @@ public abstract class FieldLineageTableTest {
     });
   }
 
+  @Test
+  public void testRangesOverMultipleDays() {
+    // The daily checksums are only used for the days that start after the table is first written to,
+    // so use program runs starting from two days ahead
+    long day = TimeUnit.DAYS.toMillis(1);
+    long firstDay = (System.currentTimeMillis() / day + 2) * day;
+    ProgramId program = new ProgramId("default", "app1", ProgramType.WORKFLOW, "workflow1");
+    ProgramRunId programRun1 = program.run(RunIds.generate(firstDay + TimeUnit.HOURS.toMillis(1)).getId());
+    ProgramRunId programRun2 = program.run(RunIds.generate(firstDay + day + TimeUnit.HOURS.toMillis(5)).getId());
+    ProgramRunId programRun3 = program.run(RunIds.generate(firstDay + 2 * day + TimeUnit.HOURS.toMillis(1)).getId());
+
+    FieldLineageInfo info1 = new FieldLineageInfo(generateOperations(false));
+    FieldLineageInfo info2 = new FieldLineageInfo(generateOperations(true));
+
+    TransactionRunners.run(transactionRunner, context -> {
+      FieldLineageTable fieldLineageTable = FieldLineageTable.create(context);
+      fieldLineageTable.addFieldLineageInfo(programRun1, info1);
+      fieldLineageTable.addFieldLineageInfo(programRun2, info2);
+      fieldLineageTable.addFieldLineageInfo(programRun3, info1);
+    });
+
+    TransactionRunners.run(transactionRunner, context -> {
+      FieldLineageTable fieldLineageTable = FieldLineageTable.create(context);
+      EndPoint source = EndPoint.of("ns1", "endpoint1");
+      EndPoint destination = EndPoint.of("myns", "another_file");
+      Set<String> fields = new HashSet<>(Arrays.asList("offset", "name"));
+      Set<String> allFields = new HashSet<>(Arrays.asList("offset", "name", "file_name"));
+
+      // full days only
+      Assert.assertEquals(fields, fieldLineageTable.getFields(destination, firstDay, firstDay + day));
+      Assert.assertEquals(allFields, fieldLineageTable.getFields(destination, firstDay, firstDay + 2 * day));
+      Assert.assertEquals(allFields, fieldLineageTable.getFields(destination, 0, Long.MAX_VALUE));
+      // partial days at the ends of the range
+      long secondRunTime = firstDay + day + TimeUnit.HOURS.toMillis(5);
+      Assert.assertEquals(Collections.EMPTY_SET,
+                          fieldLineageTable.getFields(destination, firstDay + day, secondRunTime));
+      Assert.assertEquals(allFields, fieldLineageTable.getFields(destination, firstDay + day, secondRunTime + 1));
+      Set<String> sourceFields = new HashSet<>(Arrays.asList("offset", "body"));
+      Set<String> allSourceFields = new HashSet<>(Arrays.asList("offset", "body", "file_name"));
+      Assert.assertEquals(sourceFields,
+                          fieldLineageTable.getFields(source, secondRunTime + 2, firstDay + 3 * day));
+      Assert.assertEquals(allSourceFields,
+                          fieldLineageTable.getFields(source, firstDay - 1, firstDay + 2 * day + 1));
+
+      Assert.assertEquals(Collections.singleton(new EndPointField(source, "file_name")),
+                          fieldLineageTable.getIncomingSummary(new EndPointField(destination, "file_name"),
+                                                               0, Long.MAX_VALUE));
+      Assert.assertEquals(Collections.EMPTY_SET,
+                          fieldLineageTable.getOutgoingSummary(new EndPointField(source, "file_name"),
+                                                               firstDay + 2 * day, Long.MAX_VALUE));
+
+      Set<ProgramRunOperations> expected = new HashSet<>();
+      expected.add(new ProgramRunOperations(new HashSet<>(Arrays.asList(programRun1, programRun3)),
+                                            info1.getOperations()));
+      expected.add(new ProgramRunOperations(Collections.singleton(programRun2), info2.getOperations()));
+      Assert.assertEquals(expected, fieldLineageTable.getIncomingOperations(destination, 0, Long.MAX_VALUE));
+    });
+  }
+
   private List<Operation> generateOperations(boolean addAditionalField) {
     // read: file -> (offset, body)
     // parse: (body) -> (first_name, last_name)
@@ -236,6 +236,25 @@ public class DatasetMetadataStorageTest extends MetadataStorageTest {
       new Drop(ns1app1), new Drop(ns1app2), new Drop(ns1app3), new Drop(ns2app1), new Drop(ns2app2)));
   }
 
+  @Test
+  public void testTopEntities() {
+    Map<MetadataEntity, Integer> scores = ImmutableMap.of(
+      MetadataEntity.ofDataset("ns1", "a"), 1,
+      MetadataEntity.ofDataset("ns1", "b"), 4,
+      MetadataEntity.ofDataset("ns1", "c"), 2,
+      MetadataEntity.ofDataset("ns1", "d"), 2,
+      MetadataEntity.ofDataset("ns1", "e"), 3);
+
+    Assert.assertEquals(ImmutableList.of(MetadataEntity.ofDataset("ns1", "b"), MetadataEntity.ofDataset("ns1", "e")),
+                        ImmutableList.copyOf(SearchHelper.getTopEntities(scores, 0, 2)));
+    // ties are ranked by entity
+    Assert.assertEquals(ImmutableList.of(MetadataEntity.ofDataset("ns1", "c"), MetadataEntity.ofDataset("ns1", "d"),
+                                         MetadataEntity.ofDataset("ns1", "a")),
+                        ImmutableList.copyOf(SearchHelper.getTopEntities(scores, 2, Integer.MAX_VALUE)));
+    Assert.assertEquals(Collections.emptySet(), SearchHelper.getTopEntities(scores, 5, 10));
+    Assert.assertEquals(Collections.emptySet(), SearchHelper.getTopEntities(scores, 0, 0));
+  }
+
   @Test
   public void testNsScopes() {
     // no namespace
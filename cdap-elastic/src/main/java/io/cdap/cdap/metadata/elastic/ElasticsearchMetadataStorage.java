@@ -369,7 +369,7 @@ public class ElasticsearchMetadataStorage implements MetadataStorage {
     if (mutations.size() == 1) {
       return Collections.singletonList(apply(mutations.get(0)));
     }
-    // first detect whether there are duplicate entity ids. If so, execute in sequence
+    // first detect whether there are duplicate entity ids. If so, execute in rounds
     Set<MetadataEntity> entities = new HashSet<>();
     LinkedHashMap<MetadataEntity, MetadataMutation> mutationMap = new LinkedHashMap<>(mutations.size());
     boolean duplicate = false;
@@ -381,12 +381,7 @@ public class ElasticsearchMetadataStorage implements MetadataStorage {
       mutationMap.put(mutation.getEntity(), mutation);
     }
     if (duplicate) {
-      // if there are multiple mutations for the same entity, execute all in sequence
-      List<MetadataChange> changes = new ArrayList<>(mutations.size());
-      for (MetadataMutation mutation : mutations) {
-        changes.add(apply(mutation));
-      }
-      return changes;
+      return batchInRounds(mutations);
     }
     // collect all changes in an order-preserving map. The first time doBatch() is called, it will
     // enter all entities in the map. Every time it is retried, the change may get updated, but that
@@ -402,6 +397,33 @@ public class ElasticsearchMetadataStorage implements MetadataStorage {
     }
   }
 
+  /**
+   * Applies a batch of mutations that contains multiple mutations for the same entity. The mutations are executed
+   * in rounds of bulk requests, where each round contains at most one mutation per entity. The mutations of each
+   * entity are executed in the order of the batch, but mutations of different entities may be reordered.
+   */
+  private List<MetadataChange> batchInRounds(List<? extends MetadataMutation> mutations) throws IOException {
+    // the positions in the batch of the mutations of each round
+    List<List<Integer>> rounds = new ArrayList<>();
+    Map<MetadataEntity, Integer> entityRounds = new HashMap<>();
+    for (int i = 0; i < mutations.size(); i++) {
+      int round = entityRounds.merge(mutations.get(i).getEntity(), 0, (previous, ignored) -> previous + 1);
+      if (round == rounds.size()) {
+        rounds.add(new ArrayList<>());
+      }
+      rounds.get(round).add(i);
+    }
+    MetadataChange[] changes = new MetadataChange[mutations.size()];
+    for (List<Integer> round : rounds) {
+      List<MetadataMutation> roundMutations = round.stream().map(mutations::get).collect(Collectors.toList());
+      List<MetadataChange> roundChanges = batch(roundMutations);
+      for (int i = 0; i < round.size(); i++) {
+        changes[round.get(i)] = roundChanges.get(i);
+      }
+    }
+    return Arrays.asList(changes);
+  }
+
   /**
    * For the given mutations, reads the current metadata for the involved entities, applies the mutations,
    * and attempts to execute the resulting index operations in bulk. When finished, returns the list of
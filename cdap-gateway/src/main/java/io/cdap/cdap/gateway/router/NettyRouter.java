@@ -17,10 +17,12 @@
 package io.cdap.cdap.gateway.router;
 
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
+import io.cdap.cdap.api.metrics.MetricsCollectionService;
 import io.cdap.cdap.common.ServiceBindException;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
@@ -29,6 +31,8 @@ import io.cdap.cdap.gateway.router.handlers.AuditLogHandler;
 import io.cdap.cdap.gateway.router.handlers.AuthenticationHandler;
 import io.cdap.cdap.gateway.router.handlers.HttpRequestRouter;
 import io.cdap.cdap.gateway.router.handlers.HttpStatusRequestHandler;
+import io.cdap.cdap.gateway.router.handlers.UpstreamConnectionPool;
+import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.security.auth.AccessTokenTransformer;
 import io.cdap.cdap.security.auth.TokenValidator;
 import io.cdap.http.SSLConfig;
@@ -83,6 +87,7 @@ public class NettyRouter extends AbstractIdleService {
   private final CConfiguration cConf;
   private final boolean sslEnabled;
   private final SSLHandlerFactory sslHandlerFactory;
+  private final UpstreamConnectionPool connectionPool;
   private InetSocketAddress boundAddress;
 
   private DiscoveryServiceClient discoveryServiceClient;
@@ -104,6 +109,7 @@ public class NettyRouter extends AbstractIdleService {
     this.accessTokenTransformer = accessTokenTransformer;
     this.discoveryServiceClient = discoveryServiceClient;
     this.sslEnabled = cConf.getBoolean(Constants.Security.SSL.EXTERNAL_ENABLED);
+    this.connectionPool = new UpstreamConnectionPool(cConf);
     if (sslEnabled) {
       this.port = cConf.getInt(Constants.Router.ROUTER_SSL_PORT);
       File keystore;
@@ -125,6 +131,17 @@ public class NettyRouter extends AbstractIdleService {
     }
   }
 
+  /**
+   * Optional guice injection for the {@link MetricsCollectionService} used for emitting the upstream connection
+   * pool metrics. It is optional because the router doesn't always run with metrics collection.
+   */
+  @Inject(optional = true)
+  public void setMetricsCollectionService(MetricsCollectionService metricsCollectionService) {
+    connectionPool.setMetricsContext(metricsCollectionService.getContext(ImmutableMap.of(
+      Constants.Metrics.Tag.NAMESPACE, NamespaceId.SYSTEM.getNamespace(),
+      Constants.Metrics.Tag.COMPONENT, Constants.Service.GATEWAY)));
+  }
+
   /**
    * Returns an {@link Optional} {@link InetSocketAddress} that this router is bound to. If the router is not
    * running, an empty {@link Optional} will be returned.
@@ -148,6 +165,9 @@ public class NettyRouter extends AbstractIdleService {
     serverCancellable.cancel();
     tokenValidator.stopAndWait();
 
+    LOG.debug("Upstream connection pool served {} requests from pooled connections and made {} new connections.",
+              connectionPool.getHitCount(), connectionPool.getMissCount());
+
     LOG.info("Stopped Netty Router.");
   }
 
@@ -195,7 +215,7 @@ public class NettyRouter extends AbstractIdleService {
           // Always let the client to continue sending the request body after the authentication passed
           pipeline.addLast("expect-continue", new HttpServerExpectContinueHandler());
           // for now there's only one hardcoded rule, but if there will be more, we may want it generic and configurable
-          pipeline.addLast("http-request-handler", new HttpRequestRouter(cConf, serviceLookup));
+          pipeline.addLast("http-request-handler", new HttpRequestRouter(serviceLookup, connectionPool));
         }
       });
   }
@@ -0,0 +1,230 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.gateway.router;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.netty.handler.codec.http.HttpMethod;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * An immutable table of path routing rules, compiled into two tries of path segments, one matched from the
+ * beginning and one from the end of the path. Rules are matched in the order they were added to the {@link Builder},
+ * such that the lookup returns the value of the first rule that matches the path, the same as evaluating the rules
+ * one by one, but with a single walk over the path segments.
+ *
+ * @param <T> type of the value associated with each rule
+ */
+final class RouteTable<T> {
+
+  private final Node<T> prefixRoot;
+  private final Node<T> suffixRoot;
+
+  static <T> Builder<T> builder() {
+    return new Builder<>();
+  }
+
+  private RouteTable(Node<T> prefixRoot, Node<T> suffixRoot) {
+    this.prefixRoot = prefixRoot;
+    this.suffixRoot = suffixRoot;
+  }
+
+  /**
+   * Returns the value of the first rule that matches the given path segments and request method.
+   *
+   * @param segments the segments of the request path
+   * @param method the request method
+   * @return the value of the matching rule or {@code null} if no rule matches
+   */
+  @Nullable
+  T lookup(String[] segments, HttpMethod method) {
+    Rule<T> rule = find(prefixRoot, segments, 0, false, method, null);
+    rule = find(suffixRoot, segments, 0, true, method, rule);
+    return rule == null ? null : rule.value;
+  }
+
+  @Nullable
+  private Rule<T> find(Node<T> node, String[] segments, int depth, boolean fromEnd,
+                       HttpMethod method, @Nullable Rule<T> best) {
+    // Nothing under this node can be better than what has already been found
+    if (best != null && best.priority < node.minPriority) {
+      return best;
+    }
+
+    // Rules of a node are sorted by priority, hence the first match is the best one of the node
+    for (int i = 0; i < node.rules.size(); i++) {
+      Rule<T> rule = node.rules.get(i);
+      if (best != null && best.priority < rule.priority) {
+        break;
+      }
+      if ((!rule.exact || depth == segments.length) && (rule.method == null || rule.method.equals(method))) {
+        best = rule;
+        break;
+      }
+    }
+
+    if (depth == segments.length) {
+      return best;
+    }
+
+    Node<T> child = node.children.get(segments[fromEnd ? segments.length - depth - 1 : depth]);
+    if (child != null) {
+      best = find(child, segments, depth + 1, fromEnd, method, best);
+    }
+    if (node.wildcard != null) {
+      best = find(node.wildcard, segments, depth + 1, fromEnd, method, best);
+    }
+    return best;
+  }
+
+  /**
+   * Builder for {@link RouteTable}. In all patterns, a {@code null} segment matches any path segment.
+   *
+   * @param <T> type of the value associated with each rule
+   */
+  static final class Builder<T> {
+
+    private final MutableNode<T> prefixRoot = new MutableNode<>();
+    private final MutableNode<T> suffixRoot = new MutableNode<>();
+    private int priority;
+
+    private Builder() {
+    }
+
+    /**
+     * Adds a rule that matches paths that begin with the given segments.
+     */
+    Builder<T> addPrefix(T value, String... segments) {
+      return add(prefixRoot, false, null, value, segments);
+    }
+
+    /**
+     * Adds a rule that matches requests of the given method with paths that begin with the given segments.
+     */
+    Builder<T> addPrefix(HttpMethod method, T value, String... segments) {
+      return add(prefixRoot, false, method, value, segments);
+    }
+
+    /**
+     * Adds a rule that matches paths that consist of exactly the given segments.
+     */
+    Builder<T> addExact(T value, String... segments) {
+      return add(prefixRoot, true, null, value, segments);
+    }
+
+    /**
+     * Adds a rule that matches paths that end with the given segments.
+     */
+    Builder<T> addSuffix(T value, String... segments) {
+      String[] reversed = new String[segments.length];
+      for (int i = 0; i < segments.length; i++) {
+        reversed[i] = segments[segments.length - i - 1];
+      }
+      return add(suffixRoot, false, null, value, reversed);
+    }
+
+    RouteTable<T> build() {
+      return new RouteTable<>(prefixRoot.toNode(), suffixRoot.toNode());
+    }
+
+    private Builder<T> add(MutableNode<T> root, boolean exact, @Nullable HttpMethod method,
+                           T value, String[] segments) {
+      MutableNode<T> node = root;
+      for (String segment : segments) {
+        node = node.getChild(segment);
+      }
+      node.rules.add(new Rule<>(priority++, exact, method, value));
+      return this;
+    }
+  }
+
+  /**
+   * A routing rule that terminates at a trie node.
+   */
+  private static final class Rule<T> {
+    private final int priority;
+    private final boolean exact;
+    private final HttpMethod method;
+    private final T value;
+
+    private Rule(int priority, boolean exact, @Nullable HttpMethod method, T value) {
+      this.priority = priority;
+      this.exact = exact;
+      this.method = method;
+      this.value = value;
+    }
+  }
+
+  /**
+   * An immutable trie node.
+   */
+  private static final class Node<T> {
+    private final Map<String, Node<T>> children;
+    private final Node<T> wildcard;
+    private final List<Rule<T>> rules;
+    // The smallest priority of all rules in the subtree rooted at this node
+    private final int minPriority;
+
+    private Node(Map<String, Node<T>> children, @Nullable Node<T> wildcard, List<Rule<T>> rules) {
+      this.children = children;
+      this.wildcard = wildcard;
+      this.rules = rules;
+
+      int min = rules.isEmpty() ? Integer.MAX_VALUE : rules.get(0).priority;
+      for (Node<T> child : children.values()) {
+        min = Math.min(min, child.minPriority);
+      }
+      if (wildcard != null) {
+        min = Math.min(min, wildcard.minPriority);
+      }
+      this.minPriority = min;
+    }
+  }
+
+  /**
+   * A trie node used while building the table.
+   */
+  private static final class MutableNode<T> {
+    private final Map<String, MutableNode<T>> children = new HashMap<>();
+    private final List<Rule<T>> rules = new ArrayList<>();
+    private MutableNode<T> wildcard;
+
+    private MutableNode<T> getChild(@Nullable String segment) {
+      if (segment == null) {
+        if (wildcard == null) {
+          wildcard = new MutableNode<>();
+        }
+        return wildcard;
+      }
+      return children.computeIfAbsent(segment, k -> new MutableNode<>());
+    }
+
+    private Node<T> toNode() {
+      ImmutableMap.Builder<String, Node<T>> nodes = ImmutableMap.builder();
+      for (Map.Entry<String, MutableNode<T>> entry : children.entrySet()) {
+        nodes.put(entry.getKey(), entry.getValue().toNode());
+      }
+      // Rules are added with increasing priority, hence the list is already sorted
+      return new Node<>(nodes.build(), wildcard == null ? null : wildcard.toNode(), ImmutableList.copyOf(rules));
+    }
+  }
+}
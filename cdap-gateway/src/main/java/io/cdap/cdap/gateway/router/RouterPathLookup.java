@@ -16,14 +16,16 @@
 
 package io.cdap.cdap.gateway.router;
 
-import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.service.ServiceDiscoverable;
 import io.cdap.cdap.proto.ProgramType;
 import io.cdap.http.AbstractHttpHandler;
+import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpRequest;
 import org.apache.commons.lang.StringUtils;
 
+import java.util.Set;
 import javax.annotation.Nullable;
 
 /**
@@ -31,11 +33,6 @@ import javax.annotation.Nullable;
  */
 public final class RouterPathLookup extends AbstractHttpHandler {
 
-  @SuppressWarnings("unused")
-  private enum AllowedMethod {
-    GET, PUT, POST, DELETE
-  }
-
   public static final RouteDestination APP_FABRIC_HTTP = new RouteDestination(Constants.Service.APP_FABRIC_HTTP);
   public static final RouteDestination METRICS = new RouteDestination(Constants.Service.METRICS);
   public static final RouteDestination DATASET_MANAGER = new RouteDestination(Constants.Service.DATASET_MANAGER);
@@ -51,6 +48,10 @@ public final class RouterPathLookup extends AbstractHttpHandler {
   public static final RouteDestination MESSAGING = new RouteDestination(Constants.Service.MESSAGING_SERVICE);
   public static final RouteDestination DONT_ROUTE = new RouteDestination(Constants.Router.DONT_ROUTE_SERVICE);
 
+  private static final Set<HttpMethod> ALLOWED_METHODS = ImmutableSet.of(HttpMethod.GET, HttpMethod.PUT,
+                                                                         HttpMethod.POST, HttpMethod.DELETE);
+  private static final RouteTable<Route> V3_ROUTES = createV3Routes();
+
   /**
    * Returns the CDAP service which will handle the HttpRequest
    *
@@ -60,203 +61,161 @@ public final class RouterPathLookup extends AbstractHttpHandler {
    */
   @Nullable
   public RouteDestination getRoutingService(String requestPath, HttpRequest httpRequest) {
+    HttpMethod method = httpRequest.method();
+    if (!ALLOWED_METHODS.contains(method)) {
+      return APP_FABRIC_HTTP;
+    }
+    String[] uriParts = StringUtils.split(requestPath, '/');
+    if (uriParts.length < 2 || !uriParts[0].equals(Constants.Gateway.API_VERSION_3_TOKEN)) {
+      return APP_FABRIC_HTTP;
+    }
+    Route route = V3_ROUTES.lookup(uriParts, method);
+    if (route == null) {
+      return APP_FABRIC_HTTP;
+    }
     try {
-      String method = httpRequest.method().name();
-      AllowedMethod requestMethod = AllowedMethod.valueOf(method);
-      String[] uriParts = StringUtils.split(requestPath, '/');
-
-      if (uriParts[0].equals(Constants.Gateway.API_VERSION_3_TOKEN)) {
-        return getV3RoutingService(uriParts, requestMethod);
-      }
+      return route.getDestination(uriParts);
     } catch (Exception e) {
       // Ignore exception. Default routing to app-fabric.
+      return APP_FABRIC_HTTP;
     }
-    return APP_FABRIC_HTTP;
   }
 
-  private boolean isUserServiceType(String uriPart) {
-    for (ProgramType type : ServiceDiscoverable.getUserServiceTypes()) {
-      if (type.getCategoryName().equals(uriPart)) {
-        return true;
-      }
-    }
-    return false;
-  }
+  /**
+   * Creates the routing rules for v3 paths. Rules are matched in the order they are added, and paths that don't
+   * match any rule are routed to app-fabric.
+   */
+  private static RouteTable<Route> createV3Routes() {
+    String v3 = Constants.Gateway.API_VERSION_3_TOKEN;
+    RouteTable.Builder<Route> builder = RouteTable.builder();
 
-  @Nullable
-  private RouteDestination getV3RoutingService(String [] uriParts, AllowedMethod requestMethod) {
-    if ((uriParts.length >= 2) && uriParts[1].equals("feeds")) {
-      // TODO(Rohit) find a better way to handle that - this looks hackish
-      // This needs to now changed especially metadata since now it can have custom parts
-      return null;
-    } else if ("bootstrap".equals(uriParts[1])) {
-      return APP_FABRIC_HTTP;
-    } else if ((uriParts.length >= 11) && "versions".equals(uriParts[5]) && isUserServiceType(uriParts[7])
-      && "methods".equals(uriParts[9])) {
+    // TODO(Rohit) find a better way to handle that - this looks hackish
+    // This needs to now changed especially metadata since now it can have custom parts
+    builder.addPrefix(uriParts -> null, v3, "feeds");
+    builder.addPrefix(fixed(APP_FABRIC_HTTP), v3, "bootstrap");
+
+    for (ProgramType type : ServiceDiscoverable.getUserServiceTypes()) {
       // User defined services (version specific) handle methods on them:
-      //Path: "/v3/namespaces/{namespace-id}/apps/{app-id}/versions/{version-id}/services/{service-id}/methods/
+      // Path: "/v3/namespaces/{namespace-id}/apps/{app-id}/versions/{version-id}/services/{service-id}/methods/
       //       <user-defined-method-path>"
-      String serviceName = ServiceDiscoverable.getName(uriParts[2], uriParts[4],
-                                                       ProgramType.valueOfCategoryName(uriParts[7]), uriParts[8]);
-      String version = uriParts[6];
-      return new RouteDestination(serviceName, version);
-    } else if ((uriParts.length >= 9) && isUserServiceType(uriParts[5]) && "methods".equals(uriParts[7])) {
-      //User defined services handle methods on them:
-      //Path: "/v3/namespaces/{namespace-id}/apps/{app-id}/services/{service-id}/methods/<user-defined-method-path>"
-      return new RouteDestination(ServiceDiscoverable.getName(uriParts[2], uriParts[4],
-                                                              ProgramType.valueOfCategoryName(uriParts[5]),
-                                                              uriParts[6]));
-    } else if (beginsWith(uriParts, "v3", "system", "services", null, "logs")) {
-      //Log Handler Path /v3/system/services/<service-id>/logs
-      return LOG_QUERY;
-    } else if ((!beginsWith(uriParts, "v3", "namespaces", null, "securekeys")) && (endsWith(uriParts, "metadata") ||
-      // do no intercept the namespaces/<namespace-name>/securekeys/<key>/metadata as that is handled by the
-      // SecureStoreHandler
-      endsWith(uriParts, "metadata", "properties") || endsWith(uriParts, "metadata", "properties", null) ||
-      endsWith(uriParts, "metadata", "tags") || endsWith(uriParts, "metadata", "tags", null) ||
-      endsWith(uriParts, "metadata", "search") ||
-      beginsWith(uriParts, "v3", "namespaces", null, "datasets", null, "lineage") ||
-      beginsWith(uriParts, "v3", "metadata", "search"))) {
-      return METADATA_SERVICE;
-    } else if (beginsWith(uriParts, "v3", "security", "authorization") ||
-      beginsWith(uriParts, "v3", "namespaces", null, "securekeys")) {
-      // Authorization and Secure Store Handlers currently run in App Fabric
-      return APP_FABRIC_HTTP;
-    } else if (beginsWith(uriParts, "v3", "security", "store", "namespaces", null)) {
-      return APP_FABRIC_HTTP;
-    } else if (beginsWith(uriParts, "v3", "namespaces", null, "data", "datasets", null, "programs") &&
-      requestMethod.equals(AllowedMethod.GET)) {
-      return APP_FABRIC_HTTP;
-    } else if (beginsWith(uriParts, "v3", "namespaces", null, "profiles") ||
-      beginsWith(uriParts, "v3", "profiles")) {
-      return APP_FABRIC_HTTP;
-    } else if (beginsWith(uriParts, "v3", "namespaces", null, "runs")) {
-      return APP_FABRIC_HTTP;
-    } else if (beginsWith(uriParts, "v3", "namespaces", null, "previews")) {
-      return PREVIEW_HTTP;
-    } else if (beginsWith(uriParts, "v3", "system", "serviceproviders")) {
-      return APP_FABRIC_HTTP;
-    } else if ((uriParts.length >= 8 && uriParts[7].equals("logs")) ||
-      (uriParts.length >= 10 && uriParts[9].equals("logs")) ||
-      (uriParts.length >= 6 && uriParts[5].equals("logs"))) {
-      //Log Handler Paths:
-      // /v3/namespaces/<namespaceid>/apps/<appid>/<programid-type>/<programid>/logs
-      // /v3/namespaces/{namespace-id}/apps/{app-id}/{program-type}/{program-id}/runs/{run-id}/logs
-      return LOG_QUERY;
-    } else if (uriParts.length >= 2 && uriParts[1].equals("metrics")) {
-      //Metrics Search Handler Path /v3/metrics
-      return METRICS;
-    } else if (uriParts.length >= 5 && uriParts[1].equals("data") && uriParts[2].equals("explore") &&
-      (uriParts[3].equals("queries") || uriParts[3].equals("jdbc") || uriParts[3].equals("namespaces"))) {
-      // non-namespaced explore operations. For example, /v3/data/explore/queries/{id}
-      return EXPLORE_HTTP_USER_SERVICE;
-    } else if (uriParts.length >= 6 && uriParts[3].equals("data") && uriParts[4].equals("explore") &&
-      (uriParts[5].equals("queries") || uriParts[5].equals("datasets")
-        || uriParts[5].equals("tables") || uriParts[5].equals("jdbc"))) {
-      // namespaced explore operations. For example, /v3/namespaces/{namespace-id}/data/explore/datasets/{ds}/enable
-      return EXPLORE_HTTP_USER_SERVICE;
-    } else if ((uriParts.length == 3) && uriParts[1].equals("explore") && uriParts[2].equals("status")) {
-      return EXPLORE_HTTP_USER_SERVICE;
-    } else if (beginsWith(uriParts, "v3", "system", "services", null, "status")
-      || beginsWith(uriParts, "v3", "system", "services", null, "stacks")) {
-      switch (uriParts[3]) {
-        case Constants.Service.LOGSAVER: return LOG_SAVER;
-        case Constants.Service.TRANSACTION: return TRANSACTION;
-        case Constants.Service.METRICS_PROCESSOR: return METRICS_PROCESSOR;
-        case Constants.Service.METRICS: return METRICS;
-        case Constants.Service.APP_FABRIC_HTTP: return APP_FABRIC_HTTP;
-        case Constants.Service.DATASET_EXECUTOR: return DATASET_EXECUTOR;
-        case Constants.Service.METADATA_SERVICE: return METADATA_SERVICE;
-        case Constants.Service.EXPLORE_HTTP_USER_SERVICE: return EXPLORE_HTTP_USER_SERVICE;
-        case Constants.Service.MESSAGING_SERVICE: return MESSAGING;
-        default: return null;
-      }
-    } else if (uriParts.length == 7 && uriParts[3].equals("data") && uriParts[4].equals("datasets") &&
-      (uriParts[6].equals("flows") || uriParts[6].equals("workers") || uriParts[6].equals("mapreduce"))) {
-      // namespaced app fabric data operations:
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/flows
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/workers
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/mapreduce
-      return APP_FABRIC_HTTP;
-    } else if ((uriParts.length >= 4) && uriParts[3].equals("data")) {
-      // other data operations. For example:
-      // /v3/namespaces/{namespace-id}/data/datasets
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/properties
-      // /v3/namespaces/{namespace-id}/data/datasets/{name}/admin/{method}
-      return DATASET_MANAGER;
-    } else if ((uriParts.length >= 4) && uriParts[3].equals("artifact-internals")) {
-      // we don't want to expose endpoints in artifact handler that are internal and can only by called by programs
-      // /v3/namespaces/{namespace-id}/artifact-internals/list/artifacts
-      // /v3/namespaces/{namespace-id}/artifact-internals/artifact/{artifact-name}
-      return DONT_ROUTE;
+      builder.addPrefix(uriParts -> new RouteDestination(ServiceDiscoverable.getName(uriParts[2], uriParts[4], type,
+                                                                                     uriParts[8]), uriParts[6]),
+                        v3, null, null, null, null, "versions", null, type.getCategoryName(), null, "methods", null);
+    }
+    for (ProgramType type : ServiceDiscoverable.getUserServiceTypes()) {
+      // User defined services handle methods on them:
+      // Path: "/v3/namespaces/{namespace-id}/apps/{app-id}/services/{service-id}/methods/<user-defined-method-path>"
+      builder.addPrefix(uriParts -> new RouteDestination(ServiceDiscoverable.getName(uriParts[2], uriParts[4], type,
+                                                                                     uriParts[6])),
+                        v3, null, null, null, null, type.getCategoryName(), null, "methods", null);
+    }
+
+    // Log Handler Path /v3/system/services/<service-id>/logs
+    builder.addPrefix(fixed(LOG_QUERY), v3, "system", "services", null, "logs");
+
+    // Secure Store Handlers currently run in App Fabric. This rule needs to come before the metadata rules,
+    // such that namespaces/<namespace-name>/securekeys/<key>/metadata is handled by the SecureStoreHandler.
+    builder.addPrefix(fixed(APP_FABRIC_HTTP), v3, "namespaces", null, "securekeys");
+
+    builder.addSuffix(fixed(METADATA_SERVICE), "metadata");
+    builder.addSuffix(fixed(METADATA_SERVICE), "metadata", "properties");
+    builder.addSuffix(fixed(METADATA_SERVICE), "metadata", "properties", null);
+    builder.addSuffix(fixed(METADATA_SERVICE), "metadata", "tags");
+    builder.addSuffix(fixed(METADATA_SERVICE), "metadata", "tags", null);
+    builder.addSuffix(fixed(METADATA_SERVICE), "metadata", "search");
+    builder.addPrefix(fixed(METADATA_SERVICE), v3, "namespaces", null, "datasets", null, "lineage");
+    builder.addPrefix(fixed(METADATA_SERVICE), v3, "metadata", "search");
+
+    // Authorization Handlers currently run in App Fabric
+    builder.addPrefix(fixed(APP_FABRIC_HTTP), v3, "security", "authorization");
+    builder.addPrefix(fixed(APP_FABRIC_HTTP), v3, "security", "store", "namespaces", null);
+    builder.addPrefix(HttpMethod.GET, fixed(APP_FABRIC_HTTP), v3, "namespaces", null, "data", "datasets", null,
+                      "programs");
+    builder.addPrefix(fixed(APP_FABRIC_HTTP), v3, "namespaces", null, "profiles");
+    builder.addPrefix(fixed(APP_FABRIC_HTTP), v3, "profiles");
+    builder.addPrefix(fixed(APP_FABRIC_HTTP), v3, "namespaces", null, "runs");
+    builder.addPrefix(fixed(PREVIEW_HTTP), v3, "namespaces", null, "previews");
+    builder.addPrefix(fixed(APP_FABRIC_HTTP), v3, "system", "serviceproviders");
+
+    // Log Handler Paths:
+    // /v3/namespaces/<namespaceid>/apps/<appid>/<programid-type>/<programid>/logs
+    // /v3/namespaces/{namespace-id}/apps/{app-id}/{program-type}/{program-id}/runs/{run-id}/logs
+    builder.addPrefix(fixed(LOG_QUERY), v3, null, null, null, null, null, null, "logs");
+    builder.addPrefix(fixed(LOG_QUERY), v3, null, null, null, null, null, null, null, null, "logs");
+    builder.addPrefix(fixed(LOG_QUERY), v3, null, null, null, null, "logs");
+
+    // Metrics Search Handler Path /v3/metrics
+    builder.addPrefix(fixed(METRICS), v3, "metrics");
+
+    // non-namespaced explore operations. For example, /v3/data/explore/queries/{id}
+    for (String part : new String[] { "queries", "jdbc", "namespaces" }) {
+      builder.addPrefix(fixed(EXPLORE_HTTP_USER_SERVICE), v3, "data", "explore", part, null);
+    }
+    // namespaced explore operations. For example, /v3/namespaces/{namespace-id}/data/explore/datasets/{ds}/enable
+    for (String part : new String[] { "queries", "datasets", "tables", "jdbc" }) {
+      builder.addPrefix(fixed(EXPLORE_HTTP_USER_SERVICE), v3, null, null, "data", "explore", part);
     }
-    return APP_FABRIC_HTTP;
+    builder.addExact(fixed(EXPLORE_HTTP_USER_SERVICE), v3, "explore", "status");
+
+    for (String part : new String[] { "status", "stacks" }) {
+      builder.addPrefix(RouterPathLookup::getSystemServiceDestination, v3, "system", "services", null, part);
+    }
+
+    // namespaced app fabric data operations:
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/flows
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/workers
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/mapreduce
+    for (String part : new String[] { "flows", "workers", "mapreduce" }) {
+      builder.addExact(fixed(APP_FABRIC_HTTP), v3, null, null, "data", "datasets", null, part);
+    }
+
+    // other data operations. For example:
+    // /v3/namespaces/{namespace-id}/data/datasets
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/properties
+    // /v3/namespaces/{namespace-id}/data/datasets/{name}/admin/{method}
+    builder.addPrefix(fixed(DATASET_MANAGER), v3, null, null, "data");
+
+    // we don't want to expose endpoints in artifact handler that are internal and can only by called by programs
+    // /v3/namespaces/{namespace-id}/artifact-internals/list/artifacts
+    // /v3/namespaces/{namespace-id}/artifact-internals/artifact/{artifact-name}
+    builder.addPrefix(fixed(DONT_ROUTE), v3, null, null, "artifact-internals");
+
+    return builder.build();
   }
 
   /**
-   * Determines if the beginning of an array of strings matches an expected sequence of strings.
-   *
-   * <ul><li>
-   *   the actual sequence may be longer than the expected one as long as its beginning matches;
-   * </li><li>
-   *   a null in the expected sequence means "accept any string" in that position.
-   * </li></ul>
-   *
-   * @param actual the actual string array to check; must not contain nulls.
-   * @param expected the expected string array to match; may contain nulls as wildcards.
-   *                 
-   * @return true if the start of {@code actual} matches {@code expected}
+   * Returns the destination for /v3/system/services/{service-id}/status and /v3/system/services/{service-id}/stacks.
    */
-  @VisibleForTesting
-  static boolean beginsWith(String[] actual, String ... expected) {
-    return matches(actual, expected, false);
+  @Nullable
+  private static RouteDestination getSystemServiceDestination(String[] uriParts) {
+    switch (uriParts[3]) {
+      case Constants.Service.LOGSAVER: return LOG_SAVER;
+      case Constants.Service.TRANSACTION: return TRANSACTION;
+      case Constants.Service.METRICS_PROCESSOR: return METRICS_PROCESSOR;
+      case Constants.Service.METRICS: return METRICS;
+      case Constants.Service.APP_FABRIC_HTTP: return APP_FABRIC_HTTP;
+      case Constants.Service.DATASET_EXECUTOR: return DATASET_EXECUTOR;
+      case Constants.Service.METADATA_SERVICE: return METADATA_SERVICE;
+      case Constants.Service.EXPLORE_HTTP_USER_SERVICE: return EXPLORE_HTTP_USER_SERVICE;
+      case Constants.Service.MESSAGING_SERVICE: return MESSAGING;
+      default: return null;
+    }
   }
 
-  /**
-   * Determines if the end of an array of strings matches an expected sequence of strings.
-   *
-   * <ul><li>
-   *   the actual sequence may be longer than the expected one as long as its end matches;
-   * </li><li>
-   *   a null in the expected sequence means "accept any string" in that position.
-   * </li></ul>
-   *
-   * @param actual the actual string array to check; must not contain nulls.
-   * @param expected the expected string array to match; may contain nulls as wildcards.
-   *
-   * @return true if the end of {@code actual} matches {@code expected}
-   */
-  @VisibleForTesting
-  static boolean endsWith(String[] actual, String ... expected) {
-    return matches(actual, expected, true);
+  private static Route fixed(RouteDestination destination) {
+    return uriParts -> destination;
   }
 
   /**
-   * Determines if the begin or end of an array of strings matches an expected sequence of strings.
-   *
-   * <ul><li>
-   *   the actual sequence may be longer than the expected one as long as its begin or end matches;
-   * </li><li>
-   *   a null in the expected sequence means "accept any string" in that position.
-   * </li></ul>
-   *
-   * @param actual the actual string array to check; must not contain nulls.
-   * @param expected the expected string array to match; may contain nulls as wildcards.
-   * @param matchEnd whether to match the end of the actual sequence
-   *
-   * @return true if the end of {@code actual} matches {@code expected}
+   * Computes the destination of a request path that matches a routing rule.
    */
-  private static boolean matches(String[] actual, String[] expected, boolean matchEnd) {
-    if (actual.length < expected.length) {
-      return false;
-    }
-    int offset = matchEnd ? actual.length - expected.length : 0;
-    for (int i = 0; i < expected.length; i++) {
-      if (expected[i] != null && !expected[i].equals(actual[offset + i])) {
-        return false;
-      }
-    }
-    return true;
+  private interface Route {
+
+    /**
+     * Returns the destination for the given path segments, or {@code null} if the request should not be routed.
+     */
+    @Nullable
+    RouteDestination getDestination(String[] uriParts);
   }
 }
@@ -24,7 +24,7 @@ import com.google.inject.Inject;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.discovery.EndpointStrategy;
-import io.cdap.cdap.common.discovery.RandomEndpointStrategy;
+import io.cdap.cdap.common.discovery.LatencyAwareEndpointStrategy;
 import io.cdap.cdap.common.service.ServiceDiscoverable;
 import io.cdap.cdap.gateway.discovery.VersionFilteredServiceDiscovered;
 import io.netty.handler.codec.http.HttpRequest;
@@ -97,12 +97,12 @@ public class RouterServiceLookup {
 
       // If the request is from the versioned endpoint, filter the discoverables by the version
       if (version != null) {
-        return new RandomEndpointStrategy(
+        return new LatencyAwareEndpointStrategy(
           () -> new VersionFilteredServiceDiscovered(discoveryServiceClient.discover(serviceName), version));
       }
     }
 
-    // For all other cases, use the random strategy
-    return new RandomEndpointStrategy(() -> discoveryServiceClient.discover(serviceName));
+    // For all other cases, pick based on the latency and the number of in-flight requests
+    return new LatencyAwareEndpointStrategy(() -> discoveryServiceClient.discover(serviceName));
   }
 }
@@ -16,40 +16,30 @@
 
 package io.cdap.cdap.gateway.router.handlers;
 
+import com.google.common.collect.ImmutableSet;
 import io.cdap.cdap.common.HandlerException;
-import io.cdap.cdap.common.conf.CConfiguration;
-import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.discovery.EndpointStrategy;
+import io.cdap.cdap.common.discovery.LatencyAwareEndpointStrategy;
 import io.cdap.cdap.common.http.Channels;
 import io.cdap.cdap.gateway.router.RouterServiceLookup;
-import io.netty.bootstrap.Bootstrap;
-import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandler;
-import io.netty.channel.ChannelInitializer;
-import io.netty.channel.ChannelOption;
-import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
-import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.LastHttpContent;
-import io.netty.handler.ssl.SslContext;
-import io.netty.handler.ssl.SslContextBuilder;
-import io.netty.handler.ssl.SslHandler;
-import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
-import io.netty.handler.timeout.IdleStateHandler;
 import io.netty.util.ReferenceCountUtil;
 import org.apache.twill.discovery.Discoverable;
 import org.slf4j.Logger;
@@ -57,16 +47,15 @@ import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.Flushable;
+import java.net.InetSocketAddress;
 import java.nio.channels.ClosedChannelException;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import javax.annotation.Nullable;
-import javax.net.ssl.SSLException;
 
 /**
  * A {@link ChannelInboundHandler} for forwarding incoming request to appropriate CDAP service endpoint
@@ -76,18 +65,19 @@ import javax.net.ssl.SSLException;
 public class HttpRequestRouter extends ChannelDuplexHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(HttpRequestRouter.class);
-  private static final byte[] HTTPS_SCHEME_BYTES = Constants.Security.SSL_URI_SCHEME.getBytes();
 
-  private final CConfiguration cConf;
   private final RouterServiceLookup serviceLookup;
+  private final UpstreamConnectionPool connectionPool;
   private final Map<Discoverable, Queue<MessageSender>> messageSenders;
   private int inflightRequests;
   private MessageSender currentMessageSender;
+  private LatencyAwareEndpointStrategy.Request currentEndpointRequest;
+  private boolean currentEndpointUnavailable;
   private ChannelFutureListener failureResponseListener;
 
-  public HttpRequestRouter(CConfiguration cConf, RouterServiceLookup serviceLookup) {
-    this.cConf = cConf;
+  public HttpRequestRouter(RouterServiceLookup serviceLookup, UpstreamConnectionPool connectionPool) {
     this.serviceLookup = serviceLookup;
+    this.connectionPool = connectionPool;
     this.messageSenders = new HashMap<>();
   }
 
@@ -154,17 +144,22 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
 
   @Override
   public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+    if (msg instanceof HttpResponse) {
+      currentEndpointUnavailable = HttpResponseStatus.SERVICE_UNAVAILABLE.equals(((HttpResponse) msg).status());
+    }
     ctx.writeAndFlush(msg, promise);
 
     // When the response for the first request is completed, write N failure responses for pipelining requests (if any).
     if (msg instanceof LastHttpContent) {
+      completeEndpointRequest(!currentEndpointUnavailable);
       for (int i = 0; i < inflightRequests - 1; i++) {
         ctx.writeAndFlush(createPipeliningNotSupported());
       }
       inflightRequests = 0;
 
-      // Recycle the message sender
+      // Recycle the message sender, and return the outbound connection to the pool if it can be reused
       if (currentMessageSender != null) {
+        currentMessageSender.release();
         messageSenders.get(currentMessageSender.getDiscoverable()).add(currentMessageSender);
       }
     }
@@ -172,6 +167,7 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
 
   @Override
   public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+    completeEndpointRequest(false);
     HttpResponse response = cause instanceof HandlerException
       ? ((HandlerException) cause).createFailureResponse()
       : createErrorResponse(cause);
@@ -181,6 +177,8 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
 
   @Override
   public void channelInactive(ChannelHandlerContext ctx) {
+    // The client went away before the response was completed, which doesn't tell anything about the endpoint
+    completeEndpointRequest(true);
     if (currentMessageSender != null) {
       currentMessageSender.close();
     }
@@ -198,6 +196,7 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
         @Override
         public void operationComplete(ChannelFuture future) {
           if (!future.isSuccess()) {
+            completeEndpointRequest(false);
             HttpResponse response = createErrorResponse(future.cause());
             HttpUtil.setKeepAlive(response, false);
             inboundChannel.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
@@ -221,6 +220,7 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
     // immediately.
     Discoverable discoverable = strategy.pick();
     if (discoverable != null) {
+      startEndpointRequest(strategy, discoverable);
       return discoverable;
     }
 
@@ -231,9 +231,36 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
       throw new HandlerException(HttpResponseStatus.SERVICE_UNAVAILABLE,
                                  "No discoverable found for request " + getRequestLine(httpRequest));
     }
+    startEndpointRequest(strategy, discoverable);
     return discoverable;
   }
 
+  /**
+   * Starts tracking the request to the given endpoint if the strategy picks endpoints based on their latency.
+   */
+  private void startEndpointRequest(EndpointStrategy strategy, Discoverable discoverable) {
+    completeEndpointRequest(true);
+    if (strategy instanceof LatencyAwareEndpointStrategy) {
+      // Use the host string, which is how the strategy identifies endpoints and doesn't do a reverse DNS lookup
+      InetSocketAddress address = discoverable.getSocketAddress();
+      currentEndpointRequest = ((LatencyAwareEndpointStrategy) strategy).startRequest(address.getHostString(),
+                                                                                     address.getPort());
+    }
+  }
+
+  /**
+   * Completes the tracking of the current request to the endpoint, if there is one.
+   *
+   * @param success {@code false} if the endpoint failed to serve the request
+   */
+  private void completeEndpointRequest(boolean success) {
+    if (currentEndpointRequest != null) {
+      currentEndpointRequest.complete(success);
+      currentEndpointRequest = null;
+    }
+    currentEndpointUnavailable = false;
+  }
+
   /**
    * Returns the {@link MessageSender} for writing messages to the endpoint represented by the given
    * {@link Discoverable}.
@@ -251,7 +278,7 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
     }
 
     // Create new MessageSender
-    sender = new MessageSender(cConf, inboundChannel, discoverable);
+    sender = new MessageSender(connectionPool, inboundChannel, discoverable);
     LOG.trace("Create new message sender for {}", discoverable);
     return sender;
   }
@@ -283,50 +310,38 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
    */
   private static final class MessageSender implements Flushable, Closeable {
 
+    // Methods of requests that are resent if a reused connection turns out to be closed by the endpoint
+    private static final Set<HttpMethod> IDEMPOTENT_METHODS = ImmutableSet.of(
+      HttpMethod.GET, HttpMethod.HEAD, HttpMethod.PUT, HttpMethod.DELETE, HttpMethod.OPTIONS, HttpMethod.TRACE);
+
+    private final UpstreamConnectionPool connectionPool;
+    private final Channel inboundChannel;
     private final Discoverable discoverable;
     private final Queue<OutboundMessage> pendingMessages;
-    private final Bootstrap clientBootstrap;
-    private volatile SslContext sslContext;
+    // A channel listener for resetting the state of this message sender on closing of outbound channel
+    private final ChannelFutureListener onCloseResetListener;
     private Channel outboundChannel;
     private boolean closed;
     private boolean connecting;
-
-    private MessageSender(final CConfiguration cConf, final Channel inboundChannel, final Discoverable discoverable) {
+    // A copy of the current request without a body, kept for resending it over a new connection
+    private HttpRequest resendRequest;
+    private ChannelFutureListener resendListener;
+    private boolean resendLastContent;
+    // The connection that was closed by the endpoint, whose write failures are ignored since the request is resent
+    private Channel abandonedChannel;
+
+    private MessageSender(UpstreamConnectionPool connectionPool, Channel inboundChannel, Discoverable discoverable) {
+      this.connectionPool = connectionPool;
+      this.inboundChannel = inboundChannel;
       this.discoverable = discoverable;
       this.pendingMessages = new LinkedList<>();
-
-      // A channel listener for resetting the state of this message sender on closing of outbound channel
-      final ChannelFutureListener onCloseResetListener = new ChannelFutureListener() {
-        @Override
-        public void operationComplete(ChannelFuture future) {
+      this.onCloseResetListener = future -> {
+        if (future.channel() == outboundChannel) {
           outboundChannel = null;
           connecting = false;
+          resendIfPossible(future.channel());
         }
       };
-
-      // Create a client Bootstrap for connecting to internal services
-      // It must be create using the same EventLoopGroup as the inbound channel to make
-      // sure thread safety between the inbound and outbound channels callbacks.
-      this.clientBootstrap = new Bootstrap()
-        .group(inboundChannel.eventLoop())
-        .channel(NioSocketChannel.class)
-        .option(ChannelOption.SO_KEEPALIVE, true)
-        .handler(new ChannelInitializer<SocketChannel>() {
-          @Override
-          protected void initChannel(SocketChannel ch) throws Exception {
-            ch.closeFuture().addListener(onCloseResetListener);
-            ChannelPipeline pipeline = ch.pipeline();
-
-            SslHandler sslHandler = getSslHandler(discoverable, ch.alloc());
-            if (sslHandler != null) {
-              pipeline.addLast("ssl", sslHandler);
-            }
-            pipeline.addLast("idle-state-handler",
-                             new IdleStateHandler(0, 0, cConf.getInt(Constants.Router.CONNECTION_TIMEOUT_SECS)));
-            pipeline.addLast("codec", new HttpClientCodec());
-            pipeline.addLast("forwarder", new OutboundHandler(inboundChannel));
-          }
-        });
     }
 
     /**
@@ -336,21 +351,35 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
      * @param writeCompletedListener a {@link ChannelFutureListener} to be notified when the write completed
      */
     void send(Object msg, ChannelFutureListener writeCompletedListener) {
+      trackForResend(msg, writeCompletedListener);
+      ChannelFutureListener listener = future -> {
+        if (future.isSuccess() || future.channel() != abandonedChannel) {
+          writeCompletedListener.operationComplete(future);
+        }
+      };
       if (outboundChannel != null) {
-        outboundChannel.write(msg).addListener(writeCompletedListener);
+        outboundChannel.write(msg).addListener(listener);
         return;
       }
 
       // If not yet connected or still connecting, just add the message to the pending queue
-      pendingMessages.add(new OutboundMessage(msg, writeCompletedListener));
+      pendingMessages.add(new OutboundMessage(msg, listener));
 
       // If connecting, we can just return. When the connection completed, it will send all messages in the queue.
       if (connecting) {
         return;
       }
 
-      // Make a new connection
-      ChannelFuture connectFuture = clientBootstrap.connect(discoverable.getSocketAddress());
+      // Acquire a connection. The future may already be completed if a pooled connection is available,
+      // in which case the listener is called immediately.
+      connect(connectionPool.acquire(inboundChannel.eventLoop(), discoverable));
+    }
+
+    /**
+     * Sends the pending messages once the given connection attempt completes.
+     */
+    private void connect(ChannelFuture connectFuture) {
+      connecting = true;
       connectFuture.addListener(new ChannelFutureListener() {
         @Override
         public void operationComplete(ChannelFuture future) throws Exception {
@@ -358,11 +387,14 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
           // This make sure any message received before the inbound channel is closed will not get forwarded
           outboundChannel = future.channel();
           connecting = false;
+          outboundChannel.closeFuture().addListener(onCloseResetListener);
 
           if (future.isSuccess()) {
-            // If this sender is closed (because inbound channel is closed), just close the outbound channel
+            // If this sender is closed (because inbound channel is closed), just return the unused connection
             if (closed) {
-              Channels.closeOnFlush(outboundChannel);
+              releaseOutboundChannel();
+            } else {
+              outboundChannel.pipeline().get(OutboundHandler.class).setInboundChannel(inboundChannel);
             }
           }
           OutboundMessage message = pendingMessages.poll();
@@ -375,8 +407,68 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
           }
         }
       });
+    }
 
-      connecting = true;
+    /**
+     * Keeps a copy of the head of an idempotent request while no body has been sent with it, so that the request can
+     * be resent if the connection turns out to be closed by the endpoint.
+     */
+    private void trackForResend(Object msg, ChannelFutureListener writeCompletedListener) {
+      if (msg instanceof HttpRequest) {
+        HttpRequest request = (HttpRequest) msg;
+        resendRequest = IDEMPOTENT_METHODS.contains(request.method())
+          ? new DefaultHttpRequest(request.protocolVersion(), request.method(), request.uri(), request.headers().copy())
+          : null;
+        resendListener = writeCompletedListener;
+        resendLastContent = false;
+      }
+      if (msg instanceof HttpContent) {
+        if (((HttpContent) msg).content().isReadable()) {
+          resendRequest = null;
+        }
+        resendLastContent |= msg instanceof LastHttpContent;
+      }
+    }
+
+    /**
+     * Resends the current request once over a new connection if the given reused connection was closed by the
+     * endpoint before it responded, which happens when the endpoint closes an idle keep-alive connection while the
+     * router picks it from the pool.
+     */
+    private void resendIfPossible(Channel channel) {
+      HttpRequest request = resendRequest;
+      resendRequest = null;
+      OutboundHandler handler = channel.pipeline().get(OutboundHandler.class);
+      if (closed || request == null || handler == null || !handler.isAwaitingResponseOnReusedConnection()) {
+        return;
+      }
+      LOG.debug("Connection {} to {} closed before response. Resending {} {} over a new connection.",
+                channel, discoverable, request.method(), request.uri());
+      // Detach the closed connection, so that it doesn't close the inbound channel
+      handler.setInboundChannel(null);
+      abandonedChannel = channel;
+
+      // The new connection is never reused, hence the request is resent at most once
+      pendingMessages.add(new OutboundMessage(request, resendListener));
+      if (resendLastContent) {
+        pendingMessages.add(new OutboundMessage(LastHttpContent.EMPTY_LAST_CONTENT, resendListener));
+      }
+      connect(connectionPool.reconnect(inboundChannel.eventLoop(), discoverable));
+    }
+
+    /**
+     * Returns the outbound connection to the connection pool if the request and response over it are completed
+     * and the connection can be reused. Otherwise the connection stays with this sender.
+     */
+    void release() {
+      resendRequest = null;
+      if (!connectionPool.isEnabled() || outboundChannel == null || closed) {
+        return;
+      }
+      OutboundHandler handler = outboundChannel.pipeline().get(OutboundHandler.class);
+      if (handler != null && handler.isReusable()) {
+        releaseOutboundChannel();
+      }
     }
 
     @Override
@@ -390,7 +482,13 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
     public void close() {
       if (!closed) {
         closed = true;
-        if (outboundChannel != null) {
+        if (outboundChannel == null) {
+          return;
+        }
+        OutboundHandler handler = outboundChannel.pipeline().get(OutboundHandler.class);
+        if (connectionPool.isEnabled() && handler != null && handler.isReusable()) {
+          releaseOutboundChannel();
+        } else {
           Channels.closeOnFlush(outboundChannel);
         }
       }
@@ -400,29 +498,15 @@ public class HttpRequestRouter extends ChannelDuplexHandler {
       return discoverable;
     }
 
-    /**
-     * Returns the {@link SslContext} to be used for a given discoverable endpoint
-     *
-     * @param discoverable the endpoint to connect to
-     * @return the {@link SslContext} or {@code null} if SSL is not needed
-     */
-    @Nullable
-    private SslHandler getSslHandler(Discoverable discoverable, ByteBufAllocator alloc) throws SSLException {
-      if (!Arrays.equals(HTTPS_SCHEME_BYTES, discoverable.getPayload())) {
-        return null;
-      }
-      SslContext context = sslContext;
-      if (context != null) {
-        return context.newHandler(alloc);
-      }
-      synchronized (this) {
-        context = sslContext;
-        if (context == null) {
-          sslContext = context = SslContextBuilder.forClient()
-                                                  .trustManager(InsecureTrustManagerFactory.INSTANCE).build();
-        }
-        return context.newHandler(alloc);
+    private void releaseOutboundChannel() {
+      Channel channel = outboundChannel;
+      outboundChannel = null;
+      channel.closeFuture().removeListener(onCloseResetListener);
+      OutboundHandler handler = channel.pipeline().get(OutboundHandler.class);
+      if (handler != null) {
+        handler.setInboundChannel(null);
       }
+      connectionPool.release(discoverable, channel);
     }
 
     /**
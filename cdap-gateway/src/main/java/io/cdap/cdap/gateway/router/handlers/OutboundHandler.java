@@ -27,30 +27,67 @@ import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.ReferenceCountUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 /**
  * A {@link ChannelDuplexHandler} for forwarding requests/responses between the router and the internal service.
  * It also handle idle state event for closing idled internal connections.
+ * The handler is bound to an inbound channel while the connection is used for forwarding a request. Connections that
+ * are kept in the {@link UpstreamConnectionPool} are not bound to any inbound channel.
  */
 public class OutboundHandler extends ChannelDuplexHandler {
   private static final Logger LOG = LoggerFactory.getLogger(OutboundHandler.class);
 
-  private final Channel inboundChannel;
+  private Channel inboundChannel;
   private boolean requestInProgress;
+  private boolean requestSent;
+  private boolean responseStarted;
   private boolean keepAlive;
+  private int requestCount;
+
+  OutboundHandler() {
+    this(null);
+  }
+
+  public OutboundHandler(@Nullable Channel inboundChannel) {
+    this.inboundChannel = inboundChannel;
+  }
 
-  public OutboundHandler(Channel inboundChannel) {
+  /**
+   * Sets the inbound channel that messages received from the internal service are forwarded to.
+   *
+   * @param inboundChannel the inbound channel or {@code null} if the connection is no longer used by any
+   *                       inbound channel
+   */
+  void setInboundChannel(@Nullable Channel inboundChannel) {
     this.inboundChannel = inboundChannel;
   }
 
+  /**
+   * Returns {@code true} if the last request and response over this connection were completed and both allow the
+   * connection to be reused for another request.
+   */
+  boolean isReusable() {
+    return !requestInProgress && requestSent && keepAlive;
+  }
+
+  /**
+   * Returns {@code true} if the current request is not the first one over this connection and no response to it has
+   * been received. If the connection is closed in this state, the endpoint closed the idle keep-alive connection
+   * before it saw the request.
+   */
+  boolean isAwaitingResponseOnReusedConnection() {
+    return requestInProgress && !responseStarted && requestCount > 1;
+  }
+
   @Override
   public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-    // One receiving messages from the internal service, forward it to the inbound channel
-    inboundChannel.write(msg);
-
     if (msg instanceof HttpResponse) {
+      responseStarted = true;
       keepAlive = HttpUtil.isKeepAlive((HttpResponse) msg);
     }
 
@@ -58,11 +95,27 @@ public class OutboundHandler extends ChannelDuplexHandler {
     if (msg instanceof LastHttpContent) {
       requestInProgress = false;
     }
+
+    // The state must be updated before forwarding, since the connection may get released to the pool as soon as
+    // the inbound channel sees the end of the response.
+    Channel inboundChannel = this.inboundChannel;
+    if (inboundChannel == null) {
+      // Nothing is expected from an idle connection. Drop it, as it cannot be reused anymore.
+      LOG.trace("Unexpected message received on idle connection {}. Closing the connection.", ctx.channel());
+      ReferenceCountUtil.release(msg);
+      ctx.close();
+      return;
+    }
+
+    // One receiving messages from the internal service, forward it to the inbound channel
+    inboundChannel.write(msg);
   }
 
   @Override
   public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
-    inboundChannel.flush();
+    if (inboundChannel != null) {
+      inboundChannel.flush();
+    }
   }
 
   @Override
@@ -70,14 +123,21 @@ public class OutboundHandler extends ChannelDuplexHandler {
     // A request starts with a HttpRequest
     if (msg instanceof HttpRequest) {
       requestInProgress = true;
+      requestSent = false;
+      responseStarted = false;
+      requestCount++;
       keepAlive = HttpUtil.isKeepAlive((HttpRequest) msg);
     }
+    if (msg instanceof LastHttpContent) {
+      requestSent = true;
+    }
     ctx.write(msg, promise);
   }
 
   @Override
   public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
-    if (requestInProgress) {
+    Channel inboundChannel = this.inboundChannel;
+    if (requestInProgress && inboundChannel != null) {
       final Channel channel = ctx.channel();
       ctx.executor().execute(() -> {
         // If outboundChannel is not saturated anymore, continue accepting
@@ -98,7 +158,7 @@ public class OutboundHandler extends ChannelDuplexHandler {
   @Override
   public void channelInactive(ChannelHandlerContext ctx) throws Exception {
     // Close the inbound channel if there is request in progress, or the last request/response has keep-alive == false
-    if (requestInProgress || !keepAlive) {
+    if (inboundChannel != null && (requestInProgress || !keepAlive)) {
       Channels.closeOnFlush(inboundChannel);
     }
     ctx.fireChannelInactive();
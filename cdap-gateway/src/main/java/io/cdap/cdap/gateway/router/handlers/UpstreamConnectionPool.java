@@ -0,0 +1,234 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.gateway.router.handlers;
+
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.api.metrics.NoopMetricsContext;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.timeout.IdleStateHandler;
+import org.apache.twill.discovery.Discoverable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLException;
+
+/**
+ * A pool of keep-alive connections from the router to CDAP service endpoints, shared by all inbound connections
+ * served by the same event loop. Each event loop has its own set of idle connections, which are only accessed from
+ * the event loop thread, hence no locking is needed. Idle connections are closed by the {@link IdleStateHandler}
+ * in the outbound pipeline once they have been idle for longer than the router connection idle timeout.
+ * The number of connections served from the pool, the number of new connections and the number of requests resent
+ * because a pooled connection was closed by the endpoint are emitted through the {@link MetricsContext} set with
+ * {@link #setMetricsContext(MetricsContext)}.
+ */
+public final class UpstreamConnectionPool {
+
+  private static final Logger LOG = LoggerFactory.getLogger(UpstreamConnectionPool.class);
+  private static final byte[] HTTPS_SCHEME_BYTES = Constants.Security.SSL_URI_SCHEME.getBytes();
+
+  private final int idleTimeoutSecs;
+  private final int maxIdleConnections;
+  private final ConcurrentMap<EventLoop, Map<Discoverable, Deque<Channel>>> idleChannels;
+  private final LongAdder hitCount;
+  private final LongAdder missCount;
+  private volatile MetricsContext metricsContext;
+  private volatile SslContext sslContext;
+
+  public UpstreamConnectionPool(CConfiguration cConf) {
+    this.idleTimeoutSecs = cConf.getInt(Constants.Router.CONNECTION_TIMEOUT_SECS);
+    this.maxIdleConnections = cConf.getInt(Constants.Router.UPSTREAM_MAX_IDLE_CONNECTIONS);
+    this.idleChannels = new ConcurrentHashMap<>();
+    this.hitCount = new LongAdder();
+    this.missCount = new LongAdder();
+    this.metricsContext = new NoopMetricsContext();
+  }
+
+  /**
+   * Sets the {@link MetricsContext} for emitting the connection pool metrics.
+   */
+  public void setMetricsContext(MetricsContext metricsContext) {
+    this.metricsContext = metricsContext;
+  }
+
+  /**
+   * Returns {@code true} if connections are returned to this pool after use, or {@code false} if each inbound
+   * connection keeps its own outbound connections.
+   */
+  boolean isEnabled() {
+    return maxIdleConnections > 0;
+  }
+
+  /**
+   * Acquires a connection to the given endpoint. An idle connection from the pool is used if there is one,
+   * otherwise a new connection is made. This method must be called from the given event loop.
+   *
+   * @param eventLoop the event loop of the inbound channel
+   * @param discoverable the endpoint to connect to
+   * @return a {@link ChannelFuture} that completes when the connection is ready to use
+   */
+  ChannelFuture acquire(EventLoop eventLoop, Discoverable discoverable) {
+    Deque<Channel> channels = getIdleChannels(eventLoop, discoverable);
+
+    // Use the most recently released connection, which is the least likely to be closed by the server
+    Channel channel = channels.pollLast();
+    while (channel != null && !channel.isActive()) {
+      channel = channels.pollLast();
+    }
+    if (channel != null) {
+      hitCount.increment();
+      metricsContext.increment(Constants.Metrics.Name.Router.UPSTREAM_POOL_HITS, 1L);
+      LOG.trace("Reuse pooled connection {} for {}", channel, discoverable);
+      return channel.newSucceededFuture();
+    }
+
+    missCount.increment();
+    metricsContext.increment(Constants.Metrics.Name.Router.UPSTREAM_POOL_MISSES, 1L);
+    return connect(eventLoop, discoverable);
+  }
+
+  /**
+   * Makes a new connection to the given endpoint for resending a request, after the pooled connection it was sent
+   * over got closed by the endpoint before any response. This method must be called from the given event loop.
+   *
+   * @param eventLoop the event loop of the inbound channel
+   * @param discoverable the endpoint to connect to
+   * @return a {@link ChannelFuture} that completes when the connection is ready to use
+   */
+  ChannelFuture reconnect(EventLoop eventLoop, Discoverable discoverable) {
+    metricsContext.increment(Constants.Metrics.Name.Router.UPSTREAM_RESENDS, 1L);
+    return connect(eventLoop, discoverable);
+  }
+
+  private ChannelFuture connect(EventLoop eventLoop, Discoverable discoverable) {
+    return new Bootstrap()
+      .group(eventLoop)
+      .channel(NioSocketChannel.class)
+      .option(ChannelOption.SO_KEEPALIVE, true)
+      .handler(new ChannelInitializer<SocketChannel>() {
+        @Override
+        protected void initChannel(SocketChannel ch) throws Exception {
+          // Remove the channel from the pool when it is closed, either by the server or by the idle state handler
+          ch.closeFuture().addListener(future -> removeIdleChannel(eventLoop, discoverable, ch));
+          ChannelPipeline pipeline = ch.pipeline();
+
+          SslHandler sslHandler = getSslHandler(discoverable, ch.alloc());
+          if (sslHandler != null) {
+            pipeline.addLast("ssl", sslHandler);
+          }
+          pipeline.addLast("idle-state-handler", new IdleStateHandler(0, 0, idleTimeoutSecs));
+          pipeline.addLast("codec", new HttpClientCodec());
+          pipeline.addLast("forwarder", new OutboundHandler());
+        }
+      })
+      .connect(discoverable.getSocketAddress());
+  }
+
+  /**
+   * Releases a connection acquired from {@link #acquire(EventLoop, Discoverable)} back to the pool. The connection
+   * is closed instead if it is no longer active or if the pool for the endpoint is full. This method must be
+   * called from the event loop of the connection.
+   */
+  void release(Discoverable discoverable, Channel channel) {
+    Deque<Channel> channels = getIdleChannels(channel.eventLoop(), discoverable);
+    if (!channel.isActive() || channels.size() >= maxIdleConnections) {
+      channel.close();
+      return;
+    }
+    channels.addLast(channel);
+  }
+
+  /**
+   * Returns the number of times a connection was served from the pool.
+   */
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /**
+   * Returns the number of times a new connection had to be made.
+   */
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  private Deque<Channel> getIdleChannels(EventLoop eventLoop, Discoverable discoverable) {
+    return idleChannels.computeIfAbsent(eventLoop, k -> new HashMap<>())
+      .computeIfAbsent(discoverable, k -> new ArrayDeque<>());
+  }
+
+  private void removeIdleChannel(EventLoop eventLoop, Discoverable discoverable, Channel channel) {
+    Map<Discoverable, Deque<Channel>> channelsMap = idleChannels.get(eventLoop);
+    Deque<Channel> channels = channelsMap == null ? null : channelsMap.get(discoverable);
+    if (channels == null) {
+      return;
+    }
+    channels.remove(channel);
+    if (channels.isEmpty()) {
+      channelsMap.remove(discoverable);
+    }
+  }
+
+  /**
+   * Returns the {@link SslHandler} to be used for a given discoverable endpoint
+   *
+   * @param discoverable the endpoint to connect to
+   * @return the {@link SslHandler} or {@code null} if SSL is not needed
+   */
+  @Nullable
+  private SslHandler getSslHandler(Discoverable discoverable, ByteBufAllocator alloc) throws SSLException {
+    if (!Arrays.equals(HTTPS_SCHEME_BYTES, discoverable.getPayload())) {
+      return null;
+    }
+    SslContext context = sslContext;
+    if (context != null) {
+      return context.newHandler(alloc);
+    }
+    synchronized (this) {
+      context = sslContext;
+      if (context == null) {
+        sslContext = context = SslContextBuilder.forClient()
+                                                .trustManager(InsecureTrustManagerFactory.INSTANCE).build();
+      }
+      return context.newHandler(alloc);
+    }
+  }
+}
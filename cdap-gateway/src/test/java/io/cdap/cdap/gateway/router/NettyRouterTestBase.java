@@ -32,6 +32,7 @@ import com.ning.http.client.Request;
 import com.ning.http.client.RequestBuilder;
 import com.ning.http.client.Response;
 import com.ning.http.client.providers.netty.NettyAsyncHttpProvider;
+import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.discovery.RandomEndpointStrategy;
 import io.cdap.cdap.common.discovery.ResolvingDiscoverable;
@@ -51,6 +52,7 @@ import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.ReferenceCountUtil;
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
@@ -82,6 +84,7 @@ import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
+import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -247,6 +250,33 @@ public abstract class NettyRouterTestBase {
     defaultServer2.registerServer();
   }
 
+  @Test
+  public void testUnreachableEndpointEjected() throws Exception {
+    // An endpoint announced by IP address that refuses connections
+    int port;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+    Cancellable cancellable = discoveryService.register(
+      new Discoverable(APP_FABRIC_SERVICE, new InetSocketAddress(HOSTNAME, port)));
+    try {
+      // The failures to reach the endpoint are reported to the endpoint strategy, which stops picking the endpoint
+      // once it failed three times in a row
+      int failures = 0;
+      for (int i = 0; i < 30; i++) {
+        HttpResponse response = get(resolveURI(String.format("%s/%s-%d", "/v1/ping", "sync", i)));
+        EntityUtils.consume(response.getEntity());
+        if (response.getStatusLine().getStatusCode() != HttpResponseStatus.OK.code()) {
+          failures++;
+        }
+      }
+      Assert.assertTrue("Unexpected number of failed requests " + failures, failures <= 3);
+      Assert.assertEquals(30 - failures, defaultServer1.getNumRequests() + defaultServer2.getNumRequests());
+    } finally {
+      cancellable.cancel();
+    }
+  }
+
   @Test
   public void testHostForward() throws Exception {
     // Test defaultService
@@ -352,6 +382,48 @@ public abstract class NettyRouterTestBase {
     Assert.assertEquals(1, defaultServer1.getNumConnectionsClosed());
   }
 
+  @Test
+  public void testUpstreamConnectionReuse() throws Exception {
+    // Only use server1
+    defaultServer2.cancelRegistration();
+
+    URI uri = new URI(resolveURI("/v2/ping"));
+    int times = 50;
+    for (int i = 0; i < times; i++) {
+      // Make each request on a new client connection
+      try (Socket socket = getSocketFactory().createSocket(uri.getHost(), uri.getPort())) {
+        PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+        Assert.assertEquals("HTTP/1.1 200 OK", makeRequest(uri, out, socket.getInputStream()));
+      }
+    }
+
+    // Connections to the server are shared by all client connections served by the same router thread,
+    // hence there can be at most one connection per router thread.
+    Assert.assertEquals(times, defaultServer1.getNumRequests());
+    Assert.assertTrue(defaultServer1.getNumConnectionsOpened()
+                        <= CConfiguration.create().getInt(Constants.Router.SERVER_WORKER_THREADS));
+  }
+
+  @Test
+  public void testResendOnClosedUpstreamConnection() throws Exception {
+    // Only use server1, which closes a connection instead of serving a second request over it, as if it closed the
+    // idle keep-alive connection while the router picked it from the pool
+    defaultServer2.cancelRegistration();
+    defaultServer1.setDropReusedConnections(true);
+
+    URI uri = new URI(resolveURI("/v1/ping/resend"));
+    int times = 10;
+    for (int i = 0; i < times; i++) {
+      try (Socket socket = getSocketFactory().createSocket(uri.getHost(), uri.getPort())) {
+        PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+        Assert.assertEquals("HTTP/1.1 200 OK", makeRequest(uri, out, socket.getInputStream()));
+      }
+    }
+
+    // Each request dropped on a reused connection is resent once over a new connection
+    Assert.assertEquals(times, defaultServer1.getNumRequests());
+  }
+
   private String makeRequest(URI uri, PrintWriter out, InputStream inputStream) throws IOException {
     //Send request
     out.print("GET " + uri.getPath() + " HTTP/1.1\r\n" +
@@ -608,6 +680,7 @@ public abstract class NettyRouterTestBase {
     private final AtomicInteger numConnectionsClosed = new AtomicInteger(0);
 
     private NettyHttpService httpService;
+    private volatile boolean dropReusedConnections;
     private Cancellable cancelDiscovery;
 
     private ServerService(String hostname, DiscoveryService discoveryService, String serviceName) {
@@ -638,6 +711,23 @@ public abstract class NettyRouterTestBase {
               super.channelInactive(ctx);
             }
           });
+          pipeline.addBefore("router", "connection-dropper", new ChannelInboundHandlerAdapter() {
+            private int requests;
+            private boolean dropping;
+
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+              if (msg instanceof HttpRequest && ++requests > 1 && dropReusedConnections) {
+                dropping = true;
+                ctx.close();
+              }
+              if (dropping) {
+                ReferenceCountUtil.release(msg);
+                return;
+              }
+              super.channelRead(ctx, msg);
+            }
+          });
         }
       });
       httpService = builder.build();
@@ -666,6 +756,13 @@ public abstract class NettyRouterTestBase {
       return numConnectionsClosed.get();
     }
 
+    /**
+     * Sets whether connections are closed without a response when a second request is received over them.
+     */
+    public void setDropReusedConnections(boolean dropReusedConnections) {
+      this.dropReusedConnections = dropReusedConnections;
+    }
+
 
     public void registerServer() {
       // Register services of test server
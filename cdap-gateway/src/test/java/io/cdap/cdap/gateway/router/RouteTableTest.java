@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.gateway.router;
+
+import io.netty.handler.codec.http.HttpMethod;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link RouteTable}.
+ */
+public class RouteTableTest {
+
+  @Test
+  public void testRuleOrder() {
+    RouteTable<String> table = RouteTable.<String>builder()
+      .addPrefix("a", "v3", null, "x")
+      .addSuffix("b", "y")
+      .addPrefix("c", "v3", "n")
+      .addPrefix("d", "v3", "n", null, "x", "z")
+      .build();
+
+    // The first rule that matches wins, no matter how specific a later rule is
+    Assert.assertEquals("a", table.lookup(new String[] { "v3", "n", "x", "z" }, HttpMethod.GET));
+    Assert.assertEquals("a", table.lookup(new String[] { "v3", "n", "x", "y" }, HttpMethod.GET));
+    Assert.assertEquals("b", table.lookup(new String[] { "v3", "n", "w", "y" }, HttpMethod.GET));
+    Assert.assertEquals("c", table.lookup(new String[] { "v3", "n" }, HttpMethod.GET));
+    Assert.assertEquals("c", table.lookup(new String[] { "v3", "n", "w" }, HttpMethod.GET));
+    Assert.assertNull(table.lookup(new String[] { "v3", "m", "w" }, HttpMethod.GET));
+    Assert.assertNull(table.lookup(new String[] { "v3" }, HttpMethod.GET));
+  }
+
+  @Test
+  public void testExactAndMethod() {
+    RouteTable<String> table = RouteTable.<String>builder()
+      .addExact("exact", "v3", null, "x")
+      .addPrefix(HttpMethod.GET, "get", "v3", null, "x")
+      .addPrefix("any", "v3")
+      .build();
+
+    Assert.assertEquals("exact", table.lookup(new String[] { "v3", "n", "x" }, HttpMethod.PUT));
+    Assert.assertEquals("get", table.lookup(new String[] { "v3", "n", "x", "y" }, HttpMethod.GET));
+    Assert.assertEquals("any", table.lookup(new String[] { "v3", "n", "x", "y" }, HttpMethod.PUT));
+    Assert.assertEquals("any", table.lookup(new String[] { "v3" }, HttpMethod.PUT));
+  }
+}
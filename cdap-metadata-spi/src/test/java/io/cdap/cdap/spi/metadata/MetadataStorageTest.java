@@ -336,6 +336,44 @@ public abstract class MetadataStorageTest {
     mds.apply(new Drop(entity));
   }
 
+  @Test
+  public void testBatchMultipleEntities() throws IOException {
+    MetadataEntity entity1 = MetadataEntity.ofDataset("a", "b1");
+    MetadataEntity entity2 = MetadataEntity.ofDataset("a", "b2");
+    MetadataEntity entity3 = MetadataEntity.ofDataset("a", "b3");
+    MetadataStorage mds = getMetadataStorage();
+
+    // mutations of different entities are interleaved, and some entities have multiple mutations
+    List<MetadataMutation> mutations = ImmutableList.of(
+      new Update(entity1, new Metadata(USER, tags("t1"), props("k1", "v1"))),
+      new Update(entity2, new Metadata(USER, tags("t2"))),
+      new Update(entity1, new Metadata(SYSTEM, tags("s1"))),
+      new Update(entity3, new Metadata(USER, props("k3", "v3"))),
+      new Remove(entity1, ImmutableSet.of(new ScopedNameOfKind(TAG, USER, "t1"))),
+      new Update(entity2, new Metadata(USER, props("k2", "v2"))));
+
+    List<MetadataChange> changes = mds.batch(mutations);
+    Assert.assertEquals(mutations.size(), changes.size());
+    Assert.assertEquals(new MetadataChange(entity1, Metadata.EMPTY, new Metadata(USER, tags("t1"), props("k1", "v1"))),
+                        changes.get(0));
+    Assert.assertEquals(new MetadataChange(entity1,
+                                           new Metadata(USER, tags("t1"), props("k1", "v1")),
+                                           new Metadata(ImmutableSet.of(new ScopedName(USER, "t1"),
+                                                                        new ScopedName(SYSTEM, "s1")),
+                                                        ImmutableMap.of(new ScopedName(USER, "k1"), "v1"))),
+                        changes.get(2));
+    Assert.assertEquals(entity2, changes.get(5).getEntity());
+    Assert.assertEquals(new Metadata(USER, tags("t2")), changes.get(5).getBefore());
+
+    verifyMetadata(mds, entity1, new Metadata(ImmutableSet.of(new ScopedName(SYSTEM, "s1")),
+                                              ImmutableMap.of(new ScopedName(USER, "k1"), "v1")));
+    verifyMetadata(mds, entity2, new Metadata(USER, tags("t2"), props("k2", "v2")));
+    verifyMetadata(mds, entity3, new Metadata(USER, props("k3", "v3")));
+
+    // clean up
+    mds.batch(batch(new Drop(entity1), new Drop(entity2), new Drop(entity3)));
+  }
+
   @Test
   public void testUpdateRemove() throws IOException {
     MetadataStorage mds = getMetadataStorage();
@@ -19,14 +19,16 @@ package io.cdap.cdap.security.authorization;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
-import com.google.common.base.Predicate;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
@@ -36,14 +38,19 @@ import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.http.DefaultHttpRequestConfig;
 import io.cdap.cdap.common.internal.remote.RemoteClient;
 import io.cdap.cdap.proto.codec.EntityIdTypeAdapter;
+import io.cdap.cdap.proto.element.EntityType;
 import io.cdap.cdap.proto.id.EntityId;
+import io.cdap.cdap.proto.id.ParentedId;
 import io.cdap.cdap.proto.security.Action;
+import io.cdap.cdap.proto.security.Authorizable;
 import io.cdap.cdap.proto.security.AuthorizationPrivilege;
 import io.cdap.cdap.proto.security.Principal;
+import io.cdap.cdap.proto.security.Privilege;
 import io.cdap.cdap.proto.security.VisibilityRequest;
 import io.cdap.cdap.security.spi.authorization.UnauthorizedException;
 import io.cdap.common.http.HttpMethod;
 import io.cdap.common.http.HttpRequest;
+import org.apache.twill.common.Threads;
 import org.apache.twill.discovery.DiscoveryServiceClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,17 +58,33 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.ParametersAreNonnullByDefault;
 
 /**
  * Remote implementation of the AuthorizationEnforcer. Contacts master for authorization enforcement and
  * then caches the results if caching is enabled.
+ * <p>
+ * When caching is enabled, cached results are refreshed in the background once they are older than the refresh
+ * interval, so that frequent checks never wait on an expired entry. If prefetching is enabled, all privileges granted
+ * to a principal are fetched once when the principal is first seen. A check on an entity with a prefetched privilege
+ * is answered locally. The same applies to a visibility check on an entity that has a prefetched privilege on itself
+ * or one of its descendants.
+ * </p>
  */
 public class RemoteAuthorizationEnforcer extends AbstractAuthorizationEnforcer {
 
@@ -71,6 +94,7 @@ public class RemoteAuthorizationEnforcer extends AbstractAuthorizationEnforcer {
     .registerTypeAdapter(EntityId.class, new EntityIdTypeAdapter())
     .create();
   private static final Type SET_ENTITY_TYPE = new TypeToken<Set<EntityId>>() { }.getType();
+  private static final int REFRESH_THREADS = 2;
 
   private static final Function<VisibilityKey, EntityId> VISIBILITY_KEY_ENTITY_ID_FUNCTION =
     new Function<VisibilityKey, EntityId>() {
@@ -80,60 +104,109 @@ public class RemoteAuthorizationEnforcer extends AbstractAuthorizationEnforcer {
       }
     };
 
-  private static final Predicate<Map.Entry<VisibilityKey, Boolean>> VISIBILITY_KEYS_FILTER =
-    new Predicate<Map.Entry<VisibilityKey, Boolean>>() {
-      @Override
-      public boolean apply(Map.Entry<VisibilityKey, Boolean> input) {
-        return input.getValue();
-      }
-    };
-
   private final RemoteClient remoteClient;
+  private final RemotePrivilegesManager privilegesManager;
   private final boolean cacheEnabled;
+  private final boolean prefetchEnabled;
+  private final ListeningExecutorService refreshExecutor;
+  private final ConcurrentMap<VisibilityKey, SettableFuture<Boolean>> pendingVisibilityRefreshes;
 
   private final LoadingCache<AuthorizationPrivilege, Boolean> authPolicyCache;
   private final LoadingCache<VisibilityKey, Boolean> visibilityCache;
+  private final LoadingCache<Principal, PrefetchedPrivileges> privilegesCache;
 
   @Inject
   public RemoteAuthorizationEnforcer(CConfiguration cConf, final DiscoveryServiceClient discoveryClient) {
     super(cConf);
     this.remoteClient = new RemoteClient(discoveryClient, Constants.Service.APP_FABRIC_HTTP,
                                          new DefaultHttpRequestConfig(false), "/v1/execute/");
+    this.privilegesManager = new RemotePrivilegesManager(discoveryClient);
     int cacheTTLSecs = cConf.getInt(Constants.Security.Authorization.CACHE_TTL_SECS);
     int cacheMaxEntries = cConf.getInt(Constants.Security.Authorization.CACHE_MAX_ENTRIES);
+    int cacheRefreshSecs = cConf.getInt(Constants.Security.Authorization.CACHE_REFRESH_SECS);
     // Cache can be disabled by setting the number of entries to <= 0
     this.cacheEnabled = cacheMaxEntries > 0;
+    this.prefetchEnabled = cacheEnabled && cConf.getBoolean(Constants.Security.Authorization.CACHE_PREFETCH_ENABLED);
+    // Refreshing only makes sense if it happens before the entry expires
+    boolean refreshEnabled = cacheRefreshSecs > 0 && cacheRefreshSecs < cacheTTLSecs;
+
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS, 60, TimeUnit.SECONDS,
+                                                         new LinkedBlockingQueue<Runnable>(),
+                                                         Threads.createDaemonThreadFactory("authorization-refresh-%d"));
+    executor.allowCoreThreadTimeOut(true);
+    this.refreshExecutor = MoreExecutors.listeningDecorator(executor);
+    this.pendingVisibilityRefreshes = new ConcurrentHashMap<>();
 
     int perCacheSize = cacheMaxEntries / 2 + 1;
-    authPolicyCache = CacheBuilder.newBuilder()
+    CacheBuilder<Object, Object> authPolicyCacheBuilder = CacheBuilder.newBuilder()
       .expireAfterWrite(cacheTTLSecs, TimeUnit.SECONDS)
-      .maximumSize(perCacheSize)
-      .build(new CacheLoader<AuthorizationPrivilege, Boolean>() {
-        @Override
-        @ParametersAreNonnullByDefault
-        public Boolean load(AuthorizationPrivilege authorizationPrivilege) throws Exception {
-          LOG.trace("Cache miss for {}", authorizationPrivilege);
-          return doEnforce(authorizationPrivilege);
-        }
-      });
+      .maximumSize(perCacheSize);
+    if (refreshEnabled) {
+      authPolicyCacheBuilder.refreshAfterWrite(cacheRefreshSecs, TimeUnit.SECONDS);
+    }
+    authPolicyCache = authPolicyCacheBuilder.build(new CacheLoader<AuthorizationPrivilege, Boolean>() {
+      @Override
+      @ParametersAreNonnullByDefault
+      public Boolean load(AuthorizationPrivilege authorizationPrivilege) throws Exception {
+        LOG.trace("Cache miss for {}", authorizationPrivilege);
+        return doEnforce(authorizationPrivilege);
+      }
+
+      @Override
+      @ParametersAreNonnullByDefault
+      public ListenableFuture<Boolean> reload(final AuthorizationPrivilege authorizationPrivilege, Boolean oldValue) {
+        LOG.trace("Refreshing {}", authorizationPrivilege);
+        return refreshExecutor.submit(() -> doEnforce(authorizationPrivilege));
+      }
+    });
 
-    visibilityCache = CacheBuilder.newBuilder()
+    CacheBuilder<Object, Object> visibilityCacheBuilder = CacheBuilder.newBuilder()
       .expireAfterAccess(cacheTTLSecs, TimeUnit.SECONDS)
-      .maximumSize(perCacheSize)
-      .build(new CacheLoader<VisibilityKey, Boolean>() {
-        @Override
-        @ParametersAreNonnullByDefault
-        public Boolean load(VisibilityKey key) throws Exception {
-          LOG.trace("Cache miss for {}", key);
-          return !loadVisibility(Collections.singleton(key)).isEmpty();
-        }
+      .maximumSize(perCacheSize);
+    if (refreshEnabled) {
+      visibilityCacheBuilder.refreshAfterWrite(cacheRefreshSecs, TimeUnit.SECONDS);
+    }
+    visibilityCache = visibilityCacheBuilder.build(new CacheLoader<VisibilityKey, Boolean>() {
+      @Override
+      @ParametersAreNonnullByDefault
+      public Boolean load(VisibilityKey key) throws Exception {
+        LOG.trace("Cache miss for {}", key);
+        return loadVisibility(Collections.singleton(key)).get(key);
+      }
 
-        @Override
-        public Map<VisibilityKey, Boolean> loadAll(Iterable<? extends VisibilityKey> keys) throws Exception {
-          LOG.trace("Cache miss for {}", keys);
-          return loadVisibility(keys);
-        }
-      });
+      @Override
+      public Map<VisibilityKey, Boolean> loadAll(Iterable<? extends VisibilityKey> keys) throws Exception {
+        LOG.trace("Cache miss for {}", keys);
+        return loadVisibility(keys);
+      }
+
+      @Override
+      @ParametersAreNonnullByDefault
+      public ListenableFuture<Boolean> reload(VisibilityKey key, Boolean oldValue) {
+        return refreshVisibility(key);
+      }
+    });
+
+    // Privileges of a principal are cached with the same expiration as the privileges cached by entity
+    CacheBuilder<Object, Object> privilegesCacheBuilder = CacheBuilder.newBuilder()
+      .expireAfterWrite(cacheTTLSecs, TimeUnit.SECONDS)
+      .maximumSize(perCacheSize);
+    if (refreshEnabled) {
+      privilegesCacheBuilder.refreshAfterWrite(cacheRefreshSecs, TimeUnit.SECONDS);
+    }
+    privilegesCache = privilegesCacheBuilder.build(new CacheLoader<Principal, PrefetchedPrivileges>() {
+      @Override
+      @ParametersAreNonnullByDefault
+      public PrefetchedPrivileges load(Principal principal) {
+        return loadPrivileges(principal);
+      }
+
+      @Override
+      @ParametersAreNonnullByDefault
+      public ListenableFuture<PrefetchedPrivileges> reload(final Principal principal, PrefetchedPrivileges oldValue) {
+        return refreshExecutor.submit(() -> loadPrivileges(principal));
+      }
+    });
   }
 
   @Override
@@ -143,7 +216,13 @@ public class RemoteAuthorizationEnforcer extends AbstractAuthorizationEnforcer {
     }
     AuthorizationPrivilege authorizationPrivilege = new AuthorizationPrivilege(principal, entity, action);
 
-    boolean allowed = cacheEnabled ? authPolicyCache.get(authorizationPrivilege) : doEnforce(authorizationPrivilege);
+    boolean allowed;
+    if (cacheEnabled) {
+      allowed = getPrefetchedPrivileges(principal).isGranted(entity, action)
+        || authPolicyCache.get(authorizationPrivilege);
+    } else {
+      allowed = doEnforce(authorizationPrivilege);
+    }
     if (!allowed) {
       throw new UnauthorizedException(principal, action, entity);
     }
@@ -158,9 +237,26 @@ public class RemoteAuthorizationEnforcer extends AbstractAuthorizationEnforcer {
     Preconditions.checkNotNull(entityIds, "entityIds cannot be null");
 
     if (cacheEnabled) {
-      Iterable<VisibilityKey> visibilityKeys = toVisibilityKeys(principal, entityIds);
-      ImmutableMap<VisibilityKey, Boolean> visibilityMap = visibilityCache.getAll(visibilityKeys);
-      return toEntityIds(Maps.filterEntries(visibilityMap, VISIBILITY_KEYS_FILTER).keySet());
+      // Entities that are known to be visible from the prefetched privileges don't need to be checked remotely
+      PrefetchedPrivileges privileges = getPrefetchedPrivileges(principal);
+      Set<EntityId> visibleEntities = new HashSet<>();
+      List<VisibilityKey> visibilityKeys = new ArrayList<>();
+      for (EntityId entityId : entityIds) {
+        if (privileges.isVisible(entityId)) {
+          visibleEntities.add(entityId);
+        } else {
+          visibilityKeys.add(new VisibilityKey(principal, entityId));
+        }
+      }
+      if (!visibilityKeys.isEmpty()) {
+        ImmutableMap<VisibilityKey, Boolean> visibilityMap = visibilityCache.getAll(visibilityKeys);
+        for (Map.Entry<VisibilityKey, Boolean> entry : visibilityMap.entrySet()) {
+          if (entry.getValue()) {
+            visibleEntities.add(entry.getKey().getEntityId());
+          }
+        }
+      }
+      return ImmutableSet.copyOf(visibleEntities);
     } else {
       return visibilityCheckCall(new VisibilityRequest(principal, entityIds));
     }
@@ -170,6 +266,22 @@ public class RemoteAuthorizationEnforcer extends AbstractAuthorizationEnforcer {
   public void clearCache() {
     authPolicyCache.invalidateAll();
     visibilityCache.invalidateAll();
+    privilegesCache.invalidateAll();
+  }
+
+  private PrefetchedPrivileges getPrefetchedPrivileges(Principal principal) {
+    return prefetchEnabled ? privilegesCache.getUnchecked(principal) : PrefetchedPrivileges.EMPTY;
+  }
+
+  private PrefetchedPrivileges loadPrivileges(Principal principal) {
+    LOG.trace("Fetching privileges of {}", principal);
+    try {
+      return new PrefetchedPrivileges(privilegesManager.listPrivileges(principal));
+    } catch (Exception e) {
+      // Not all authorization extensions support listing privileges. Fall back to checking each entity remotely.
+      LOG.debug("Failed to fetch privileges of {}. Privileges will be checked individually.", principal, e);
+      return PrefetchedPrivileges.EMPTY;
+    }
   }
 
   private boolean doEnforce(AuthorizationPrivilege authorizationPrivilege) throws IOException {
@@ -201,22 +313,125 @@ public class RemoteAuthorizationEnforcer extends AbstractAuthorizationEnforcer {
 
     Map<VisibilityKey, Boolean> keyMap = new HashMap<>();
     for (VisibilityKey key : keys) {
-      keyMap.put(key, visibleEntities.contains(key.getEntityId()));
+      boolean visible = visibleEntities.contains(key.getEntityId());
+      keyMap.put(key, visible);
+      if (visible) {
+        cacheVisibleAncestors(key);
+      }
     }
     return keyMap;
   }
 
+  /**
+   * Caches the ancestors of a visible entity as visible, since an entity is visible if the principal has privileges
+   * on any of its descendants.
+   */
+  private void cacheVisibleAncestors(VisibilityKey key) {
+    EntityId entityId = key.getEntityId();
+    while (entityId instanceof ParentedId) {
+      entityId = ((ParentedId<?>) entityId).getParent();
+      visibilityCache.asMap().putIfAbsent(new VisibilityKey(key.getPrincipal(), entityId), true);
+    }
+  }
+
+  /**
+   * Refreshes the visibility of the given key in the background. Keys that are due for refresh at about the same time,
+   * which is the case for the entities of a list call, are checked together with one call per principal.
+   */
+  private ListenableFuture<Boolean> refreshVisibility(VisibilityKey key) {
+    SettableFuture<Boolean> future = SettableFuture.create();
+    SettableFuture<Boolean> existing = pendingVisibilityRefreshes.putIfAbsent(key, future);
+    if (existing != null) {
+      return existing;
+    }
+    refreshExecutor.execute(this::refreshPendingVisibility);
+    return future;
+  }
+
+  private void refreshPendingVisibility() {
+    Map<Principal, Map<VisibilityKey, SettableFuture<Boolean>>> pending = new HashMap<>();
+    Iterator<Map.Entry<VisibilityKey, SettableFuture<Boolean>>> iterator =
+      pendingVisibilityRefreshes.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<VisibilityKey, SettableFuture<Boolean>> entry = iterator.next();
+      iterator.remove();
+      Map<VisibilityKey, SettableFuture<Boolean>> principalKeys = pending.get(entry.getKey().getPrincipal());
+      if (principalKeys == null) {
+        principalKeys = new LinkedHashMap<>();
+        pending.put(entry.getKey().getPrincipal(), principalKeys);
+      }
+      principalKeys.put(entry.getKey(), entry.getValue());
+    }
+
+    for (Map<VisibilityKey, SettableFuture<Boolean>> principalKeys : pending.values()) {
+      for (List<VisibilityKey> batch : Iterables.partition(principalKeys.keySet(),
+                                                           Constants.Security.Authorization.VISIBLE_BATCH_SIZE)) {
+        LOG.trace("Refreshing {}", batch);
+        try {
+          Map<VisibilityKey, Boolean> result = loadVisibility(batch);
+          for (VisibilityKey key : batch) {
+            principalKeys.get(key).set(result.get(key));
+          }
+        } catch (Throwable t) {
+          for (VisibilityKey key : batch) {
+            principalKeys.get(key).setException(t);
+          }
+        }
+      }
+    }
+  }
+
   private Set<? extends EntityId> toEntityIds(Iterable<? extends VisibilityKey> keys) {
     return ImmutableSet.copyOf(Iterables.transform(keys, VISIBILITY_KEY_ENTITY_ID_FUNCTION));
   }
 
-  private Iterable<VisibilityKey> toVisibilityKeys(final Principal principal, Set<? extends EntityId> entityIds) {
-    return Iterables.transform(entityIds, new Function<EntityId, VisibilityKey>() {
-      @Override
-      public VisibilityKey apply(EntityId entityId) {
-        return new VisibilityKey(principal, entityId);
+  /**
+   * The privileges granted to a principal, used to answer checks on the entities they cover without a remote call.
+   * Only positive answers are derived from them, since a principal can also gain privileges through means that are
+   * not listed, such as group membership.
+   */
+  private static final class PrefetchedPrivileges {
+
+    static final PrefetchedPrivileges EMPTY = new PrefetchedPrivileges(Collections.<Privilege>emptySet());
+
+    private final Set<Privilege> privileges;
+    private final Set<Authorizable> authorizables;
+
+    PrefetchedPrivileges(Set<Privilege> privileges) {
+      this.privileges = privileges;
+      this.authorizables = new HashSet<>();
+      for (Privilege privilege : privileges) {
+        authorizables.add(privilege.getAuthorizable());
       }
-    });
+    }
+
+    /**
+     * Returns {@code true} if the given action on the given entity is granted.
+     */
+    boolean isGranted(EntityId entityId, Action action) {
+      return !privileges.isEmpty() && privileges.contains(new Privilege(Authorizable.fromEntityId(entityId), action));
+    }
+
+    /**
+     * Returns {@code true} if there is any privilege on the given entity or on any of its descendants.
+     */
+    boolean isVisible(EntityId entityId) {
+      if (authorizables.isEmpty()) {
+        return false;
+      }
+      Authorizable authorizable = Authorizable.fromEntityId(entityId);
+      if (authorizables.contains(authorizable)) {
+        return true;
+      }
+      // A descendant has all the entity parts of its ancestor
+      Set<Map.Entry<EntityType, String>> entityParts = authorizable.getEntityParts().entrySet();
+      for (Authorizable granted : authorizables) {
+        if (granted.getEntityParts().entrySet().containsAll(entityParts)) {
+          return true;
+        }
+      }
+      return false;
+    }
   }
 
   private static class VisibilityKey {
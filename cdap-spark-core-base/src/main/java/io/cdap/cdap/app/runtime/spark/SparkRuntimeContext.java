@@ -114,6 +114,11 @@ public final class SparkRuntimeContext extends AbstractContext implements Metric
     getMetrics().gauge(metricName, value);
   }
 
+  @Override
+  public void distribution(String metricName, long value) {
+    getMetrics().distribution(metricName, value);
+  }
+
   /**
    * Returns the {@link SparkSpecification} of the spark program of this context.
    */
@@ -56,6 +56,11 @@ public final class SparkUserMetrics implements Metrics, Externalizable {
     delegate.gauge(metricName, value);
   }
 
+  @Override
+  public void distribution(String metricName, long value) {
+    delegate.distribution(metricName, value);
+  }
+
   @Override
   public void writeExternal(ObjectOutput out) throws IOException {
     // no-op
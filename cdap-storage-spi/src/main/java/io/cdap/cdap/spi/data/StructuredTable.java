@@ -16,15 +16,22 @@
 
 package io.cdap.cdap.spi.data;
 
+import io.cdap.cdap.api.dataset.lib.AbstractCloseableIterator;
 import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 import io.cdap.cdap.spi.data.table.StructuredTableSpecification;
 import io.cdap.cdap.spi.data.table.field.Field;
+import io.cdap.cdap.spi.data.table.field.FieldFilter;
 import io.cdap.cdap.spi.data.table.field.Range;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
+import javax.annotation.Nullable;
 
 /**
  * Abstraction for a table that contains rows and columns.
@@ -44,6 +51,23 @@ public interface StructuredTable extends Closeable {
    */
   void upsert(Collection<Field<?>> fields) throws InvalidFieldException, IOException;
 
+  /**
+   * Insert or replace multiple rows in the table. Each element of the given collection contains the fields of a
+   * single row, same as the fields given to {@link #upsert(Collection)}. The rows are written in the iteration order
+   * of the collection. The default implementation calls {@link #upsert(Collection)} for each row.
+   *
+   * @param multiFields the fields of each row to write
+   * @throws InvalidFieldException if any of the fields are not part of the table schema, or the types of the value
+   *                               do not match
+   * @throws IOException if there is an error writing to the table
+   */
+  default void multiUpsert(Collection<? extends Collection<Field<?>>> multiFields)
+    throws InvalidFieldException, IOException {
+    for (Collection<Field<?>> fields : multiFields) {
+      upsert(fields);
+    }
+  }
+
   /**
    * Read a single row with all the columns from the table.
    *
@@ -71,6 +95,26 @@ public interface StructuredTable extends Closeable {
   Optional<StructuredRow> read(Collection<Field<?>> keys,
                                Collection<String> columns) throws InvalidFieldException, IOException;
 
+  /**
+   * Read multiple rows with all the columns from the table.
+   * The rows returned are not in any particular order, and rows that are missing in the table are not returned.
+   * The default implementation calls {@link #read(Collection)} for each row.
+   *
+   * @param multiKeys the primary keys of the rows to read
+   * @return a collection of the rows that exist in the table
+   * @throws InvalidFieldException if any of the keys are not part of the table schema, or the types of the value
+   *                               do not match
+   * @throws IOException if there is an error reading from the table
+   */
+  default Collection<StructuredRow> multiRead(Collection<? extends Collection<Field<?>>> multiKeys)
+    throws InvalidFieldException, IOException {
+    List<StructuredRow> rows = new ArrayList<>();
+    for (Collection<Field<?>> keys : multiKeys) {
+      read(keys).ifPresent(rows::add);
+    }
+    return rows;
+  }
+
   /**
    * Read a set of rows from the table matching the key range.
    * The rows returned will be sorted on the primary key order.
@@ -84,6 +128,76 @@ public interface StructuredTable extends Closeable {
    */
   CloseableIterator<StructuredRow> scan(Range keyRange, int limit) throws InvalidFieldException, IOException;
 
+  /**
+   * Read a set of rows from the table matching the key range and all of the filters, with the specified columns.
+   * The rows returned will be sorted on the primary key order. The filters and the column selection are evaluated
+   * by the table, so that rows or columns that are not returned do not need to be transferred.
+   *
+   * @param keyRange key range for the scan
+   * @param limit maximum number of rows to return, after the filters are applied
+   * @param filters filters on the column values that a row must all match to be returned
+   * @param columns the columns to read, or null to read all the columns. The primary keys will always be contained
+   *                in the rows returned
+   * @return a {@link CloseableIterator} of rows
+   * @throws InvalidFieldException if any of the keys, filters or columns are not part of the table schema, or the
+   *                               types of the value do not match
+   * @throws IOException if there is an error scanning the table
+   */
+  CloseableIterator<StructuredRow> scan(Range keyRange, int limit, Collection<FieldFilter> filters,
+                                        @Nullable Collection<String> columns) throws InvalidFieldException, IOException;
+
+  /**
+   * Read a set of rows from the table matching any of the key ranges.
+   * The rows returned will be sorted on the primary key order if the key ranges are given in the primary key order
+   * and do not overlap. A row that matches more than one of the key ranges may be returned more than once.
+   * The default implementation calls {@link #scan(Range, int)} for each key range, once the rows of the previous
+   * key range are exhausted. Failures to scan a later key range are thrown from the returned iterator, wrapped
+   * in an {@link UncheckedIOException} if needed.
+   *
+   * @param keyRanges key ranges for the scan
+   * @param limit maximum number of rows to return over all the key ranges
+   * @return a {@link CloseableIterator} of rows
+   * @throws InvalidFieldException if any of the keys are not part of the table schema, or the types of the value
+   *                               do not match
+   * @throws IOException if there is an error scanning the table
+   */
+  default CloseableIterator<StructuredRow> scan(Collection<Range> keyRanges,
+                                                int limit) throws InvalidFieldException, IOException {
+    Iterator<Range> rangeIterator = keyRanges.iterator();
+    return new AbstractCloseableIterator<StructuredRow>() {
+      private CloseableIterator<StructuredRow> current;
+      private int count;
+
+      @Override
+      protected StructuredRow computeNext() {
+        while (count < limit) {
+          if (current != null && current.hasNext()) {
+            count++;
+            return current.next();
+          }
+          close();
+          if (!rangeIterator.hasNext()) {
+            break;
+          }
+          try {
+            current = scan(rangeIterator.next(), limit - count);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }
+        return endOfData();
+      }
+
+      @Override
+      public void close() {
+        if (current != null) {
+          current.close();
+          current = null;
+        }
+      }
+    };
+  }
+
   /**
    * Read a set of rows from the table matching the index.
    * The rows returned will be sorted on the primary key order.
@@ -136,6 +250,21 @@ public interface StructuredTable extends Closeable {
    */
   void delete(Collection<Field<?>> keys) throws InvalidFieldException, IOException;
 
+  /**
+   * Delete multiple rows from the table. The default implementation calls {@link #delete(Collection)} for each row.
+   *
+   * @param multiKeys the primary keys of the rows to delete
+   * @throws InvalidFieldException if any of the keys are not part of the table schema, or the types of the value
+   *                               do not match
+   * @throws IOException if there is an error deleting from the table
+   */
+  default void multiDelete(Collection<? extends Collection<Field<?>>> multiKeys)
+    throws InvalidFieldException, IOException {
+    for (Collection<Field<?>> keys : multiKeys) {
+      delete(keys);
+    }
+  }
+
   /**
    * Delete a range of rows from the table.
    *
@@ -0,0 +1,227 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.spi.data.table.field;
+
+import io.cdap.cdap.api.common.Bytes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Represents a condition on the value of a single column, used to filter the rows returned from a scan.
+ * A null column value never matches a comparison, {@link Operator#IN} or {@link Operator#PREFIX} filter, it only
+ * matches an {@link Operator#IS_NULL} filter.
+ */
+public final class FieldFilter {
+  /**
+   * The condition that the column value is tested for.
+   */
+  public enum Operator {
+    EQUAL,
+    NOT_EQUAL,
+    LESS_THAN,
+    LESS_THAN_OR_EQUAL,
+    GREATER_THAN,
+    GREATER_THAN_OR_EQUAL,
+    IN,
+    PREFIX,
+    IS_NULL,
+    IS_NOT_NULL
+  }
+
+  private final String name;
+  private final Operator operator;
+  private final List<Field<?>> values;
+
+  private FieldFilter(String name, Operator operator, List<Field<?>> values) {
+    for (Field<?> value : values) {
+      if (value.getValue() == null) {
+        throw new IllegalArgumentException(
+          String.format("The value of the %s filter on %s cannot be null", operator, name));
+      }
+      if (!name.equals(value.getName()) || value.getFieldType() != values.get(0).getFieldType()) {
+        throw new IllegalArgumentException(
+          String.format("The values of the %s filter on %s must all be of the same field", operator, name));
+      }
+    }
+    this.name = name;
+    this.operator = operator;
+    this.values = values;
+  }
+
+  /**
+   * Create a filter that matches if the column value is equal to the value of the given field.
+   */
+  public static FieldFilter equal(Field<?> field) {
+    return new FieldFilter(field.getName(), Operator.EQUAL, Collections.singletonList(field));
+  }
+
+  /**
+   * Create a filter that matches if the column value is not null and is not equal to the value of the given field.
+   */
+  public static FieldFilter notEqual(Field<?> field) {
+    return new FieldFilter(field.getName(), Operator.NOT_EQUAL, Collections.singletonList(field));
+  }
+
+  /**
+   * Create a filter that matches if the column value is less than the value of the given field.
+   */
+  public static FieldFilter lessThan(Field<?> field) {
+    return new FieldFilter(field.getName(), Operator.LESS_THAN, Collections.singletonList(field));
+  }
+
+  /**
+   * Create a filter that matches if the column value is less than or equal to the value of the given field.
+   */
+  public static FieldFilter lessThanOrEqual(Field<?> field) {
+    return new FieldFilter(field.getName(), Operator.LESS_THAN_OR_EQUAL, Collections.singletonList(field));
+  }
+
+  /**
+   * Create a filter that matches if the column value is greater than the value of the given field.
+   */
+  public static FieldFilter greaterThan(Field<?> field) {
+    return new FieldFilter(field.getName(), Operator.GREATER_THAN, Collections.singletonList(field));
+  }
+
+  /**
+   * Create a filter that matches if the column value is greater than or equal to the value of the given field.
+   */
+  public static FieldFilter greaterThanOrEqual(Field<?> field) {
+    return new FieldFilter(field.getName(), Operator.GREATER_THAN_OR_EQUAL, Collections.singletonList(field));
+  }
+
+  /**
+   * Create a filter that matches if the column value is equal to the value of any of the given fields.
+   *
+   * @param fields the fields to match, they must all have the same name and type
+   * @return a filter object
+   */
+  public static FieldFilter in(Collection<? extends Field<?>> fields) {
+    if (fields.isEmpty()) {
+      throw new IllegalArgumentException("The fields of an IN filter cannot be empty");
+    }
+    return new FieldFilter(fields.iterator().next().getName(), Operator.IN, new ArrayList<>(fields));
+  }
+
+  /**
+   * Create a filter that matches if the value of a string column starts with the given prefix.
+   *
+   * @param name the name of the column
+   * @param prefix the prefix to match
+   * @return a filter object
+   */
+  public static FieldFilter prefix(String name, String prefix) {
+    return new FieldFilter(name, Operator.PREFIX, Collections.singletonList(Fields.stringField(name, prefix)));
+  }
+
+  /**
+   * Create a filter that matches if the column value is null.
+   */
+  public static FieldFilter isNull(String name) {
+    return new FieldFilter(name, Operator.IS_NULL, Collections.emptyList());
+  }
+
+  /**
+   * Create a filter that matches if the column value is not null.
+   */
+  public static FieldFilter isNotNull(String name) {
+    return new FieldFilter(name, Operator.IS_NOT_NULL, Collections.emptyList());
+  }
+
+  /**
+   * @return the name of the column to filter on
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the condition that the column value is tested for
+   */
+  public Operator getOperator() {
+    return operator;
+  }
+
+  /**
+   * @return the values to test the column value against, empty for {@link Operator#IS_NULL} and
+   *         {@link Operator#IS_NOT_NULL} filters
+   */
+  public List<Field<?>> getValues() {
+    return values;
+  }
+
+  /**
+   * Test a column value against this filter. Implementations that cannot evaluate the filter in the storage can use
+   * this method to evaluate it on the rows read.
+   *
+   * @param value the column value, which must be of the same type as the values of this filter
+   * @return true if the value matches this filter
+   */
+  public boolean matches(@Nullable Object value) {
+    switch (operator) {
+      case IS_NULL:
+        return value == null;
+      case IS_NOT_NULL:
+        return value != null;
+    }
+    if (value == null) {
+      return false;
+    }
+
+    switch (operator) {
+      case EQUAL:
+        return compare(value, values.get(0)) == 0;
+      case NOT_EQUAL:
+        return compare(value, values.get(0)) != 0;
+      case LESS_THAN:
+        return compare(value, values.get(0)) < 0;
+      case LESS_THAN_OR_EQUAL:
+        return compare(value, values.get(0)) <= 0;
+      case GREATER_THAN:
+        return compare(value, values.get(0)) > 0;
+      case GREATER_THAN_OR_EQUAL:
+        return compare(value, values.get(0)) >= 0;
+      case IN:
+        return values.stream().anyMatch(field -> compare(value, field) == 0);
+      case PREFIX:
+        return ((String) value).startsWith((String) values.get(0).getValue());
+      default:
+        throw new IllegalStateException("Unknown filter operator " + operator);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static int compare(Object value, Field<?> field) {
+    if (value instanceof byte[]) {
+      return Bytes.compareTo((byte[]) value, (byte[]) field.getValue());
+    }
+    return ((Comparable<Object>) value).compareTo(field.getValue());
+  }
+
+  @Override
+  public String toString() {
+    return "FieldFilter{" +
+      "name='" + name + '\'' +
+      ", operator=" + operator +
+      ", values=" + values +
+      '}';
+  }
+}
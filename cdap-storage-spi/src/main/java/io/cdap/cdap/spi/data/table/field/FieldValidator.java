@@ -56,6 +56,23 @@ public final class FieldValidator {
   }
 
 
+  /**
+   * Validate if the given filter matches the schema. The filter is invalid if: its column is not present in the given
+   * schema, the types of its values are different than the given schema, or if it is a prefix filter on a column
+   * that is not of string type.
+   *
+   * @param filter the filter to validate
+   * @throws InvalidFieldException if the filter does not pass the validation
+   */
+  public void validateFilter(FieldFilter filter) throws InvalidFieldException {
+    if (tableSchema.getType(filter.getName()) == null) {
+      throw new InvalidFieldException(tableSchema.getTableId(), filter.getName());
+    }
+    for (Field<?> value : filter.getValues()) {
+      validateField(value);
+    }
+  }
+
   /**
    * Validate if the given keys are prefix or complete primary keys.
    *
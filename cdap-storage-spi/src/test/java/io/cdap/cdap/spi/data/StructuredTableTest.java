@@ -22,6 +22,7 @@ import io.cdap.cdap.spi.data.table.StructuredTableId;
 import io.cdap.cdap.spi.data.table.StructuredTableSchema;
 import io.cdap.cdap.spi.data.table.StructuredTableSpecification;
 import io.cdap.cdap.spi.data.table.field.Field;
+import io.cdap.cdap.spi.data.table.field.FieldFilter;
 import io.cdap.cdap.spi.data.table.field.FieldType;
 import io.cdap.cdap.spi.data.table.field.Fields;
 import io.cdap.cdap.spi.data.table.field.Range;
@@ -37,6 +38,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -445,6 +447,171 @@ public abstract class StructuredTableTest {
     });
   }
 
+  @Test
+  public void testFilterScan() throws Exception {
+    int max = 12;
+    List<Collection<Field<?>>> expected = writeSimpleStructuredRows(max, "");
+
+    // comparisons on multiple columns, should return 3, 4 and 5
+    List<FieldFilter> filters = Arrays.asList(FieldFilter.greaterThanOrEqual(Fields.doubleField(DOUBLE_COL, 3.0d)),
+                                              FieldFilter.lessThan(Fields.floatField(FLOAT_COL, 6.0f)));
+    Assert.assertEquals(expected.subList(3, 6),
+                        scanSimpleStructuredRows(table -> table.scan(Range.all(), max, filters, null), max));
+
+    // filter on a primary key column
+    List<FieldFilter> keyFilter = Collections.singletonList(FieldFilter.notEqual(Fields.longField(KEY2, 5L)));
+    List<Collection<Field<?>>> expectedKeys = new ArrayList<>(expected);
+    expectedKeys.remove(5);
+    Assert.assertEquals(expectedKeys,
+                        scanSimpleStructuredRows(table -> table.scan(Range.all(), max, keyFilter, null), max));
+
+    // IN filter, with the limit applied on the filtered rows
+    List<FieldFilter> inFilter = Collections.singletonList(
+      FieldFilter.in(Arrays.asList(Fields.stringField(STRING_COL, VAL + 7), Fields.stringField(STRING_COL, VAL + 1),
+                                   Fields.stringField(STRING_COL, "non"))));
+    Assert.assertEquals(Arrays.asList(expected.get(1), expected.get(7)),
+                        scanSimpleStructuredRows(table -> table.scan(Range.all(), max, inFilter, null), max));
+    Assert.assertEquals(Collections.singletonList(expected.get(1)),
+                        scanSimpleStructuredRows(table -> table.scan(Range.all(), 1, inFilter, null), max));
+
+    // prefix filter, within a key range
+    List<FieldFilter> prefixFilter = Collections.singletonList(FieldFilter.prefix(STRING_COL, VAL + 1));
+    Range range = Range.from(Collections.singleton(Fields.intField(KEY, 5)), Range.Bound.INCLUSIVE);
+    Assert.assertEquals(expected.subList(10, 12),
+                        scanSimpleStructuredRows(table -> table.scan(range, max, prefixFilter, null), max));
+
+    // wildcards in the prefix match literally
+    List<FieldFilter> wildcardFilter = Collections.singletonList(FieldFilter.prefix(STRING_COL, "v%"));
+    Assert.assertEquals(Collections.emptyList(),
+                        scanSimpleStructuredRows(table -> table.scan(Range.all(), max, wildcardFilter, null), max));
+
+    // null checks on a column that is never written
+    List<FieldFilter> nullFilter = Collections.singletonList(FieldFilter.isNull(LONG_COL));
+    Assert.assertEquals(expected,
+                        scanSimpleStructuredRows(table -> table.scan(Range.all(), max, nullFilter, null), max));
+    List<FieldFilter> notNullFilter = Collections.singletonList(FieldFilter.isNotNull(LONG_COL));
+    Assert.assertEquals(Collections.emptyList(),
+                        scanSimpleStructuredRows(table -> table.scan(Range.all(), max, notNullFilter, null), max));
+
+    // only the selected columns and the primary keys are read
+    getTransactionRunner().run(context -> {
+      StructuredTable table = context.getTable(SIMPLE_TABLE);
+      try (CloseableIterator<StructuredRow> iterator =
+             table.scan(Range.all(), max, Collections.emptyList(), Collections.singleton(STRING_COL))) {
+        List<Collection<Field<?>>> rows = convertRowsToFields(iterator, Arrays.asList(KEY, KEY2, STRING_COL));
+        Assert.assertEquals(max, rows.size());
+        for (int i = 0; i < max; i++) {
+          Assert.assertEquals(new ArrayList<>(expected.get(i)).subList(0, 3), rows.get(i));
+        }
+      }
+      try (CloseableIterator<StructuredRow> iterator =
+             table.scan(Range.all(), max, Collections.emptyList(), Collections.singleton(STRING_COL))) {
+        Assert.assertNull(iterator.next().getDouble(DOUBLE_COL));
+      }
+    });
+
+    // invalid filters
+    getTransactionRunner().run(context -> {
+      StructuredTable table = context.getTable(SIMPLE_TABLE);
+      for (FieldFilter filter : Arrays.asList(FieldFilter.isNull("non"),
+                                              FieldFilter.prefix(DOUBLE_COL, "1"),
+                                              FieldFilter.equal(Fields.stringField(LONG_COL, "1")))) {
+        try {
+          table.scan(Range.all(), max, Collections.singleton(filter), null).close();
+          Assert.fail("Expected InvalidFieldException for filter " + filter);
+        } catch (InvalidFieldException e) {
+          // Expected
+        }
+      }
+    });
+  }
+
+  @Test
+  public void testMultiReadWriteDelete() throws Exception {
+    int max = 10;
+    List<Collection<Field<?>>> expected = new ArrayList<>(max);
+    for (int i = 0; i < max; i++) {
+      expected.add(Arrays.asList(Fields.intField(KEY, i),
+                                 Fields.longField(KEY2, (long) i),
+                                 Fields.stringField(STRING_COL, VAL + i),
+                                 Fields.doubleField(DOUBLE_COL, (double) i),
+                                 Fields.floatField(FLOAT_COL, (float) i),
+                                 Fields.bytesField(BYTES_COL, Bytes.toBytes("bytes-" + i))));
+    }
+    getTransactionRunner().run(context -> context.getTable(SIMPLE_TABLE).multiUpsert(expected));
+    Assert.assertEquals(expected, readSimpleStructuredRows(max));
+
+    // Read the even rows and a row that does not exist
+    List<Collection<Field<?>>> multiKeys = new ArrayList<>();
+    for (int i = 0; i <= max; i += 2) {
+      multiKeys.add(Arrays.asList(Fields.intField(KEY, i), Fields.longField(KEY2, (long) i)));
+    }
+    List<Collection<Field<?>>> actual = new ArrayList<>();
+    getTransactionRunner().run(context -> {
+      StructuredTable table = context.getTable(SIMPLE_TABLE);
+      actual.addAll(convertRowsToFields(table.multiRead(multiKeys).iterator(),
+                                        Arrays.asList(KEY, KEY2, STRING_COL, DOUBLE_COL, FLOAT_COL, BYTES_COL)));
+    });
+    actual.sort(Comparator.comparing(fields -> (Integer) fields.iterator().next().getValue()));
+    List<Collection<Field<?>>> expectedEven = new ArrayList<>();
+    for (int i = 0; i < max; i += 2) {
+      expectedEven.add(expected.get(i));
+    }
+    Assert.assertEquals(expectedEven, actual);
+
+    // Incomplete primary keys should fail the read
+    getTransactionRunner().run(context -> {
+      StructuredTable table = context.getTable(SIMPLE_TABLE);
+      List<Field<?>> incompleteKeys = Collections.singletonList(Fields.intField(KEY, 1));
+      try {
+        table.multiRead(Collections.singletonList(incompleteKeys));
+        Assert.fail("Expected InvalidFieldException for reading with incomplete primary keys");
+      } catch (InvalidFieldException e) {
+        // Expected
+      }
+    });
+
+    // Delete the even rows
+    getTransactionRunner().run(context -> context.getTable(SIMPLE_TABLE).multiDelete(multiKeys));
+    List<Collection<Field<?>>> expectedOdd = new ArrayList<>(expected);
+    expectedOdd.removeAll(expectedEven);
+    Assert.assertEquals(expectedOdd, readSimpleStructuredRows(max));
+
+    // Empty collections should not fail
+    getTransactionRunner().run(context -> {
+      StructuredTable table = context.getTable(SIMPLE_TABLE);
+      table.multiUpsert(Collections.emptyList());
+      Assert.assertTrue(table.multiRead(Collections.emptyList()).isEmpty());
+      table.multiDelete(Collections.emptyList());
+    });
+    Assert.assertEquals(expectedOdd, readSimpleStructuredRows(max));
+  }
+
+  @Test
+  public void testMultiRangeScan() throws Exception {
+    int max = 10;
+    List<Collection<Field<?>>> expected = writeSimpleStructuredRows(max, "");
+
+    // scan [1, 3) and (5, 7], should return 1, 2, 6 and 7
+    List<Range> ranges = Arrays.asList(
+      Range.create(Collections.singletonList(Fields.intField(KEY, 1)), Range.Bound.INCLUSIVE,
+                   Collections.singletonList(Fields.intField(KEY, 3)), Range.Bound.EXCLUSIVE),
+      Range.create(Collections.singletonList(Fields.intField(KEY, 5)), Range.Bound.EXCLUSIVE,
+                   Arrays.asList(Fields.intField(KEY, 7), Fields.longField(KEY2, 7L)), Range.Bound.INCLUSIVE));
+    List<Collection<Field<?>>> expectedRanges = new ArrayList<>(expected.subList(1, 3));
+    expectedRanges.addAll(expected.subList(6, 8));
+    Assert.assertEquals(expectedRanges, scanSimpleStructuredRows(ranges, max));
+
+    // the limit applies over all the ranges
+    Assert.assertEquals(expectedRanges.subList(0, 3), scanSimpleStructuredRows(ranges, 3));
+
+    // a range with no bound returns all the rows
+    Assert.assertEquals(expected, scanSimpleStructuredRows(Collections.singletonList(Range.all()), max));
+
+    // no range returns nothing
+    Assert.assertEquals(Collections.emptyList(), scanSimpleStructuredRows(Collections.emptyList(), max));
+  }
+
   private List<Collection<Field<?>>> writeSimpleStructuredRows(int max, String suffix) throws Exception {
     List<Collection<Field<?>>> expected = new ArrayList<>(max);
     // Write rows in reverse order to test sorting
@@ -561,10 +728,18 @@ public abstract class StructuredTableTest {
   }
 
   private List<Collection<Field<?>>> scanSimpleStructuredRows(Range range, int max) throws Exception {
+    return scanSimpleStructuredRows(table -> table.scan(range, max), max);
+  }
+
+  private List<Collection<Field<?>>> scanSimpleStructuredRows(Collection<Range> ranges, int max) throws Exception {
+    return scanSimpleStructuredRows(table -> table.scan(ranges, max), max);
+  }
+
+  private List<Collection<Field<?>>> scanSimpleStructuredRows(ScanFunction scanFunction, int max) throws Exception {
     List<Collection<Field<?>>> actual = new ArrayList<>(max);
     getTransactionRunner().run(context -> {
       StructuredTable table = context.getTable(SIMPLE_TABLE);
-      try (CloseableIterator<StructuredRow> iterator = table.scan(range, max)) {
+      try (CloseableIterator<StructuredRow> iterator = scanFunction.scan(table)) {
         while (iterator.hasNext()) {
           StructuredRow row = iterator.next();
           actual.add(Arrays.asList(Fields.intField(KEY, row.getInteger(KEY)),
@@ -578,4 +753,11 @@ public abstract class StructuredTableTest {
     });
     return actual;
   }
+
+  /**
+   * Function to scan a {@link StructuredTable}.
+   */
+  private interface ScanFunction {
+    CloseableIterator<StructuredRow> scan(StructuredTable table) throws Exception;
+  }
 }
@@ -19,6 +19,7 @@ package io.cdap.cdap.messaging.service;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 import io.cdap.cdap.api.metrics.MetricsCollector;
+import io.cdap.cdap.api.metrics.MetricsContext;
 import io.cdap.cdap.api.metrics.NoopMetricsContext;
 import io.cdap.cdap.messaging.RollbackDetail;
 import io.cdap.cdap.messaging.StoreRequest;
@@ -31,6 +32,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
@@ -63,7 +65,7 @@ import javax.annotation.concurrent.ThreadSafe;
 final class ConcurrentMessageWriter implements Closeable {
 
   private final StoreRequestWriter<?> messagesWriter;
-  private final MetricsCollector metricsCollector;
+  private final MetricsContext metricsCollector;
   private final PendingStoreQueue pendingStoreQueue;
   private final AtomicBoolean writerFlag;
   private final AtomicBoolean closed;
@@ -80,9 +82,9 @@ final class ConcurrentMessageWriter implements Closeable {
    * Constructor.
    *
    * @param messagesWriter the {@link StoreRequestWriter} for persisting {@link StoreRequest}.
-   * @param metricsCollector the {@link MetricsCollector} for collecting metrics emitted by this class.
+   * @param metricsCollector the {@link MetricsContext} for collecting metrics emitted by this class.
    */
-  ConcurrentMessageWriter(StoreRequestWriter<?> messagesWriter, MetricsCollector metricsCollector) {
+  ConcurrentMessageWriter(StoreRequestWriter<?> messagesWriter, MetricsContext metricsCollector) {
     this.messagesWriter = messagesWriter;
     this.metricsCollector = metricsCollector;
     this.pendingStoreQueue = new PendingStoreQueue(metricsCollector);
@@ -106,6 +108,7 @@ final class ConcurrentMessageWriter implements Closeable {
       throw new IOException("Message writer is already closed");
     }
 
+    long startTime = System.nanoTime();
     PendingStoreRequest pendingStoreRequest = new PendingStoreRequest(storeRequest, metadata);
     pendingStoreQueue.enqueue(pendingStoreRequest);
 
@@ -116,6 +119,8 @@ final class ConcurrentMessageWriter implements Closeable {
         Thread.yield();
       }
     }
+    metricsCollector.distribution("persist.latency.us",
+                                  TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
 
     if (pendingStoreRequest.isSuccess()) {
       metricsCollector.increment("persist.success", 1L);
@@ -21,7 +21,7 @@ import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
 import com.google.common.util.concurrent.Uninterruptibles;
 import io.cdap.cdap.api.common.Bytes;
-import io.cdap.cdap.api.metrics.MetricsCollector;
+import io.cdap.cdap.api.metrics.MetricsContext;
 import io.cdap.cdap.common.utils.TimeProvider;
 import io.cdap.cdap.messaging.StoreRequest;
 import io.cdap.cdap.messaging.TopicMetadata;
@@ -37,9 +37,11 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
@@ -154,7 +156,7 @@ public class ConcurrentMessageWriterTest {
     // before flushing.
     // This will make all requests batched together
     final CountDownLatch latch = new CountDownLatch(requestCount);
-    final ConcurrentMessageWriter writer = new ConcurrentMessageWriter(testWriter, new MetricsCollector() {
+    final ConcurrentMessageWriter writer = new ConcurrentMessageWriter(testWriter, new MetricsContext() {
       @Override
       public void increment(String metricName, long value) {
         if ("persist.requested".equals(metricName)) {
@@ -167,6 +169,21 @@ public class ConcurrentMessageWriterTest {
       public void gauge(String metricName, long value) {
         LOG.info("MetricsContext.gauge: {} = {}", metricName, value);
       }
+
+      @Override
+      public MetricsContext childContext(Map<String, String> tags) {
+        return this;
+      }
+
+      @Override
+      public MetricsContext childContext(String tagName, String tagValue) {
+        return this;
+      }
+
+      @Override
+      public Map<String, String> getTags() {
+        return Collections.emptyMap();
+      }
     });
 
     ExecutorService executor = Executors.newFixedThreadPool(3);
@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.api.metrics;
+
+import java.util.Map;
+import java.util.SortedMap;
+import javax.annotation.Nullable;
+
+/**
+ * Defines the bucketing of distribution metrics.
+ * <p>
+ * A distribution metric is recorded as a set of counters, one per bucket of a log-linear histogram, similar to
+ * HDR histogram. Values below {@link #LINEAR_LIMIT} have their own bucket, while larger values are bucketed into
+ * {@code 2^SUB_BUCKET_BITS} sub-buckets per power of two, which bounds the relative error of a reported
+ * percentile to 12.5%. Since each bucket is a plain counter, distributions are aggregated and stored the same way
+ * as counter metrics and remain mergeable across time, instances and tags.
+ * </p>
+ * The counter of a bucket is named {@code <metric>.bucket.<index>}.
+ */
+public final class MetricDistribution {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int LINEAR_LIMIT = 1 << (SUB_BUCKET_BITS + 1);
+  // The exponent of the first non-linear bucket
+  private static final int MIN_EXPONENT = SUB_BUCKET_BITS + 1;
+  // The exponent of Long.MAX_VALUE
+  private static final int MAX_EXPONENT = 62;
+
+  /**
+   * Total number of buckets of a distribution.
+   */
+  public static final int NUM_BUCKETS = LINEAR_LIMIT + (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKETS;
+
+  private static final String BUCKET_INFIX = ".bucket.";
+
+  private MetricDistribution() {
+    // no-op
+  }
+
+  /**
+   * Returns the index of the bucket that the given value falls into. Negative values are treated as {@code 0}.
+   */
+  public static int getBucketIndex(long value) {
+    if (value < LINEAR_LIMIT) {
+      return value <= 0 ? 0 : (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return LINEAR_LIMIT + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * Returns the smallest value that falls into the given bucket.
+   */
+  public static long getBucketLowerBound(int index) {
+    if (index < LINEAR_LIMIT) {
+      return index;
+    }
+    int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + MIN_EXPONENT;
+    int subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+    return ((long) (SUB_BUCKETS + subBucket)) << (exponent - SUB_BUCKET_BITS);
+  }
+
+  /**
+   * Returns the largest value that falls into the given bucket.
+   */
+  public static long getBucketUpperBound(int index) {
+    if (index < LINEAR_LIMIT) {
+      return index;
+    }
+    int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + MIN_EXPONENT;
+    return getBucketLowerBound(index) + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+  }
+
+  /**
+   * Returns the name of the counter metric that counts the values in the given bucket of a distribution metric.
+   */
+  public static String getBucketMetricName(String metricName, int index) {
+    return metricName + BUCKET_INFIX + index;
+  }
+
+  /**
+   * Returns the bucket index encoded in the given bucket metric name, or {@code null} if the name is not a bucket
+   * of the given distribution metric.
+   */
+  @Nullable
+  public static Integer getBucketIndex(String metricName, String bucketMetricName) {
+    int prefixLength = metricName.length() + BUCKET_INFIX.length();
+    if (bucketMetricName.length() <= prefixLength || !bucketMetricName.startsWith(metricName)
+      || !bucketMetricName.startsWith(BUCKET_INFIX, metricName.length())) {
+      return null;
+    }
+    try {
+      int index = Integer.parseInt(bucketMetricName.substring(prefixLength));
+      return index >= 0 && index < NUM_BUCKETS ? index : null;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the name of the distribution metric that the given metric name is a bucket counter of, or {@code null}
+   * if the name is not the name of a bucket counter.
+   */
+  @Nullable
+  public static String getDistributionName(String bucketMetricName) {
+    int index = bucketMetricName.lastIndexOf(BUCKET_INFIX);
+    if (index <= 0) {
+      return null;
+    }
+    String metricName = bucketMetricName.substring(0, index);
+    return getBucketIndex(metricName, bucketMetricName) == null ? null : metricName;
+  }
+
+  /**
+   * Computes a percentile from bucket counts.
+   *
+   * @param bucketCounts map from bucket index to the number of values in the bucket
+   * @param percentile the percentile to compute, between {@code 0} and {@code 100}
+   * @return the upper bound of the bucket that contains the percentile, or {@code 0} if there are no values
+   */
+  public static long getPercentile(SortedMap<Integer, Long> bucketCounts, double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+    }
+    long total = 0;
+    for (long count : bucketCounts.values()) {
+      total += count;
+    }
+    if (total <= 0) {
+      return 0;
+    }
+    long rank = Math.max(1L, (long) Math.ceil(percentile / 100 * total));
+    long seen = 0;
+    int lastIndex = 0;
+    for (Map.Entry<Integer, Long> entry : bucketCounts.entrySet()) {
+      seen += entry.getValue();
+      lastIndex = entry.getKey();
+      if (seen >= rank) {
+        break;
+      }
+    }
+    return getBucketUpperBound(lastIndex);
+  }
+}
@@ -38,4 +38,16 @@ public interface MetricsContext extends MetricsCollector {
    * @return tags that identify the context.
    */
   Map<String, String> getTags();
+
+  /**
+   * Records a value of a distribution metric at the current time, such as a latency. Percentiles of the
+   * distribution can be queried from the metrics system. See {@link MetricDistribution} for how the distribution
+   * is recorded.
+   *
+   * @param metricName Name of the metric.
+   * @param value value to record in the distribution.
+   */
+  default void distribution(String metricName, long value) {
+    increment(MetricDistribution.getBucketMetricName(metricName, MetricDistribution.getBucketIndex(value)), 1L);
+  }
 }
@@ -16,36 +16,79 @@
 
 package io.cdap.cdap.logging.appender;
 
+import ch.qos.logback.classic.Level;
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.api.metrics.NoopMetricsContext;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.service.AbstractRetryableScheduledService;
 import io.cdap.cdap.common.service.RetryStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * A class that continuously serializes logs from a queue and publishes them.
+ * <p>
+ * Adding a message never blocks the logging thread for long. The queue is bounded, and once it is filled above
+ * the pressure ratio, messages below the pressure level are sampled. When the queue is full, messages below the
+ * pressure level are dropped, while messages at or above it wait up to a configured time for space before being
+ * dropped. The number of dropped messages per level is emitted as metrics and reported periodically in the log.
+ * </p>
  *
  * @param <MESSAGE> the type of message used in the in-memory buffer, before publishing
  */
 public abstract class AbstractLogPublisher<MESSAGE> extends AbstractRetryableScheduledService {
   private static final Logger LOG = LoggerFactory.getLogger(AbstractLogPublisher.class);
+  private static final long DROPPED_REPORT_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
 
   private final int queueSize;
   private final BlockingQueue<LogMessage> messageQueue;
   private final List<MESSAGE> buffer;
+  private final int pressureSize;
+  private final Level pressureLevel;
+  private final int pressureSampleRate;
+  private final long fullWaitMillis;
+  private final AtomicLong sampleCounter;
+  private final ConcurrentMap<Level, LongAdder> droppedMessages;
+  private final Map<Level, Long> reportedDroppedMessages;
+  private volatile MetricsContext metricsContext;
+  private long lastDroppedReportTime;
   private volatile boolean failed;
   private volatile Thread publishThread;
 
-  public AbstractLogPublisher(int queueSize, RetryStrategy retryStrategy) {
+  public AbstractLogPublisher(CConfiguration cConf, int queueSize, RetryStrategy retryStrategy) {
     super(retryStrategy);
     this.queueSize = queueSize;
     this.messageQueue = new ArrayBlockingQueue<>(queueSize);
     this.buffer = new ArrayList<>(queueSize);
+    this.pressureSize = (int) (queueSize * cConf.getDouble(Constants.Logging.APPENDER_PRESSURE_RATIO));
+    this.pressureLevel = Level.toLevel(cConf.get(Constants.Logging.APPENDER_PRESSURE_LEVEL), Level.WARN);
+    this.pressureSampleRate = Math.max(1, cConf.getInt(Constants.Logging.APPENDER_PRESSURE_SAMPLE_RATE));
+    this.fullWaitMillis = cConf.getLong(Constants.Logging.APPENDER_FULL_WAIT_MS);
+    this.sampleCounter = new AtomicLong();
+    this.droppedMessages = new ConcurrentHashMap<>();
+    this.reportedDroppedMessages = new LinkedHashMap<>();
+    this.metricsContext = new NoopMetricsContext();
+  }
+
+  /**
+   * Sets the {@link MetricsContext} for emitting the number of dropped log messages per log level.
+   */
+  public final void setMetricsContext(MetricsContext metricsContext) {
+    this.metricsContext = metricsContext;
   }
 
   /**
@@ -65,12 +108,35 @@ public abstract class AbstractLogPublisher<MESSAGE> extends AbstractRetryableSch
   protected abstract void publish(List<MESSAGE> logMessages) throws Exception;
 
   /**
-   * Adds a log message for publishing.
+   * Adds a log message for publishing. Depending on the level of the message and how full the queue is,
+   * the message may be dropped.
    *
    * @param logMessage the log message to add for publishing
    */
   public final void addMessage(LogMessage logMessage) throws InterruptedException {
-    messageQueue.put(logMessage);
+    boolean important = logMessage.getLevel().isGreaterOrEqual(pressureLevel);
+    if (!important && messageQueue.size() >= pressureSize
+      && sampleCounter.getAndIncrement() % pressureSampleRate != 0) {
+      dropped(logMessage);
+      return;
+    }
+    if (messageQueue.offer(logMessage)) {
+      return;
+    }
+    if (!important || fullWaitMillis <= 0 || !messageQueue.offer(logMessage, fullWaitMillis, TimeUnit.MILLISECONDS)) {
+      dropped(logMessage);
+    }
+  }
+
+  /**
+   * Returns the number of log messages dropped so far for each log level.
+   */
+  public final Map<Level, Long> getDroppedMessages() {
+    Map<Level, Long> result = new LinkedHashMap<>();
+    for (Map.Entry<Level, LongAdder> entry : droppedMessages.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().sum());
+    }
+    return result;
   }
 
   @Override
@@ -80,6 +146,7 @@ public abstract class AbstractLogPublisher<MESSAGE> extends AbstractRetryableSch
     // We only clear the buffer once the messages are successfully published
     buffer.clear();
     failed = false;
+    reportDroppedMessages(false);
     return 0;
   }
 
@@ -116,6 +183,7 @@ public abstract class AbstractLogPublisher<MESSAGE> extends AbstractRetryableSch
       // Ignore those that cannot be publish since we are already in shutdown sequence
       buffer.clear();
     }
+    reportDroppedMessages(true);
   }
 
   /**
@@ -128,6 +196,50 @@ public abstract class AbstractLogPublisher<MESSAGE> extends AbstractRetryableSch
     LOG.error(errorMessage, exception);
   }
 
+  /**
+   * Logs a warning message, depending on the capabilities of the subclass.
+   *
+   * @param warnMessage the warning message to be logged
+   */
+  protected void logWarning(String warnMessage) {
+    LOG.warn(warnMessage);
+  }
+
+  private void dropped(LogMessage logMessage) {
+    LongAdder counter = droppedMessages.get(logMessage.getLevel());
+    if (counter == null) {
+      counter = droppedMessages.computeIfAbsent(logMessage.getLevel(), level -> new LongAdder());
+    }
+    counter.increment();
+    metricsContext.increment(String.format("%s.%s", Constants.Metrics.Name.Log.APPENDER_DROPPED,
+                                           logMessage.getLevel().toString().toLowerCase(Locale.ENGLISH)), 1L);
+  }
+
+  /**
+   * Reports the number of log messages dropped since the last report, at most once per report interval
+   * unless forced.
+   */
+  private void reportDroppedMessages(boolean force) {
+    long now = System.currentTimeMillis();
+    if (droppedMessages.isEmpty() || (!force && now - lastDroppedReportTime < DROPPED_REPORT_INTERVAL_MILLIS)) {
+      return;
+    }
+    lastDroppedReportTime = now;
+
+    Map<Level, Long> dropped = new LinkedHashMap<>();
+    for (Map.Entry<Level, Long> entry : getDroppedMessages().entrySet()) {
+      Long reported = reportedDroppedMessages.put(entry.getKey(), entry.getValue());
+      long count = entry.getValue() - (reported == null ? 0L : reported);
+      if (count > 0) {
+        dropped.put(entry.getKey(), count);
+      }
+    }
+    if (!dropped.isEmpty()) {
+      logWarning(String.format("Dropped log messages in %s since the publish queue of size %d is under pressure: %s",
+                               getServiceName(), queueSize, dropped));
+    }
+  }
+
   /**
    * Publishes messages from the message queue.
    *
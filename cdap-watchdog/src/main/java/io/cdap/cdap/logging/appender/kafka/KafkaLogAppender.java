@@ -16,7 +16,9 @@
 
 package io.cdap.cdap.logging.appender.kafka;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
+import io.cdap.cdap.api.metrics.MetricsCollectionService;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.service.RetryStrategies;
@@ -24,6 +26,7 @@ import io.cdap.cdap.logging.appender.AbstractLogPublisher;
 import io.cdap.cdap.logging.appender.LogAppender;
 import io.cdap.cdap.logging.appender.LogMessage;
 import io.cdap.cdap.logging.serialize.LoggingEventSerializer;
+import io.cdap.cdap.proto.id.NamespaceId;
 import kafka.producer.KeyedMessage;
 
 import java.util.List;
@@ -45,6 +48,14 @@ public final class KafkaLogAppender extends LogAppender {
     this.kafkaLogPublisher = new KafkaLogPublisher(cConf);
   }
 
+  @SuppressWarnings("unused")
+  @Inject(optional = true)
+  void setMetricsCollectionService(MetricsCollectionService metricsCollectionService) {
+    kafkaLogPublisher.setMetricsContext(metricsCollectionService.getContext(ImmutableMap.of(
+      Constants.Metrics.Tag.NAMESPACE, NamespaceId.SYSTEM.getNamespace(),
+      Constants.Metrics.Tag.COMPONENT, APPENDER_NAME)));
+  }
+
   @Override
   public void start() {
     kafkaLogPublisher.startAndWait();
@@ -82,7 +93,7 @@ public final class KafkaLogAppender extends LogAppender {
     private SimpleKafkaProducer producer;
 
     private KafkaLogPublisher(CConfiguration cConf) {
-      super(QUEUE_SIZE, RetryStrategies.fromConfiguration(cConf, "system.log.process."));
+      super(cConf, QUEUE_SIZE, RetryStrategies.fromConfiguration(cConf, "system.log.process."));
       this.cConf = cConf;
       this.topic = cConf.get(Constants.Logging.KAFKA_TOPIC);
       this.loggingEventSerializer = new LoggingEventSerializer();
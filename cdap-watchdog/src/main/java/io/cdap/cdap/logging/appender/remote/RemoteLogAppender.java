@@ -17,9 +17,11 @@
 package io.cdap.cdap.logging.appender.remote;
 
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.hash.Hashing;
 import com.google.common.net.HttpHeaders;
 import com.google.inject.Inject;
+import io.cdap.cdap.api.metrics.MetricsCollectionService;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.http.DefaultHttpRequestConfig;
@@ -30,6 +32,7 @@ import io.cdap.cdap.logging.appender.LogAppender;
 import io.cdap.cdap.logging.appender.LogMessage;
 import io.cdap.cdap.logging.appender.kafka.LogPartitionType;
 import io.cdap.cdap.logging.serialize.LoggingEventSerializer;
+import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.common.http.HttpMethod;
 import io.cdap.common.http.HttpRequest;
 import io.cdap.common.http.HttpResponse;
@@ -64,6 +67,14 @@ public class RemoteLogAppender extends LogAppender {
     this.publisher = new RemoteLogPublisher(cConf, discoveryServiceClient);
   }
 
+  @SuppressWarnings("unused")
+  @Inject(optional = true)
+  void setMetricsCollectionService(MetricsCollectionService metricsCollectionService) {
+    publisher.setMetricsContext(metricsCollectionService.getContext(ImmutableMap.of(
+      Constants.Metrics.Tag.NAMESPACE, NamespaceId.SYSTEM.getNamespace(),
+      Constants.Metrics.Tag.COMPONENT, APPENDER_NAME)));
+  }
+
   @Override
   public void start() {
     publisher.startAndWait();
@@ -103,7 +114,7 @@ public class RemoteLogAppender extends LogAppender {
     private final RemoteClient remoteClient;
 
     private RemoteLogPublisher(CConfiguration cConf, DiscoveryServiceClient discoveryServiceClient) {
-      super(cConf.getInt(Constants.Logging.APPENDER_QUEUE_SIZE, 512),
+      super(cConf, cConf.getInt(Constants.Logging.APPENDER_QUEUE_SIZE, 512),
             RetryStrategies.fromConfiguration(cConf, "system.log.process."));
       this.numPartitions = cConf.getInt(Constants.Logging.NUM_PARTITIONS);
       this.loggingEventSerializer = ThreadLocal.withInitial(LoggingEventSerializer::new);
@@ -155,6 +166,12 @@ public class RemoteLogAppender extends LogAppender {
       // Log using the status manager
       addError(errorMessage, exception);
     }
+
+    @Override
+    protected void logWarning(String warnMessage) {
+      // Log using the status manager
+      addWarn(warnMessage);
+    }
   }
 
   /**
@@ -17,11 +17,13 @@
 package io.cdap.cdap.logging.appender.tms;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.hash.Hashing;
 import com.google.inject.Inject;
 import io.cdap.cdap.api.messaging.MessagePublisher;
 import io.cdap.cdap.api.messaging.MessagingContext;
 import io.cdap.cdap.api.messaging.TopicNotFoundException;
+import io.cdap.cdap.api.metrics.MetricsCollectionService;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.service.RetryStrategies;
@@ -57,6 +59,14 @@ public final class TMSLogAppender extends LogAppender {
     this.tmsLogPublisher = new TMSLogPublisher(cConf, messagingService, queueSize);
   }
 
+  @SuppressWarnings("unused")
+  @Inject(optional = true)
+  void setMetricsCollectionService(MetricsCollectionService metricsCollectionService) {
+    tmsLogPublisher.setMetricsContext(metricsCollectionService.getContext(ImmutableMap.of(
+      Constants.Metrics.Tag.NAMESPACE, NamespaceId.SYSTEM.getNamespace(),
+      Constants.Metrics.Tag.COMPONENT, APPENDER_NAME)));
+  }
+
   @Override
   public void start() {
     tmsLogPublisher.startAndWait();
@@ -102,7 +112,7 @@ public final class TMSLogAppender extends LogAppender {
     private final LogPartitionType logPartitionType;
 
     private TMSLogPublisher(CConfiguration cConf, MessagingService messagingService, int queueSize) {
-      super(queueSize, RetryStrategies.fromConfiguration(cConf, "system.log.process."));
+      super(cConf, queueSize, RetryStrategies.fromConfiguration(cConf, "system.log.process."));
       this.topicPrefix = cConf.get(Constants.Logging.TMS_TOPIC_PREFIX);
       this.numPartitions = cConf.getInt(Constants.Logging.NUM_PARTITIONS);
       this.loggingEventSerializer = new LoggingEventSerializer();
@@ -140,5 +150,11 @@ public final class TMSLogAppender extends LogAppender {
       // Log using the status manager
       addError(errorMessage, exception);
     }
+
+    @Override
+    protected void logWarning(String warnMessage) {
+      // Log using the status manager
+      addWarn(warnMessage);
+    }
   }
 }
@@ -51,11 +51,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -65,6 +68,11 @@ import javax.annotation.Nullable;
 
 /**
  * A log processing pipeline that reads from Kafka and writes to configured logger context.
+ * <p>
+ * Messages of all partitions are fetched and decoded concurrently by a pool of fetcher threads, one per partition.
+ * While a batch of events is being merged by event time and appended on the pipeline thread, the next batch of the
+ * same partition is already fetched and decoded in the background.
+ * </p>
  */
 public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadService {
 
@@ -80,14 +88,14 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
   private final CheckpointManager<KafkaOffset> checkpointManager;
   private final Int2LongMap offsets;
   private final Int2ObjectMap<MutableCheckpoint> checkpoints;
-  private final LoggingEventSerializer serializer;
+  private final ThreadLocal<LoggingEventSerializer> serializer;
   private final KafkaPipelineConfig config;
   private final TimeEventQueueProcessor<KafkaOffset> eventQueueProcessor;
   private final MetricsContext metricsContext;
 
   private final BrokerService brokerService;
   private final KafkaOffsetResolver offsetResolver;
-  private final Map<BrokerInfo, KafkaSimpleConsumer> kafkaConsumers;
+  private final ConcurrentMap<BrokerInfo, KafkaSimpleConsumer> kafkaConsumers;
 
   private ExecutorService fetchExecutor;
   private volatile Thread runThread;
@@ -107,9 +115,10 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
     this.checkpoints = new Int2ObjectOpenHashMap<>();
     this.eventQueueProcessor = new TimeEventQueueProcessor<>(context, config.getMaxBufferSize(),
                                                              config.getEventDelayMillis(), config.getPartitions());
-    this.serializer = new LoggingEventSerializer();
+    // Decoding happens on the fetcher threads, hence one serializer per thread
+    this.serializer = ThreadLocal.withInitial(LoggingEventSerializer::new);
     this.metricsContext = context;
-    this.kafkaConsumers = new HashMap<>();
+    this.kafkaConsumers = new ConcurrentHashMap<>();
     this.offsetResolver = new KafkaOffsetResolver(brokerService, config);
   }
 
@@ -148,7 +157,7 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
       initializeOffsets();
       LOG.info("Kafka offsets initialize for pipeline {} as {}", name, offsets);
 
-      Map<Integer, Future<Iterable<MessageAndOffset>>> futures = new HashMap<>();
+      Int2ObjectMap<Future<FetchedEvents>> futures = new Int2ObjectOpenHashMap<>();
       String topic = config.getTopic();
 
       lastCheckpointTime = System.currentTimeMillis();
@@ -156,10 +165,10 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
       while (!stopped) {
         boolean hasMessageProcessed = false;
 
-        for (Map.Entry<Integer, Future<Iterable<MessageAndOffset>>> entry : fetchAll(offsets, futures).entrySet()) {
-          int partition = entry.getKey();
+        fetchAll(offsets, futures);
+        for (int partition : config.getPartitions()) {
           try {
-            if (processMessages(topic, partition, entry.getValue())) {
+            if (processMessages(partition, futures)) {
               hasMessageProcessed = true;
             }
           } catch (IOException | KafkaException e) {
@@ -270,12 +279,13 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
    * and update checkpoints and offsets based on events processed by event queue processor. If any of the events are
    * processed by event queue processor, method returns true, otherwise false.
    */
-  private boolean processMessages(String topic, int partition,
-                                  Future<Iterable<MessageAndOffset>> future) throws InterruptedException,
-                                                                                    KafkaException, IOException {
-    Iterable<MessageAndOffset> messages;
+  private boolean processMessages(int partition,
+                                  Int2ObjectMap<Future<FetchedEvents>> futures) throws InterruptedException,
+                                                                                       KafkaException, IOException {
+    Future<FetchedEvents> future = futures.remove(partition);
+    FetchedEvents fetched;
     try {
-      messages = future.get();
+      fetched = future.get();
     } catch (ExecutionException e) {
       try {
         throw e.getCause();
@@ -293,9 +303,29 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
       }
     }
 
+    // Fetch and decode the next batch while this one is being processed, assuming all events in this batch
+    // will be consumed by the event queue processor.
+    long nextOffset = fetched.nextOffset;
+    if (!fetched.events.isEmpty()) {
+      futures.put(partition, fetchExecutor.submit(() -> fetchEvents(partition, nextOffset)));
+    }
+
     // process all the messages
-    ProcessedEventMetadata<KafkaOffset> metadata = eventQueueProcessor
-      .process(partition, new KafkaMessageTransformIterator(topic, partition, messages.iterator()));
+    FetchedEventsIterator iterator = new FetchedEventsIterator(partition, fetched);
+    ProcessedEventMetadata<KafkaOffset> metadata = eventQueueProcessor.process(partition, iterator);
+
+    // Only count the bytes of the consumed messages, since the rest of the batch will be fetched again
+    if (iterator.bytesConsumed > 0) {
+      metricsContext.increment("kafka.bytes.read", iterator.bytesConsumed);
+    }
+
+    // If not all events were consumed, the next batch needs to be fetched from the actual offset
+    if (offsets.get(partition) != nextOffset) {
+      Future<FetchedEvents> prefetch = futures.remove(partition);
+      if (prefetch != null) {
+        prefetch.cancel(false);
+      }
+    }
 
     // None of the events were processed.
     if (metadata.getTotalEventsProcessed() <= 0) {
@@ -338,17 +368,49 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
   }
 
   /**
-   * Fetches messages from Kafka across all partitions simultaneously.
+   * Fetches messages from Kafka across all partitions simultaneously, for the partitions that don't have a
+   * fetch in progress.
    */
-  private <T extends Map<Integer, Future<Iterable<MessageAndOffset>>>> T fetchAll(Int2LongMap offsets,
-                                                                                  T fetchFutures) {
+  private void fetchAll(Int2LongMap offsets, Int2ObjectMap<Future<FetchedEvents>> fetchFutures) {
     for (final int partition : config.getPartitions()) {
+      if (fetchFutures.containsKey(partition)) {
+        continue;
+      }
       final long offset = offsets.get(partition);
 
-      fetchFutures.put(partition, fetchExecutor.submit(() -> fetchMessages(partition, offset)));
+      fetchFutures.put(partition, fetchExecutor.submit(() -> fetchEvents(partition, offset)));
     }
+  }
 
-    return fetchFutures;
+  /**
+   * Fetches messages from Kafka and decodes them into {@link ProcessorEvent}s. This method is called from the
+   * fetcher threads.
+   *
+   * @param partition the partition to fetch from
+   * @param offset the Kafka offset to fetch from
+   * @return the decoded events
+   * @see #fetchMessages(int, long)
+   */
+  private FetchedEvents fetchEvents(int partition, long offset) throws KafkaException {
+    LoggingEventSerializer serializer = this.serializer.get();
+    List<ProcessorEvent<KafkaOffset>> events = new ArrayList<>();
+    long nextOffset = offset;
+    long skippedBytes = 0L;
+
+    for (MessageAndOffset message : fetchMessages(partition, offset)) {
+      nextOffset = message.nextOffset();
+      try {
+        ILoggingEvent loggingEvent = serializer.fromBytes(message.message().payload());
+        events.add(new ProcessorEvent<>(loggingEvent, message.message().payloadSize(),
+                                        new KafkaOffset(message.nextOffset(), loggingEvent.getTimeStamp())));
+      } catch (IOException e) {
+        // This shouldn't happen. In case it happens (e.g. someone published some garbage), just skip the message.
+        LOG.trace("Fail to decode logging event from {}:{} at offset {}. Skipping it.",
+                  config.getTopic(), partition, message.offset(), e);
+        skippedBytes += message.message().payloadSize();
+      }
+    }
+    return new FetchedEvents(events, nextOffset, skippedBytes);
   }
 
   /**
@@ -409,7 +471,12 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
 
     consumer = new KafkaSimpleConsumer(leader, KAFKA_SO_TIMEOUT, config.getKafkaFetchBufferSize(),
                                        "client-" + name + "-" + partition);
-    kafkaConsumers.put(leader, consumer);
+    // Consumers are created from multiple fetcher threads. Only keep one per broker.
+    KafkaSimpleConsumer existing = kafkaConsumers.putIfAbsent(leader, consumer);
+    if (existing != null) {
+      consumer.close();
+      return existing;
+    }
     return consumer;
   }
 
@@ -596,61 +663,54 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
   }
 
   /**
-   * Transforms kafka {@code MessageAndOffset} iterator to {@code ProcessorEvent} iterator.
+   * A batch of events fetched and decoded from a partition.
    */
-  private final class KafkaMessageTransformIterator extends AbstractIterator<ProcessorEvent<KafkaOffset>> {
-    private final String topic;
+  private static final class FetchedEvents {
+    private final List<ProcessorEvent<KafkaOffset>> events;
+    // The offset to fetch from after all messages in this batch, including the ones that failed to decode
+    private final long nextOffset;
+    // The size of the messages that failed to decode
+    private final long skippedBytes;
+
+    FetchedEvents(List<ProcessorEvent<KafkaOffset>> events, long nextOffset, long skippedBytes) {
+      this.events = events;
+      this.nextOffset = nextOffset;
+      this.skippedBytes = skippedBytes;
+    }
+  }
+
+  /**
+   * Iterates over {@link FetchedEvents} and updates the partition offset and the number of bytes consumed as events
+   * are consumed.
+   */
+  private final class FetchedEventsIterator extends AbstractIterator<ProcessorEvent<KafkaOffset>> {
     private final int partition;
-    private final Iterator<MessageAndOffset> kafkaMessageIterator;
-    private Long prevOffset;
+    private final FetchedEvents fetched;
+    private final Iterator<ProcessorEvent<KafkaOffset>> iterator;
+    private ProcessorEvent<KafkaOffset> prevEvent;
+    private long bytesConsumed;
 
-    KafkaMessageTransformIterator(String topic, int partition, Iterator<MessageAndOffset> kafkaMessageIterator) {
-      this.topic = topic;
+    FetchedEventsIterator(int partition, FetchedEvents fetched) {
       this.partition = partition;
-      this.kafkaMessageIterator = kafkaMessageIterator;
+      this.fetched = fetched;
+      this.iterator = fetched.events.iterator();
     }
 
     @Override
     protected ProcessorEvent<KafkaOffset> computeNext() {
-      if (!kafkaMessageIterator.hasNext()) {
-        updateOffsets();
-        return endOfData();
+      // The previous event must have been consumed when the next one is requested
+      if (prevEvent != null) {
+        offsets.put(partition, prevEvent.getOffset().getNextOffset());
+        bytesConsumed += prevEvent.getEventSize();
+        prevEvent = null;
       }
-
-      boolean skipped;
-      ProcessorEvent<KafkaOffset> nextEntry = null;
-
-      do {
-        updateOffsets();
-        MessageAndOffset message = kafkaMessageIterator.next();
-        metricsContext.increment("kafka.bytes.read", message.message().payloadSize());
-
-        try {
-          ILoggingEvent loggingEvent = serializer.fromBytes(message.message().payload());
-          nextEntry = new ProcessorEvent<>(loggingEvent, message.message().payloadSize(),
-                                           new KafkaOffset(message.nextOffset(), loggingEvent.getTimeStamp()));
-          skipped = false;
-        } catch (IOException e) {
-          skipped = true;
-          // This shouldn't happen. In case it happens (e.g. someone published some garbage), just skip the message.
-          LOG.trace("Fail to decode logging event from {}:{} at offset {}. Skipping it.",
-                    topic, partition, message.offset(), e);
-        }
-      } while (skipped && kafkaMessageIterator.hasNext());
-
-      if (nextEntry == null) {
-        updateOffsets();
+      if (!iterator.hasNext()) {
+        offsets.put(partition, fetched.nextOffset);
+        bytesConsumed += fetched.skippedBytes;
         return endOfData();
       }
-
-      prevOffset = nextEntry.getOffset().getNextOffset();
-      return nextEntry;
-    }
-
-    private void updateOffsets() {
-      if (prevOffset != null) {
-        offsets.put(partition, prevOffset.longValue());
-      }
+      prevEvent = iterator.next();
+      return prevEvent;
     }
   }
 }
@@ -15,11 +15,13 @@
  */
 package io.cdap.cdap.metrics.collect;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
@@ -34,8 +36,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
@@ -49,14 +57,25 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
 
   private static final Logger LOG = LoggerFactory.getLogger(AggregatedMetricsCollectionService.class);
   private static final long CACHE_EXPIRE_MINUTES = 1;
+  private static final long EMITTERS_EXPIRE_MILLIS = TimeUnit.MINUTES.toMillis(CACHE_EXPIRE_MINUTES);
 
   private final LoadingCache<Map<String, String>, MetricsContext> collectors;
-  private final LoadingCache<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>> emitters;
+  private final ConcurrentMap<Map<String, String>, EmitterSet> emitters;
+  // emitter sets that were removed from the emitters map and need to be emitted again. They are added by the
+  // publishing thread when retiring them, and by MetricsContext that updated them concurrently with the retirement.
+  private final Queue<EmitterSet> retiredEmitters;
+  // number of milliseconds an emitter set has to be idle before it is retired
+  private final long emittersExpireMillis;
   // maximum number of milliseconds to sleep between each publish
   private final long publishIntervalInMillis;
   private final CountDownLatch shutdownLatch;
 
   public AggregatedMetricsCollectionService(long publishIntervalInMillis) {
+    this(publishIntervalInMillis, EMITTERS_EXPIRE_MILLIS);
+  }
+
+  @VisibleForTesting
+  AggregatedMetricsCollectionService(long publishIntervalInMillis, long emittersExpireMillis) {
     // the longest sleep time will be 1 min
     this.publishIntervalInMillis = Math.min(publishIntervalInMillis, Constants.Metrics.PROCESS_INTERVAL_MILLIS);
     this.shutdownLatch = new CountDownLatch(1);
@@ -64,24 +83,9 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
       .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
       .build(createCollectorLoader());
 
-    this.emitters = CacheBuilder.newBuilder()
-      // NOTE : we don't need to have removalListener to  emit metrics, as we have expireAfterAccess set for a minute,
-      // emitters.get() is used to increment/gauge and that would reset the access time,
-      // and since runOneIteration() emits all the metrics for the scheduled duration (every 1 second)
-      // there wont be any loss of emitter entries.
-      .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
-      .build(new CacheLoader<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>>() {
-        @Override
-        public LoadingCache<String, AggregatedMetricsEmitter> load(Map<String, String> tags) throws Exception {
-          return CacheBuilder.newBuilder().expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES).
-            build(new CacheLoader<String, AggregatedMetricsEmitter>() {
-              @Override
-              public AggregatedMetricsEmitter load(String metricName) throws Exception {
-                return new AggregatedMetricsEmitter(metricName);
-              }
-            });
-        }
-      });
+    this.emitters = new ConcurrentHashMap<>();
+    this.retiredEmitters = new ConcurrentLinkedQueue<>();
+    this.emittersExpireMillis = emittersExpireMillis;
   }
 
   /**
@@ -172,43 +176,67 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
   }
 
   private Iterator<MetricValues> getMetrics(final long timestamp) {
-    // NOTE : emitters.asMap does not reset the access time in cache,
-    // so it's the preferred way to access the cache entries. as we access and emit metrics every second.
-    final Iterator<Map.Entry<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>>> iterator =
-      emitters.asMap().entrySet().iterator();
+    final long now = System.currentTimeMillis();
+
+    // Emit the retired emitter sets again, in case there were increments while they were being retired.
+    // A set can be queued more than once, but it only needs to be emitted once.
+    Set<EmitterSet> retired = new LinkedHashSet<>();
+    EmitterSet retiredSet = retiredEmitters.poll();
+    while (retiredSet != null) {
+      retired.add(retiredSet);
+      retiredSet = retiredEmitters.poll();
+    }
+
+    final Iterator<EmitterSet> iterator = Iterators.concat(retired.iterator(), emitters.values().iterator());
     return new AbstractIterator<MetricValues>() {
       @Override
       protected MetricValues computeNext() {
         while (iterator.hasNext()) {
-          Map.Entry<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>> entry = iterator.next();
-          Map<String, AggregatedMetricsEmitter> metricEmitters = entry.getValue().asMap();
+          EmitterSet emitterSet = iterator.next();
+          Map<String, AggregatedMetricsEmitter> metricEmitters = emitterSet.emitters;
           // +1 because we add extra metric about how many metric values did we emit in this context (see below)
           List<MetricValue> metricValues = Lists.newArrayListWithCapacity(metricEmitters.size() + 1);
-          for (Map.Entry<String, AggregatedMetricsEmitter> emitterEntry : metricEmitters.entrySet()) {
-            MetricValue metricValue = emitterEntry.getValue().emit();
+          for (AggregatedMetricsEmitter emitter : metricEmitters.values()) {
+            MetricValue metricValue = emitter.emit();
             // skip increment by 0
             if (metricValue.getType() == MetricType.COUNTER && metricValue.getValue() == 0) {
               continue;
             }
             metricValues.add(metricValue);
           }
+          for (DistributionMetricsEmitter emitter : emitterSet.distributions.values()) {
+            emitter.emit(metricValues);
+          }
 
           if (metricValues.isEmpty()) {
+            // Retire the emitter set if it has been idle for a while. MetricsContext that still refers to it
+            // will register a new one on the next update.
+            if (!emitterSet.retired && now - emitterSet.lastActiveMillis > emittersExpireMillis
+              && emitters.remove(emitterSet.tags, emitterSet)) {
+              emitterSet.retired = true;
+              retiredEmitters.add(emitterSet);
+            }
             // skip if there are no metric values to send
             continue;
           }
+          emitterSet.lastActiveMillis = now;
 
           // number of emitted metrics
           metricValues.add(new MetricValue("metrics.emitted.count", MetricType.COUNTER, metricValues.size() + 1));
 
           LOG.trace("Emit metric {}", metricValues);
-          return new MetricValues(entry.getKey(), timestamp, metricValues);
+          return new MetricValues(emitterSet.tags, timestamp, metricValues);
         }
         return endOfData();
       }
     };
   }
 
+  private EmitterSet registerEmitterSet(Map<String, String> tags) {
+    EmitterSet emitterSet = emitters.get(tags);
+    return emitterSet == null ? emitters.computeIfAbsent(tags, EmitterSet::new) : emitterSet;
+  }
+
   private CacheLoader<Map<String, String>, MetricsContext> createCollectorLoader() {
     return new CacheLoader<Map<String, String>, MetricsContext>() {
       @Override
@@ -218,29 +246,74 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
     };
   }
 
+  /**
+   * The set of {@link AggregatedMetricsEmitter} for one set of tags.
+   */
+  private static final class EmitterSet {
+
+    private final Map<String, String> tags;
+    private final ConcurrentMap<String, AggregatedMetricsEmitter> emitters;
+    private final ConcurrentMap<String, DistributionMetricsEmitter> distributions;
+    // set to true by the publishing thread when this set is removed from the emitters map
+    private volatile boolean retired;
+    // only accessed from the publishing thread
+    private long lastActiveMillis;
+
+    EmitterSet(Map<String, String> tags) {
+      this.tags = tags;
+      this.emitters = new ConcurrentHashMap<>();
+      this.distributions = new ConcurrentHashMap<>();
+      this.lastActiveMillis = System.currentTimeMillis();
+    }
+
+    AggregatedMetricsEmitter getEmitter(String metricName) {
+      AggregatedMetricsEmitter emitter = emitters.get(metricName);
+      return emitter == null ? emitters.computeIfAbsent(metricName, AggregatedMetricsEmitter::new) : emitter;
+    }
+
+    DistributionMetricsEmitter getDistribution(String metricName) {
+      DistributionMetricsEmitter emitter = distributions.get(metricName);
+      return emitter == null ? distributions.computeIfAbsent(metricName, DistributionMetricsEmitter::new) : emitter;
+    }
+  }
+
   private final class MetricsContextImpl implements MetricsContext {
 
     private final Map<String, String> tags;
+    // the emitters of this context, resolved once and refreshed only when it was retired due to inactivity
+    private volatile EmitterSet emitterSet;
+    // cache of child contexts created with a single tag, keyed by tag name and then tag value
+    private volatile LoadingCache<String, LoadingCache<String, MetricsContext>> childContexts;
 
     private MetricsContextImpl(final Map<String, String> tags) {
       this.tags = ImmutableMap.copyOf(tags);
+      this.emitterSet = registerEmitterSet(this.tags);
     }
 
     @Override
     public void increment(String metricName, long value) {
-      emitters.getUnchecked(tags).getUnchecked(metricName).increment(value);
+      EmitterSet emitterSet = getEmitterSet();
+      emitterSet.getEmitter(metricName).increment(value);
+      updated(emitterSet);
     }
 
     @Override
     public void gauge(String metricName, long value) {
-      emitters.getUnchecked(tags).getUnchecked(metricName).gauge(value);
+      EmitterSet emitterSet = getEmitterSet();
+      emitterSet.getEmitter(metricName).gauge(value);
+      updated(emitterSet);
+    }
+
+    @Override
+    public void distribution(String metricName, long value) {
+      EmitterSet emitterSet = getEmitterSet();
+      emitterSet.getDistribution(metricName).record(value);
+      updated(emitterSet);
     }
 
     @Override
     public MetricsContext childContext(String tagName, String tagValue) {
-      ImmutableMap<String, String> allTags = ImmutableMap.<String, String>builder()
-        .putAll(tags).put(tagName, tagValue).build();
-      return collectors.getUnchecked(allTags);
+      return getChildContexts().getUnchecked(tagName).getUnchecked(tagValue);
     }
 
     @Override
@@ -259,5 +332,53 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
       allTags.putAll(tags);
       return collectors.getUnchecked(allTags);
     }
+
+    /**
+     * Called after updating the given emitter set. If the set was retired concurrently, the update may have happened
+     * after the set was emitted for the last time, hence the set is queued to be emitted again.
+     */
+    private void updated(EmitterSet emitterSet) {
+      if (emitterSet.retired) {
+        retiredEmitters.add(emitterSet);
+      }
+    }
+
+    private EmitterSet getEmitterSet() {
+      EmitterSet emitterSet = this.emitterSet;
+      if (emitterSet.retired) {
+        emitterSet = registerEmitterSet(tags);
+        this.emitterSet = emitterSet;
+      }
+      return emitterSet;
+    }
+
+    private LoadingCache<String, LoadingCache<String, MetricsContext>> getChildContexts() {
+      LoadingCache<String, LoadingCache<String, MetricsContext>> childContexts = this.childContexts;
+      if (childContexts != null) {
+        return childContexts;
+      }
+      synchronized (this) {
+        if (this.childContexts == null) {
+          this.childContexts = CacheBuilder.newBuilder()
+            .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
+            .build(new CacheLoader<String, LoadingCache<String, MetricsContext>>() {
+              @Override
+              public LoadingCache<String, MetricsContext> load(final String tagName) {
+                return CacheBuilder.newBuilder()
+                  .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
+                  .build(new CacheLoader<String, MetricsContext>() {
+                    @Override
+                    public MetricsContext load(String tagValue) {
+                      ImmutableMap<String, String> allTags = ImmutableMap.<String, String>builder()
+                        .putAll(tags).put(tagName, tagValue).build();
+                      return collectors.getUnchecked(allTags);
+                    }
+                  });
+              }
+            });
+        }
+        return this.childContexts;
+      }
+    }
   }
 }
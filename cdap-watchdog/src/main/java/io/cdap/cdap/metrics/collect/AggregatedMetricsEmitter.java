@@ -22,6 +22,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * {@link MetricsEmitter} that aggregates  values for a metric
@@ -31,8 +32,10 @@ final class AggregatedMetricsEmitter implements MetricsEmitter {
   private static final Logger LOG = LoggerFactory.getLogger(AggregatedMetricsEmitter.class);
 
   private final String name;
-  // metric value
-  private final AtomicLong value;
+  // counter value, striped to avoid contention between threads incrementing the same metric
+  private final LongAdder value;
+  // last gauge value
+  private final AtomicLong gaugeValue;
   // specifies if the metric type is gauge or counter
   private final AtomicBoolean gaugeUsed;
 
@@ -42,25 +45,30 @@ final class AggregatedMetricsEmitter implements MetricsEmitter {
     }
 
     this.name = name;
-    this.value = new AtomicLong();
+    this.value = new LongAdder();
+    this.gaugeValue = new AtomicLong();
     this.gaugeUsed = new AtomicBoolean(false);
   }
 
   void increment(long value) {
-    this.value.addAndGet(value);
+    this.value.add(value);
   }
 
 
   @Override
   public MetricValue emit() {
     // todo CDAP-2195 - potential race condition , reseting value and type has to be done together
-    long value = this.value.getAndSet(0);
-    MetricType type = gaugeUsed.getAndSet(false) ? MetricType.GAUGE : MetricType.COUNTER;
-    return new MetricValue(name, type, value);
+    long value = this.value.sumThenReset();
+    if (gaugeUsed.getAndSet(false)) {
+      // increments after the last gauge are added to the gauge value
+      return new MetricValue(name, MetricType.GAUGE, gaugeValue.get() + value);
+    }
+    return new MetricValue(name, MetricType.COUNTER, value);
   }
 
   public void gauge(long value) {
-    this.value.set(value);
+    this.value.reset();
+    this.gaugeValue.set(value);
     this.gaugeUsed.set(true);
   }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.metrics.collect;
+
+import io.cdap.cdap.api.metrics.MetricDistribution;
+import io.cdap.cdap.api.metrics.MetricType;
+import io.cdap.cdap.api.metrics.MetricValue;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates the values of a distribution metric into the buckets defined by {@link MetricDistribution} during
+ * collection, and emits the count of each non-empty bucket as a counter when emit.
+ */
+final class DistributionMetricsEmitter {
+
+  private final String name;
+  // bucket counters, created lazily since most distributions only use a small range of buckets
+  private final AtomicReferenceArray<LongAdder> buckets;
+
+  DistributionMetricsEmitter(String name) {
+    this.name = name;
+    this.buckets = new AtomicReferenceArray<>(MetricDistribution.NUM_BUCKETS);
+  }
+
+  void record(long value) {
+    int index = MetricDistribution.getBucketIndex(value);
+    LongAdder bucket = buckets.get(index);
+    if (bucket == null) {
+      buckets.compareAndSet(index, null, new LongAdder());
+      bucket = buckets.get(index);
+    }
+    bucket.increment();
+  }
+
+  /**
+   * Adds a counter {@link MetricValue} for each non-empty bucket to the given collection and resets the buckets.
+   */
+  void emit(Collection<MetricValue> metricValues) {
+    for (int i = 0; i < buckets.length(); i++) {
+      LongAdder bucket = buckets.get(i);
+      if (bucket == null) {
+        continue;
+      }
+      long count = bucket.sumThenReset();
+      if (count > 0) {
+        metricValues.add(new MetricValue(MetricDistribution.getBucketMetricName(name, i), MetricType.COUNTER, count));
+      }
+    }
+  }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.metrics.query;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.cdap.cdap.api.dataset.lib.cube.AggregationFunction;
+import io.cdap.cdap.api.dataset.lib.cube.TimeValue;
+import io.cdap.cdap.api.metrics.MetricDataQuery;
+import io.cdap.cdap.api.metrics.MetricStore;
+import io.cdap.cdap.api.metrics.MetricTimeSeries;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cache of recent time-series query results from the {@link MetricStore}. Dashboards poll the same queries with a
+ * moving time window, so on a repeated query only the time slice that is not covered by the cached result is read
+ * from the store and merged into the cached series. Data points within the refresh window before the current time
+ * may still be updated by the metrics processor, hence they are never served from the cache.
+ *
+ * Only time-range queries without interpolation that end within the refresh window are cached. Aggregate (totals)
+ * queries, interpolated queries and queries on historical time ranges are always executed against the store.
+ */
+final class MetricsQueryCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MetricsQueryCache.class);
+
+  private final MetricStore metricStore;
+  private final long refreshWindowSeconds;
+  private final Cache<Key, Entry> cache;
+
+  MetricsQueryCache(MetricStore metricStore, CConfiguration cConf) {
+    this(metricStore, cConf.getInt(Constants.Metrics.Query.CACHE_MAX_ENTRIES),
+         cConf.getLong(Constants.Metrics.Query.CACHE_TTL_SECONDS),
+         cConf.getLong(Constants.Metrics.Query.CACHE_REFRESH_WINDOW_SECONDS));
+  }
+
+  MetricsQueryCache(MetricStore metricStore, int maxEntries, long ttlSeconds, long refreshWindowSeconds) {
+    this.metricStore = metricStore;
+    this.refreshWindowSeconds = refreshWindowSeconds;
+    this.cache = maxEntries > 0 && ttlSeconds > 0
+      ? CacheBuilder.newBuilder()
+          .maximumSize(maxEntries)
+          .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+          .<Key, Entry>build()
+      : null;
+  }
+
+  /**
+   * Executes the given query, reusing the cached result of a previous query with the same tags, metrics, grouping
+   * and resolution if there is one.
+   */
+  Collection<MetricTimeSeries> query(MetricDataQuery query) {
+    if (cache == null || !isCacheable(query)) {
+      return metricStore.query(query);
+    }
+
+    Key key = new Key(query);
+    Entry entry = cache.getIfPresent(key);
+
+    // Only reuse a complete entry that overlaps with the requested window. Otherwise it is cheaper to just scan.
+    if (entry == null || !entry.complete || query.getStartTs() < entry.startTs || query.getEndTs() < entry.endTs
+      || query.getStartTs() > entry.endTs) {
+      return scanAndCache(key, query);
+    }
+
+    // Rescan everything that was not settled yet when the cached result was read
+    long scanStart = Math.max(query.getStartTs(), entry.settledTs);
+    long settledTs = getSettledTs(query);
+    MetricDataQuery deltaQuery = new MetricDataQuery(scanStart, query.getEndTs(), query.getResolution(),
+                                                     query.getLimit(), query.getMetrics(), query.getSliceByTags(),
+                                                     query.getGroupByTags(), null);
+    Collection<MetricTimeSeries> delta = metricStore.query(deltaQuery);
+    if (!isComplete(delta, deltaQuery)) {
+      return scanAndCache(key, query);
+    }
+
+    LOG.trace("Serving query {} from cache, scanned from {}", query, scanStart);
+    Map<SeriesKey, TreeMap<Long, Long>> merged = merge(entry.series, delta, query.getStartTs(), scanStart);
+    List<MetricTimeSeries> result = toResult(merged, query.getLimit());
+    cache.put(key, new Entry(query.getStartTs(), query.getEndTs(), settledTs, merged, isComplete(result, query)));
+    return result;
+  }
+
+  private Collection<MetricTimeSeries> scanAndCache(Key key, MetricDataQuery query) {
+    long settledTs = getSettledTs(query);
+    Collection<MetricTimeSeries> result = metricStore.query(query);
+    cache.put(key, new Entry(query.getStartTs(), query.getEndTs(), settledTs, toSeriesMap(result),
+                             isComplete(result, query)));
+    return result;
+  }
+
+  private boolean isCacheable(MetricDataQuery query) {
+    return query.getInterpolator() == null && query.getResolution() != Integer.MAX_VALUE && query.getLimit() > 0
+      && query.getStartTs() < query.getEndTs() && query.getEndTs() >= currentTimeSeconds() - refreshWindowSeconds;
+  }
+
+  /**
+   * Returns the timestamp before which the data points returned for the given query, if read now, are not
+   * expected to change anymore. It is aligned to the start of the resolution bucket, since the data point of a
+   * bucket keeps changing until the end of the bucket has settled.
+   */
+  private long getSettledTs(MetricDataQuery query) {
+    long settledTs = Math.min(query.getEndTs(), currentTimeSeconds() - refreshWindowSeconds);
+    return settledTs - settledTs % query.getResolution();
+  }
+
+  private long currentTimeSeconds() {
+    return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+  }
+
+  /**
+   * Merges the cached series with the newly scanned delta. Cached points before {@code scanStart} are kept, as
+   * long as they are not before {@code startTs}, while the points from {@code scanStart} onwards are replaced by
+   * the delta.
+   */
+  private Map<SeriesKey, TreeMap<Long, Long>> merge(Map<SeriesKey, TreeMap<Long, Long>> cached,
+                                                     Collection<MetricTimeSeries> delta, long startTs,
+                                                     long scanStart) {
+    Map<SeriesKey, TreeMap<Long, Long>> result = new LinkedHashMap<>();
+    for (Map.Entry<SeriesKey, TreeMap<Long, Long>> entry : cached.entrySet()) {
+      TreeMap<Long, Long> points = new TreeMap<>(entry.getValue().subMap(startTs, true, scanStart, false));
+      if (!points.isEmpty()) {
+        result.put(entry.getKey(), points);
+      }
+    }
+    for (MetricTimeSeries series : delta) {
+      SeriesKey seriesKey = new SeriesKey(series.getMetricName(), series.getTagValues());
+      TreeMap<Long, Long> points = result.get(seriesKey);
+      if (points == null) {
+        points = new TreeMap<>();
+        result.put(seriesKey, points);
+      }
+      for (TimeValue timeValue : series.getTimeValues()) {
+        points.put(timeValue.getTimestamp(), timeValue.getValue());
+      }
+    }
+    return result;
+  }
+
+  private List<MetricTimeSeries> toResult(Map<SeriesKey, TreeMap<Long, Long>> series, int limit) {
+    List<MetricTimeSeries> result = new ArrayList<>(series.size());
+    for (Map.Entry<SeriesKey, TreeMap<Long, Long>> entry : series.entrySet()) {
+      List<TimeValue> timeValues = new ArrayList<>(Math.min(limit, entry.getValue().size()));
+      for (Map.Entry<Long, Long> point : entry.getValue().entrySet()) {
+        timeValues.add(new TimeValue(point.getKey(), point.getValue()));
+        if (timeValues.size() >= limit) {
+          break;
+        }
+      }
+      result.add(new MetricTimeSeries(entry.getKey().metricName, entry.getKey().tagValues, timeValues));
+    }
+    return result;
+  }
+
+  private Map<SeriesKey, TreeMap<Long, Long>> toSeriesMap(Collection<MetricTimeSeries> result) {
+    Map<SeriesKey, TreeMap<Long, Long>> series = new LinkedHashMap<>();
+    for (MetricTimeSeries timeSeries : result) {
+      TreeMap<Long, Long> points = new TreeMap<>();
+      for (TimeValue timeValue : timeSeries.getTimeValues()) {
+        points.put(timeValue.getTimestamp(), timeValue.getValue());
+      }
+      series.put(new SeriesKey(timeSeries.getMetricName(), timeSeries.getTagValues()), points);
+    }
+    return series;
+  }
+
+  /**
+   * Returns {@code true} if none of the series in the result can have been truncated by the query limit.
+   */
+  private boolean isComplete(Collection<MetricTimeSeries> result, MetricDataQuery query) {
+    int resolution = query.getResolution();
+    long buckets = query.getEndTs() / resolution - query.getStartTs() / resolution + 1;
+    if (query.getLimit() >= buckets) {
+      return true;
+    }
+    for (MetricTimeSeries series : result) {
+      if (series.getTimeValues().size() >= query.getLimit()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Normalized query key, which contains everything in the query except the time range.
+   */
+  private static final class Key {
+    private final int resolution;
+    private final int limit;
+    private final Map<String, AggregationFunction> metrics;
+    private final Map<String, String> sliceByTags;
+    private final List<String> groupByTags;
+    private final int hashCode;
+
+    Key(MetricDataQuery query) {
+      this.resolution = query.getResolution();
+      this.limit = query.getLimit();
+      this.metrics = new HashMap<>(query.getMetrics());
+      this.sliceByTags = new HashMap<>(query.getSliceByTags());
+      this.groupByTags = new ArrayList<>(query.getGroupByTags());
+      Collections.sort(this.groupByTags);
+      this.hashCode = Objects.hashCode(resolution, limit, metrics, sliceByTags, groupByTags);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key other = (Key) o;
+      return resolution == other.resolution
+        && limit == other.limit
+        && metrics.equals(other.metrics)
+        && sliceByTags.equals(other.sliceByTags)
+        && groupByTags.equals(other.groupByTags);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /**
+   * Identifies a single time series in a query result.
+   */
+  private static final class SeriesKey {
+    private final String metricName;
+    private final Map<String, String> tagValues;
+
+    SeriesKey(String metricName, Map<String, String> tagValues) {
+      this.metricName = metricName;
+      this.tagValues = tagValues;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      SeriesKey other = (SeriesKey) o;
+      return metricName.equals(other.metricName) && tagValues.equals(other.tagValues);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(metricName, tagValues);
+    }
+  }
+
+  /**
+   * A cached query result, together with the time range it covers.
+   */
+  private static final class Entry {
+    private final long startTs;
+    private final long endTs;
+    private final long settledTs;
+    private final Map<SeriesKey, TreeMap<Long, Long>> series;
+    private final boolean complete;
+
+    Entry(long startTs, long endTs, long settledTs, Map<SeriesKey, TreeMap<Long, Long>> series, boolean complete) {
+      this.startTs = startTs;
+      this.endTs = endTs;
+      this.settledTs = settledTs;
+      this.series = series;
+      this.complete = complete;
+    }
+  }
+}
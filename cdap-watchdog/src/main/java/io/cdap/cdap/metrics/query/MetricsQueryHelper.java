@@ -31,6 +31,7 @@ import io.cdap.cdap.api.dataset.lib.cube.Interpolator;
 import io.cdap.cdap.api.dataset.lib.cube.Interpolators;
 import io.cdap.cdap.api.dataset.lib.cube.TimeValue;
 import io.cdap.cdap.api.metrics.MetricDataQuery;
+import io.cdap.cdap.api.metrics.MetricDistribution;
 import io.cdap.cdap.api.metrics.MetricSearchQuery;
 import io.cdap.cdap.api.metrics.MetricStore;
 import io.cdap.cdap.api.metrics.MetricTimeSeries;
@@ -44,10 +45,18 @@ import io.cdap.cdap.proto.MetricTagValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 
 /**
@@ -71,8 +80,11 @@ public class MetricsQueryHelper {
   private static final String PARAM_AGGREGATE = "aggregate";
   private static final String PARAM_AUTO_RESOLUTION = "auto";
   private static final String ANY_TAG_VALUE = "*";
+  // a percentile of a distribution metric is queried as <metric>:p<percentile>, e.g. user.latency:p99
+  private static final Pattern PERCENTILE_METRIC = Pattern.compile("(.+):p(\\d{1,2}(\\.\\d+)?|100)");
 
   private final MetricStore metricStore;
+  private final MetricsQueryCache queryCache;
   private final int minResolution;
 
   private static final Map<String, String> tagNameToHuman;
@@ -123,6 +135,7 @@ public class MetricsQueryHelper {
   @Inject
   public MetricsQueryHelper(MetricStore metricStore, CConfiguration cConf) {
     this.metricStore = metricStore;
+    this.queryCache = new MetricsQueryCache(metricStore, cConf);
     int minimumResolution = cConf.getInt(Constants.Metrics.METRICS_MINIMUM_RESOLUTION_SECONDS);
     this.minResolution = minimumResolution < 60 ? minimumResolution : 60;
   }
@@ -136,7 +149,13 @@ public class MetricsQueryHelper {
   }
 
   public Collection<String> searchMetric(List<String> tagValues) {
-    return getMetrics(humanToTagNames(parseTagValues(tagValues)));
+    // the bucket counters of a distribution metric are listed as the distribution metric itself
+    Set<String> metrics = new LinkedHashSet<>();
+    for (String metric : getMetrics(humanToTagNames(parseTagValues(tagValues)))) {
+      String distribution = MetricDistribution.getDistributionName(metric);
+      metrics.add(distribution == null ? metric : distribution);
+    }
+    return new ArrayList<>(metrics);
   }
 
   public Map<String, MetricQueryResult> executeBatchQueries(Map<String, QueryRequestFormat> queries) throws Exception {
@@ -330,12 +349,30 @@ public class MetricsQueryHelper {
 
     MetricQueryRequest.TimeRange timeRange = queryRequest.getTimeRange();
 
+    List<String> metrics = new ArrayList<>();
+    Map<String, Matcher> percentileMetrics = new HashMap<>();
+    for (String metric : queryRequest.getMetrics()) {
+      Matcher matcher = PERCENTILE_METRIC.matcher(metric);
+      if (matcher.matches()) {
+        percentileMetrics.put(metric, matcher);
+      } else {
+        metrics.add(metric);
+      }
+    }
+
     MetricDataQuery query = new MetricDataQuery(timeRange.getStart(), timeRange.getEnd(),
                                                 timeRange.getResolutionInSeconds(),
-                                                timeRange.getCount(), toMetrics(queryRequest.getMetrics()),
+                                                timeRange.getCount(), toMetrics(metrics),
                                                 tagsSliceBy, transformGroupByTags(queryRequest.getGroupBy()),
                                                 timeRange.getInterpolate());
-    Collection<MetricTimeSeries> queryResult = metricStore.query(query);
+    Collection<MetricTimeSeries> queryResult = new ArrayList<>();
+    if (!metrics.isEmpty()) {
+      queryResult.addAll(queryCache.query(query));
+    }
+    for (Map.Entry<String, Matcher> entry : percentileMetrics.entrySet()) {
+      queryResult.addAll(queryPercentile(query, entry.getKey(), entry.getValue().group(1),
+                                         Double.parseDouble(entry.getValue().group(2))));
+    }
 
     long endTime = timeRange.getEnd();
     if (timeRange.getResolutionInSeconds() == Integer.MAX_VALUE && endTime == 0) {
@@ -346,6 +383,65 @@ public class MetricsQueryHelper {
     return decorate(queryResult, timeRange.getStart(), endTime, timeRange.getResolutionInSeconds());
   }
 
+  /**
+   * Queries a percentile of a distribution metric, by querying the counters of all buckets of the distribution
+   * and computing the percentile for each time series and timestamp.
+   *
+   * @param query the query to take the time range, tags and grouping from
+   * @param seriesName the name of the returned time series
+   * @param metricName the name of the distribution metric
+   * @param percentile the percentile to compute
+   */
+  private Collection<MetricTimeSeries> queryPercentile(MetricDataQuery query, String seriesName,
+                                                       String metricName, double percentile) {
+    List<MetricTagValue> tagValues = new ArrayList<>();
+    for (Map.Entry<String, String> tag : query.getSliceByTags().entrySet()) {
+      tagValues.add(new MetricTagValue(tag.getKey(), tag.getValue()));
+    }
+    Map<String, AggregationFunction> buckets = new HashMap<>();
+    for (String name : getMetrics(tagValues)) {
+      if (MetricDistribution.getBucketIndex(metricName, name) != null) {
+        buckets.put(name, AggregationFunction.SUM);
+      }
+    }
+    if (buckets.isEmpty()) {
+      return ImmutableList.of();
+    }
+
+    MetricDataQuery bucketQuery = new MetricDataQuery(query.getStartTs(), query.getEndTs(), query.getResolution(),
+                                                      query.getLimit(), buckets, query.getSliceByTags(),
+                                                      query.getGroupByTags(), null);
+
+    // tags -> timestamp -> bucket index -> count
+    Map<Map<String, String>, SortedMap<Long, SortedMap<Integer, Long>>> distributions = new HashMap<>();
+    for (MetricTimeSeries series : queryCache.query(bucketQuery)) {
+      int index = MetricDistribution.getBucketIndex(metricName, series.getMetricName());
+      SortedMap<Long, SortedMap<Integer, Long>> distribution = distributions.get(series.getTagValues());
+      if (distribution == null) {
+        distribution = new TreeMap<>();
+        distributions.put(series.getTagValues(), distribution);
+      }
+      for (TimeValue timeValue : series.getTimeValues()) {
+        SortedMap<Integer, Long> bucketCounts = distribution.get(timeValue.getTimestamp());
+        if (bucketCounts == null) {
+          bucketCounts = new TreeMap<>();
+          distribution.put(timeValue.getTimestamp(), bucketCounts);
+        }
+        bucketCounts.put(index, timeValue.getValue());
+      }
+    }
+
+    List<MetricTimeSeries> result = new ArrayList<>();
+    for (Map.Entry<Map<String, String>, SortedMap<Long, SortedMap<Integer, Long>>> entry : distributions.entrySet()) {
+      List<TimeValue> timeValues = new ArrayList<>();
+      for (Map.Entry<Long, SortedMap<Integer, Long>> point : entry.getValue().entrySet()) {
+        timeValues.add(new TimeValue(point.getKey(), MetricDistribution.getPercentile(point.getValue(), percentile)));
+      }
+      result.add(new MetricTimeSeries(seriesName, entry.getKey(), timeValues));
+    }
+    return result;
+  }
+
   private Map<String, String> transformTagMap(Map<String, String> tags) {
     return Maps.transformValues(tags, new Function<String, String>() {
       @Override
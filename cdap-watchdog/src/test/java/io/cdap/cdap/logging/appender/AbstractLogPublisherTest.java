@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.appender;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.logging.ServiceLoggingContext;
+import io.cdap.cdap.common.service.RetryStrategies;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for the backpressure handling in {@link AbstractLogPublisher}.
+ */
+public class AbstractLogPublisherTest {
+
+  @Test
+  public void testDropUnderPressure() throws InterruptedException {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setDouble(Constants.Logging.APPENDER_PRESSURE_RATIO, 0.5);
+    cConf.setInt(Constants.Logging.APPENDER_PRESSURE_SAMPLE_RATE, 5);
+    cConf.setLong(Constants.Logging.APPENDER_FULL_WAIT_MS, 10);
+
+    // The publisher is not started, hence nothing is consumed from the queue
+    TestLogPublisher publisher = new TestLogPublisher(cConf, 10);
+
+    // The first 5 messages fill the queue up to the pressure ratio
+    for (int i = 0; i < 5; i++) {
+      publisher.addMessage(createLogMessage(Level.INFO));
+    }
+    Assert.assertTrue(publisher.getDroppedMessages().isEmpty());
+
+    // Under pressure, only one out of 5 INFO messages is added
+    for (int i = 0; i < 10; i++) {
+      publisher.addMessage(createLogMessage(Level.INFO));
+    }
+    Assert.assertEquals(8L, (long) publisher.getDroppedMessages().get(Level.INFO));
+
+    // WARN messages are not sampled, and wait before being dropped once the queue is full
+    for (int i = 0; i < 5; i++) {
+      publisher.addMessage(createLogMessage(Level.WARN));
+    }
+    Map<Level, Long> dropped = publisher.getDroppedMessages();
+    Assert.assertEquals(8L, (long) dropped.get(Level.INFO));
+    Assert.assertEquals(2L, (long) dropped.get(Level.WARN));
+  }
+
+  @Test
+  public void testDroppedMetrics() throws InterruptedException {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setDouble(Constants.Logging.APPENDER_PRESSURE_RATIO, 1.0);
+    cConf.setLong(Constants.Logging.APPENDER_FULL_WAIT_MS, 0);
+
+    // The publisher is not started, hence the queue is full once 5 messages are added
+    TestLogPublisher publisher = new TestLogPublisher(cConf, 5);
+    CountingMetricsContext metricsContext = new CountingMetricsContext();
+    publisher.setMetricsContext(metricsContext);
+
+    for (int i = 0; i < 5; i++) {
+      publisher.addMessage(createLogMessage(Level.INFO));
+    }
+    Assert.assertTrue(metricsContext.counts.isEmpty());
+
+    for (int i = 0; i < 3; i++) {
+      publisher.addMessage(createLogMessage(Level.INFO));
+    }
+    publisher.addMessage(createLogMessage(Level.ERROR));
+
+    String prefix = Constants.Metrics.Name.Log.APPENDER_DROPPED;
+    Map<String, Long> expected = new HashMap<>();
+    expected.put(prefix + ".info", 3L);
+    expected.put(prefix + ".error", 1L);
+    Assert.assertEquals(expected, metricsContext.counts);
+  }
+
+  private LogMessage createLogMessage(Level level) {
+    LoggingEvent event = new LoggingEvent();
+    event.setLevel(level);
+    event.setLoggerName("test.logger");
+    event.setMessage("message");
+    event.setTimeStamp(System.currentTimeMillis());
+    return new LogMessage(event, new ServiceLoggingContext("system", "test", "service"));
+  }
+
+  /**
+   * A {@link AbstractLogPublisher} that discards published messages.
+   */
+  private static final class TestLogPublisher extends AbstractLogPublisher<LogMessage> {
+
+    TestLogPublisher(CConfiguration cConf, int queueSize) {
+      super(cConf, queueSize, RetryStrategies.noRetry());
+    }
+
+    @Override
+    protected LogMessage createMessage(LogMessage logMessage) {
+      return logMessage;
+    }
+
+    @Override
+    protected void publish(List<LogMessage> logMessages) {
+      // no-op
+    }
+  }
+
+  /**
+   * A {@link MetricsContext} that keeps the incremented counts in memory.
+   */
+  private static final class CountingMetricsContext implements MetricsContext {
+
+    private final Map<String, Long> counts = Collections.synchronizedMap(new HashMap<>());
+
+    @Override
+    public MetricsContext childContext(Map<String, String> tags) {
+      return this;
+    }
+
+    @Override
+    public MetricsContext childContext(String tagName, String tagValue) {
+      return this;
+    }
+
+    @Override
+    public Map<String, String> getTags() {
+      return Collections.emptyMap();
+    }
+
+    @Override
+    public void increment(String metricName, long value) {
+      counts.merge(metricName, value, Long::sum);
+    }
+
+    @Override
+    public void gauge(String metricName, long value) {
+      // no-op
+    }
+  }
+}
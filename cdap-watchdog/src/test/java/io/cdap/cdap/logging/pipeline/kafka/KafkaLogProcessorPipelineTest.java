@@ -85,7 +85,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Unit-test for {@link KafkaLogProcessorPipeline}.
@@ -183,6 +186,60 @@ public class KafkaLogProcessorPipelineTest {
     Assert.assertNull(appender.getEvents());
   }
 
+  @Test
+  public void testPartialBatchConsumption() throws Exception {
+    String topic = "testPartialBatch";
+    LoggerContext loggerContext = LogPipelineTestUtil.createLoggerContext("WARN",
+                                                                          ImmutableMap.of("test.logger", "INFO"),
+                                                                          MockAppender.class.getName());
+    final MockAppender appender = LogPipelineTestUtil.getAppender(loggerContext.getLogger(Logger.ROOT_LOGGER_NAME),
+                                                                  "Test", MockAppender.class);
+    TestCheckpointManager checkpointManager = new TestCheckpointManager();
+    // The buffer only holds a few events, while a single fetch returns all of them. Each batch is only partially
+    // consumed, which makes the pipeline cancel the prefetched batch and fetch again from the consumed offset.
+    KafkaPipelineConfig config = new KafkaPipelineConfig(topic, Collections.singleton(0), 1024L, 100L, 1048576, 500L);
+    KAFKA_TESTER.createTopic(topic, 1);
+
+    CountingMetricsContext metricsContext = new CountingMetricsContext();
+    loggerContext.start();
+    KafkaLogProcessorPipeline pipeline = new KafkaLogProcessorPipeline(
+      new LogProcessorPipelineContext(CConfiguration.create(), "test", loggerContext, metricsContext, 0),
+      checkpointManager,
+      KAFKA_TESTER.getBrokerService(), config);
+
+    pipeline.startAndWait();
+
+    List<ILoggingEvent> events = new ArrayList<>(200);
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < 200; i++) {
+      events.add(LogPipelineTestUtil.createLoggingEvent("test.logger", Level.INFO, "Event " + i, now - 10000 + i));
+    }
+    LoggingContext loggingContext = new GenericLoggingContext(NamespaceId.DEFAULT.getNamespace(), "app", "entity");
+    publishLog(topic, events, loggingContext);
+
+    long totalBytes = 0L;
+    LoggingEventSerializer serializer = new LoggingEventSerializer();
+    for (ILoggingEvent event : events) {
+      totalBytes += serializer.toBytes(new LogMessage(event, loggingContext)).length;
+    }
+
+    // Every event is appended exactly once and in order
+    Tasks.waitFor(200, () -> appender.getEvents().size(), 10, TimeUnit.SECONDS, 100, TimeUnit.MILLISECONDS);
+    List<ILoggingEvent> appended = new ArrayList<>(appender.getEvents());
+    for (int i = 0; i < 200; i++) {
+      Assert.assertEquals("Event " + i, appended.get(i).getMessage());
+    }
+
+    // The bytes of the batches that are fetched again are only counted once
+    Tasks.waitFor(totalBytes, () -> metricsContext.getCount("test.0.kafka.bytes.read"),
+                  5, TimeUnit.SECONDS, 100, TimeUnit.MILLISECONDS);
+
+    pipeline.stopAndWait();
+    loggerContext.stop();
+
+    Assert.assertEquals(totalBytes, metricsContext.getCount("test.0.kafka.bytes.read"));
+  }
+
   @Test
   public void testRegularFlush() throws Exception {
     String topic = "testFlush";
@@ -463,6 +520,44 @@ public class KafkaLogProcessorPipelineTest {
     preparer.send();
   }
 
+  /**
+   * A {@link MetricsContext} that sums up the increments of each metric.
+   */
+  private static final class CountingMetricsContext implements MetricsContext {
+
+    private final ConcurrentMap<String, AtomicLong> counts = new ConcurrentHashMap<>();
+
+    long getCount(String metricName) {
+      AtomicLong count = counts.get(metricName);
+      return count == null ? 0L : count.get();
+    }
+
+    @Override
+    public MetricsContext childContext(Map<String, String> tags) {
+      return this;
+    }
+
+    @Override
+    public MetricsContext childContext(String tagName, String tagValue) {
+      return this;
+    }
+
+    @Override
+    public Map<String, String> getTags() {
+      return Collections.emptyMap();
+    }
+
+    @Override
+    public void increment(String metricName, long value) {
+      counts.computeIfAbsent(metricName, name -> new AtomicLong()).addAndGet(value);
+    }
+
+    @Override
+    public void gauge(String metricName, long value) {
+      // no-op
+    }
+  }
+
   private static final class TestCheckpointManager implements CheckpointManager<KafkaOffset> {
     @Override
     public void saveCheckpoints(Map<Integer, ? extends Checkpoint<KafkaOffset>> checkpoints) throws IOException {
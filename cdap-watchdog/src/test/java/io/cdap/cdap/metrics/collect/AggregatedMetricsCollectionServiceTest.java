@@ -26,13 +26,19 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Testing the basic properties of the {@link AggregatedMetricsCollectionService}.
@@ -139,6 +145,101 @@ public class AggregatedMetricsCollectionServiceTest {
     }
   }
 
+  @Test
+  public void testConcurrentIncrement() throws Exception {
+    final BlockingQueue<MetricValues> published = new LinkedBlockingQueue<>();
+
+    AggregatedMetricsCollectionService service = new AggregatedMetricsCollectionService(100L) {
+      @Override
+      protected void publish(Iterator<MetricValues> metrics) {
+        Iterators.addAll(published, metrics);
+      }
+    };
+
+    service.startAndWait();
+    try {
+      MetricsContext context = service.getContext(ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, NAMESPACE));
+      // Child contexts with the same tags should be reused
+      Assert.assertSame(context.childContext(Constants.Metrics.Tag.APP, APP),
+                        context.childContext(Constants.Metrics.Tag.APP, APP));
+
+      int threads = 4;
+      int increments = 10000;
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+          futures.add(executor.submit(() -> {
+            MetricsContext childContext = context.childContext(Constants.Metrics.Tag.APP, APP);
+            for (int j = 0; j < increments; j++) {
+              childContext.increment(METRIC, 1);
+            }
+          }));
+        }
+        for (Future<?> future : futures) {
+          future.get();
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+
+      verifyCounterMetricsValue(published, ImmutableMap.of(2, ImmutableMap.of(METRIC, (long) threads * increments)));
+    } finally {
+      service.stopAndWait();
+    }
+  }
+
+  @Test
+  public void testConcurrentIncrementAndRetire() throws Exception {
+    AtomicLong published = new AtomicLong();
+
+    // Emitter sets are retired on every publish that finds them idle, which races with the increments
+    AggregatedMetricsCollectionService service = new AggregatedMetricsCollectionService(1L, 0L) {
+      @Override
+      protected void publish(Iterator<MetricValues> metrics) {
+        while (metrics.hasNext()) {
+          Long value = getMetricValue(metrics.next().getMetrics(), METRIC);
+          if (value != null) {
+            published.addAndGet(value);
+          }
+        }
+      }
+    };
+
+    int threads = 4;
+    int increments = 20000;
+    service.startAndWait();
+    try {
+      MetricsContext context = service.getContext(ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, NAMESPACE));
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+          futures.add(executor.submit(() -> {
+            for (int j = 0; j < increments; j++) {
+              context.increment(METRIC, 1);
+              // pause once in a while so that the emitter set becomes idle and gets retired
+              if (j % 200 == 0) {
+                TimeUnit.MILLISECONDS.sleep(1);
+              }
+            }
+            return null;
+          }));
+        }
+        for (Future<?> future : futures) {
+          future.get();
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+    } finally {
+      // metrics are flushed when the service stops
+      service.stopAndWait();
+    }
+
+    Assert.assertEquals((long) threads * increments, published.get());
+  }
+
   private void verifyCounterMetricsValue(BlockingQueue<MetricValues> published,
                                          Map<Integer, Map<String, Long>> expected) throws InterruptedException {
     Map<Integer, Map<String, Long>> received = new HashMap<>();
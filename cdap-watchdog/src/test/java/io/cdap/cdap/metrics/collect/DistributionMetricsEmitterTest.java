@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.metrics.collect;
+
+import io.cdap.cdap.api.metrics.MetricDistribution;
+import io.cdap.cdap.api.metrics.MetricType;
+import io.cdap.cdap.api.metrics.MetricValue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Unit tests for {@link DistributionMetricsEmitter} and {@link MetricDistribution}.
+ */
+public class DistributionMetricsEmitterTest {
+
+  @Test
+  public void testBuckets() {
+    Assert.assertEquals(0, MetricDistribution.getBucketIndex(-5L));
+    Assert.assertEquals(0, MetricDistribution.getBucketIndex(0L));
+    Assert.assertEquals(MetricDistribution.NUM_BUCKETS - 1, MetricDistribution.getBucketIndex(Long.MAX_VALUE));
+    Assert.assertEquals(Long.MAX_VALUE, MetricDistribution.getBucketUpperBound(MetricDistribution.NUM_BUCKETS - 1));
+
+    // Buckets are contiguous and every value falls into the bucket bounds
+    for (int i = 1; i < MetricDistribution.NUM_BUCKETS; i++) {
+      long lower = MetricDistribution.getBucketLowerBound(i);
+      Assert.assertEquals(MetricDistribution.getBucketUpperBound(i - 1) + 1, lower);
+      Assert.assertEquals(i, MetricDistribution.getBucketIndex(lower));
+      Assert.assertEquals(i, MetricDistribution.getBucketIndex(MetricDistribution.getBucketUpperBound(i)));
+    }
+
+    String bucketName = MetricDistribution.getBucketMetricName("user.latency", 20);
+    Assert.assertEquals(Integer.valueOf(20), MetricDistribution.getBucketIndex("user.latency", bucketName));
+    Assert.assertNull(MetricDistribution.getBucketIndex("user.lat", bucketName));
+    Assert.assertNull(MetricDistribution.getBucketIndex("user.latency", "user.latency.count"));
+  }
+
+  @Test
+  public void testEmit() {
+    DistributionMetricsEmitter emitter = new DistributionMetricsEmitter("latency");
+    for (int i = 1; i <= 100; i++) {
+      emitter.record(i);
+    }
+
+    List<MetricValue> metricValues = new ArrayList<>();
+    emitter.emit(metricValues);
+
+    SortedMap<Integer, Long> bucketCounts = new TreeMap<>();
+    long total = 0;
+    for (MetricValue metricValue : metricValues) {
+      Assert.assertEquals(MetricType.COUNTER, metricValue.getType());
+      Integer index = MetricDistribution.getBucketIndex("latency", metricValue.getName());
+      Assert.assertNotNull(index);
+      bucketCounts.put(index, metricValue.getValue());
+      total += metricValue.getValue();
+    }
+    Assert.assertEquals(100L, total);
+
+    // Percentiles are within the bucket error
+    Assert.assertEquals(1L, MetricDistribution.getPercentile(bucketCounts, 1));
+    long p50 = MetricDistribution.getPercentile(bucketCounts, 50);
+    Assert.assertTrue(p50 >= 50 && p50 <= 50 * 1.125);
+    long p99 = MetricDistribution.getPercentile(bucketCounts, 99);
+    Assert.assertTrue(p99 >= 99 && p99 <= 99 * 1.125);
+
+    // Emit resets the buckets
+    metricValues.clear();
+    emitter.emit(metricValues);
+    Assert.assertTrue(metricValues.isEmpty());
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.metrics.query;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.cdap.cdap.api.dataset.lib.cube.AggregationFunction;
+import io.cdap.cdap.api.dataset.lib.cube.TimeValue;
+import io.cdap.cdap.api.metrics.MetricDataQuery;
+import io.cdap.cdap.api.metrics.MetricDeleteQuery;
+import io.cdap.cdap.api.metrics.MetricSearchQuery;
+import io.cdap.cdap.api.metrics.MetricStore;
+import io.cdap.cdap.api.metrics.MetricTimeSeries;
+import io.cdap.cdap.api.metrics.MetricValues;
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.api.metrics.MetricsProcessorStatus;
+import io.cdap.cdap.api.metrics.TagValue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link MetricsQueryCache}.
+ */
+public class MetricsQueryCacheTest {
+
+  private static final Map<String, String> TAGS = ImmutableMap.of("ns", "default");
+
+  @Test
+  public void testIncrementalRefresh() {
+    long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    TestMetricStore store = new TestMetricStore();
+    for (long ts = now - 1000; ts <= now; ts++) {
+      store.points.put(ts, ts);
+    }
+
+    MetricsQueryCache cache = new MetricsQueryCache(store, 10, 300, 10);
+
+    // First query scans the whole range
+    Collection<MetricTimeSeries> result = cache.query(createQuery(now - 500, now));
+    Assert.assertEquals(store.query(createQuery(now - 500, now)), result);
+    Assert.assertEquals(now - 500, store.queries.get(0).getStartTs());
+
+    // Move the window. Only the unsettled part should be scanned.
+    for (long ts = now + 1; ts <= now + 20; ts++) {
+      store.points.put(ts, ts);
+    }
+    // Update a value within the refresh window
+    store.points.put(now - 5, 0L);
+
+    store.queries.clear();
+    result = cache.query(createQuery(now - 480, now + 20));
+    Assert.assertEquals(1, store.queries.size());
+    Assert.assertTrue(store.queries.get(0).getStartTs() > now - 480);
+    Assert.assertEquals(store.query(createQuery(now - 480, now + 20)), result);
+  }
+
+  @Test
+  public void testPartialBucketRefresh() {
+    for (int resolution : new int[] { 60, 3600 }) {
+      long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+      TestMetricStore store = new TestMetricStore();
+      long lastBucket = now - now % resolution;
+      for (long ts = lastBucket - 10L * resolution; ts <= lastBucket; ts += resolution) {
+        store.points.put(ts, ts);
+      }
+
+      MetricsQueryCache cache = new MetricsQueryCache(store, 10, 300, 10);
+      MetricDataQuery query = createQuery(lastBucket - 10L * resolution, now, resolution);
+      Assert.assertEquals(store.query(query), cache.query(query));
+
+      // The bucket that contains the settled time is still being written, hence it must be read again
+      long settledBucket = (now - 10) - (now - 10) % resolution;
+      store.points.put(settledBucket, 0L);
+
+      store.queries.clear();
+      Collection<MetricTimeSeries> result = cache.query(query);
+      Assert.assertEquals(1, store.queries.size());
+      Assert.assertEquals(0, store.queries.get(0).getStartTs() % resolution);
+      Assert.assertTrue(store.queries.get(0).getStartTs() <= settledBucket);
+      Assert.assertEquals(store.query(query), result);
+    }
+  }
+
+  @Test
+  public void testNoCaching() {
+    long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    TestMetricStore store = new TestMetricStore();
+    store.points.put(100L, 1L);
+
+    MetricsQueryCache cache = new MetricsQueryCache(store, 10, 300, 10);
+
+    // Historical queries are not cached
+    cache.query(createQuery(0, 1000));
+    cache.query(createQuery(0, 1000));
+    Assert.assertEquals(2, store.queries.size());
+    Assert.assertEquals(0, store.queries.get(1).getStartTs());
+
+    // Aggregate queries are not cached
+    store.queries.clear();
+    MetricDataQuery aggregate = new MetricDataQuery(0, 0, Integer.MAX_VALUE, 1,
+                                                    ImmutableMap.of("metric", AggregationFunction.SUM), TAGS,
+                                                    ImmutableList.of(), null);
+    cache.query(aggregate);
+    cache.query(aggregate);
+    Assert.assertEquals(2, store.queries.size());
+
+    // Disabled cache
+    store.queries.clear();
+    cache = new MetricsQueryCache(store, 0, 300, 10);
+    cache.query(createQuery(now - 100, now));
+    cache.query(createQuery(now - 100, now));
+    Assert.assertEquals(now - 100, store.queries.get(1).getStartTs());
+  }
+
+  private MetricDataQuery createQuery(long start, long end) {
+    return createQuery(start, end, 1);
+  }
+
+  private MetricDataQuery createQuery(long start, long end, int resolution) {
+    return new MetricDataQuery(start, end, resolution, (int) ((end - start) / resolution + 1),
+                               ImmutableMap.of("metric", AggregationFunction.SUM), TAGS, ImmutableList.of(), null);
+  }
+
+  /**
+   * A {@link MetricStore} that serves a single time series from memory and records queries.
+   */
+  private static final class TestMetricStore implements MetricStore {
+
+    private final NavigableMap<Long, Long> points = new TreeMap<>();
+    private final List<MetricDataQuery> queries = new ArrayList<>();
+
+    @Override
+    public Collection<MetricTimeSeries> query(MetricDataQuery query) {
+      queries.add(query);
+      List<TimeValue> timeValues = new ArrayList<>();
+      for (Map.Entry<Long, Long> entry : points.subMap(query.getStartTs(), true, query.getEndTs(), true).entrySet()) {
+        timeValues.add(new TimeValue(entry.getKey(), entry.getValue()));
+        if (timeValues.size() >= query.getLimit()) {
+          break;
+        }
+      }
+      if (timeValues.isEmpty()) {
+        return Collections.emptyList();
+      }
+      return Collections.singletonList(new MetricTimeSeries("metric", Collections.emptyMap(), timeValues));
+    }
+
+    @Override
+    public void setMetricsContext(MetricsContext metricsContext) {
+      // no-op
+    }
+
+    @Override
+    public void add(MetricValues metricValues) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void add(Collection<? extends MetricValues> metricValues) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteBefore(long timestamp) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteTTLExpired() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void delete(MetricDeleteQuery query) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteAll() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Collection<TagValue> findNextAvailableTags(MetricSearchQuery query) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Collection<String> findMetricNames(MetricSearchQuery query) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<String, MetricsProcessorStatus> getMetricsProcessorStats() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
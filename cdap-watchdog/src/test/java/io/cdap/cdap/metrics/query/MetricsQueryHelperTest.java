@@ -0,0 +1,196 @@
+/*
+ * Copyright © 2019 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.metrics.query;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.cdap.cdap.api.dataset.lib.cube.AggregationFunction;
+import io.cdap.cdap.api.dataset.lib.cube.TimeValue;
+import io.cdap.cdap.api.metrics.MetricDataQuery;
+import io.cdap.cdap.api.metrics.MetricDeleteQuery;
+import io.cdap.cdap.api.metrics.MetricDistribution;
+import io.cdap.cdap.api.metrics.MetricSearchQuery;
+import io.cdap.cdap.api.metrics.MetricStore;
+import io.cdap.cdap.api.metrics.MetricTimeSeries;
+import io.cdap.cdap.api.metrics.MetricValues;
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.api.metrics.MetricsProcessorStatus;
+import io.cdap.cdap.api.metrics.TagValue;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.proto.MetricQueryResult;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for percentile queries and metric search in {@link MetricsQueryHelper}.
+ */
+public class MetricsQueryHelperTest {
+
+  private static final String LATENCY = "system.latency";
+
+  @Test
+  public void testPercentileQuery() throws Exception {
+    int smallBucket = MetricDistribution.getBucketIndex(1);
+    int largeBucket = MetricDistribution.getBucketIndex(1000);
+
+    TestMetricStore store = new TestMetricStore();
+    store.values.put(MetricDistribution.getBucketMetricName(LATENCY, smallBucket), 90L);
+    store.values.put(MetricDistribution.getBucketMetricName(LATENCY, largeBucket), 10L);
+    // a distribution that has the name of the queried one as prefix must not be included
+    store.values.put(MetricDistribution.getBucketMetricName(LATENCY + ".other", largeBucket), 1000L);
+    store.values.put("system.other", 5L);
+
+    MetricsQueryHelper helper = new MetricsQueryHelper(store, CConfiguration.create());
+    MetricQueryResult result = helper.executeTagQuery(
+      ImmutableList.of("namespace:system"),
+      ImmutableList.of(LATENCY + ":p50", LATENCY + ":p99.9", LATENCY + ":p101", "system.other"),
+      ImmutableList.of(), ImmutableMap.of());
+
+    Map<String, Long> values = new HashMap<>();
+    for (MetricQueryResult.TimeSeries series : result.getSeries()) {
+      Assert.assertEquals(1, series.getData().length);
+      values.put(series.getMetricName(), series.getData()[0].getValue());
+    }
+    // p101 is not a valid percentile, hence it is queried as a regular metric, which doesn't exist
+    Assert.assertEquals(ImmutableMap.of(LATENCY + ":p50", MetricDistribution.getBucketUpperBound(smallBucket),
+                                        LATENCY + ":p99.9", MetricDistribution.getBucketUpperBound(largeBucket),
+                                        "system.other", 5L), values);
+
+    // The buckets of the distribution are read with a single query that sums them
+    Map<String, AggregationFunction> bucketMetrics = null;
+    for (MetricDataQuery query : store.queries) {
+      if (query.getMetrics().containsKey(MetricDistribution.getBucketMetricName(LATENCY, smallBucket))) {
+        Assert.assertNull(bucketMetrics);
+        bucketMetrics = query.getMetrics();
+      }
+    }
+    Assert.assertEquals(ImmutableMap.of(MetricDistribution.getBucketMetricName(LATENCY, smallBucket),
+                                        AggregationFunction.SUM,
+                                        MetricDistribution.getBucketMetricName(LATENCY, largeBucket),
+                                        AggregationFunction.SUM), bucketMetrics);
+  }
+
+  @Test
+  public void testPercentileOfMissingDistribution() throws Exception {
+    TestMetricStore store = new TestMetricStore();
+    store.values.put("system.other", 5L);
+
+    MetricsQueryHelper helper = new MetricsQueryHelper(store, CConfiguration.create());
+    MetricQueryResult result = helper.executeTagQuery(ImmutableList.of("namespace:system"),
+                                                      ImmutableList.of(LATENCY + ":p99"),
+                                                      ImmutableList.of(), ImmutableMap.of());
+    Assert.assertEquals(0, result.getSeries().length);
+  }
+
+  @Test
+  public void testSearchHidesBuckets() {
+    TestMetricStore store = new TestMetricStore();
+    store.values.put(MetricDistribution.getBucketMetricName(LATENCY, 1), 1L);
+    store.values.put(MetricDistribution.getBucketMetricName(LATENCY, 100), 1L);
+    store.values.put("system.other", 1L);
+    // not a valid bucket index, hence not a bucket counter
+    store.values.put(LATENCY + ".bucket.x", 1L);
+
+    MetricsQueryHelper helper = new MetricsQueryHelper(store, CConfiguration.create());
+    Collection<String> metrics = helper.searchMetric(ImmutableList.of("namespace:system"));
+    Assert.assertEquals(3, metrics.size());
+    Assert.assertEquals(ImmutableSet.of(LATENCY, "system.other", LATENCY + ".bucket.x"), new HashSet<>(metrics));
+  }
+
+  /**
+   * A {@link MetricStore} that serves a single aggregated value per metric from memory and records queries.
+   */
+  private static final class TestMetricStore implements MetricStore {
+
+    private final Map<String, Long> values = new LinkedHashMap<>();
+    private final List<MetricDataQuery> queries = new ArrayList<>();
+
+    @Override
+    public Collection<MetricTimeSeries> query(MetricDataQuery query) {
+      queries.add(query);
+      List<MetricTimeSeries> result = new ArrayList<>();
+      for (String metric : query.getMetrics().keySet()) {
+        Long value = values.get(metric);
+        if (value != null) {
+          result.add(new MetricTimeSeries(metric, Collections.emptyMap(),
+                                          Collections.singletonList(new TimeValue(0L, value))));
+        }
+      }
+      return result;
+    }
+
+    @Override
+    public Collection<String> findMetricNames(MetricSearchQuery query) {
+      return new ArrayList<>(values.keySet());
+    }
+
+    @Override
+    public void setMetricsContext(MetricsContext metricsContext) {
+      // no-op
+    }
+
+    @Override
+    public void add(MetricValues metricValues) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void add(Collection<? extends MetricValues> metricValues) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteBefore(long timestamp) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteTTLExpired() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void delete(MetricDeleteQuery query) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteAll() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Collection<TagValue> findNextAvailableTags(MetricSearchQuery query) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<String, MetricsProcessorStatus> getMetricsProcessorStats() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}